@@ -18,6 +18,7 @@ package org.gwtproject.core.client.impl;
 import com.google.gwt.junit.client.GWTTestCase;
 import elemental2.core.JsArray;
 import org.gwtproject.core.client.Duration;
+import org.gwtproject.core.client.Scheduler.Priority;
 import org.gwtproject.core.client.Scheduler.RepeatingCommand;
 import org.gwtproject.core.client.Scheduler.ScheduledCommand;
 import org.gwtproject.core.client.impl.SchedulerImpl.Task;
@@ -102,19 +103,19 @@ public class SchedulerImplTest extends GWTTestCase {
     final boolean[] values = {false};
     impl.scheduleDeferred(new ArraySetterCommand(values));
 
-    assertEquals(1, impl.deferredCommands.length);
+    assertEquals(1, impl.lanes.getDeferredCount(Priority.RENDER));
 
     ScheduledCommand nullCommand = new NullCommand();
     impl.scheduleDeferred(nullCommand);
-    assertEquals(2, impl.deferredCommands.length);
-    assertSame(nullCommand, impl.deferredCommands.getAt(1).getScheduled());
+    assertEquals(2, impl.lanes.getDeferredCount(Priority.RENDER));
+    assertSame(nullCommand, impl.lanes.getDeferred(Priority.RENDER, 1));
 
     impl.scheduleDeferred(
         new ScheduledCommand() {
           @Override
           public void execute() {
             assertTrue(values[0]);
-            assertNull(impl.deferredCommands);
+            assertEquals(0, impl.lanes.getDeferredCount(Priority.RENDER));
             finishTest();
           }
         });
@@ -273,31 +274,60 @@ public class SchedulerImplTest extends GWTTestCase {
     impl.scheduleIncremental(counter);
 
     // The first pass is scheduled as a deferred command
-    assertEquals(1, impl.deferredCommands.length);
+    assertEquals(1, impl.lanes.getDeferredCount(Priority.RENDER));
 
     impl.scheduleDeferred(
         new ScheduledCommand() {
           @Override
           public void execute() {
-            // After the incremental command has fired, it's moved to a new queue
-            assertNull(impl.deferredCommands);
+            // After the incremental command has fired, it's moved to the incremental commands
+            assertEquals(0, impl.lanes.getDeferredCount(Priority.RENDER));
             assertTrue(String.valueOf(values[0]), values[0] <= values[1]);
 
             if (values[0] == values[1]) {
-              // Haven't yet cleared the queue, still in flushPostEventPumpCommands
-              assertNotNull(impl.incrementalCommands);
-              assertEquals(0, impl.incrementalCommands.length);
+              assertEquals(0, impl.lanes.getIncrementalCount(Priority.RENDER));
               finishTest();
             } else {
-              assertNotNull(impl.incrementalCommands);
-              assertEquals(1, impl.incrementalCommands.length);
-              assertSame(counter, impl.incrementalCommands.getAt(0).getRepeating());
+              assertEquals(1, impl.lanes.getIncrementalCount(Priority.RENDER));
+              assertSame(counter, impl.lanes.getIncremental(Priority.RENDER, 0));
               impl.scheduleDeferred(this);
             }
           }
         });
 
-    assertEquals(2, impl.deferredCommands.length);
+    assertEquals(2, impl.lanes.getDeferredCount(Priority.RENDER));
+
+    delayTestFinish(TEST_DELAY);
+  }
+
+  public void testPriorities() {
+    final SchedulerImpl impl = new SchedulerImpl();
+    final StringBuilder order = new StringBuilder();
+
+    impl.scheduleDeferred(
+        new ScheduledCommand() {
+          @Override
+          public void execute() {
+            assertEquals("input,render,", order.toString());
+            finishTest();
+          }
+        },
+        Priority.IDLE);
+    impl.scheduleDeferred(
+        new ScheduledCommand() {
+          @Override
+          public void execute() {
+            order.append("render,");
+          }
+        });
+    impl.scheduleDeferred(
+        new ScheduledCommand() {
+          @Override
+          public void execute() {
+            order.append("input,");
+          }
+        },
+        Priority.USER_INPUT);
 
     delayTestFinish(TEST_DELAY);
   }
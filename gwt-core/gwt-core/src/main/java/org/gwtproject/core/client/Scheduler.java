@@ -40,6 +40,25 @@ public abstract class Scheduler {
     void execute();
   }
 
+  /**
+   * The lane a deferred or incremental command is queued in. Commands in a lane are only run when
+   * all lanes of higher priority are empty, so long-running background work cannot delay work that
+   * is queued later with a higher priority.
+   */
+  public enum Priority {
+    /** Work that responds directly to user input, run before anything else. */
+    USER_INPUT,
+    /**
+     * Work that updates what the user sees. Commands scheduled without a priority use this lane.
+     */
+    RENDER,
+    /**
+     * Background work, run only when no other work is queued and the browser is idle, if it can
+     * tell when it is.
+     */
+    IDLE
+  }
+
   /**
    * Returns the default implementation of the Scheduler API.
    *
@@ -56,6 +75,19 @@ public abstract class Scheduler {
    */
   public abstract void scheduleDeferred(ScheduledCommand cmd);
 
+  /**
+   * A deferred command is executed after the browser event loop returns, after the deferred
+   * commands of higher priority.
+   *
+   * <p>The default implementation ignores the priority.
+   *
+   * @param cmd the command to execute
+   * @param priority the lane to queue the command in
+   */
+  public void scheduleDeferred(ScheduledCommand cmd, Priority priority) {
+    scheduleDeferred(cmd);
+  }
+
   /**
    * An "entry" command will be executed before GWT-generated code is invoked by the browser's event
    * loop. The {@link RepeatingCommand} will be called once per entry from the event loop until
@@ -151,4 +183,18 @@ public abstract class Scheduler {
    * @param cmd the command to execute
    */
   public abstract void scheduleIncremental(RepeatingCommand cmd);
+
+  /**
+   * Schedules a repeating command that performs incremental work in the given lane. The command is
+   * only invoked while no command of higher priority is queued, e.g. incremental work in the {@link
+   * Priority#IDLE} lane yields to rendering work that is scheduled after it.
+   *
+   * <p>The default implementation ignores the priority.
+   *
+   * @param cmd the command to execute
+   * @param priority the lane to queue the command in
+   */
+  public void scheduleIncremental(RepeatingCommand cmd, Priority priority) {
+    scheduleIncremental(cmd);
+  }
 }
@@ -19,6 +19,7 @@ import elemental2.core.JsArray;
 import elemental2.dom.DomGlobal;
 import elemental2.dom.DomGlobal.SetIntervalCallbackFn;
 import elemental2.dom.DomGlobal.SetTimeoutCallbackFn;
+import elemental2.dom.IdleDeadline;
 import elemental2.promise.Promise;
 import jsinterop.annotations.JsOverlay;
 import jsinterop.annotations.JsPackage;
@@ -71,6 +72,17 @@ public class SchedulerImpl extends Scheduler {
     public boolean isRepeating() {
       return getAt(1).asBoolean();
     }
+
+    /** When the command was queued, only maintained for instrumentation. */
+    @JsOverlay
+    public double getQueuedAt() {
+      return getAt(2).asDouble();
+    }
+
+    @JsOverlay
+    public void setQueuedAt(double queuedAt) {
+      setAt(2, Js.asAny(queuedAt));
+    }
   }
 
   /** Calls {@link org.gwtproject.core.client.impl.SchedulerImpl#flushPostEventPumpCommands()}. */
@@ -97,6 +109,9 @@ public class SchedulerImpl extends Scheduler {
          * FLUSHER.execute() started, but did not finish. Reschedule FLUSHER.
          */
         scheduleFixedDelay(flusher, FLUSHER_DELAY);
+        if (TaskLanes.INSTRUMENTATION_ENABLED && instrumentation != null) {
+          instrumentation.onRescued();
+        }
       }
       return shouldBeRunning;
     }
@@ -115,12 +130,20 @@ public class SchedulerImpl extends Scheduler {
   private static final int RESCUE_DELAY = 50;
 
   /**
-   * The amount of time that we're willing to spend executing IncrementalCommands. 16ms allows
-   * control to be returned to the browser 60 times a second making it possible to keep the frame
-   * rate at 60fps.
+   * The default amount of time that we're willing to spend executing IncrementalCommands. 16ms
+   * allows control to be returned to the browser 60 times a second making it possible to keep the
+   * frame rate at 60fps.
    */
   private static final double TIME_SLICE = 16;
 
+  /**
+   * Whether the browser can tell when it is idle, otherwise idle work is run by the flusher. Probes
+   * the global object rather than {@code window}, which is not defined in Web Workers.
+   */
+  private static boolean supportsIdleCallbacks() {
+    return Js.global().has("requestIdleCallback");
+  }
+
   /** Extract boilerplate code. */
   private static JsArray<Task> createQueue() {
     return new JsArray<>();
@@ -149,7 +172,7 @@ public class SchedulerImpl extends Scheduler {
    * @return <code>rescheduled</code> or a newly-allocated array if <code>rescheduled</code> is
    *     null.
    */
-  private static JsArray<Task> runScheduledTasks(JsArray<Task> tasks, JsArray<Task> rescheduled) {
+  private JsArray<Task> runScheduledTasks(JsArray<Task> tasks, JsArray<Task> rescheduled) {
     assert tasks != null : "tasks";
 
     for (int i = 0, j = tasks.length; i < j; i++) {
@@ -158,12 +181,8 @@ public class SchedulerImpl extends Scheduler {
 
       try {
         // Move repeating commands to incremental commands queue
-        if (t.isRepeating()) {
-          if (t.executeRepeating()) {
-            rescheduled = push(rescheduled, t);
-          }
-        } else {
-          t.executeScheduled();
+        if (execute(t)) {
+          rescheduled = push(rescheduled, t);
         }
       } catch (Throwable e) {
         GWT.reportUncaughtException(e);
@@ -218,14 +237,23 @@ public class SchedulerImpl extends Scheduler {
 
   /*
    * Work queues. Timers store their state on the function, so we don't need to
-   * track them. They are not final so that we don't have to shorten them.
-   * Processing the values in the queues is a one-shot, and then the array is
-   * discarded.
+   * track them. The finally queue is not final so that we don't have to
+   * shorten it. Processing the values in the queue is a one-shot, and then the
+   * array is discarded.
    */
-  JsArray<Task> deferredCommands;
   //    JsArray<Task> entryCommands;
   JsArray<Task> finallyCommands;
-  JsArray<Task> incrementalCommands;
+
+  /** Deferred and incremental commands, by priority. */
+  final TaskLanes lanes = new TaskLanes(GWT::reportUncaughtException);
+
+  /** Whether the IDLE lane is flushed from idle callbacks rather than by the flusher. */
+  final boolean idleCallbacks = supportsIdleCallbacks();
+
+  private double timeSlice = TIME_SLICE;
+
+  /** Receives metrics, {@code null} unless instrumentation is enabled. */
+  private SchedulerInstrumentation instrumentation;
 
   /*
    * These two flags are used to control the state of the flusher and rescuer
@@ -234,6 +262,8 @@ public class SchedulerImpl extends Scheduler {
   private boolean flushRunning = false;
   private boolean shouldBeRunning = false;
 
+  private boolean idleCallbackRequested = false;
+
   /** Unused, since we have no $entry used on every JS call */
   //    public void flushEntryCommands() {
   //        if (entryCommands != null) {
@@ -263,8 +293,13 @@ public class SchedulerImpl extends Scheduler {
 
   @Override
   public void scheduleDeferred(ScheduledCommand cmd) {
-    deferredCommands = push(deferredCommands, Task.create(cmd));
-    maybeSchedulePostEventPumpCommands();
+    scheduleDeferred(cmd, Priority.RENDER);
+  }
+
+  @Override
+  public void scheduleDeferred(ScheduledCommand cmd, Priority priority) {
+    lanes.add(cmd, priority);
+    maybeScheduleFlush(priority);
   }
 
   @Override
@@ -289,7 +324,7 @@ public class SchedulerImpl extends Scheduler {
                 return null;
               });
     }
-    finallyCommands = push(finallyCommands, Task.create(cmd));
+    pushFinally(Task.create(cmd));
   }
 
   @Override
@@ -302,7 +337,7 @@ public class SchedulerImpl extends Scheduler {
                 return null;
               });
     }
-    finallyCommands = push(finallyCommands, Task.create(cmd));
+    pushFinally(Task.create(cmd));
   }
 
   @Override
@@ -317,9 +352,49 @@ public class SchedulerImpl extends Scheduler {
 
   @Override
   public void scheduleIncremental(RepeatingCommand cmd) {
-    // Push repeating commands onto the same initial queue for relative order
-    deferredCommands = push(deferredCommands, Task.create(cmd));
-    maybeSchedulePostEventPumpCommands();
+    scheduleIncremental(cmd, Priority.RENDER);
+  }
+
+  @Override
+  public void scheduleIncremental(RepeatingCommand cmd, Priority priority) {
+    // Queue repeating commands with the deferred ones for relative order
+    lanes.add(cmd, priority);
+    maybeScheduleFlush(priority);
+  }
+
+  /**
+   * Enables instrumentation of this scheduler, or disables it if {@code instrumentation} is {@code
+   * null}. Fixed delay and fixed period commands are not instrumented.
+   *
+   * <p>Instrumentation is compiled out unless the {@code gwt.scheduler.instrumentation} property is
+   * set to {@code true}. When it is not, this method has no effect.
+   *
+   * @param instrumentation receives the metrics of this scheduler, may be {@code null}
+   */
+  public void setInstrumentation(SchedulerInstrumentation instrumentation) {
+    if (TaskLanes.INSTRUMENTATION_ENABLED) {
+      this.instrumentation = instrumentation;
+      lanes.setInstrumentation(instrumentation, Duration::currentTimeMillis);
+    }
+  }
+
+  /** Returns the time budget of each flush of incremental commands, in milliseconds. */
+  public double getTimeSlice() {
+    return timeSlice;
+  }
+
+  /**
+   * Sets the time budget of each flush of incremental commands. Shorter slices keep the page more
+   * responsive, longer ones get work done with less overhead. Idle work that is run from idle
+   * callbacks gets the time the browser grants instead.
+   *
+   * @param timeSlice the budget in milliseconds, defaults to 16
+   */
+  public void setTimeSlice(double timeSlice) {
+    if (!(timeSlice > 0)) {
+      throw new IllegalArgumentException("Time slice must be positive: " + timeSlice);
+    }
+    this.timeSlice = timeSlice;
   }
 
   /** there for testing */
@@ -327,26 +402,83 @@ public class SchedulerImpl extends Scheduler {
     return new Duration();
   }
 
+  /**
+   * Runs a finally command.
+   *
+   * @return true if the command should be invoked again
+   */
+  private boolean execute(Task t) {
+    SchedulerInstrumentation instrumentation = this.instrumentation;
+    if (!TaskLanes.INSTRUMENTATION_ENABLED || instrumentation == null) {
+      return executeUninstrumented(t);
+    }
+    double start = Duration.currentTimeMillis();
+    try {
+      return executeUninstrumented(t);
+    } finally {
+      double end = Duration.currentTimeMillis();
+      Object cmd = t.isRepeating() ? t.getRepeating() : t.getScheduled();
+      instrumentation.onCommandRun(
+          cmd, SchedulerInstrumentation.Queue.FINALLY, null, start - t.getQueuedAt(), end - start);
+      t.setQueuedAt(end);
+    }
+  }
+
+  private static boolean executeUninstrumented(Task t) {
+    if (t.isRepeating()) {
+      return t.executeRepeating();
+    }
+    t.executeScheduled();
+    return false;
+  }
+
+  private void pushFinally(Task task) {
+    finallyCommands = push(finallyCommands, task);
+    if (TaskLanes.INSTRUMENTATION_ENABLED && instrumentation != null) {
+      task.setQueuedAt(Duration.currentTimeMillis());
+      instrumentation.onEnqueued(
+          SchedulerInstrumentation.Queue.FINALLY, null, finallyCommands.length);
+    }
+  }
+
   /** Called by Flusher. */
   void flushPostEventPumpCommands() {
-    if (deferredCommands != null) {
-      JsArray<Task> oldDeferred = deferredCommands;
-      deferredCommands = null;
+    Duration duration = createDuration();
+    lanes.run(() -> timeSlice - duration.elapsedMillis(), !idleCallbacks);
+  }
 
-      /* We might not have any incremental commands queued. */
-      if (incrementalCommands == null) {
-        incrementalCommands = createQueue();
+  /** Called from idle callbacks, works on the IDLE lane as long as the browser stays idle. */
+  void flushIdleCommands(IdleDeadline deadline) {
+    try {
+      lanes.run(deadline::timeRemaining, true);
+    } finally {
+      if (lanes.hasWork(Priority.IDLE)) {
+        maybeRequestIdleCallback();
       }
-      runScheduledTasks(oldDeferred, incrementalCommands);
     }
+  }
 
-    if (incrementalCommands != null) {
-      incrementalCommands = runRepeatingTasks(incrementalCommands);
+  boolean isWorkQueued() {
+    return lanes.hasWork(idleCallbacks ? Priority.RENDER : Priority.IDLE);
+  }
+
+  private void maybeScheduleFlush(Priority priority) {
+    if (priority == Priority.IDLE && idleCallbacks) {
+      maybeRequestIdleCallback();
+    } else {
+      maybeSchedulePostEventPumpCommands();
     }
   }
 
-  boolean isWorkQueued() {
-    return deferredCommands != null || incrementalCommands != null;
+  private void maybeRequestIdleCallback() {
+    if (!idleCallbackRequested) {
+      idleCallbackRequested = true;
+      DomGlobal.requestIdleCallback(
+          deadline -> {
+            idleCallbackRequested = false;
+            flushIdleCommands(deadline);
+          });
+    }
   }
 
   private void maybeSchedulePostEventPumpCommands() {
@@ -364,59 +496,4 @@ public class SchedulerImpl extends Scheduler {
       scheduleFixedDelayImpl(rescue, RESCUE_DELAY);
     }
   }
-
-  /**
-   * Execute a list of Tasks that hold RepeatingCommands.
-   *
-   * @return A replacement array that is possibly a shorter copy of <code>tasks</code>
-   */
-  private JsArray<Task> runRepeatingTasks(JsArray<Task> tasks) {
-    assert tasks != null : "tasks";
-
-    int length = tasks.length;
-    if (length == 0) {
-      return null;
-    }
-
-    boolean canceledSomeTasks = false;
-
-    Duration duration = createDuration();
-    while (duration.elapsedMillis() < TIME_SLICE) {
-      boolean executedSomeTask = false;
-      for (int i = 0; i < length; i++) {
-        assert tasks.length == length
-            : "Working array length changed " + tasks.length + " != " + length;
-        Task t = tasks.getAt(i);
-        if (t == null) {
-          continue;
-        }
-        executedSomeTask = true;
-
-        assert t.isRepeating() : "Found a non-repeating Task";
-
-        if (!t.executeRepeating()) {
-          tasks.setAt(i, null);
-          canceledSomeTasks = true;
-        }
-      }
-      if (!executedSomeTask) {
-        // no work left to do, break to avoid busy waiting until TIME_SLICE is reached
-        break;
-      }
-    }
-
-    if (canceledSomeTasks) {
-      JsArray<Task> newTasks = createQueue();
-      // Remove tombstones
-      for (int i = 0; i < length; i++) {
-        if (tasks.getAt(i) != null) {
-          newTasks.push(tasks.getAt(i));
-        }
-      }
-      assert newTasks.length < length;
-      return newTasks.length == 0 ? null : newTasks;
-    } else {
-      return tasks;
-    }
-  }
 }
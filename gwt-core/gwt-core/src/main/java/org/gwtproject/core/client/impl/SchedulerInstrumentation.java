@@ -0,0 +1,65 @@
+/*
+ * Copyright © 2019 The GWT Project Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.gwtproject.core.client.impl;
+
+import org.gwtproject.core.client.Scheduler.Priority;
+
+/**
+ * Receives notifications about the commands run by a scheduler, for gathering metrics.
+ *
+ * <p>Instrumentation is disabled unless one is set, see {@link
+ * SchedulerImpl#setInstrumentation(SchedulerInstrumentation)}. In compiled code it is only
+ * available when the {@code gwt.scheduler.instrumentation} property is {@code true}, otherwise it
+ * is compiled out. A ready-made implementation is {@link
+ * org.gwtproject.core.client.testing.SchedulerMetrics}.
+ */
+public interface SchedulerInstrumentation {
+
+  /** The queues of a scheduler. */
+  enum Queue {
+    /** Commands run before control returns to the browser's event loop. */
+    FINALLY,
+    /** Commands that have not been run yet, after the browser's event loop returns. */
+    DEFERRED,
+    /** Repeating commands that have been run and want to be invoked again. */
+    INCREMENTAL
+  }
+
+  /**
+   * Called when a command has been added to a queue.
+   *
+   * @param queue the queue
+   * @param priority the lane of the queue, {@code null} for {@link Queue#FINALLY}
+   * @param depth the number of commands in the queue, including the new one
+   */
+  void onEnqueued(Queue queue, Priority priority, int depth);
+
+  /**
+   * Called after a command has been run, whether or not it threw an exception.
+   *
+   * @param command the command
+   * @param queue the queue the command was run from
+   * @param priority the lane of the queue, {@code null} for {@link Queue#FINALLY}
+   * @param waitMillis how long the command waited, since it was queued or, for incremental
+   *     commands, since it last ran
+   * @param runMillis how long the command took
+   */
+  void onCommandRun(
+      Object command, Queue queue, Priority priority, double waitMillis, double runMillis);
+
+  /** Called when the flusher of deferred commands did not finish and had to be rescheduled. */
+  void onRescued();
+}
@@ -0,0 +1,325 @@
+/*
+ * Copyright © 2019 The GWT Project Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.gwtproject.core.client.impl;
+
+import java.util.ArrayList;
+import java.util.List;
+import org.gwtproject.core.client.GWT.UncaughtExceptionHandler;
+import org.gwtproject.core.client.Scheduler.Priority;
+import org.gwtproject.core.client.Scheduler.RepeatingCommand;
+import org.gwtproject.core.client.Scheduler.ScheduledCommand;
+import org.gwtproject.core.client.impl.SchedulerInstrumentation.Queue;
+import org.gwtproject.core.shared.GWT;
+
+/**
+ * The deferred and incremental commands of a scheduler, queued by {@link Priority}.
+ *
+ * <p>Each call to {@link #run} is one flush:
+ *
+ * <ol>
+ *   <li>the newly deferred commands of the {@link Priority#USER_INPUT} and {@link Priority#RENDER}
+ *       lanes are run once, in priority order. Repeating commands that want to be invoked again
+ *       stay in their lane as incremental commands;
+ *   <li>while the deadline has time remaining, but at least once, the incremental commands of the
+ *       highest non-empty lane are invoked in turn. The {@link Priority#IDLE} lane, including its
+ *       newly deferred commands, is only worked on once the other lanes are empty, and only if
+ *       asked to.
+ * </ol>
+ *
+ * Commands scheduled while flushing wait for the next flush. This class does not depend on the
+ * browser, so that the lane policy can be tested on the JVM, see {@link
+ * org.gwtproject.core.client.testing.StubScheduler}.
+ */
+public final class TaskLanes {
+
+  /** Tells how much of the time budget of a flush is left. */
+  public interface Deadline {
+    /** @return the time remaining in milliseconds, zero or less once it has passed */
+    double timeRemaining();
+  }
+
+  /** The time source of instrumentation. */
+  public interface Clock {
+    /** @return the current time in milliseconds */
+    double currentTimeMillis();
+  }
+
+  /**
+   * Whether {@link SchedulerInstrumentation} is supported. Compiled code only supports it if the
+   * {@code gwt.scheduler.instrumentation} property is {@code true}, so that it is compiled out
+   * otherwise.
+   */
+  static final boolean INSTRUMENTATION_ENABLED =
+      !GWT.isScript()
+          || "true".equals(System.getProperty("gwt.scheduler.instrumentation", "false"));
+
+  private final UncaughtExceptionHandler exceptionHandler;
+
+  private final Lane[] lanes = new Lane[Priority.values().length];
+
+  /** Receives metrics, {@code null} unless instrumentation is enabled. */
+  private SchedulerInstrumentation instrumentation;
+
+  private Clock clock;
+
+  /**
+   * Creates empty lanes.
+   *
+   * @param exceptionHandler receives the exceptions thrown by deferred commands; exceptions thrown
+   *     by incremental commands are propagated
+   */
+  public TaskLanes(UncaughtExceptionHandler exceptionHandler) {
+    this.exceptionHandler = exceptionHandler;
+    for (Priority priority : Priority.values()) {
+      lanes[priority.ordinal()] = new Lane(priority);
+    }
+  }
+
+  /**
+   * Enables instrumentation of the lanes, or disables it if {@code instrumentation} is {@code
+   * null}. Has no effect if instrumentation is compiled out.
+   *
+   * @param instrumentation receives the metrics of the lanes, may be {@code null}
+   * @param clock measures the waiting and running times of commands
+   */
+  public void setInstrumentation(SchedulerInstrumentation instrumentation, Clock clock) {
+    if (INSTRUMENTATION_ENABLED) {
+      this.instrumentation = instrumentation;
+      this.clock = clock;
+    }
+  }
+
+  /** Queues a command to be run once by the next flush that works on its lane. */
+  public void add(ScheduledCommand cmd, Priority priority) {
+    lane(priority).add(new Task(cmd, false));
+  }
+
+  /**
+   * Queues a repeating command to be run by the next flush that works on its lane, and then
+   * incrementally until it returns {@code false}.
+   */
+  public void add(RepeatingCommand cmd, Priority priority) {
+    lane(priority).add(new Task(cmd, true));
+  }
+
+  /** Returns the number of commands in the lane that have not been run yet. */
+  public int getDeferredCount(Priority priority) {
+    return lane(priority).deferred.size();
+  }
+
+  /** Returns the number of repeating commands in the lane that have been run at least once. */
+  public int getIncrementalCount(Priority priority) {
+    return lane(priority).incremental.size();
+  }
+
+  /**
+   * Returns the command at {@code index} among those not run yet in the lane. Visible for testing.
+   */
+  Object getDeferred(Priority priority, int index) {
+    return lane(priority).deferred.get(index).cmd;
+  }
+
+  /**
+   * Returns the repeating command at {@code index} among those run at least once. Visible for
+   * testing.
+   */
+  Object getIncremental(Priority priority, int index) {
+    return lane(priority).incremental.get(index).cmd;
+  }
+
+  /** Returns {@code true} if any lane of the given priority or higher has commands queued. */
+  public boolean hasWork(Priority lowest) {
+    for (int i = 0; i <= lowest.ordinal(); i++) {
+      if (!lanes[i].isEmpty()) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * Flushes the lanes.
+   *
+   * @param deadline the time budget for incremental commands
+   * @param includeIdle whether to work on the {@link Priority#IDLE} lane once the others are empty
+   */
+  public void run(Deadline deadline, boolean includeIdle) {
+    Lane idle = lane(Priority.IDLE);
+    for (Lane lane : lanes) {
+      if (lane != idle) {
+        lane.runDeferred();
+      }
+    }
+
+    // the first pass does not check the deadline, so that every flush makes progress
+    boolean firstPass = true;
+    boolean idleDeferredRun = false;
+    while (firstPass || deadline.timeRemaining() > 0) {
+      firstPass = false;
+      Lane lane = null;
+      for (Lane candidate : lanes) {
+        if (!candidate.incremental.isEmpty()) {
+          lane = candidate;
+          break;
+        }
+      }
+      if (lane == idle || lane == null) {
+        if (!includeIdle) {
+          break;
+        }
+        if (!idleDeferredRun) {
+          // as with the other lanes, newly deferred commands get a single run per flush
+          idleDeferredRun = true;
+          idle.runDeferred();
+          continue;
+        }
+        if (idle.incremental.isEmpty()) {
+          // no work left to do, break to avoid busy waiting until the deadline
+          break;
+        }
+        lane = idle;
+      }
+      lane.runIncremental();
+    }
+  }
+
+  private Lane lane(Priority priority) {
+    return lanes[priority.ordinal()];
+  }
+
+  /** A queued command. */
+  private static final class Task {
+    final Object cmd;
+    final boolean repeating;
+
+    /** When the command was queued or last ran, only maintained for instrumentation. */
+    double queuedAt;
+
+    Task(Object cmd, boolean repeating) {
+      this.cmd = cmd;
+      this.repeating = repeating;
+    }
+
+    /** @return true if the command should be invoked again */
+    boolean execute() {
+      if (repeating) {
+        return ((RepeatingCommand) cmd).execute();
+      }
+      ((ScheduledCommand) cmd).execute();
+      return false;
+    }
+  }
+
+  private final class Lane {
+    final Priority priority;
+
+    /** Commands that have not been run yet. */
+    List<Task> deferred = new ArrayList<>();
+
+    /** RepeatingCommands that want to be invoked again. */
+    final List<Task> incremental = new ArrayList<>();
+
+    Lane(Priority priority) {
+      this.priority = priority;
+    }
+
+    boolean isEmpty() {
+      return deferred.isEmpty() && incremental.isEmpty();
+    }
+
+    void add(Task task) {
+      deferred.add(task);
+      if (INSTRUMENTATION_ENABLED && instrumentation != null) {
+        task.queuedAt = clock.currentTimeMillis();
+        instrumentation.onEnqueued(Queue.DEFERRED, priority, deferred.size());
+      }
+    }
+
+    /**
+     * Runs the commands that were queued before this call. If the exception handler rethrows, the
+     * commands that did not run yet stay queued, ahead of those queued meanwhile.
+     */
+    void runDeferred() {
+      if (deferred.isEmpty()) {
+        return;
+      }
+      List<Task> tasks = deferred;
+      deferred = new ArrayList<>();
+      int next = 0;
+      try {
+        while (next < tasks.size()) {
+          Task task = tasks.get(next++);
+          try {
+            if (execute(task, Queue.DEFERRED)) {
+              incremental.add(task);
+              if (INSTRUMENTATION_ENABLED && instrumentation != null) {
+                instrumentation.onEnqueued(Queue.INCREMENTAL, priority, incremental.size());
+              }
+            }
+          } catch (Throwable e) {
+            exceptionHandler.onUncaughtException(e);
+          }
+        }
+      } finally {
+        if (next < tasks.size()) {
+          List<Task> remaining = new ArrayList<>(tasks.subList(next, tasks.size()));
+          remaining.addAll(deferred);
+          deferred = remaining;
+        }
+      }
+    }
+
+    /**
+     * Invokes each incremental command once, dropping those that are done. A command that throws an
+     * exception stays queued, as do the commands it prevented from running.
+     */
+    void runIncremental() {
+      int length = incremental.size();
+      int next = 0;
+      int kept = 0;
+      try {
+        while (next < length) {
+          Task task = incremental.get(next);
+          boolean repeat = execute(task, Queue.INCREMENTAL);
+          next++;
+          if (repeat) {
+            incremental.set(kept++, task);
+          }
+        }
+      } finally {
+        while (next < length) {
+          incremental.set(kept++, incremental.get(next++));
+        }
+        incremental.subList(kept, length).clear();
+      }
+    }
+
+    private boolean execute(Task task, Queue queue) {
+      SchedulerInstrumentation instrumentation = TaskLanes.this.instrumentation;
+      if (!INSTRUMENTATION_ENABLED || instrumentation == null) {
+        return task.execute();
+      }
+      double start = clock.currentTimeMillis();
+      try {
+        return task.execute();
+      } finally {
+        double end = clock.currentTimeMillis();
+        instrumentation.onCommandRun(task.cmd, queue, priority, start - task.queuedAt, end - start);
+        task.queuedAt = end;
+      }
+    }
+  }
+}
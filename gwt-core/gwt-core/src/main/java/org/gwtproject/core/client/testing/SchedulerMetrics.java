@@ -0,0 +1,238 @@
+/*
+ * Copyright © 2019 The GWT Project Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.gwtproject.core.client.testing;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import org.gwtproject.core.client.Scheduler.Priority;
+import org.gwtproject.core.client.impl.SchedulerInstrumentation;
+
+/**
+ * Gathers metrics from an instrumented scheduler: how deep its queues get, how long commands wait
+ * and run, by command class, and how often the flusher had to be rescued.
+ *
+ * <p>Commands that run longer than a threshold, 50ms by default, are reported to the {@link
+ * LongTaskListener} as they finish, which helps finding the command that causes jank.
+ */
+public class SchedulerMetrics implements SchedulerInstrumentation {
+
+  /** Notified of commands that ran longer than the threshold. */
+  public interface LongTaskListener {
+    /**
+     * Called after a long command has run.
+     *
+     * @param command the command
+     * @param queue the queue the command was run from
+     * @param runMillis how long the command took
+     */
+    void onLongTask(Object command, Queue queue, double runMillis);
+  }
+
+  /** Immutable snapshot of the runs of the commands of a class. */
+  public static class CommandStats {
+    private final Class<?> commandClass;
+    private final long count;
+    private final double totalWaitMillis;
+    private final double maxWaitMillis;
+    private final double totalRunMillis;
+    private final double maxRunMillis;
+
+    CommandStats(
+        Class<?> commandClass,
+        long count,
+        double totalWaitMillis,
+        double maxWaitMillis,
+        double totalRunMillis,
+        double maxRunMillis) {
+      this.commandClass = commandClass;
+      this.count = count;
+      this.totalWaitMillis = totalWaitMillis;
+      this.maxWaitMillis = maxWaitMillis;
+      this.totalRunMillis = totalRunMillis;
+      this.maxRunMillis = maxRunMillis;
+    }
+
+    /** The class of the commands. */
+    public Class<?> getCommandClass() {
+      return commandClass;
+    }
+
+    /** The number of runs recorded; each invocation of a repeating command counts. */
+    public long getCount() {
+      return count;
+    }
+
+    /** The total time the commands waited to be run, in milliseconds. */
+    public double getTotalWaitMillis() {
+      return totalWaitMillis;
+    }
+
+    /** The longest time a command waited to be run, in milliseconds. */
+    public double getMaxWaitMillis() {
+      return maxWaitMillis;
+    }
+
+    /** The total time spent running the commands, in milliseconds. */
+    public double getTotalRunMillis() {
+      return totalRunMillis;
+    }
+
+    /** The longest time spent in a single run, in milliseconds. */
+    public double getMaxRunMillis() {
+      return maxRunMillis;
+    }
+  }
+
+  private static final double DEFAULT_LONG_TASK_THRESHOLD = 50;
+
+  private static final int PRIORITIES = Priority.values().length;
+
+  private final double longTaskThreshold;
+  private final LongTaskListener longTaskListener;
+
+  private final Map<Class<?>, ClassMetrics> classes = new HashMap<>();
+
+  /** High-water marks of the finally queue, then of the deferred and incremental lanes. */
+  private final int[] highWaterMarks = new int[1 + 2 * PRIORITIES];
+
+  private long longTasks;
+  private long rescues;
+
+  /** Creates metrics that count commands running longer than 50ms as long tasks. */
+  public SchedulerMetrics() {
+    this(DEFAULT_LONG_TASK_THRESHOLD, null);
+  }
+
+  /**
+   * Creates metrics with a custom long task threshold.
+   *
+   * @param longTaskThreshold how long a command may run before it is reported, in milliseconds
+   * @param longTaskListener notified of long tasks, may be {@code null}
+   */
+  public SchedulerMetrics(double longTaskThreshold, LongTaskListener longTaskListener) {
+    if (!(longTaskThreshold >= 0)) {
+      throw new IllegalArgumentException(
+          "Long task threshold must not be negative: " + longTaskThreshold);
+    }
+    this.longTaskThreshold = longTaskThreshold;
+    this.longTaskListener = longTaskListener;
+  }
+
+  @Override
+  public void onEnqueued(Queue queue, Priority priority, int depth) {
+    int index = index(queue, priority);
+    highWaterMarks[index] = Math.max(highWaterMarks[index], depth);
+  }
+
+  @Override
+  public void onCommandRun(
+      Object command, Queue queue, Priority priority, double waitMillis, double runMillis) {
+    ClassMetrics metrics = classes.get(command.getClass());
+    if (metrics == null) {
+      metrics = new ClassMetrics();
+      classes.put(command.getClass(), metrics);
+    }
+    metrics.count++;
+    metrics.totalWaitMillis += waitMillis;
+    metrics.maxWaitMillis = Math.max(metrics.maxWaitMillis, waitMillis);
+    metrics.totalRunMillis += runMillis;
+    metrics.maxRunMillis = Math.max(metrics.maxRunMillis, runMillis);
+
+    if (runMillis > longTaskThreshold) {
+      longTasks++;
+      if (longTaskListener != null) {
+        longTaskListener.onLongTask(command, queue, runMillis);
+      }
+    }
+  }
+
+  @Override
+  public void onRescued() {
+    rescues++;
+  }
+
+  /**
+   * Returns the largest number of commands that were in a queue at once.
+   *
+   * @param queue the queue
+   * @param priority the lane of the queue, ignored for {@link Queue#FINALLY}
+   */
+  public int getHighWaterMark(Queue queue, Priority priority) {
+    return highWaterMarks[index(queue, priority)];
+  }
+
+  /** Returns a snapshot of the runs of the commands of the given class, {@code null} if none. */
+  public CommandStats getCommandStats(Class<?> commandClass) {
+    ClassMetrics metrics = classes.get(commandClass);
+    return metrics == null ? null : metrics.snapshot(commandClass);
+  }
+
+  /** Returns snapshots of the runs of all command classes, the slowest single run first. */
+  public List<CommandStats> getCommandStats() {
+    List<CommandStats> stats = new ArrayList<>();
+    for (Map.Entry<Class<?>, ClassMetrics> entry : classes.entrySet()) {
+      stats.add(entry.getValue().snapshot(entry.getKey()));
+    }
+    stats.sort((a, b) -> Double.compare(b.getMaxRunMillis(), a.getMaxRunMillis()));
+    return stats;
+  }
+
+  /** How many commands ran longer than the long task threshold. */
+  public long getLongTaskCount() {
+    return longTasks;
+  }
+
+  /** How often the flusher of deferred commands had to be rescued. */
+  public long getRescueCount() {
+    return rescues;
+  }
+
+  /** Clears all metrics. */
+  public void reset() {
+    classes.clear();
+    for (int i = 0; i < highWaterMarks.length; i++) {
+      highWaterMarks[i] = 0;
+    }
+    longTasks = 0;
+    rescues = 0;
+  }
+
+  private static int index(Queue queue, Priority priority) {
+    switch (queue) {
+      case DEFERRED:
+        return 1 + priority.ordinal();
+      case INCREMENTAL:
+        return 1 + PRIORITIES + priority.ordinal();
+      default:
+        return 0;
+    }
+  }
+
+  private static class ClassMetrics {
+    long count;
+    double totalWaitMillis;
+    double maxWaitMillis;
+    double totalRunMillis;
+    double maxRunMillis;
+
+    CommandStats snapshot(Class<?> commandClass) {
+      return new CommandStats(
+          commandClass, count, totalWaitMillis, maxWaitMillis, totalRunMillis, maxRunMillis);
+    }
+  }
+}
@@ -0,0 +1,191 @@
+/*
+ * Copyright © 2019 The GWT Project Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.gwtproject.core.client.testing;
+
+import java.util.ArrayList;
+import java.util.List;
+import org.gwtproject.core.client.Scheduler;
+import org.gwtproject.core.client.impl.SchedulerInstrumentation;
+import org.gwtproject.core.client.impl.TaskLanes;
+
+/**
+ * A no-op implementation of {@link Scheduler} for use in JVM tests, which runs nothing until told
+ * to.
+ *
+ * <p>Deferred and incremental commands are queued by {@link Scheduler.Priority} exactly as by the
+ * browser scheduler, and are run by {@link #flush()} against a simulated clock: commands call
+ * {@link #advanceTime(double)} to pretend they take time, so that tests can check which work gets
+ * done within a {@link #setTimeSlice(double) time slice}. Other commands are only recorded, see
+ * {@link #executeCommands()} and {@link #executeRepeatingCommands()}.
+ */
+public class StubScheduler extends Scheduler {
+
+  private final List<ScheduledCommand> scheduledCommands = new ArrayList<>();
+  private final List<RepeatingCommand> repeatingCommands = new ArrayList<>();
+
+  private final TaskLanes lanes =
+      new TaskLanes(
+          e -> {
+            if (e instanceof RuntimeException) {
+              throw (RuntimeException) e;
+            }
+            if (e instanceof Error) {
+              throw (Error) e;
+            }
+            throw new RuntimeException(e);
+          });
+
+  private double currentTimeMillis;
+  private double timeSlice = 16;
+
+  /** Returns the simulated time, in milliseconds. */
+  public double getCurrentTimeMillis() {
+    return currentTimeMillis;
+  }
+
+  /** Moves the simulated clock forward, typically from a command pretending to do some work. */
+  public void advanceTime(double millis) {
+    currentTimeMillis += millis;
+  }
+
+  /** Sets the time budget of each {@link #flush()}, in simulated milliseconds. */
+  public void setTimeSlice(double timeSlice) {
+    this.timeSlice = timeSlice;
+  }
+
+  /**
+   * Enables instrumentation of the deferred and incremental commands, timed by the simulated clock,
+   * or disables it if {@code instrumentation} is {@code null}.
+   */
+  public void setInstrumentation(SchedulerInstrumentation instrumentation) {
+    lanes.setInstrumentation(instrumentation, this::getCurrentTimeMillis);
+  }
+
+  /**
+   * Runs the deferred and incremental commands like one flush of the browser scheduler, including
+   * the {@link Scheduler.Priority#IDLE} lane once the other lanes are empty. Exceptions thrown by
+   * the commands are propagated.
+   *
+   * @return whether any deferred or incremental command is still queued
+   */
+  public boolean flush() {
+    double deadline = currentTimeMillis + timeSlice;
+    lanes.run(() -> deadline - currentTimeMillis, true);
+    return lanes.hasWork(Priority.IDLE);
+  }
+
+  /** Returns the number of commands of the given priority that have not been run yet. */
+  public int getDeferredCount(Priority priority) {
+    return lanes.getDeferredCount(priority);
+  }
+
+  /** Returns the number of incremental commands of the given priority that are still running. */
+  public int getIncrementalCount(Priority priority) {
+    return lanes.getIncrementalCount(priority);
+  }
+
+  /** Returns the recorded repeating entry, finally, fixed delay and fixed period commands. */
+  public List<RepeatingCommand> getRepeatingCommands() {
+    return repeatingCommands;
+  }
+
+  /** Returns the recorded entry and finally commands. */
+  public List<ScheduledCommand> getScheduledCommands() {
+    return scheduledCommands;
+  }
+
+  /**
+   * Executes the recorded {@link RepeatingCommand}s once, removing those that are done.
+   *
+   * @return whether any command is left
+   */
+  public boolean executeRepeatingCommands() {
+    List<RepeatingCommand> commands = new ArrayList<>(repeatingCommands);
+    repeatingCommands.clear();
+    for (RepeatingCommand command : commands) {
+      if (command.execute()) {
+        repeatingCommands.add(command);
+      }
+    }
+    return !repeatingCommands.isEmpty();
+  }
+
+  /**
+   * Executes the recorded {@link ScheduledCommand}s.
+   *
+   * @return whether the commands scheduled new ones
+   */
+  public boolean executeCommands() {
+    List<ScheduledCommand> commands = new ArrayList<>(scheduledCommands);
+    scheduledCommands.clear();
+    for (ScheduledCommand command : commands) {
+      command.execute();
+    }
+    return !scheduledCommands.isEmpty();
+  }
+
+  @Override
+  public void scheduleDeferred(ScheduledCommand cmd) {
+    scheduleDeferred(cmd, Priority.RENDER);
+  }
+
+  @Override
+  public void scheduleDeferred(ScheduledCommand cmd, Priority priority) {
+    lanes.add(cmd, priority);
+  }
+
+  @Override
+  @Deprecated
+  public void scheduleEntry(RepeatingCommand cmd) {
+    repeatingCommands.add(cmd);
+  }
+
+  @Override
+  @Deprecated
+  public void scheduleEntry(ScheduledCommand cmd) {
+    scheduledCommands.add(cmd);
+  }
+
+  @Override
+  public void scheduleFinally(RepeatingCommand cmd) {
+    repeatingCommands.add(cmd);
+  }
+
+  @Override
+  public void scheduleFinally(ScheduledCommand cmd) {
+    scheduledCommands.add(cmd);
+  }
+
+  @Override
+  public void scheduleFixedDelay(RepeatingCommand cmd, int delayMs) {
+    repeatingCommands.add(cmd);
+  }
+
+  @Override
+  public void scheduleFixedPeriod(RepeatingCommand cmd, int delayMs) {
+    repeatingCommands.add(cmd);
+  }
+
+  @Override
+  public void scheduleIncremental(RepeatingCommand cmd) {
+    scheduleIncremental(cmd, Priority.RENDER);
+  }
+
+  @Override
+  public void scheduleIncremental(RepeatingCommand cmd, Priority priority) {
+    lanes.add(cmd, priority);
+  }
+}
@@ -0,0 +1,155 @@
+/*
+ * Copyright © 2019 The GWT Project Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.gwtproject.core.client.testing;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+import java.util.ArrayList;
+import java.util.List;
+import org.gwtproject.core.client.Scheduler.Priority;
+import org.gwtproject.core.client.Scheduler.RepeatingCommand;
+import org.gwtproject.core.client.Scheduler.ScheduledCommand;
+import org.gwtproject.core.client.impl.SchedulerInstrumentation.Queue;
+import org.junit.Test;
+
+public class SchedulerMetricsTest {
+
+  private final StubScheduler scheduler = new StubScheduler();
+
+  private class SlowCommand implements ScheduledCommand {
+    private final double cost;
+
+    SlowCommand(double cost) {
+      this.cost = cost;
+    }
+
+    @Override
+    public void execute() {
+      scheduler.advanceTime(cost);
+    }
+  }
+
+  private class Counter implements RepeatingCommand {
+    int remaining;
+
+    Counter(int remaining) {
+      this.remaining = remaining;
+    }
+
+    @Override
+    public boolean execute() {
+      scheduler.advanceTime(2);
+      return --remaining > 0;
+    }
+  }
+
+  @Test
+  public void testCommandStats() {
+    SchedulerMetrics metrics = new SchedulerMetrics();
+    scheduler.setInstrumentation(metrics);
+
+    scheduler.scheduleDeferred(new SlowCommand(1));
+    scheduler.scheduleDeferred(new SlowCommand(3));
+    scheduler.advanceTime(5);
+    scheduler.flush();
+
+    SchedulerMetrics.CommandStats stats = metrics.getCommandStats(SlowCommand.class);
+    assertEquals(2, stats.getCount());
+    assertEquals(4, stats.getTotalRunMillis(), 0);
+    assertEquals(3, stats.getMaxRunMillis(), 0);
+    // the second command waited for the first
+    assertEquals(11, stats.getTotalWaitMillis(), 0);
+    assertEquals(6, stats.getMaxWaitMillis(), 0);
+    assertNull(metrics.getCommandStats(Counter.class));
+  }
+
+  @Test
+  public void testIncrementalWaitIsSinceLastRun() {
+    SchedulerMetrics metrics = new SchedulerMetrics();
+    scheduler.setInstrumentation(metrics);
+
+    scheduler.scheduleIncremental(new Counter(3), Priority.IDLE);
+    scheduler.scheduleIncremental(new Counter(2));
+    scheduler.flush();
+
+    SchedulerMetrics.CommandStats stats = metrics.getCommandStats(Counter.class);
+    assertEquals(5, stats.getCount());
+    assertEquals(10, stats.getTotalRunMillis(), 0);
+    // the idle counter waited for both runs of the render counter
+    assertEquals(4, stats.getMaxWaitMillis(), 0);
+  }
+
+  @Test
+  public void testHighWaterMarks() {
+    SchedulerMetrics metrics = new SchedulerMetrics();
+    scheduler.setInstrumentation(metrics);
+
+    scheduler.scheduleDeferred(new SlowCommand(0));
+    scheduler.scheduleDeferred(new SlowCommand(0));
+    scheduler.scheduleIncremental(new Counter(2), Priority.USER_INPUT);
+    scheduler.flush();
+    scheduler.scheduleDeferred(new SlowCommand(0));
+    scheduler.flush();
+
+    assertEquals(2, metrics.getHighWaterMark(Queue.DEFERRED, Priority.RENDER));
+    assertEquals(1, metrics.getHighWaterMark(Queue.DEFERRED, Priority.USER_INPUT));
+    assertEquals(1, metrics.getHighWaterMark(Queue.INCREMENTAL, Priority.USER_INPUT));
+    assertEquals(0, metrics.getHighWaterMark(Queue.INCREMENTAL, Priority.RENDER));
+    assertEquals(0, metrics.getHighWaterMark(Queue.FINALLY, null));
+
+    metrics.reset();
+    assertEquals(0, metrics.getHighWaterMark(Queue.DEFERRED, Priority.RENDER));
+  }
+
+  @Test
+  public void testLongTasks() {
+    List<Object> reported = new ArrayList<>();
+    SchedulerMetrics metrics =
+        new SchedulerMetrics(10, (command, queue, runMillis) -> reported.add(command));
+    scheduler.setInstrumentation(metrics);
+
+    SlowCommand slow = new SlowCommand(20);
+    scheduler.scheduleDeferred(new SlowCommand(5));
+    scheduler.scheduleDeferred(slow);
+    scheduler.flush();
+
+    assertEquals(1, metrics.getLongTaskCount());
+    assertEquals(1, reported.size());
+    assertSame(slow, reported.get(0));
+    assertSame(SlowCommand.class, metrics.getCommandStats().get(0).getCommandClass());
+  }
+
+  @Test
+  public void testThrowingCommandIsTimed() {
+    SchedulerMetrics metrics = new SchedulerMetrics();
+    scheduler.setInstrumentation(metrics);
+
+    scheduler.scheduleDeferred(
+        () -> {
+          scheduler.advanceTime(1);
+          throw new IllegalStateException();
+        });
+    try {
+      scheduler.flush();
+    } catch (IllegalStateException e) {
+      // expected
+    }
+    assertEquals(1, metrics.getCommandStats().size());
+    assertEquals(1, metrics.getCommandStats().get(0).getTotalRunMillis(), 0);
+  }
+}
@@ -0,0 +1,192 @@
+/*
+ * Copyright © 2019 The GWT Project Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.gwtproject.core.client.testing;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import org.gwtproject.core.client.Scheduler.Priority;
+import org.gwtproject.core.client.Scheduler.RepeatingCommand;
+import org.junit.Test;
+
+public class StubSchedulerTest {
+
+  private final StubScheduler scheduler = new StubScheduler();
+  private final List<String> log = new ArrayList<>();
+
+  /** Logs its name and takes {@code cost} simulated milliseconds, {@code times} times. */
+  private RepeatingCommand work(String name, double cost, int times) {
+    int[] remaining = {times};
+    return () -> {
+      log.add(name);
+      scheduler.advanceTime(cost);
+      return --remaining[0] > 0;
+    };
+  }
+
+  @Test
+  public void testDeferredRunInPriorityOrder() {
+    scheduler.scheduleDeferred(() -> log.add("render"));
+    scheduler.scheduleDeferred(() -> log.add("idle"), Priority.IDLE);
+    scheduler.scheduleDeferred(() -> log.add("input"), Priority.USER_INPUT);
+    assertEquals(1, scheduler.getDeferredCount(Priority.RENDER));
+
+    assertFalse(scheduler.flush());
+    assertEquals(Arrays.asList("input", "render", "idle"), log);
+  }
+
+  @Test
+  public void testBackgroundWorkYieldsToRenderWorkQueuedLater() {
+    scheduler.scheduleIncremental(work("page", 1, 1000), Priority.IDLE);
+    assertTrue(scheduler.flush());
+    int pages = log.size();
+    assertEquals(16, pages);
+
+    log.clear();
+    scheduler.scheduleIncremental(work("render", 4, 2));
+    assertTrue(scheduler.flush());
+    // rendering is done first, the background work gets what is left of the slice
+    assertEquals("render", log.get(0));
+    assertEquals("render", log.get(1));
+    assertEquals(8, log.size() - 2);
+    assertEquals(0, scheduler.getIncrementalCount(Priority.RENDER));
+  }
+
+  @Test
+  public void testIdleLaneWaitsWhileBudgetIsSpent() {
+    scheduler.scheduleIncremental(work("render", 10, 3));
+    scheduler.scheduleDeferred(() -> log.add("idle"), Priority.IDLE);
+
+    assertTrue(scheduler.flush());
+    assertEquals(Arrays.asList("render", "render"), log);
+    assertEquals(1, scheduler.getDeferredCount(Priority.IDLE));
+
+    assertFalse(scheduler.flush());
+    assertEquals(Arrays.asList("render", "render", "render", "idle"), log);
+  }
+
+  @Test
+  public void testIncrementalRoundRobinWithinLane() {
+    scheduler.scheduleIncremental(work("a", 0, 2));
+    scheduler.scheduleIncremental(work("b", 0, 3));
+
+    assertFalse(scheduler.flush());
+    assertEquals(Arrays.asList("a", "b", "a", "b", "b"), log);
+  }
+
+  @Test
+  public void testTimeSlice() {
+    scheduler.setTimeSlice(5);
+    scheduler.scheduleIncremental(work("a", 1, 100));
+
+    scheduler.flush();
+    assertEquals(5, log.size());
+
+    // a flush always makes progress, even if a command exceeds the slice
+    log.clear();
+    scheduler.setTimeSlice(0.5);
+    scheduler.flush();
+    assertEquals(1, log.size());
+  }
+
+  @Test
+  public void testCommandsScheduledWhileFlushingWaitForNextFlush() {
+    scheduler.scheduleDeferred(
+        () -> {
+          log.add("first");
+          scheduler.scheduleDeferred(() -> log.add("second"), Priority.USER_INPUT);
+        });
+
+    assertTrue(scheduler.flush());
+    assertEquals(Arrays.asList("first"), log);
+    assertFalse(scheduler.flush());
+    assertEquals(Arrays.asList("first", "second"), log);
+  }
+
+  @Test
+  public void testThrowingDeferredCommandKeepsTheRestQueued() {
+    RuntimeException exception = new RuntimeException();
+    scheduler.scheduleDeferred(() -> log.add("a"));
+    scheduler.scheduleDeferred(
+        () -> {
+          scheduler.scheduleDeferred(() -> log.add("d"));
+          throw exception;
+        });
+    scheduler.scheduleDeferred(() -> log.add("c"));
+
+    try {
+      scheduler.flush();
+      fail("expected exception");
+    } catch (RuntimeException e) {
+      assertSame(exception, e);
+    }
+    assertEquals(Arrays.asList("a"), log);
+    assertEquals(2, scheduler.getDeferredCount(Priority.RENDER));
+
+    // the command after the throwing one runs ahead of the one scheduled meanwhile
+    assertFalse(scheduler.flush());
+    assertEquals(Arrays.asList("a", "c", "d"), log);
+  }
+
+  @Test
+  public void testThrowingIncrementalCommandStaysQueued() {
+    RuntimeException exception = new RuntimeException();
+    boolean[] thrown = {false};
+    scheduler.scheduleIncremental(work("a", 0, 3));
+    scheduler.scheduleIncremental(
+        () -> {
+          if (!thrown[0] && log.size() > 1) {
+            thrown[0] = true;
+            throw exception;
+          }
+          return true;
+        });
+    scheduler.scheduleIncremental(work("c", 0, 3));
+
+    try {
+      scheduler.flush();
+      fail("expected exception");
+    } catch (RuntimeException e) {
+      assertSame(exception, e);
+    }
+    assertEquals(3, scheduler.getIncrementalCount(Priority.RENDER));
+    assertEquals(Arrays.asList("a", "c", "a"), log);
+  }
+
+  @Test
+  public void testRecordedCommands() {
+    scheduler.scheduleFinally(
+        () -> {
+          log.add("finally");
+        });
+    scheduler.scheduleFixedDelay(work("delay", 0, 2), 100);
+    assertEquals(1, scheduler.getScheduledCommands().size());
+    assertEquals(1, scheduler.getRepeatingCommands().size());
+    assertFalse(scheduler.flush());
+    assertTrue(log.isEmpty());
+
+    assertFalse(scheduler.executeCommands());
+    assertTrue(scheduler.executeRepeatingCommands());
+    assertFalse(scheduler.executeRepeatingCommands());
+    assertEquals(Arrays.asList("finally", "delay", "delay"), log);
+  }
+}
@@ -0,0 +1,146 @@
+/*
+ * Copyright © 2019 The GWT Project Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.gwtproject.event.shared;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Compares {@link ConcurrentEventBus} with a {@link SimpleEventBus} guarded by a lock, the way it
+ * has to be shared between threads. Run with {@code -t} to change the number of threads.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@Threads(4)
+@State(Scope.Benchmark)
+public class EventBusBenchmark {
+
+  private static final int HANDLERS = 8;
+
+  @Param({"concurrent", "locked"})
+  public String bus;
+
+  private EventBus eventBus;
+  private final Object source = new Object();
+
+  @Setup
+  public void setUp() {
+    eventBus = bus.equals("concurrent") ? new ConcurrentEventBus() : new LockedEventBus();
+    for (int i = 0; i < HANDLERS; i++) {
+      eventBus.addHandler(CountEvent.TYPE, CountEvent::count);
+      eventBus.addHandlerToSource(CountEvent.TYPE, source, CountEvent::count);
+    }
+  }
+
+  @Benchmark
+  public int fire() {
+    CountEvent event = new CountEvent();
+    eventBus.fireEvent(event);
+    return event.count;
+  }
+
+  @Benchmark
+  public int fireFromSource() {
+    CountEvent event = new CountEvent();
+    eventBus.fireEventFromSource(event, source);
+    return event.count;
+  }
+
+  /** Each thread adds a handler, fires, and removes its handler again. */
+  @Benchmark
+  public int addFireRemove() {
+    HandlerRegistration registration = eventBus.addHandler(CountEvent.TYPE, CountEvent::count);
+    CountEvent event = new CountEvent();
+    eventBus.fireEvent(event);
+    registration.removeHandler();
+    return event.count;
+  }
+
+  /** Counts the handlers it is dispatched to; a new instance is fired each time. */
+  static class CountEvent extends Event<CountEvent.Handler> {
+    interface Handler {
+      void onCount(CountEvent event);
+    }
+
+    static final Type<Handler> TYPE = new Type<>();
+
+    int count;
+
+    void count() {
+      count++;
+    }
+
+    @Override
+    public Type<Handler> getAssociatedType() {
+      return TYPE;
+    }
+
+    @Override
+    protected void dispatch(Handler handler) {
+      handler.onCount(this);
+    }
+  }
+
+  /**
+   * A {@link SimpleEventBus} that can be shared between threads, by holding a lock on each call.
+   */
+  static class LockedEventBus extends EventBus {
+    private final SimpleEventBus delegate = new SimpleEventBus();
+
+    @Override
+    public synchronized <H> HandlerRegistration addHandler(Event.Type<H> type, H handler) {
+      return locked(delegate.addHandler(type, handler));
+    }
+
+    @Override
+    public synchronized <H> HandlerRegistration addHandlerToSource(
+        Event.Type<H> type, Object source, H handler) {
+      return locked(delegate.addHandlerToSource(type, source, handler));
+    }
+
+    @Override
+    public synchronized void fireEvent(Event<?> event) {
+      delegate.fireEvent(event);
+    }
+
+    @Override
+    public synchronized void fireEventFromSource(Event<?> event, Object source) {
+      delegate.fireEventFromSource(event, source);
+    }
+
+    private HandlerRegistration locked(HandlerRegistration registration) {
+      return () -> {
+        synchronized (this) {
+          registration.removeHandler();
+        }
+      };
+    }
+  }
+}
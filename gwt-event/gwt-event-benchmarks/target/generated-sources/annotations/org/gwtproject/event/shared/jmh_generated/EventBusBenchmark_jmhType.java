@@ -0,0 +1,4 @@
+package org.gwtproject.event.shared.jmh_generated;
+public class EventBusBenchmark_jmhType extends EventBusBenchmark_jmhType_B3 {
+}
+
@@ -16,11 +16,12 @@
 
 package org.gwtproject.event.logical.shared;
 
+import org.gwtproject.event.shared.CoalescableEvent;
 import org.gwtproject.event.shared.Event;
 import org.gwtproject.event.shared.HasHandlers;
 
 /** Fired when the event source is resized. */
-public class ResizeEvent extends Event<ResizeHandler> {
+public class ResizeEvent extends Event<ResizeHandler> implements CoalescableEvent {
 
   /** The event type. */
   private static Type<ResizeHandler> TYPE;
@@ -15,6 +15,7 @@
  */
 package org.gwtproject.event.logical.shared;
 
+import org.gwtproject.event.shared.CoalescableEvent;
 import org.gwtproject.event.shared.Event;
 
 /**
@@ -22,7 +23,7 @@ import org.gwtproject.event.shared.Event;
  *
  * @param <T> the value about to be changed
  */
-public class ValueChangeEvent<T> extends Event<ValueChangeHandler<T>> {
+public class ValueChangeEvent<T> extends Event<ValueChangeHandler<T>> implements CoalescableEvent {
 
   /** Handler type. */
   private static Type<ValueChangeHandler<?>> TYPE;
@@ -0,0 +1,237 @@
+/*
+ * Copyright © 2019 The GWT Project Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.gwtproject.event.shared;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.Executor;
+import org.gwtproject.event.shared.Event.Type;
+
+/**
+ * Wraps an {@link EventBus} to queue fired events and deliver them together in a single batch,
+ * instead of running the handlers synchronously from {@link #fireEvent} and {@link
+ * #fireEventFromSource}.
+ *
+ * <p>The first event queued after a batch was delivered asks the given {@link Executor} to run the
+ * next delivery. In the browser, a typical executor defers to the end of the current event loop:
+ *
+ * <pre>
+ * new BatchingEventBus(bus, command -&gt; Scheduler.get().scheduleFinally(command::run));
+ * </pre>
+ *
+ * <p>On the JVM any executor can be used. Events queued while a batch is being delivered, for
+ * instance by handlers, are part of the next batch.
+ *
+ * <p>Events implementing {@link CoalescableEvent} are collapsed: if an event of the same type was
+ * already queued from the same source, the earlier event is dropped and only the latest one is
+ * delivered, in the position of the latest.
+ *
+ * <p>Exceptions thrown by handlers do not stop the delivery of the remaining events; they are
+ * bundled into a {@link UmbrellaException} that is thrown once the whole batch has been delivered.
+ */
+public class BatchingEventBus extends EventBus {
+
+  private final EventBus wrapped;
+  private final Executor executor;
+
+  private List<PendingEvent> queue = new ArrayList<>();
+
+  /** Position in {@link #queue} of the queued coalescable event for each type and source. */
+  private Map<TypeSourcePair, Integer> coalesced = new HashMap<>();
+
+  private boolean scheduled;
+
+  private final Runnable flushCommand = this::flush;
+
+  /**
+   * Creates a batching wrapper around an event bus.
+   *
+   * @param wrapped the event bus that handlers are added to and events are delivered through
+   * @param executor runs the delivery of each batch
+   */
+  public BatchingEventBus(EventBus wrapped, Executor executor) {
+    this.wrapped = wrapped;
+    this.executor = executor;
+  }
+
+  @Override
+  public <H> HandlerRegistration addHandler(Type<H> type, H handler) {
+    return wrapped.addHandler(type, handler);
+  }
+
+  @Override
+  public <H> HandlerRegistration addHandlerToSource(Type<H> type, Object source, H handler) {
+    return wrapped.addHandlerToSource(type, source, handler);
+  }
+
+  /**
+   * Queues the event to be fired from no source with the next batch.
+   *
+   * @param event the event to fire
+   */
+  @Override
+  public void fireEvent(Event<?> event) {
+    if (event == null) {
+      throw new NullPointerException("Cannot fire null event");
+    }
+    enqueue(event, null);
+  }
+
+  /**
+   * Queues the event to be fired from the given source with the next batch.
+   *
+   * @param event the event to fire
+   * @param source the source of the event
+   */
+  @Override
+  public void fireEventFromSource(Event<?> event, Object source) {
+    if (event == null) {
+      throw new NullPointerException("Cannot fire null event");
+    }
+    if (source == null) {
+      throw new NullPointerException("Cannot fire from a null source");
+    }
+    enqueue(event, source);
+  }
+
+  /**
+   * Delivers all queued events right away, in the order they were queued.
+   *
+   * @throws UmbrellaException wrapping exceptions thrown by handlers
+   */
+  public void flush() {
+    List<PendingEvent> batch;
+    synchronized (this) {
+      batch = queue;
+      queue = new ArrayList<>();
+      coalesced = new HashMap<>();
+      scheduled = false;
+    }
+
+    Set<Throwable> causes = null;
+    for (PendingEvent pending : batch) {
+      if (pending == null) {
+        // superseded by a later coalescable event
+        continue;
+      }
+      try {
+        if (pending.source == null) {
+          wrapped.fireEvent(pending.event);
+        } else {
+          wrapped.fireEventFromSource(pending.event, pending.source);
+        }
+      } catch (Throwable e) {
+        if (causes == null) {
+          causes = new HashSet<>();
+        }
+        if (e instanceof UmbrellaException) {
+          causes.addAll(((UmbrellaException) e).getCauses());
+        } else {
+          causes.add(e);
+        }
+      }
+    }
+
+    if (causes != null) {
+      throw new UmbrellaException(causes);
+    }
+  }
+
+  /** Returns the number of events waiting for the next batch. Visible for testing. */
+  synchronized int getPendingCount() {
+    int count = 0;
+    for (PendingEvent pending : queue) {
+      if (pending != null) {
+        count++;
+      }
+    }
+    return count;
+  }
+
+  private void enqueue(Event<?> event, Object source) {
+    boolean schedule;
+    synchronized (this) {
+      if (event instanceof CoalescableEvent) {
+        TypeSourcePair key = new TypeSourcePair(event.getAssociatedType(), source);
+        Integer previous = coalesced.put(key, queue.size());
+        if (previous != null) {
+          queue.set(previous, null);
+        }
+      }
+      queue.add(new PendingEvent(event, source));
+
+      schedule = !scheduled;
+      scheduled = true;
+    }
+    if (schedule) {
+      boolean executed = false;
+      try {
+        executor.execute(flushCommand);
+        executed = true;
+      } finally {
+        if (!executed) {
+          // let the next event try again; the queued events are delivered with it
+          synchronized (this) {
+            scheduled = false;
+          }
+        }
+      }
+    }
+  }
+
+  private static class PendingEvent {
+    final Event<?> event;
+    final Object source;
+
+    PendingEvent(Event<?> event, Object source) {
+      this.event = event;
+      this.source = source;
+    }
+  }
+
+  private static class TypeSourcePair {
+    final Type<?> type;
+    final Object source;
+
+    TypeSourcePair(Type<?> type, Object source) {
+      this.type = type;
+      this.source = source;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (o == this) {
+        return true;
+      }
+      if (!(o instanceof TypeSourcePair)) {
+        return false;
+      }
+
+      TypeSourcePair pair = (TypeSourcePair) o;
+      return Objects.equals(type, pair.type) && Objects.equals(source, pair.source);
+    }
+
+    @Override
+    public int hashCode() {
+      return Objects.hash(type, source);
+    }
+  }
+}
@@ -0,0 +1,23 @@
+/*
+ * Copyright © 2019 The GWT Project Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.gwtproject.event.shared;
+
+/**
+ * Marks an {@link Event} whose only relevant occurrence is the latest one, such as a resize or a
+ * value change. When several such events of the same type are fired from the same source before
+ * they are delivered, a {@link BatchingEventBus} only delivers the last of them.
+ */
+public interface CoalescableEvent {}
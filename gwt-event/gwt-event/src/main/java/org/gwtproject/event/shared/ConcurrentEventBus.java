@@ -0,0 +1,241 @@
+/*
+ * Copyright © 2019 The GWT Project Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.gwtproject.event.shared;
+
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicReference;
+import org.gwtproject.event.shared.Event.Type;
+
+/**
+ * Thread-safe implementation of {@link EventBus}.
+ *
+ * <p>Handlers are kept in copy-on-write arrays per event type and source. Firing an event takes a
+ * snapshot of the handler arrays and dispatches to it without taking any locks, while adding and
+ * removing handlers only contends on the array of the affected type and source.
+ *
+ * <p>As with {@link SimpleEventBus}, handlers added or removed while an event is being dispatched
+ * do not affect that dispatch: a handler added by another handler will not receive the event being
+ * fired, and a handler removed by another handler will still receive it. Unlike {@link
+ * SimpleEventBus}, the change is visible right away to events fired afterwards, including events
+ * fired from within a handler.
+ */
+public class ConcurrentEventBus extends EventBus {
+
+  /** Key used in place of a {@code null} source, which concurrent maps do not accept. */
+  private static final Object NO_SOURCE = new Object();
+
+  private static final Registration[] EMPTY = new Registration[0];
+
+  /** Marks a handler list that has been pruned from the map and must no longer be added to. */
+  private static final Registration[] PRUNED = new Registration[0];
+
+  /** Map of event type to map of event source to their handlers. */
+  private final ConcurrentMap<Event.Type<?>, ConcurrentMap<Object, HandlerList>> map =
+      new ConcurrentHashMap<>();
+
+  @Override
+  public <H> HandlerRegistration addHandler(Type<H> type, H handler) {
+    return doAdd(type, null, handler);
+  }
+
+  @Override
+  public <H> HandlerRegistration addHandlerToSource(
+      final Event.Type<H> type, final Object source, final H handler) {
+    if (source == null) {
+      throw new NullPointerException("Cannot add a handler with a null source");
+    }
+
+    return doAdd(type, source, handler);
+  }
+
+  @Override
+  public void fireEvent(Event<?> event) {
+    doFire(event, null);
+  }
+
+  @Override
+  public void fireEventFromSource(Event<?> event, Object source) {
+    if (source == null) {
+      throw new NullPointerException("Cannot fire from a null source");
+    }
+    doFire(event, source);
+  }
+
+  private <H> HandlerRegistration doAdd(
+      final Event.Type<H> type, final Object source, final H handler) {
+    if (type == null) {
+      throw new NullPointerException("Cannot add a handler with a null type");
+    }
+    if (handler == null) {
+      throw new NullPointerException("Cannot add a null handler");
+    }
+
+    Registration registration = new Registration(type, keyOf(source), handler);
+    ConcurrentMap<Object, HandlerList> sourceMap =
+        map.computeIfAbsent(type, k -> new ConcurrentHashMap<>());
+    while (true) {
+      HandlerList handlers = sourceMap.computeIfAbsent(registration.key, k -> new HandlerList());
+      if (handlers.add(registration)) {
+        return registration;
+      }
+      // The list was pruned after we looked it up; retry with a fresh one.
+      sourceMap.remove(registration.key, handlers);
+    }
+  }
+
+  private <H> void doFire(Event<H> event, Object source) {
+    if (event == null) {
+      throw new NullPointerException("Cannot fire null event");
+    }
+
+    if (source != null) {
+      setSourceOfEvent(event, source);
+    }
+
+    ConcurrentMap<Object, HandlerList> sourceMap = map.get(event.getAssociatedType());
+    if (sourceMap == null) {
+      return;
+    }
+
+    // Take both snapshots up front, so that handlers changed by the source handlers do not
+    // affect the dispatch to the global ones.
+    Registration[] sourceHandlers = source == null ? EMPTY : snapshot(sourceMap, source);
+    Registration[] globalHandlers = snapshot(sourceMap, NO_SOURCE);
+
+    Set<Throwable> causes = dispatch(event, sourceHandlers, null);
+    causes = dispatch(event, globalHandlers, causes);
+
+    if (causes != null) {
+      throw new UmbrellaException(causes);
+    }
+  }
+
+  private <H> Set<Throwable> dispatch(
+      Event<H> event, Registration[] handlers, Set<Throwable> causes) {
+    for (Registration registration : handlers) {
+      try {
+        // safe, we control the adds.
+        @SuppressWarnings("unchecked")
+        H handler = (H) registration.handler;
+        dispatchEvent(event, handler);
+      } catch (Throwable e) {
+        if (causes == null) {
+          causes = new HashSet<>();
+        }
+        causes.add(e);
+      }
+    }
+    return causes;
+  }
+
+  private void doRemove(Registration registration) {
+    ConcurrentMap<Object, HandlerList> sourceMap = map.get(registration.type);
+    if (sourceMap == null) {
+      return;
+    }
+    HandlerList handlers = sourceMap.get(registration.key);
+    if (handlers != null && handlers.remove(registration) && handlers.prune()) {
+      sourceMap.remove(registration.key, handlers);
+    }
+  }
+
+  private static Object keyOf(Object source) {
+    return source == null ? NO_SOURCE : source;
+  }
+
+  private static Registration[] snapshot(ConcurrentMap<Object, HandlerList> sourceMap, Object key) {
+    HandlerList handlers = sourceMap.get(key);
+    return handlers == null ? EMPTY : handlers.get();
+  }
+
+  /** Copy-on-write array of the registrations for a single type and source. */
+  private static class HandlerList extends AtomicReference<Registration[]> {
+
+    HandlerList() {
+      super(EMPTY);
+    }
+
+    /** Returns {@code false} if this list has been pruned and the caller must use a new one. */
+    boolean add(Registration registration) {
+      while (true) {
+        Registration[] current = get();
+        if (current == PRUNED) {
+          return false;
+        }
+        Registration[] next = new Registration[current.length + 1];
+        System.arraycopy(current, 0, next, 0, current.length);
+        next[current.length] = registration;
+        if (compareAndSet(current, next)) {
+          return true;
+        }
+      }
+    }
+
+    /** Returns {@code true} if the list is empty after the registration was removed. */
+    boolean remove(Registration registration) {
+      while (true) {
+        Registration[] current = get();
+        int index = indexOf(current, registration);
+        if (index < 0) {
+          return false;
+        }
+        Registration[] next = EMPTY;
+        if (current.length > 1) {
+          next = new Registration[current.length - 1];
+          System.arraycopy(current, 0, next, 0, index);
+          System.arraycopy(current, index + 1, next, index, current.length - index - 1);
+        }
+        if (compareAndSet(current, next)) {
+          return next.length == 0;
+        }
+      }
+    }
+
+    /** Marks this list as pruned if it is still empty, so that concurrent adds move elsewhere. */
+    boolean prune() {
+      return compareAndSet(EMPTY, PRUNED);
+    }
+
+    private static int indexOf(Registration[] registrations, Registration registration) {
+      for (int i = 0; i < registrations.length; i++) {
+        if (registrations[i] == registration) {
+          return i;
+        }
+      }
+      return -1;
+    }
+  }
+
+  private class Registration implements HandlerRegistration {
+    final Event.Type<?> type;
+    final Object key;
+    final Object handler;
+
+    Registration(Event.Type<?> type, Object key, Object handler) {
+      this.type = type;
+      this.key = key;
+      this.handler = handler;
+    }
+
+    @Override
+    public void removeHandler() {
+      doRemove(this);
+    }
+  }
+}
@@ -0,0 +1,59 @@
+/*
+ * Copyright © 2019 The GWT Project Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.gwtproject.event.shared;
+
+/**
+ * Receives notifications about the handlers and events of an event bus, for gathering metrics.
+ *
+ * <p>Instrumentation is disabled unless one is set, see {@link
+ * SimpleEventBus#setInstrumentation(EventBusInstrumentation)} and {@link
+ * ResettableEventBus#setInstrumentation(EventBusInstrumentation)}. A ready-made implementation is
+ * {@link org.gwtproject.event.shared.testing.EventBusMetrics}.
+ */
+public interface EventBusInstrumentation {
+
+  /**
+   * Called when a handler has been added.
+   *
+   * @param type the event type of the handler
+   * @param source the source of the handler, {@code null} for unfiltered handlers
+   */
+  void onHandlerAdded(Event.Type<?> type, Object source);
+
+  /**
+   * Called when a handler has been removed.
+   *
+   * @param type the event type of the handler
+   * @param source the source of the handler, {@code null} for unfiltered handlers
+   */
+  void onHandlerRemoved(Event.Type<?> type, Object source);
+
+  /**
+   * Called when an event is fired, before it is dispatched to any handler.
+   *
+   * @param type the event type
+   * @param source the source the event is fired from, {@code null} if none
+   */
+  void onEventFired(Event.Type<?> type, Object source);
+
+  /**
+   * Called after a handler has been run, whether or not it threw an exception.
+   *
+   * @param type the event type
+   * @param nanos how long the handler took, in nanoseconds
+   */
+  void onHandlerDispatched(Event.Type<?> type, long nanos);
+}
@@ -28,6 +28,9 @@ public class ResettableEventBus extends EventBus {
   private final EventBus wrapped;
   private final Set<HandlerRegistration> registrations = new HashSet<>();
 
+  /** Receives metrics, {@code null} unless instrumentation is enabled. */
+  private EventBusInstrumentation instrumentation;
+
   public ResettableEventBus(EventBus wrappedBus) {
     this.wrapped = wrappedBus;
   }
@@ -35,22 +38,28 @@ public class ResettableEventBus extends EventBus {
   @Override
   public <H> HandlerRegistration addHandler(Type<H> type, H handler) {
     HandlerRegistration rtn = wrapped.addHandler(type, handler);
-    return doRegisterHandler(rtn);
+    return doRegisterHandler(type, null, rtn);
   }
 
   @Override
   public <H> HandlerRegistration addHandlerToSource(Event.Type<H> type, Object source, H handler) {
     HandlerRegistration rtn = wrapped.addHandlerToSource(type, source, handler);
-    return doRegisterHandler(rtn);
+    return doRegisterHandler(type, source, rtn);
   }
 
   @Override
   public void fireEvent(Event<?> event) {
+    if (instrumentation != null && event != null) {
+      instrumentation.onEventFired(event.getAssociatedType(), null);
+    }
     wrapped.fireEvent(event);
   }
 
   @Override
   public void fireEventFromSource(Event<?> event, Object source) {
+    if (instrumentation != null && event != null) {
+      instrumentation.onEventFired(event.getAssociatedType(), source);
+    }
     wrapped.fireEventFromSource(event, source);
   }
 
@@ -70,14 +79,31 @@ public class ResettableEventBus extends EventBus {
     }
   }
 
+  /**
+   * Enables instrumentation of the handlers added and the events fired through this wrapper, or
+   * disables it if {@code instrumentation} is {@code null}. Handler run times are not reported;
+   * instrument the wrapped {@link SimpleEventBus} for those, using a separate instance to not count
+   * handlers and events twice.
+   *
+   * @param instrumentation receives the metrics of this wrapper, may be {@code null}
+   */
+  public void setInstrumentation(EventBusInstrumentation instrumentation) {
+    this.instrumentation = instrumentation;
+  }
+
   /** Visible for testing. */
   int getRegistrationSize() {
     return registrations.size();
   }
 
-  private HandlerRegistration doRegisterHandler(final HandlerRegistration registration) {
-    registrations.add(registration);
-    return () -> doUnregisterHandler(registration);
+  private HandlerRegistration doRegisterHandler(
+      Event.Type<?> type, Object source, HandlerRegistration registration) {
+    final TrackedRegistration tracked = new TrackedRegistration(type, source, registration);
+    registrations.add(tracked);
+    if (instrumentation != null) {
+      instrumentation.onHandlerAdded(type, source);
+    }
+    return () -> doUnregisterHandler(tracked);
   }
 
   private void doUnregisterHandler(HandlerRegistration registration) {
@@ -86,4 +112,25 @@ public class ResettableEventBus extends EventBus {
       registrations.remove(registration);
     }
   }
+
+  /** Remembers type and source of a registration, to report its removal. */
+  private class TrackedRegistration implements HandlerRegistration {
+    final Event.Type<?> type;
+    final Object source;
+    final HandlerRegistration wrapped;
+
+    TrackedRegistration(Event.Type<?> type, Object source, HandlerRegistration wrapped) {
+      this.type = type;
+      this.source = source;
+      this.wrapped = wrapped;
+    }
+
+    @Override
+    public void removeHandler() {
+      wrapped.removeHandler();
+      if (instrumentation != null) {
+        instrumentation.onHandlerRemoved(type, source);
+      }
+    }
+  }
 }
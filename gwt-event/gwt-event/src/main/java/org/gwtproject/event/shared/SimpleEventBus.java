@@ -16,9 +16,9 @@
 package org.gwtproject.event.shared;
 
 import java.util.ArrayList;
-import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
@@ -30,13 +30,19 @@ public class SimpleEventBus extends EventBus {
     void execute();
   }
 
+  /** Times handlers for the instrumentation. */
+  private static final Clock CLOCK = new JvmClock();
+
   private int firingDepth = 0;
 
   /** Add and remove operations received during dispatch. */
   private List<Command> deferredDeltas;
 
-  /** Map of event type to map of event source to list of their handlers. */
-  private final Map<Event.Type<?>, Map<Object, List<?>>> map = new HashMap<>();
+  /** Map of event type to map of event source to their handlers. */
+  private final Map<Event.Type<?>, Map<Object, HandlerList>> map = new HashMap<>();
+
+  /** Receives metrics, {@code null} unless instrumentation is enabled. */
+  private EventBusInstrumentation instrumentation;
 
   @Override
   public <H> HandlerRegistration addHandler(Type<H> type, H handler) {
@@ -66,11 +72,45 @@ public class SimpleEventBus extends EventBus {
     doFire(event, source);
   }
 
-  private <H> void doRemove(Event.Type<H> type, Object source, H handler) {
+  /**
+   * Removes all handlers added with {@link #addHandlerToSource} for the given {@code source}, of
+   * any event type. Their registrations become no-ops. Unfiltered handlers are not affected.
+   *
+   * <p>As with single removals, handlers removed during dispatch still receive the event being
+   * fired.
+   *
+   * @param source the source whose handlers are removed
+   */
+  public void removeAllForSource(final Object source) {
+    if (source == null) {
+      throw new NullPointerException("Cannot remove handlers of a null source");
+    }
+
     if (firingDepth > 0) {
-      enqueueRemove(type, source, handler);
+      defer(() -> doRemoveAllForSourceNow(source));
     } else {
-      doRemoveNow(type, source, handler);
+      doRemoveAllForSourceNow(source);
+    }
+  }
+
+  /**
+   * Enables instrumentation of this event bus, or disables it if {@code instrumentation} is {@code
+   * null}. When disabled, no metrics are gathered at all.
+   *
+   * <p>Handlers added or removed while an event is being dispatched are reported once the change
+   * takes effect, after the dispatch.
+   *
+   * @param instrumentation receives the metrics of this event bus, may be {@code null}
+   */
+  public void setInstrumentation(EventBusInstrumentation instrumentation) {
+    this.instrumentation = instrumentation;
+  }
+
+  private void doRemove(final Registration registration) {
+    if (firingDepth > 0) {
+      defer(() -> doRemoveNow(registration));
+    } else {
+      doRemoveNow(registration);
     }
   }
 
@@ -90,18 +130,25 @@ public class SimpleEventBus extends EventBus {
       throw new NullPointerException("Cannot add a null handler");
     }
 
+    final Registration registration = new Registration(type, source, handler);
     if (firingDepth > 0) {
-      enqueueAdd(type, source, handler);
+      defer(() -> doAddNow(registration));
     } else {
-      doAddNow(type, source, handler);
+      doAddNow(registration);
     }
 
-    return () -> doRemove(type, source, handler);
+    return registration;
   }
 
-  private <H> void doAddNow(Event.Type<H> type, Object source, H handler) {
-    List<H> l = ensureHandlerList(type, source);
-    l.add(handler);
+  private void doAddNow(Registration registration) {
+    if (registration.removed) {
+      // removed before the deferred add took effect
+      return;
+    }
+    ensureHandlerList(registration.type, registration.source).add(registration);
+    if (instrumentation != null) {
+      instrumentation.onHandlerAdded(registration.type, registration.source);
+    }
   }
 
   private <H> void doFire(Event<H> event, Object source) {
@@ -114,20 +161,19 @@ public class SimpleEventBus extends EventBus {
       if (source != null) {
         setSourceOfEvent(event, source);
       }
+      if (instrumentation != null) {
+        instrumentation.onEventFired(event.getAssociatedType(), source);
+      }
 
-      List<H> handlers = getDispatchList(event.getAssociatedType(), source);
+      /*
+       * Adds and removes are deferred while firing, so the handler lists can be
+       * walked in place: direct handlers first, then the global ones.
+       */
       Set<Throwable> causes = null;
-
-      for (H handler : handlers) {
-        try {
-          dispatchEvent(event, handler);
-        } catch (Throwable e) {
-          if (causes == null) {
-            causes = new HashSet<>();
-          }
-          causes.add(e);
-        }
+      if (source != null) {
+        causes = dispatch(event, getHandlerList(event.getAssociatedType(), source), causes);
       }
+      causes = dispatch(event, getHandlerList(event.getAssociatedType(), null), causes);
 
       if (causes != null) {
         throw new UmbrellaException(causes);
@@ -140,65 +186,100 @@ public class SimpleEventBus extends EventBus {
     }
   }
 
-  private <H> void doRemoveNow(Event.Type<H> type, Object source, H handler) {
-    List<H> l = getHandlerList(type, source);
+  private <H> Set<Throwable> dispatch(Event<H> event, HandlerList handlers, Set<Throwable> causes) {
+    if (handlers == null) {
+      return causes;
+    }
+    EventBusInstrumentation instrumentation = this.instrumentation;
+    Registration[] slots = handlers.slots;
+    for (int i = 0, n = handlers.size; i < n; i++) {
+      Registration registration = slots[i];
+      if (registration == null) {
+        // removed
+        continue;
+      }
+      long start = instrumentation == null ? 0 : CLOCK.nanoTime();
+      try {
+        // safe, we control the adds.
+        @SuppressWarnings("unchecked")
+        H handler = (H) registration.handler;
+        dispatchEvent(event, handler);
+      } catch (Throwable e) {
+        if (causes == null) {
+          causes = new HashSet<>();
+        }
+        causes.add(e);
+      }
+      if (instrumentation != null) {
+        instrumentation.onHandlerDispatched(event.getAssociatedType(), CLOCK.nanoTime() - start);
+      }
+    }
+    return causes;
+  }
 
-    boolean removed = l.remove(handler);
+  private void doRemoveNow(Registration registration) {
+    if (registration.removed) {
+      return;
+    }
+    registration.removed = true;
 
-    if (removed && l.isEmpty()) {
-      prune(type, source);
+    HandlerList handlers = registration.list;
+    if (handlers == null) {
+      // never added, the add was deferred and is now skipped
+      return;
+    }
+    handlers.remove(registration);
+    if (handlers.live == 0) {
+      prune(registration.type, registration.source);
+    }
+    if (instrumentation != null) {
+      instrumentation.onHandlerRemoved(registration.type, registration.source);
     }
   }
 
-  private <H> void enqueueAdd(final Event.Type<H> type, final Object source, final H handler) {
-    defer(() -> doAddNow(type, source, handler));
-  }
+  private void doRemoveAllForSourceNow(Object source) {
+    Iterator<Map<Object, HandlerList>> it = map.values().iterator();
+    while (it.hasNext()) {
+      Map<Object, HandlerList> sourceMap = it.next();
+      HandlerList handlers = sourceMap.remove(source);
+      if (handlers == null) {
+        continue;
+      }
+      if (sourceMap.isEmpty()) {
+        it.remove();
+      }
 
-  private <H> void enqueueRemove(final Event.Type<H> type, final Object source, final H handler) {
-    defer(() -> doRemoveNow(type, source, handler));
+      for (int i = 0; i < handlers.size; i++) {
+        Registration registration = handlers.slots[i];
+        if (registration != null) {
+          registration.removed = true;
+          if (instrumentation != null) {
+            instrumentation.onHandlerRemoved(registration.type, source);
+          }
+        }
+      }
+    }
   }
 
-  private <H> List<H> ensureHandlerList(Event.Type<H> type, Object source) {
-    Map<Object, List<?>> sourceMap = map.computeIfAbsent(type, k -> new HashMap<>());
+  private HandlerList ensureHandlerList(Event.Type<?> type, Object source) {
+    Map<Object, HandlerList> sourceMap = map.computeIfAbsent(type, k -> new HashMap<>());
 
-    // safe, we control the puts.
-    @SuppressWarnings("unchecked")
-    List<H> handlers = (List<H>) sourceMap.get(source);
+    HandlerList handlers = sourceMap.get(source);
     if (handlers == null) {
-      handlers = new ArrayList<>();
+      handlers = new HandlerList();
       sourceMap.put(source, handlers);
     }
 
     return handlers;
   }
 
-  private <H> List<H> getDispatchList(Event.Type<H> type, Object source) {
-    List<H> directHandlers = getHandlerList(type, source);
-    if (source == null) {
-      return directHandlers;
-    }
-
-    List<H> globalHandlers = getHandlerList(type, null);
-
-    List<H> rtn = new ArrayList<>(directHandlers);
-    rtn.addAll(globalHandlers);
-    return rtn;
-  }
-
-  private <H> List<H> getHandlerList(Event.Type<H> type, Object source) {
-    Map<Object, List<?>> sourceMap = map.get(type);
+  private HandlerList getHandlerList(Event.Type<?> type, Object source) {
+    Map<Object, HandlerList> sourceMap = map.get(type);
     if (sourceMap == null) {
-      return Collections.emptyList();
-    }
-
-    // safe, we control the puts.
-    @SuppressWarnings("unchecked")
-    List<H> handlers = (List<H>) sourceMap.get(source);
-    if (handlers == null) {
-      return Collections.emptyList();
+      return null;
     }
 
-    return handlers;
+    return sourceMap.get(source);
   }
 
   private void handleQueuedAddsAndRemoves() {
@@ -214,15 +295,113 @@ public class SimpleEventBus extends EventBus {
   }
 
   private void prune(Event.Type<?> type, Object source) {
-    Map<Object, List<?>> sourceMap = map.get(type);
+    Map<Object, HandlerList> sourceMap = map.get(type);
 
-    List<?> pruned = sourceMap.remove(source);
+    HandlerList pruned = sourceMap.remove(source);
 
     assert pruned != null : "Can't prune what wasn't there";
-    assert pruned.isEmpty() : "Pruned unempty list!";
+    assert pruned.live == 0 : "Pruned unempty list!";
 
     if (sourceMap.isEmpty()) {
       map.remove(type);
     }
   }
+
+  /**
+   * The handlers of a single type and source, in the order they were added.
+   *
+   * <p>Each registration knows its slot, so removing it just clears the slot, leaving a tombstone
+   * that dispatch skips. Once tombstones outnumber the live handlers, the slots are compacted.
+   * Changes are deferred while firing, so neither happens while the slots are being walked.
+   */
+  private static class HandlerList {
+    private static final int MIN_COMPACT_SIZE = 16;
+
+    Registration[] slots = new Registration[4];
+
+    /** Number of used slots, including tombstones. */
+    int size;
+
+    /** Number of slots holding a registration. */
+    int live;
+
+    void add(Registration registration) {
+      if (size == slots.length) {
+        Registration[] grown = new Registration[size * 2];
+        System.arraycopy(slots, 0, grown, 0, size);
+        slots = grown;
+      }
+      registration.list = this;
+      registration.index = size;
+      slots[size++] = registration;
+      live++;
+    }
+
+    void remove(Registration registration) {
+      assert slots[registration.index] == registration : "Registration not in its slot";
+      slots[registration.index] = null;
+      live--;
+      if (live == 0) {
+        size = 0;
+      } else if (size >= MIN_COMPACT_SIZE && size - live > live) {
+        compact();
+      }
+    }
+
+    private void compact() {
+      int to = 0;
+      for (int from = 0; from < size; from++) {
+        Registration registration = slots[from];
+        if (registration != null) {
+          registration.index = to;
+          slots[to++] = registration;
+        }
+      }
+      for (int i = to; i < size; i++) {
+        slots[i] = null;
+      }
+      size = to;
+    }
+  }
+
+  /**
+   * A clock for browsers, where GWT does not emulate {@code System.nanoTime()}. It only has the
+   * resolution of milliseconds.
+   */
+  static class Clock {
+    long nanoTime() {
+      return System.currentTimeMillis() * 1000000L;
+    }
+  }
+
+  static class JvmClock extends Clock {
+    @GwtIncompatible
+    @Override
+    long nanoTime() {
+      return System.nanoTime();
+    }
+  }
+
+  private class Registration implements HandlerRegistration {
+    final Event.Type<?> type;
+    final Object source;
+    final Object handler;
+
+    /** The list holding this registration, {@code null} until it has been added. */
+    HandlerList list;
+
+    int index;
+    boolean removed;
+
+    Registration(Event.Type<?> type, Object source, Object handler) {
+      this.type = type;
+      this.source = source;
+      this.handler = handler;
+    }
+
+    @Override
+    public void removeHandler() {
+      doRemove(this);
+    }
+  }
 }
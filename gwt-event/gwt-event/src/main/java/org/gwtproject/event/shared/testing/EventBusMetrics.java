@@ -0,0 +1,332 @@
+/*
+ * Copyright © 2019 The GWT Project Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.gwtproject.event.shared.testing;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import org.gwtproject.event.shared.Event.Type;
+import org.gwtproject.event.shared.EventBusInstrumentation;
+
+/**
+ * Gathers metrics from an instrumented event bus: how many events of each type were fired, how long
+ * handlers take, and how many handlers are live for each type and source.
+ *
+ * <p>Handler latencies are kept in histograms with power-of-two buckets, so recording them takes
+ * constant time and memory.
+ *
+ * <p>Sources whose number of handlers keeps growing are a typical sign of forgotten {@link
+ * org.gwtproject.event.shared.HandlerRegistration}s. Call {@link #checkForLeaks()} at points where
+ * the number of handlers is expected to be stable, e.g. after each screen change: a type and source
+ * whose handler count grew at every one of the last {@code leakThreshold} checks is reported to the
+ * {@link LeakListener} and listed in {@link #getSuspectedLeaks()}.
+ */
+public class EventBusMetrics implements EventBusInstrumentation {
+
+  /** Notified of types and sources whose handler count keeps growing. */
+  public interface LeakListener {
+    void onSuspectedLeak(SuspectedLeak leak);
+  }
+
+  /** A type and source whose handler count kept growing. */
+  public static class SuspectedLeak {
+    private final Type<?> type;
+    private final Object source;
+    private final int handlerCount;
+
+    SuspectedLeak(Type<?> type, Object source, int handlerCount) {
+      this.type = type;
+      this.source = source;
+      this.handlerCount = handlerCount;
+    }
+
+    /** The event type of the handlers. */
+    public Type<?> getType() {
+      return type;
+    }
+
+    /** The source of the handlers, {@code null} for unfiltered handlers. */
+    public Object getSource() {
+      return source;
+    }
+
+    /** The number of live handlers when the leak was suspected. */
+    public int getHandlerCount() {
+      return handlerCount;
+    }
+  }
+
+  /** Immutable snapshot of the handler latencies recorded for an event type. */
+  public static class LatencyHistogram {
+    private static final LatencyHistogram EMPTY = new LatencyHistogram(new long[BUCKETS], 0, 0);
+
+    private final long[] buckets;
+    private final long totalNanos;
+    private final long maxNanos;
+    private final long count;
+
+    LatencyHistogram(long[] buckets, long totalNanos, long maxNanos) {
+      this.buckets = buckets;
+      this.totalNanos = totalNanos;
+      this.maxNanos = maxNanos;
+      long count = 0;
+      for (long bucket : buckets) {
+        count += bucket;
+      }
+      this.count = count;
+    }
+
+    /** The number of handler runs recorded. */
+    public long getCount() {
+      return count;
+    }
+
+    /** The total time spent in handlers, in nanoseconds. */
+    public long getTotalNanos() {
+      return totalNanos;
+    }
+
+    /** The longest time spent in a single handler, in nanoseconds. */
+    public long getMaxNanos() {
+      return maxNanos;
+    }
+
+    /**
+     * Returns an upper bound of the given percentile of handler latencies, precise to a power of
+     * two.
+     *
+     * @param percentile a value between 0 and 100
+     * @return the latency in nanoseconds, 0 if nothing was recorded
+     */
+    public long getPercentileNanos(double percentile) {
+      if (percentile < 0 || percentile > 100) {
+        throw new IllegalArgumentException("Percentile must be between 0 and 100: " + percentile);
+      }
+      long rank = (long) Math.ceil(count * percentile / 100);
+      long seen = 0;
+      for (int i = 0; i < buckets.length; i++) {
+        seen += buckets[i];
+        if (seen >= rank && seen > 0) {
+          return Math.min(upperBound(i), maxNanos);
+        }
+      }
+      return 0;
+    }
+
+    private static long upperBound(int bucket) {
+      return bucket >= 63 ? Long.MAX_VALUE : (1L << bucket) - 1;
+    }
+  }
+
+  /** Bucket {@code i} holds latencies below {@code 2^i} nanoseconds. */
+  private static final int BUCKETS = 64;
+
+  private static final int DEFAULT_LEAK_THRESHOLD = 3;
+
+  private final int leakThreshold;
+  private final LeakListener leakListener;
+
+  private final Map<Type<?>, TypeMetrics> types = new HashMap<>();
+  private final Map<TypeSourcePair, SourceMetrics> sources = new HashMap<>();
+  private final List<SuspectedLeak> suspectedLeaks = new ArrayList<>();
+
+  /** Creates metrics that report a leak after three consecutive growing checks. */
+  public EventBusMetrics() {
+    this(DEFAULT_LEAK_THRESHOLD, null);
+  }
+
+  /**
+   * Creates metrics with custom leak detection.
+   *
+   * @param leakThreshold the number of consecutive {@link #checkForLeaks()} calls a handler count
+   *     has to grow in before it is reported
+   * @param leakListener notified of suspected leaks, may be {@code null}
+   */
+  public EventBusMetrics(int leakThreshold, LeakListener leakListener) {
+    if (leakThreshold < 1) {
+      throw new IllegalArgumentException("Leak threshold must be positive: " + leakThreshold);
+    }
+    this.leakThreshold = leakThreshold;
+    this.leakListener = leakListener;
+  }
+
+  @Override
+  public synchronized void onHandlerAdded(Type<?> type, Object source) {
+    TypeSourcePair key = new TypeSourcePair(type, source);
+    SourceMetrics metrics = sources.get(key);
+    if (metrics == null) {
+      metrics = new SourceMetrics();
+      sources.put(key, metrics);
+    }
+    metrics.liveHandlers++;
+  }
+
+  @Override
+  public synchronized void onHandlerRemoved(Type<?> type, Object source) {
+    TypeSourcePair key = new TypeSourcePair(type, source);
+    SourceMetrics metrics = sources.get(key);
+    if (metrics != null && --metrics.liveHandlers <= 0) {
+      // don't hold on to sources that have no handlers left
+      sources.remove(key);
+    }
+  }
+
+  @Override
+  public synchronized void onEventFired(Type<?> type, Object source) {
+    typeMetrics(type).fired++;
+  }
+
+  @Override
+  public synchronized void onHandlerDispatched(Type<?> type, long nanos) {
+    TypeMetrics metrics = typeMetrics(type);
+    if (nanos < 0) {
+      nanos = 0;
+    }
+    metrics.buckets[BUCKETS - Long.numberOfLeadingZeros(nanos)]++;
+    metrics.totalNanos += nanos;
+    metrics.maxNanos = Math.max(metrics.maxNanos, nanos);
+  }
+
+  /** How many events of the given {@code type} have been fired. */
+  public synchronized long getFiredCount(Type<?> type) {
+    TypeMetrics metrics = types.get(type);
+    return metrics == null ? 0 : metrics.fired;
+  }
+
+  /** Returns a snapshot of the handler latencies for the given {@code type}. */
+  public synchronized LatencyHistogram getHandlerLatency(Type<?> type) {
+    TypeMetrics metrics = types.get(type);
+    if (metrics == null) {
+      return LatencyHistogram.EMPTY;
+    }
+    long[] buckets = new long[BUCKETS];
+    System.arraycopy(metrics.buckets, 0, buckets, 0, BUCKETS);
+    return new LatencyHistogram(buckets, metrics.totalNanos, metrics.maxNanos);
+  }
+
+  /**
+   * How many handlers are currently registered for the given {@code type} and {@code source}; pass
+   * a {@code null} source for unfiltered handlers.
+   */
+  public synchronized int getLiveHandlerCount(Type<?> type, Object source) {
+    SourceMetrics metrics = sources.get(new TypeSourcePair(type, source));
+    return metrics == null ? 0 : metrics.liveHandlers;
+  }
+
+  /**
+   * Compares the current handler counts with those of the previous check, and reports types and
+   * sources whose count grew in each of the last {@code leakThreshold} checks. Each type and source
+   * is reported at most once until its handlers are all removed.
+   *
+   * @return the leaks newly suspected by this check
+   */
+  public List<SuspectedLeak> checkForLeaks() {
+    List<SuspectedLeak> found = new ArrayList<>();
+    synchronized (this) {
+      for (Map.Entry<TypeSourcePair, SourceMetrics> entry : sources.entrySet()) {
+        SourceMetrics metrics = entry.getValue();
+        if (metrics.liveHandlers > metrics.lastChecked) {
+          metrics.growthStreak++;
+        } else {
+          metrics.growthStreak = 0;
+        }
+        metrics.lastChecked = metrics.liveHandlers;
+
+        if (!metrics.reported && metrics.growthStreak >= leakThreshold) {
+          metrics.reported = true;
+          TypeSourcePair key = entry.getKey();
+          found.add(new SuspectedLeak(key.type, key.source, metrics.liveHandlers));
+        }
+      }
+      suspectedLeaks.addAll(found);
+    }
+    if (leakListener != null) {
+      for (SuspectedLeak leak : found) {
+        leakListener.onSuspectedLeak(leak);
+      }
+    }
+    return found;
+  }
+
+  /** Returns all leaks suspected since the metrics were created or last reset. */
+  public synchronized List<SuspectedLeak> getSuspectedLeaks() {
+    return Collections.unmodifiableList(new ArrayList<>(suspectedLeaks));
+  }
+
+  /** Clears fire counts, latencies and suspected leaks. Live handler counts are kept. */
+  public synchronized void reset() {
+    types.clear();
+    suspectedLeaks.clear();
+    for (SourceMetrics metrics : sources.values()) {
+      metrics.growthStreak = 0;
+      metrics.reported = false;
+    }
+  }
+
+  private TypeMetrics typeMetrics(Type<?> type) {
+    TypeMetrics metrics = types.get(type);
+    if (metrics == null) {
+      metrics = new TypeMetrics();
+      types.put(type, metrics);
+    }
+    return metrics;
+  }
+
+  private static class TypeMetrics {
+    long fired;
+    final long[] buckets = new long[BUCKETS];
+    long totalNanos;
+    long maxNanos;
+  }
+
+  private static class SourceMetrics {
+    int liveHandlers;
+    int lastChecked;
+    int growthStreak;
+    boolean reported;
+  }
+
+  private static class TypeSourcePair {
+    final Type<?> type;
+    final Object source;
+
+    TypeSourcePair(Type<?> type, Object source) {
+      this.type = type;
+      this.source = source;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (o == this) {
+        return true;
+      }
+      if (!(o instanceof TypeSourcePair)) {
+        return false;
+      }
+
+      TypeSourcePair pair = (TypeSourcePair) o;
+      return Objects.equals(type, pair.type) && Objects.equals(source, pair.source);
+    }
+
+    @Override
+    public int hashCode() {
+      return Objects.hash(type, source);
+    }
+  }
+}
@@ -0,0 +1,197 @@
+/*
+ * Copyright © 2019 The GWT Project Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.gwtproject.event.shared;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.RejectedExecutionException;
+
+/** Eponymous unit test. */
+public class BatchingEventBusTest extends EventBusTestBase {
+
+  static class CoalescableFooEvent extends FooEvent implements CoalescableEvent {
+    final int value;
+
+    CoalescableFooEvent(int value) {
+      this.value = value;
+    }
+  }
+
+  private final List<Runnable> scheduled = new ArrayList<>();
+
+  private final BatchingEventBus eventBus =
+      new BatchingEventBus(new SimpleEventBus(), scheduled::add);
+
+  public void testDeliveredInBatch() {
+    FooEvent.register(eventBus, fooHandler1);
+    BarEvent.register(eventBus, barHandler1);
+
+    eventBus.fireEvent(new FooEvent());
+    eventBus.fireEvent(new BarEvent());
+    assertNotFired(fooHandler1, barHandler1);
+    assertEquals(1, scheduled.size());
+    assertEquals(2, eventBus.getPendingCount());
+
+    runScheduled();
+    assertFired(fooHandler1, barHandler1);
+    assertEquals(0, eventBus.getPendingCount());
+  }
+
+  public void testFromSource() {
+    FooEvent.register(eventBus, "able", fooHandler1);
+    FooEvent.register(eventBus, "baker", fooHandler2);
+
+    FooEvent event = new FooEvent();
+    eventBus.fireEventFromSource(event, "able");
+    runScheduled();
+
+    assertEquals("able", event.getSource());
+    assertFired(fooHandler1);
+    assertNotFired(fooHandler2);
+  }
+
+  public void testCoalescesSameTypeAndSource() {
+    final List<Object> delivered = new ArrayList<>();
+    FooEvent.Handler handler =
+        event -> delivered.add(event.getSource() + ":" + ((CoalescableFooEvent) event).value);
+    FooEvent.register(eventBus, handler);
+
+    eventBus.fireEventFromSource(new CoalescableFooEvent(1), "able");
+    eventBus.fireEventFromSource(new CoalescableFooEvent(2), "baker");
+    eventBus.fireEventFromSource(new CoalescableFooEvent(3), "able");
+    assertEquals(2, eventBus.getPendingCount());
+
+    runScheduled();
+    assertEquals(2, delivered.size());
+    assertEquals("baker:2", delivered.get(0));
+    assertEquals("able:3", delivered.get(1));
+  }
+
+  public void testDoesNotCoalesceOtherEvents() {
+    FooEvent.register(eventBus, fooHandler1);
+
+    eventBus.fireEvent(new FooEvent());
+    eventBus.fireEvent(new FooEvent());
+    assertEquals(2, eventBus.getPendingCount());
+  }
+
+  public void testEventsFiredDuringDeliveryGoToNextBatch() {
+    FooEvent.Handler refire =
+        new FooEvent.Handler() {
+          @Override
+          public void onFoo(FooEvent event) {
+            add(this);
+            eventBus.fireEvent(new BarEvent());
+          }
+        };
+    FooEvent.register(eventBus, refire);
+    BarEvent.register(eventBus, barHandler1);
+
+    eventBus.fireEvent(new FooEvent());
+    runScheduled();
+    assertFired(refire);
+    assertNotFired(barHandler1);
+    assertEquals(1, scheduled.size());
+
+    runScheduled();
+    assertFired(barHandler1);
+  }
+
+  public void testHandlersThrow() {
+    RuntimeException exception1 = new RuntimeException("first exception");
+    RuntimeException exception2 = new RuntimeException("second exception");
+
+    FooEvent.register(
+        eventBus,
+        event -> {
+          throw exception1;
+        });
+    BarEvent.register(
+        eventBus,
+        event -> {
+          throw exception2;
+        });
+    BarEvent.register(eventBus, barHandler1);
+
+    eventBus.fireEvent(new FooEvent());
+    eventBus.fireEvent(new BarEvent());
+    try {
+      runScheduled();
+      fail("eventBus should have thrown");
+    } catch (UmbrellaException e) {
+      Set<Throwable> causes = e.getCauses();
+      assertEquals(2, causes.size());
+      assertTrue(causes.contains(exception1));
+      assertTrue(causes.contains(exception2));
+    }
+    assertFired(barHandler1);
+  }
+
+  public void testExecutorRejects() {
+    final boolean[] reject = {true};
+    BatchingEventBus eventBus =
+        new BatchingEventBus(
+            new SimpleEventBus(),
+            command -> {
+              if (reject[0]) {
+                throw new RejectedExecutionException();
+              }
+              scheduled.add(command);
+            });
+    FooEvent.register(eventBus, fooHandler1);
+    BarEvent.register(eventBus, barHandler1);
+
+    try {
+      eventBus.fireEvent(new FooEvent());
+      fail("expected RejectedExecutionException");
+    } catch (RejectedExecutionException e) {
+      /* pass */
+    }
+    assertEquals(1, eventBus.getPendingCount());
+
+    reject[0] = false;
+    eventBus.fireEvent(new BarEvent());
+    assertEquals(1, scheduled.size());
+
+    runScheduled();
+    assertFired(fooHandler1, barHandler1);
+  }
+
+  public void testNullChecks() {
+    try {
+      eventBus.fireEvent(null);
+      fail("expected NullPointerException");
+    } catch (NullPointerException e) {
+      /* pass */
+    }
+    try {
+      eventBus.fireEventFromSource(new FooEvent(), null);
+      fail("expected NullPointerException");
+    } catch (NullPointerException e) {
+      /* pass */
+    }
+    assertTrue(scheduled.isEmpty());
+  }
+
+  private void runScheduled() {
+    List<Runnable> commands = new ArrayList<>(scheduled);
+    scheduled.clear();
+    for (Runnable command : commands) {
+      command.run();
+    }
+  }
+}
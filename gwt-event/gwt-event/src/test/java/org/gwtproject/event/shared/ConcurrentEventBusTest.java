@@ -0,0 +1,255 @@
+/*
+ * Copyright © 2019 The GWT Project Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.gwtproject.event.shared;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.gwtproject.event.shared.testing.CountingEventBus;
+
+/** Eponymous unit test. */
+public class ConcurrentEventBusTest extends EventBusTestBase {
+
+  interface Command {
+    void execute();
+  }
+
+  public void testAddAndRemoveHandlers() {
+    CountingEventBus eventBus = new CountingEventBus(new ConcurrentEventBus());
+    HandlerRegistration reg1 = FooEvent.register(eventBus, fooHandler1);
+    FooEvent.register(eventBus, fooHandler2);
+    BarEvent.register(eventBus, barHandler1);
+    eventBus.fireEvent(new FooEvent());
+    assertEquals(2, eventBus.getHandlerCount(FooEvent.TYPE));
+    assertFired(fooHandler1, fooHandler2);
+    assertNotFired(barHandler1);
+
+    reset();
+    reg1.removeHandler();
+    eventBus.fireEvent(new FooEvent());
+    assertFired(fooHandler2);
+    assertNotFired(fooHandler1);
+
+    reset();
+    eventBus.fireEvent(new BarEvent());
+    assertFired(barHandler1);
+    assertNotFired(fooHandler2);
+  }
+
+  public void testSameHandlerTwice() {
+    ConcurrentEventBus eventBus = new ConcurrentEventBus();
+    AtomicInteger count = new AtomicInteger();
+    FooEvent.Handler handler = event -> count.incrementAndGet();
+    HandlerRegistration reg1 = FooEvent.register(eventBus, handler);
+    FooEvent.register(eventBus, handler);
+
+    eventBus.fireEvent(new FooEvent());
+    assertEquals(2, count.get());
+
+    reg1.removeHandler();
+    reg1.removeHandler(); // should not remove the second registration
+    eventBus.fireEvent(new FooEvent());
+    assertEquals(3, count.get());
+  }
+
+  public void testConcurrentAdd() {
+    final ConcurrentEventBus eventBus = new ConcurrentEventBus();
+    final FooEvent.Handler two = event -> add("two");
+    FooEvent.Handler one =
+        new FooEvent.Handler() {
+          @Override
+          public void onFoo(FooEvent event) {
+            FooEvent.register(eventBus, two);
+            add(this);
+          }
+        };
+    FooEvent.register(eventBus, one);
+    FooEvent.register(eventBus, fooHandler1);
+    eventBus.fireEvent(new FooEvent());
+    assertFired(one, fooHandler1);
+    assertNotFired("two");
+
+    reset();
+    eventBus.fireEvent(new FooEvent());
+    assertFired(one, "two", fooHandler1);
+  }
+
+  public void testConcurrentRemove() {
+    final ConcurrentEventBus eventBus = new ConcurrentEventBus();
+    final List<HandlerRegistration> registrations = new ArrayList<>();
+    FooEvent.Handler remover =
+        new FooEvent.Handler() {
+          @Override
+          public void onFoo(FooEvent event) {
+            add(this);
+            for (HandlerRegistration registration : registrations) {
+              registration.removeHandler();
+            }
+          }
+        };
+    registrations.add(FooEvent.register(eventBus, remover));
+    registrations.add(FooEvent.register(eventBus, fooHandler1));
+    registrations.add(FooEvent.register(eventBus, fooHandler2));
+
+    eventBus.fireEvent(new FooEvent());
+    assertFired(remover, fooHandler1, fooHandler2);
+
+    reset();
+    eventBus.fireEvent(new FooEvent());
+    assertNotFired(remover, fooHandler1, fooHandler2);
+  }
+
+  public void testSourceHandlerChangesGlobalHandlers() {
+    final ConcurrentEventBus eventBus = new ConcurrentEventBus();
+    final FooEvent.Handler added = event -> add("added");
+    final HandlerRegistration removed = FooEvent.register(eventBus, fooHandler1);
+    FooEvent.Handler changer =
+        new FooEvent.Handler() {
+          @Override
+          public void onFoo(FooEvent event) {
+            add(this);
+            FooEvent.register(eventBus, added);
+            removed.removeHandler();
+          }
+        };
+    HandlerRegistration changerRegistration = FooEvent.register(eventBus, "source", changer);
+
+    eventBus.fireEventFromSource(new FooEvent(), "source");
+    assertFired(changer, fooHandler1);
+    assertNotFired("added");
+
+    reset();
+    changerRegistration.removeHandler();
+    eventBus.fireEventFromSource(new FooEvent(), "source");
+    assertFired("added");
+    assertNotFired(changer, fooHandler1);
+  }
+
+  public void testFromSource() {
+    final ConcurrentEventBus eventBus = new ConcurrentEventBus();
+
+    FooEvent.register(eventBus, fooHandler1);
+    FooEvent.register(eventBus, "able", fooHandler2);
+    FooEvent.register(eventBus, "baker", fooHandler3);
+
+    FooEvent event = new FooEvent();
+    eventBus.fireEventFromSource(event, "able");
+    assertEquals("able", event.getSource());
+    assertFired(fooHandler1, fooHandler2);
+    assertNotFired(fooHandler3);
+
+    reset();
+    eventBus.fireEvent(new FooEvent());
+    assertFired(fooHandler1);
+    assertNotFired(fooHandler2, fooHandler3);
+  }
+
+  public void testHandlersThrow() {
+    RuntimeException exception1 = new RuntimeException("first exception");
+    RuntimeException exception2 = new RuntimeException("second exception");
+
+    final ConcurrentEventBus eventBus = new ConcurrentEventBus();
+
+    FooEvent.register(eventBus, fooHandler1);
+    FooEvent.register(
+        eventBus,
+        "source",
+        e -> {
+          throw exception1;
+        });
+    FooEvent.register(eventBus, fooHandler2);
+    FooEvent.register(
+        eventBus,
+        e -> {
+          throw exception2;
+        });
+
+    try {
+      eventBus.fireEventFromSource(new FooEvent(), "source");
+      fail("eventBus should have thrown");
+    } catch (UmbrellaException e) {
+      Set<Throwable> causes = e.getCauses();
+      assertEquals("Exception should wrap the two thrown exceptions", 2, causes.size());
+      assertTrue("First exception should be under the umbrella", causes.contains(exception1));
+      assertTrue("Second exception should be under the umbrella", causes.contains(exception2));
+    }
+    assertFired(fooHandler1, fooHandler2);
+  }
+
+  public void testNullChecks() {
+    final ConcurrentEventBus eventBus = new ConcurrentEventBus();
+    assertThrowsNpe(() -> eventBus.addHandler(null, fooHandler1));
+    assertThrowsNpe(() -> FooEvent.register(eventBus, "foo", null));
+    assertThrowsNpe(() -> FooEvent.register(eventBus, null, fooHandler1));
+    assertThrowsNpe(() -> eventBus.fireEvent(null));
+    assertThrowsNpe(() -> eventBus.fireEventFromSource(new FooEvent(), null));
+  }
+
+  public void testMultipleThreads() throws InterruptedException {
+    final ConcurrentEventBus eventBus = new ConcurrentEventBus();
+    final AtomicInteger permanentCount = new AtomicInteger();
+    FooEvent.register(eventBus, event -> permanentCount.incrementAndGet());
+
+    final int threadCount = 4;
+    final int iterations = 2000;
+    final CountDownLatch start = new CountDownLatch(1);
+    final List<Throwable> failures = new ArrayList<>();
+    List<Thread> threads = new ArrayList<>();
+    for (int i = 0; i < threadCount; i++) {
+      Thread thread =
+          new Thread(
+              () -> {
+                try {
+                  Object source = new Object();
+                  start.await();
+                  for (int j = 0; j < iterations; j++) {
+                    AtomicInteger count = new AtomicInteger();
+                    HandlerRegistration reg =
+                        FooEvent.register(eventBus, source, event -> count.incrementAndGet());
+                    eventBus.fireEventFromSource(new FooEvent(), source);
+                    reg.removeHandler();
+                    eventBus.fireEventFromSource(new FooEvent(), source);
+                    assertEquals(1, count.get());
+                  }
+                } catch (Throwable e) {
+                  synchronized (failures) {
+                    failures.add(e);
+                  }
+                }
+              });
+      threads.add(thread);
+      thread.start();
+    }
+    start.countDown();
+    for (Thread thread : threads) {
+      thread.join();
+    }
+
+    assertTrue(failures.toString(), failures.isEmpty());
+    assertEquals(threadCount * iterations * 2, permanentCount.get());
+  }
+
+  private void assertThrowsNpe(Command command) {
+    try {
+      command.execute();
+      fail("expected NullPointerException");
+    } catch (NullPointerException e) {
+      /* pass */
+    }
+  }
+}
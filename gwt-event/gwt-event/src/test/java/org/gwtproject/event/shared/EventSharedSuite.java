@@ -16,6 +16,7 @@
 package org.gwtproject.event.shared;
 
 import org.gwtproject.event.shared.testing.CountingEventBusTest;
+import org.gwtproject.event.shared.testing.EventBusMetricsTest;
 import org.junit.runner.RunWith;
 import org.junit.runners.Suite;
 import org.junit.runners.Suite.SuiteClasses;
@@ -23,7 +24,10 @@ import org.junit.runners.Suite.SuiteClasses;
 /** Tests of shared Event code. */
 @RunWith(Suite.class)
 @SuiteClasses({
+  BatchingEventBusTest.class,
+  ConcurrentEventBusTest.class,
   CountingEventBusTest.class,
+  EventBusMetricsTest.class,
   HandlerRegistrationsTest.class,
   SimpleEventBusTest.class,
   ResettableEventBusTest.class,
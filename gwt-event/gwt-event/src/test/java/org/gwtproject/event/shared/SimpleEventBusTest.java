@@ -16,6 +16,11 @@
 
 package org.gwtproject.event.shared;
 
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
 import java.util.Set;
 import junit.framework.AssertionFailedError;
 import org.gwtproject.event.shared.testing.CountingEventBus;
@@ -248,6 +253,108 @@ public class SimpleEventBusTest extends EventBusTestBase {
     assertNotFired(h);
   }
 
+  public void testDispatchFromSourceDoesNotAllocate() {
+    ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+    if (!(bean instanceof com.sun.management.ThreadMXBean)) {
+      return; // allocation counters not available on this JVM
+    }
+    com.sun.management.ThreadMXBean threadBean = (com.sun.management.ThreadMXBean) bean;
+    long threadId = Thread.currentThread().getId();
+
+    final int[] count = new int[1];
+    SimpleEventBus eventBus = new SimpleEventBus();
+    FooEvent.register(eventBus, event -> count[0]++);
+    FooEvent.register(eventBus, "able", event -> count[0]++);
+    FooEvent.register(eventBus, "able", event -> count[0]++);
+    FooEvent event = new FooEvent();
+
+    int iterations = 10000;
+    for (int i = 0; i < iterations; i++) {
+      eventBus.fireEventFromSource(event, "able");
+    }
+    long before = threadBean.getThreadAllocatedBytes(threadId);
+    for (int i = 0; i < iterations; i++) {
+      eventBus.fireEventFromSource(event, "able");
+    }
+    long allocated = threadBean.getThreadAllocatedBytes(threadId) - before;
+
+    assertEquals(iterations * 6, count[0]);
+    // Allow for a little noise from the measurement itself, but nothing per dispatch.
+    assertTrue("allocated " + allocated + " bytes", allocated < iterations);
+  }
+
+  public void testRemoveAllForSource() {
+    SimpleEventBus eventBus = new SimpleEventBus();
+
+    FooEvent.register(eventBus, fooHandler1);
+    HandlerRegistration reg = FooEvent.register(eventBus, "able", fooHandler2);
+    BarEvent.register(eventBus, "able", barHandler1);
+    FooEvent.register(eventBus, "baker", fooHandler3);
+
+    eventBus.removeAllForSource("able");
+    reg.removeHandler(); // should be a no-op
+
+    eventBus.fireEventFromSource(new FooEvent(), "able");
+    eventBus.fireEventFromSource(new BarEvent(), "able");
+    assertFired(fooHandler1);
+    assertNotFired(fooHandler2, barHandler1);
+
+    eventBus.fireEventFromSource(new FooEvent(), "baker");
+    assertFired(fooHandler3);
+
+    // handlers can be added again afterwards
+    reset();
+    FooEvent.register(eventBus, "able", fooHandler2);
+    eventBus.fireEventFromSource(new FooEvent(), "able");
+    assertFired(fooHandler1, fooHandler2);
+  }
+
+  public void testRemoveAllForSourceDuringDispatch() {
+    final SimpleEventBus eventBus = new SimpleEventBus();
+    FooEvent.Handler remover =
+        new FooEvent.Handler() {
+          @Override
+          public void onFoo(FooEvent event) {
+            add(this);
+            eventBus.removeAllForSource("able");
+          }
+        };
+    FooEvent.register(eventBus, "able", remover);
+    FooEvent.register(eventBus, "able", fooHandler1);
+
+    eventBus.fireEventFromSource(new FooEvent(), "able");
+    assertFired(remover, fooHandler1);
+
+    reset();
+    eventBus.fireEventFromSource(new FooEvent(), "able");
+    assertNotFired(remover, fooHandler1);
+  }
+
+  public void testRemoveManyKeepsOrder() {
+    SimpleEventBus eventBus = new SimpleEventBus();
+    final List<Integer> fired = new ArrayList<>();
+    List<HandlerRegistration> registrations = new ArrayList<>();
+    for (int i = 0; i < 100; i++) {
+      final int index = i;
+      registrations.add(FooEvent.register(eventBus, event -> fired.add(index)));
+    }
+    // remove all but every tenth handler, which forces compaction
+    for (int i = 0; i < 100; i++) {
+      if (i % 10 != 0) {
+        registrations.get(i).removeHandler();
+      }
+    }
+    eventBus.fireEvent(new FooEvent());
+    assertEquals(Arrays.asList(0, 10, 20, 30, 40, 50, 60, 70, 80, 90), fired);
+
+    // registrations keep working after compaction
+    fired.clear();
+    registrations.get(50).removeHandler();
+    FooEvent.register(eventBus, event -> fired.add(100));
+    eventBus.fireEvent(new FooEvent());
+    assertEquals(Arrays.asList(0, 10, 20, 30, 40, 60, 70, 80, 90, 100), fired);
+  }
+
   public void testFromSource() {
     final SimpleEventBus eventBus = new SimpleEventBus();
 
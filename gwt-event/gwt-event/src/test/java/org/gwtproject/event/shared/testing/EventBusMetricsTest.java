@@ -0,0 +1,163 @@
+/*
+ * Copyright © 2019 The GWT Project Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.gwtproject.event.shared.testing;
+
+import java.util.ArrayList;
+import java.util.List;
+import junit.framework.TestCase;
+import org.gwtproject.event.shared.BarEvent;
+import org.gwtproject.event.shared.FooEvent;
+import org.gwtproject.event.shared.HandlerRegistration;
+import org.gwtproject.event.shared.ResettableEventBus;
+import org.gwtproject.event.shared.SimpleEventBus;
+import org.gwtproject.event.shared.UmbrellaException;
+
+/** Eponymous unit test. */
+public class EventBusMetricsTest extends TestCase {
+
+  public void testFiredCountsAndLatency() {
+    EventBusMetrics metrics = new EventBusMetrics();
+    SimpleEventBus eventBus = new SimpleEventBus();
+    eventBus.setInstrumentation(metrics);
+
+    FooEvent.register(eventBus, e -> {});
+    FooEvent.register(eventBus, "source", e -> {});
+    eventBus.fireEvent(new FooEvent());
+    eventBus.fireEventFromSource(new FooEvent(), "source");
+
+    assertEquals(2, metrics.getFiredCount(FooEvent.TYPE));
+    assertEquals(0, metrics.getFiredCount(BarEvent.TYPE));
+
+    EventBusMetrics.LatencyHistogram latency = metrics.getHandlerLatency(FooEvent.TYPE);
+    assertEquals(3, latency.getCount());
+    assertTrue(latency.getMaxNanos() <= latency.getTotalNanos());
+    assertTrue(latency.getPercentileNanos(50) <= latency.getMaxNanos());
+    assertEquals(latency.getMaxNanos(), latency.getPercentileNanos(100));
+
+    assertEquals(0, metrics.getHandlerLatency(BarEvent.TYPE).getCount());
+    assertEquals(0, metrics.getHandlerLatency(BarEvent.TYPE).getPercentileNanos(99));
+  }
+
+  public void testThrowingHandlersAreTimed() {
+    EventBusMetrics metrics = new EventBusMetrics();
+    SimpleEventBus eventBus = new SimpleEventBus();
+    eventBus.setInstrumentation(metrics);
+
+    FooEvent.register(
+        eventBus,
+        e -> {
+          throw new RuntimeException();
+        });
+    try {
+      eventBus.fireEvent(new FooEvent());
+      fail("eventBus should have thrown");
+    } catch (UmbrellaException e) {
+      // expected
+    }
+    assertEquals(1, metrics.getHandlerLatency(FooEvent.TYPE).getCount());
+  }
+
+  public void testLiveHandlerCounts() {
+    EventBusMetrics metrics = new EventBusMetrics();
+    SimpleEventBus eventBus = new SimpleEventBus();
+    eventBus.setInstrumentation(metrics);
+
+    HandlerRegistration global = FooEvent.register(eventBus, e -> {});
+    HandlerRegistration sourced1 = FooEvent.register(eventBus, "source", e -> {});
+    HandlerRegistration sourced2 = FooEvent.register(eventBus, "source", e -> {});
+    assertEquals(1, metrics.getLiveHandlerCount(FooEvent.TYPE, null));
+    assertEquals(2, metrics.getLiveHandlerCount(FooEvent.TYPE, "source"));
+
+    global.removeHandler();
+    sourced1.removeHandler();
+    assertEquals(0, metrics.getLiveHandlerCount(FooEvent.TYPE, null));
+    assertEquals(1, metrics.getLiveHandlerCount(FooEvent.TYPE, "source"));
+
+    sourced2.removeHandler();
+    sourced2.removeHandler();
+    assertEquals(0, metrics.getLiveHandlerCount(FooEvent.TYPE, "source"));
+  }
+
+  public void testRemovalDuringDispatchCountedWhenApplied() {
+    EventBusMetrics metrics = new EventBusMetrics();
+    SimpleEventBus eventBus = new SimpleEventBus();
+    eventBus.setInstrumentation(metrics);
+
+    HandlerRegistration[] registration = new HandlerRegistration[1];
+    registration[0] =
+        FooEvent.register(
+            eventBus,
+            e -> {
+              registration[0].removeHandler();
+              assertEquals(1, metrics.getLiveHandlerCount(FooEvent.TYPE, null));
+            });
+    eventBus.fireEvent(new FooEvent());
+    assertEquals(0, metrics.getLiveHandlerCount(FooEvent.TYPE, null));
+  }
+
+  public void testLeakDetection() {
+    List<EventBusMetrics.SuspectedLeak> reported = new ArrayList<>();
+    EventBusMetrics metrics = new EventBusMetrics(2, reported::add);
+    SimpleEventBus eventBus = new SimpleEventBus();
+    eventBus.setInstrumentation(metrics);
+
+    // a stable number of handlers is fine
+    HandlerRegistration stable = FooEvent.register(eventBus, "stable", e -> {});
+    metrics.checkForLeaks();
+
+    FooEvent.register(eventBus, "leaky", e -> {});
+    metrics.checkForLeaks();
+    FooEvent.register(eventBus, "leaky", e -> {});
+    stable.removeHandler();
+    FooEvent.register(eventBus, "stable", e -> {});
+    List<EventBusMetrics.SuspectedLeak> found = metrics.checkForLeaks();
+
+    assertEquals(1, found.size());
+    assertEquals(FooEvent.TYPE, found.get(0).getType());
+    assertEquals("leaky", found.get(0).getSource());
+    assertEquals(2, found.get(0).getHandlerCount());
+    assertEquals(found, reported);
+    assertEquals(found, metrics.getSuspectedLeaks());
+
+    // reported only once
+    FooEvent.register(eventBus, "leaky", e -> {});
+    assertTrue(metrics.checkForLeaks().isEmpty());
+
+    metrics.reset();
+    assertTrue(metrics.getSuspectedLeaks().isEmpty());
+    assertEquals(3, metrics.getLiveHandlerCount(FooEvent.TYPE, "leaky"));
+  }
+
+  public void testResettableEventBus() {
+    EventBusMetrics metrics = new EventBusMetrics();
+    ResettableEventBus eventBus = new ResettableEventBus(new SimpleEventBus());
+    eventBus.setInstrumentation(metrics);
+
+    FooEvent.register(eventBus, e -> {});
+    HandlerRegistration reg = FooEvent.register(eventBus, "source", e -> {});
+    BarEvent.register(eventBus, e -> {});
+    eventBus.fireEvent(new FooEvent());
+    assertEquals(1, metrics.getFiredCount(FooEvent.TYPE));
+    assertEquals(1, metrics.getLiveHandlerCount(FooEvent.TYPE, "source"));
+
+    reg.removeHandler();
+    assertEquals(0, metrics.getLiveHandlerCount(FooEvent.TYPE, "source"));
+
+    eventBus.removeHandlers();
+    assertEquals(0, metrics.getLiveHandlerCount(FooEvent.TYPE, null));
+    assertEquals(0, metrics.getLiveHandlerCount(BarEvent.TYPE, null));
+  }
+}
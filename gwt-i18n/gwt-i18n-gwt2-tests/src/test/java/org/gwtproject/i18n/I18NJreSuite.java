@@ -20,7 +20,9 @@ import junit.framework.TestSuite;
 import org.gwtproject.i18n.shared.AnyRtlDirectionEstimatorTest;
 import org.gwtproject.i18n.shared.BidiFormatterTest;
 import org.gwtproject.i18n.shared.BidiUtilsTest;
+import org.gwtproject.i18n.shared.DateTimeFormatAppendTest;
 import org.gwtproject.i18n.shared.FirstStrongDirectionEstimatorTest;
+import org.gwtproject.i18n.shared.FormatCacheTest;
 import org.gwtproject.i18n.shared.WordCountDirectionEstimatorTest;
 
 /** I18N tests running as a regular JRE test. */
@@ -32,7 +34,9 @@ public class I18NJreSuite {
     suite.addTestSuite(AnyRtlDirectionEstimatorTest.class);
     suite.addTestSuite(BidiFormatterTest.class);
     suite.addTestSuite(BidiUtilsTest.class);
+    suite.addTestSuite(DateTimeFormatAppendTest.class);
     suite.addTestSuite(FirstStrongDirectionEstimatorTest.class);
+    suite.addTestSuite(FormatCacheTest.class);
     // suite.addTestSuite(LocaleUtilsTest.class);
     // suite.addTestSuite(LocalizableGeneratorTest.class);
     // suite.addTestSuite(org.gwtproject.i18n.rg.rebind.MessageFormatParserTest.class);
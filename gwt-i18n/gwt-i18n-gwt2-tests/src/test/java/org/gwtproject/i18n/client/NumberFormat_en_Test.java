@@ -60,6 +60,25 @@ public class NumberFormat_en_Test extends GWTTestCase {
     assertEquals("112,589,990,684,262.4", str);
   }
 
+  public void testCachedPattern() {
+    NumberFormat.clearCache();
+    NumberFormat first = NumberFormat.getFormat("#,##0.00");
+    NumberFormat second = NumberFormat.getFormat("#,##0.00");
+    assertNotSame(first, second);
+    assertEquals(1, NumberFormat.getCacheStats().getMissCount());
+    assertEquals(1, NumberFormat.getCacheStats().getHitCount());
+
+    // overriding the fraction digits does not affect other formats of the pattern
+    first.overrideFractionDigits(0);
+    assertEquals("1,235", first.format(1234.5));
+    assertEquals("1,234.50", second.format(1234.5));
+    assertEquals("1,234.50", NumberFormat.getFormat("#,##0.00").format(1234.5));
+
+    // currencies with different symbols do not share a pattern
+    assertEquals("$1.00", NumberFormat.getFormat("\u00a4#,##0.00").format(1));
+    assertEquals("R$1.00", NumberFormat.getFormat("\u00a4#,##0.00", "BRL").format(1));
+  }
+
   public void testBigDecimal() {
     BigDecimal decVal = new BigDecimal("1000000000000000000000000");
     String str = NumberFormat.getFormat("0.000").format(decVal);
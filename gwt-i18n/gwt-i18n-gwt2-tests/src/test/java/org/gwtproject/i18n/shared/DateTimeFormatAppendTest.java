@@ -0,0 +1,83 @@
+/*
+ * Copyright © 2019 The GWT Project Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.gwtproject.i18n.shared;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.util.Date;
+import junit.framework.TestCase;
+import org.gwtproject.i18n.shared.DateTimeFormat.PredefinedFormat;
+
+/** Unit tests for formatting into a buffer with {@link DateTimeFormat}. */
+public class DateTimeFormatAppendTest extends TestCase {
+
+  private static final TimeZone UTC = org.gwtproject.i18n.client.TimeZone.createTimeZone(0);
+
+  private static final TimeZone EST = org.gwtproject.i18n.client.TimeZone.createTimeZone(300);
+
+  private static final TimeZone LINT = org.gwtproject.i18n.client.TimeZone.createTimeZone(-840);
+
+  public void testAppend() throws IOException {
+    DateTimeFormat dtf = DateTimeFormat.getFormat(PredefinedFormat.ISO_8601);
+    Date date = new Date(1154005810000L);
+    StringBuilder buf = new StringBuilder("at ");
+    dtf.format(date, EST, buf);
+    assertEquals("at 2006-07-27T08:10:10.000-05:00", buf.toString());
+
+    StringWriter writer = new StringWriter();
+    dtf.format(date, EST, (Appendable) writer);
+    assertEquals("2006-07-27T08:10:10.000-05:00", writer.toString());
+  }
+
+  public void testPredefinedFormats() {
+    Date date = new Date(1154005810123L);
+    for (PredefinedFormat predef : PredefinedFormat.values()) {
+      DateTimeFormat dtf = DateTimeFormat.getFormat(predef);
+      StringBuilder buf = new StringBuilder();
+      dtf.format(date, EST, buf);
+      assertEquals(predef.name(), dtf.format(date, EST), buf.toString());
+    }
+    assertEquals(
+        "Thu, 27 Jul 2006 08:10:10 -0500",
+        DateTimeFormat.getFormat(PredefinedFormat.RFC_2822).format(date, EST));
+    assertEquals(
+        "2006 July 27, Thursday",
+        DateTimeFormat.getFormat(PredefinedFormat.DATE_FULL).format(date, EST));
+  }
+
+  public void testFields() {
+    DateTimeFormat dtf = DateTimeFormat.getFormat("G yyyy yy MMM LLLL d E c Q h K k H a m s SSS");
+    assertEquals(
+        "AD 2006 06 Jul July 27 Thu 4 Q3 8 8 8 8 AM 10 10 123",
+        dtf.format(new Date(1154005810123L), EST));
+    assertEquals(
+        "AD 2000 00 Feb February 29 Tue 2 Q1 12 0 24 0 AM 0 0 000",
+        dtf.format(new Date(951782400000L), UTC));
+  }
+
+  public void testBeforeEpoch() {
+    DateTimeFormat dtf = DateTimeFormat.getFormat(PredefinedFormat.ISO_8601);
+    assertEquals("1969-12-31T23:59:59.999+00:00", dtf.format(new Date(-1), UTC));
+    assertEquals("1600-03-01T00:00:00.000+00:00", dtf.format(new Date(-11670912000000L), UTC));
+  }
+
+  public void testFarTimeZone() {
+    // the fields do not depend on daylight time switches of the default time zone
+    DateTimeFormat dtf = DateTimeFormat.getFormat(PredefinedFormat.ISO_8601);
+    assertEquals("2006-04-02T23:00:00.000+14:00", dtf.format(new Date(1143968400000L), LINT));
+    assertEquals("2006-10-30T00:00:00.000+14:00", dtf.format(new Date(1162116000000L), LINT));
+  }
+}
@@ -0,0 +1,113 @@
+/*
+ * Copyright © 2019 The GWT Project Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.gwtproject.i18n.shared;
+
+import junit.framework.TestCase;
+import org.gwtproject.i18n.shared.FormatCache.EvictionPolicy;
+import org.gwtproject.i18n.shared.cldr.DateTimeFormatInfo;
+import org.gwtproject.i18n.shared.cldr.impl.DefaultDateTimeFormatInfo;
+
+/** Unit tests for {@link FormatCache} and its use by {@link DateTimeFormat}. */
+public class FormatCacheTest extends TestCase {
+
+  public void testHitsAndMisses() {
+    FormatCache<String, String> cache = new FormatCache<>(4, EvictionPolicy.LRU);
+    String a = cache.get("a", k -> new String(k));
+    assertSame(a, cache.get("a", FormatCacheTest::notCreated));
+    cache.get("b", k -> k);
+
+    FormatCache.Stats stats = cache.getStats();
+    assertEquals(1, stats.getHitCount());
+    assertEquals(2, stats.getMissCount());
+    assertEquals(0, stats.getEvictionCount());
+    assertEquals(2, stats.getSize());
+  }
+
+  public void testLru() {
+    FormatCache<String, String> cache = new FormatCache<>(2, EvictionPolicy.LRU);
+    cache.get("a", k -> k);
+    cache.get("b", k -> k);
+    cache.get("a", FormatCacheTest::notCreated);
+    cache.get("c", k -> k);
+
+    // b was used least recently
+    String b = cache.get("b", k -> "new b");
+    assertEquals("new b", b);
+    assertEquals(2, cache.getStats().getEvictionCount());
+  }
+
+  public void testFifo() {
+    FormatCache<String, String> cache = new FormatCache<>(2, EvictionPolicy.FIFO);
+    cache.get("a", k -> k);
+    cache.get("b", k -> k);
+    cache.get("a", FormatCacheTest::notCreated);
+    cache.get("c", k -> k);
+
+    // a was added first
+    assertEquals("b", cache.get("b", FormatCacheTest::notCreated));
+    assertEquals("new a", cache.get("a", k -> "new a"));
+  }
+
+  public void testConfigure() {
+    FormatCache<String, String> cache = new FormatCache<>(3, EvictionPolicy.LRU);
+    cache.get("a", k -> k);
+    cache.get("b", k -> k);
+    cache.get("c", k -> k);
+    cache.get("a", FormatCacheTest::notCreated);
+
+    cache.configure(2, EvictionPolicy.FIFO);
+    assertEquals(2, cache.getMaxSize());
+    assertEquals(EvictionPolicy.FIFO, cache.getEvictionPolicy());
+    assertEquals(2, cache.getStats().getSize());
+    assertEquals("c", cache.get("c", FormatCacheTest::notCreated));
+    assertEquals("a", cache.get("a", FormatCacheTest::notCreated));
+
+    cache.configure(0, EvictionPolicy.LRU);
+    assertEquals(0, cache.getStats().getSize());
+    assertEquals("d", cache.get("d", k -> k));
+    assertEquals(0, cache.getStats().getSize());
+
+    try {
+      cache.configure(-1, EvictionPolicy.LRU);
+      fail("negative size accepted");
+    } catch (IllegalArgumentException expected) {
+    }
+  }
+
+  public void testDateTimeFormatCache() {
+    DateTimeFormat.clearCache();
+    DateTimeFormat format = DateTimeFormat.getFormat("yyyy-MM-dd");
+    assertSame(format, DateTimeFormat.getFormat("yyyy-MM-dd"));
+    assertSame(
+        DateTimeFormat.getFormat(DateTimeFormat.PredefinedFormat.ISO_8601),
+        DateTimeFormat.getFormat(DateTimeFormat.PredefinedFormat.ISO_8601));
+
+    DateTimeFormatInfo dtfi = new DefaultDateTimeFormatInfo();
+    DateTimeFormat custom = DateTimeFormat.getFormat("yyyy-MM-dd", dtfi);
+    assertNotSame(format, custom);
+    assertSame(custom, DateTimeFormat.getFormat("yyyy-MM-dd", dtfi));
+
+    FormatCache.Stats stats = DateTimeFormat.getCacheStats();
+    assertEquals(3, stats.getHitCount());
+    assertEquals(3, stats.getMissCount());
+    assertEquals(3, stats.getSize());
+  }
+
+  private static String notCreated(String key) {
+    fail("expected a cached value for " + key);
+    return null;
+  }
+}
@@ -18,7 +18,9 @@ package org.gwtproject.i18n.client;
 import elemental2.core.JsNumber;
 import java.math.BigDecimal;
 import java.math.BigInteger;
+import java.util.Objects;
 import jsinterop.base.Js;
+import org.gwtproject.i18n.shared.FormatCache;
 import org.gwtproject.i18n.shared.cldr.CurrencyData;
 import org.gwtproject.i18n.shared.cldr.CurrencyList;
 import org.gwtproject.i18n.shared.cldr.LocaleInfo;
@@ -323,6 +325,42 @@ public class NumberFormat {
 
   private static final char QUOTE = '\'';
 
+  /** The default maximum number of cached compiled patterns, see {@link #configureCache}. */
+  public static final int DEFAULT_CACHE_SIZE =
+      Integer.parseInt(System.getProperty("gwt.i18n.numberFormatCacheSize", "256"));
+
+  private static final FormatCache<PatternKey, CompiledPattern> patternCache =
+      new FormatCache<>(DEFAULT_CACHE_SIZE, FormatCache.EvictionPolicy.LRU);
+
+  /**
+   * Changes the size and eviction policy of the cache of compiled patterns shared by all
+   * NumberFormat instances. Patterns that no longer fit are dropped.
+   *
+   * <p>The cache holds {@link #DEFAULT_CACHE_SIZE} patterns by default, least recently used
+   * patterns are dropped first.
+   *
+   * @param maxSize the maximum number of cached patterns, 0 disables caching
+   * @param policy which pattern to drop when the cache is full
+   */
+  public static void configureCache(int maxSize, FormatCache.EvictionPolicy policy) {
+    patternCache.configure(maxSize, policy);
+  }
+
+  /**
+   * Returns a snapshot of the hit, miss and eviction counts of the cache of compiled patterns.
+   *
+   * @return the statistics of the cache
+   */
+  public static FormatCache.Stats getCacheStats() {
+    return patternCache.getStats();
+  }
+
+  /** Drops all compiled patterns and resets the statistics of the cache. */
+  public static void clearCache() {
+    patternCache.clear();
+    patternCache.resetStats();
+  }
+
   /**
    * Returns true if all new NumberFormat instances will use latin digits and related characters
    * rather than the localized ones.
@@ -746,45 +784,14 @@ public class NumberFormat {
   }
 
   /** Information about the currency being used. */
-  private CurrencyData currencyData;
+  private final CurrencyData currencyData;
 
-  /**
-   * Holds the current decimal position during one call to {@link #format(boolean, StringBuilder,
-   * int)}.
-   */
-  private transient int decimalPosition;
-
-  /** Forces the decimal separator to always appear in a formatted number. */
-  private boolean decimalSeparatorAlwaysShown = false;
-
-  /**
-   * Holds the current digits length during one call to {@link #format(boolean, StringBuilder,
-   * int)}.
-   */
-  private transient int digitsLength;
-
-  /** Holds the current exponent during one call to {@link #format(boolean, StringBuilder, int)}. */
-  private transient int exponent;
-  /** The number of digits between grouping separators in the integer portion of a number. */
-  private int groupingSize = 3;
+  /** The pattern compiled into affixes and digit counts, shared by all formats of the pattern. */
+  private final CompiledPattern compiled;
 
-  private boolean isCurrencyFormat = false;
-  private int maximumFractionDigits = 3; // invariant, >= minFractionDigits.
+  private int maximumFractionDigits; // invariant, >= minFractionDigits.
 
-  private int maximumIntegerDigits = 40;
-
-  private int minExponentDigits;
-
-  private int minimumFractionDigits = 0;
-
-  private int minimumIntegerDigits = 1;
-
-  // The multiplier for use in percent, per mille, etc.
-  private int multiplier = 1;
-
-  private String negativePrefix = "-";
-
-  private String negativeSuffix = "";
+  private int minimumFractionDigits;
 
   // Locale specific symbol collection.
   private final NumberConstants numberConstants;
@@ -792,13 +799,6 @@ public class NumberFormat {
   // The pattern to use for formatting and parsing.
   private final String pattern;
 
-  private String positivePrefix = "";
-
-  private String positiveSuffix = "";
-
-  // True to force the use of exponential (i.e. scientific) notation.
-  private boolean useExponentialNotation = false;
-
   /**
    * Constructs a format object based on the specified settings.
    *
@@ -823,8 +823,13 @@ public class NumberFormat {
     currencyData = cdata;
 
     // TODO: handle per-currency flags, such as symbol prefix/suffix and spacing
-    parsePattern(this.pattern);
-    if (!userSuppliedPattern && isCurrencyFormat) {
+    compiled =
+        patternCache.get(
+            new PatternKey(numberConstants, pattern, cdata),
+            key -> new CompiledPattern(numberConstants, pattern, cdata));
+    minimumFractionDigits = compiled.minimumFractionDigits;
+    maximumFractionDigits = compiled.maximumFractionDigits;
+    if (!userSuppliedPattern && compiled.isCurrencyFormat) {
       minimumFractionDigits = currencyData.getDefaultFractionDigits();
       maximumFractionDigits = minimumFractionDigits;
     }
@@ -857,12 +862,12 @@ public class NumberFormat {
     }
     StringBuilder buf = new StringBuilder();
     if (Double.isInfinite(number)) {
-      buf.append(isNegative ? negativePrefix : positivePrefix);
+      buf.append(isNegative ? compiled.negativePrefix : compiled.positivePrefix);
       buf.append(numberConstants.infinity());
-      buf.append(isNegative ? negativeSuffix : positiveSuffix);
+      buf.append(isNegative ? compiled.negativeSuffix : compiled.positiveSuffix);
       return buf.toString();
     }
-    number *= multiplier;
+    number *= compiled.multiplier;
     int scale = toScaledString(buf, number);
 
     // pre-round value to deal with .15 being represented as .149999... etc
@@ -894,7 +899,7 @@ public class NumberFormat {
       if (isNegative) {
         bigDec = bigDec.negate();
       }
-      bigDec = bigDec.multiply(BigDecimal.valueOf(multiplier));
+      bigDec = bigDec.multiply(BigDecimal.valueOf(compiled.multiplier));
       StringBuilder buf = new StringBuilder();
       buf.append(bigDec.unscaledValue().toString());
       format(isNegative, buf, -bigDec.scale());
@@ -905,7 +910,7 @@ public class NumberFormat {
       if (isNegative) {
         bigInt = bigInt.negate();
       }
-      bigInt = bigInt.multiply(BigInteger.valueOf(multiplier));
+      bigInt = bigInt.multiply(BigInteger.valueOf(compiled.multiplier));
       StringBuilder buf = new StringBuilder();
       buf.append(bigInt.toString());
       format(isNegative, buf, 0);
@@ -984,10 +989,10 @@ public class NumberFormat {
   public double parse(String text, int[] inOutPos) throws NumberFormatException {
     double ret = 0.0;
 
-    boolean gotPositivePrefix = text.startsWith(positivePrefix, inOutPos[0]);
-    boolean gotNegativePrefix = text.startsWith(negativePrefix, inOutPos[0]);
-    boolean gotPositiveSuffix = text.endsWith(positiveSuffix);
-    boolean gotNegativeSuffix = text.endsWith(negativeSuffix);
+    boolean gotPositivePrefix = text.startsWith(compiled.positivePrefix, inOutPos[0]);
+    boolean gotNegativePrefix = text.startsWith(compiled.negativePrefix, inOutPos[0]);
+    boolean gotPositiveSuffix = text.endsWith(compiled.positiveSuffix);
+    boolean gotNegativeSuffix = text.endsWith(compiled.negativeSuffix);
     boolean gotPositive = gotPositivePrefix && gotPositiveSuffix;
     boolean gotNegative = gotNegativePrefix && gotNegativeSuffix;
 
@@ -995,13 +1000,13 @@ public class NumberFormat {
     // happens when one is a prefix of the other (such as the positive
     // pattern having empty prefix/suffixes).
     if (gotPositive && gotNegative) {
-      if (positivePrefix.length() > negativePrefix.length()) {
+      if (compiled.positivePrefix.length() > compiled.negativePrefix.length()) {
         gotNegative = false;
-      } else if (positivePrefix.length() < negativePrefix.length()) {
+      } else if (compiled.positivePrefix.length() < compiled.negativePrefix.length()) {
         gotPositive = false;
-      } else if (positiveSuffix.length() > negativeSuffix.length()) {
+      } else if (compiled.positiveSuffix.length() > compiled.negativeSuffix.length()) {
         gotNegative = false;
-      } else if (positiveSuffix.length() < negativeSuffix.length()) {
+      } else if (compiled.positiveSuffix.length() < compiled.negativeSuffix.length()) {
         gotPositive = false;
       } else {
         // can't tell patterns apart, must be positive
@@ -1014,11 +1019,11 @@ public class NumberFormat {
     // Contains just the value to parse, stripping any prefix or suffix
     String valueOnly = null;
     if (gotPositive) {
-      inOutPos[0] += positivePrefix.length();
-      valueOnly = text.substring(inOutPos[0], text.length() - positiveSuffix.length());
+      inOutPos[0] += compiled.positivePrefix.length();
+      valueOnly = text.substring(inOutPos[0], text.length() - compiled.positiveSuffix.length());
     } else {
-      inOutPos[0] += negativePrefix.length();
-      valueOnly = text.substring(inOutPos[0], text.length() - negativeSuffix.length());
+      inOutPos[0] += compiled.negativePrefix.length();
+      valueOnly = text.substring(inOutPos[0], text.length() - compiled.negativeSuffix.length());
     }
 
     // Process digits or special values, and find decimal position.
@@ -1030,15 +1035,15 @@ public class NumberFormat {
       ret = Double.NaN;
     } else {
       int[] tempPos = {0};
-      ret = parseNumber(valueOnly, tempPos) / multiplier;
+      ret = parseNumber(valueOnly, tempPos) / compiled.multiplier;
       inOutPos[0] += tempPos[0];
     }
 
     // Check for suffix.
     if (gotPositive) {
-      inOutPos[0] += positiveSuffix.length();
+      inOutPos[0] += compiled.positiveSuffix.length();
     } else if (gotNegative) {
-      inOutPos[0] += negativeSuffix.length();
+      inOutPos[0] += compiled.negativeSuffix.length();
     }
 
     if (gotNegative) {
@@ -1073,7 +1078,7 @@ public class NumberFormat {
   protected void format(boolean isNegative, StringBuilder digits, int scale) {
     char decimalSeparator;
     char groupingSeparator;
-    if (isCurrencyFormat) {
+    if (compiled.isCurrencyFormat) {
       decimalSeparator = numberConstants.monetarySeparator().charAt(0);
       groupingSeparator = numberConstants.monetaryGroupingSeparator().charAt(0);
     } else {
@@ -1081,29 +1086,29 @@ public class NumberFormat {
       groupingSeparator = numberConstants.groupingSeparator().charAt(0);
     }
 
-    // Set these transient fields, which will be adjusted/used by the routines
-    // called in this method.
-    exponent = 0;
-    digitsLength = digits.length();
-    decimalPosition = digitsLength + scale;
+    // The state adjusted/used by the routines called in this method, which
+    // keeps the instance free of per-call state.
+    FormatState state = new FormatState();
+    state.digitsLength = digits.length();
+    state.decimalPosition = state.digitsLength + scale;
 
-    boolean useExponent = this.useExponentialNotation;
-    int currentGroupingSize = this.groupingSize;
-    if (decimalPosition > 1024) {
+    boolean useExponent = compiled.useExponentialNotation;
+    int currentGroupingSize = compiled.groupingSize;
+    if (state.decimalPosition > 1024) {
       // force really large numbers to be in exponential form
       useExponent = true;
     }
 
     if (useExponent) {
-      computeExponent(digits);
+      computeExponent(state, digits);
     }
-    processLeadingZeros(digits);
-    roundValue(digits);
-    insertGroupingSeparators(digits, groupingSeparator, currentGroupingSize);
-    adjustFractionDigits(digits);
-    addZeroAndDecimal(digits, decimalSeparator);
+    processLeadingZeros(state, digits);
+    roundValue(state, digits);
+    insertGroupingSeparators(state, digits, groupingSeparator, currentGroupingSize);
+    adjustFractionDigits(state, digits);
+    addZeroAndDecimal(state, digits, decimalSeparator);
     if (useExponent) {
-      addExponent(digits);
+      addExponent(state, digits);
       // the above call has invalidated digitsLength == digits.length()
     }
     char zeroChar = numberConstants.zeroDigit().charAt(0);
@@ -1112,8 +1117,8 @@ public class NumberFormat {
     }
 
     // add prefix/suffix
-    digits.insert(0, isNegative ? negativePrefix : positivePrefix);
-    digits.append(isNegative ? negativeSuffix : positiveSuffix);
+    digits.insert(0, isNegative ? compiled.negativePrefix : compiled.positivePrefix);
+    digits.append(isNegative ? compiled.negativeSuffix : compiled.positiveSuffix);
   }
 
   /**
@@ -1160,7 +1165,7 @@ public class NumberFormat {
     if (isNegative) {
       value = -value;
     }
-    value *= multiplier;
+    value *= compiled.multiplier;
     StringBuilder buf = new StringBuilder();
     buf.append(String.valueOf(value));
     format(isNegative, buf, scale);
@@ -1171,17 +1176,17 @@ public class NumberFormat {
    * Returns the number of digits between grouping separators in the integer portion of a number.
    */
   protected int getGroupingSize() {
-    return groupingSize;
+    return compiled.groupingSize;
   }
 
   /** Returns the prefix to use for negative values. */
   protected String getNegativePrefix() {
-    return negativePrefix;
+    return compiled.negativePrefix;
   }
 
   /** Returns the suffix to use for negative values. */
   protected String getNegativeSuffix() {
-    return negativeSuffix;
+    return compiled.negativeSuffix;
   }
 
   /** Returns the NumberConstants instance for this formatter. */
@@ -1191,17 +1196,17 @@ public class NumberFormat {
 
   /** Returns the prefix to use for positive values. */
   protected String getPositivePrefix() {
-    return positivePrefix;
+    return compiled.positivePrefix;
   }
 
   /** Returns the suffix to use for positive values. */
   protected String getPositiveSuffix() {
-    return positiveSuffix;
+    return compiled.positiveSuffix;
   }
 
   /** Returns true if the decimal separator should always be shown. */
   protected boolean isDecimalSeparatorAlwaysShown() {
-    return decimalSeparatorAlwaysShown;
+    return compiled.decimalSeparatorAlwaysShown;
   }
 
   /**
@@ -1209,14 +1214,14 @@ public class NumberFormat {
    *
    * @param digits
    */
-  private void addExponent(StringBuilder digits) {
+  private void addExponent(FormatState state, StringBuilder digits) {
     digits.append(numberConstants.exponentialSymbol());
-    if (exponent < 0) {
-      exponent = -exponent;
+    if (state.exponent < 0) {
+      state.exponent = -state.exponent;
       digits.append(numberConstants.minusSign());
     }
-    String exponentDigits = String.valueOf(exponent);
-    for (int i = exponentDigits.length(); i < minExponentDigits; ++i) {
+    String exponentDigits = String.valueOf(state.exponent);
+    for (int i = exponentDigits.length(); i < compiled.minExponentDigits; ++i) {
       digits.append('0');
     }
     digits.append(exponentDigits);
@@ -1226,16 +1231,16 @@ public class NumberFormat {
    * @param digits
    * @param decimalSeparator
    */
-  private void addZeroAndDecimal(StringBuilder digits, char decimalSeparator) {
+  private void addZeroAndDecimal(FormatState state, StringBuilder digits, char decimalSeparator) {
     // add zero and decimal point if required
-    if (digitsLength == 0) {
+    if (state.digitsLength == 0) {
       digits.insert(0, '0');
-      ++decimalPosition;
-      ++digitsLength;
+      ++state.decimalPosition;
+      ++state.digitsLength;
     }
-    if (decimalPosition < digitsLength || decimalSeparatorAlwaysShown) {
-      digits.insert(decimalPosition, decimalSeparator);
-      ++digitsLength;
+    if (state.decimalPosition < state.digitsLength || compiled.decimalSeparatorAlwaysShown) {
+      digits.insert(state.decimalPosition, decimalSeparator);
+      ++state.digitsLength;
     }
   }
 
@@ -1245,27 +1250,27 @@ public class NumberFormat {
    *
    * @param digits
    */
-  private void adjustFractionDigits(StringBuilder digits) {
+  private void adjustFractionDigits(FormatState state, StringBuilder digits) {
     // adjust fraction digits as required
-    int requiredDigits = decimalPosition + minimumFractionDigits;
-    if (digitsLength < requiredDigits) {
+    int requiredDigits = state.decimalPosition + minimumFractionDigits;
+    if (state.digitsLength < requiredDigits) {
       // add trailing zeros
-      while (digitsLength < requiredDigits) {
+      while (state.digitsLength < requiredDigits) {
         digits.append('0');
-        ++digitsLength;
+        ++state.digitsLength;
       }
     } else {
       // remove excess trailing zeros
-      int toRemove = decimalPosition + maximumFractionDigits;
-      if (toRemove > digitsLength) {
-        toRemove = digitsLength;
+      int toRemove = state.decimalPosition + maximumFractionDigits;
+      if (toRemove > state.digitsLength) {
+        toRemove = state.digitsLength;
       }
       while (toRemove > requiredDigits && digits.charAt(toRemove - 1) == '0') {
         --toRemove;
       }
-      if (toRemove < digitsLength) {
-        digits.delete(toRemove, digitsLength);
-        digitsLength = toRemove;
+      if (toRemove < state.digitsLength) {
+        digits.delete(toRemove, state.digitsLength);
+        state.digitsLength = toRemove;
       }
     }
   }
@@ -1275,38 +1280,39 @@ public class NumberFormat {
    *
    * @param digits
    */
-  private void computeExponent(StringBuilder digits) {
+  private void computeExponent(FormatState state, StringBuilder digits) {
     // always trim leading zeros
     int strip = 0;
-    while (strip < digitsLength - 1 && digits.charAt(strip) == '0') {
+    while (strip < state.digitsLength - 1 && digits.charAt(strip) == '0') {
       ++strip;
     }
     if (strip > 0) {
       digits.delete(0, strip);
-      digitsLength -= strip;
-      exponent -= strip;
+      state.digitsLength -= strip;
+      state.exponent -= strip;
     }
 
     // decimal should wind up between minimum & maximumIntegerDigits
-    if (maximumIntegerDigits > minimumIntegerDigits && maximumIntegerDigits > 0) {
+    if (compiled.maximumIntegerDigits > compiled.minimumIntegerDigits
+        && compiled.maximumIntegerDigits > 0) {
       // in this case, the exponent should be a multiple of
       // maximumIntegerDigits and 1 <= decimal <= maximumIntegerDigits
-      exponent += decimalPosition - 1;
-      int remainder = exponent % maximumIntegerDigits;
+      state.exponent += state.decimalPosition - 1;
+      int remainder = state.exponent % compiled.maximumIntegerDigits;
       if (remainder < 0) {
-        remainder += maximumIntegerDigits;
+        remainder += compiled.maximumIntegerDigits;
       }
-      decimalPosition = remainder + 1;
-      exponent -= remainder;
+      state.decimalPosition = remainder + 1;
+      state.exponent -= remainder;
     } else {
-      exponent += decimalPosition - minimumIntegerDigits;
-      decimalPosition = minimumIntegerDigits;
+      state.exponent += state.decimalPosition - compiled.minimumIntegerDigits;
+      state.decimalPosition = compiled.minimumIntegerDigits;
     }
 
     // special-case 0 to have an exponent of 0
-    if (digitsLength == 1 && digits.charAt(0) == '0') {
-      exponent = 0;
-      decimalPosition = minimumIntegerDigits;
+    if (state.digitsLength == 1 && digits.charAt(0) == '0') {
+      state.exponent = 0;
+      state.decimalPosition = compiled.minimumIntegerDigits;
     }
   }
 
@@ -1333,12 +1339,13 @@ public class NumberFormat {
    * @param groupingSeparator
    * @param g
    */
-  private void insertGroupingSeparators(StringBuilder digits, char groupingSeparator, int g) {
+  private void insertGroupingSeparators(
+      FormatState state, StringBuilder digits, char groupingSeparator, int g) {
     if (g > 0) {
-      for (int i = g; i < decimalPosition; i += g + 1) {
-        digits.insert(decimalPosition - i, groupingSeparator);
-        ++decimalPosition;
-        ++digitsLength;
+      for (int i = g; i < state.decimalPosition; i += g + 1) {
+        digits.insert(state.decimalPosition - i, groupingSeparator);
+        ++state.decimalPosition;
+        ++state.digitsLength;
       }
     }
   }
@@ -1360,91 +1367,6 @@ public class NumberFormat {
     }
   }
 
-  /**
-   * This method parses affix part of pattern.
-   *
-   * @param pattern pattern string that need to be parsed
-   * @param start start position to parse
-   * @param affix store the parsed result
-   * @param inNegativePattern true if we are parsing the negative pattern and therefore only care
-   *     about the prefix and suffix
-   * @return how many characters parsed
-   */
-  private int parseAffix(
-      String pattern, int start, StringBuilder affix, boolean inNegativePattern) {
-    affix.delete(0, affix.length());
-    boolean inQuote = false;
-    int len = pattern.length();
-
-    for (int pos = start; pos < len; ++pos) {
-      char ch = pattern.charAt(pos);
-      if (ch == QUOTE) {
-        if ((pos + 1) < len && pattern.charAt(pos + 1) == QUOTE) {
-          ++pos;
-          affix.append("'"); // 'don''t'
-        } else {
-          inQuote = !inQuote;
-        }
-        continue;
-      }
-
-      if (inQuote) {
-        affix.append(ch);
-      } else {
-        switch (ch) {
-          case PATTERN_DIGIT:
-          case PATTERN_ZERO_DIGIT:
-          case PATTERN_GROUPING_SEPARATOR:
-          case PATTERN_DECIMAL_SEPARATOR:
-          case PATTERN_SEPARATOR:
-            return pos - start;
-          case CURRENCY_SIGN:
-            isCurrencyFormat = true;
-            if ((pos + 1) < len && pattern.charAt(pos + 1) == CURRENCY_SIGN) {
-              ++pos;
-              if (pos < len - 2
-                  && pattern.charAt(pos + 1) == CURRENCY_SIGN
-                  && pattern.charAt(pos + 2) == CURRENCY_SIGN) {
-                pos += 2;
-                affix.append(currencyData.getSimpleCurrencySymbol());
-              } else {
-                affix.append(currencyData.getCurrencyCode());
-              }
-            } else {
-              affix.append(currencyData.getCurrencySymbol());
-            }
-            break;
-          case PATTERN_PERCENT:
-            if (!inNegativePattern) {
-              if (multiplier != 1) {
-                throw new IllegalArgumentException(
-                    "Too many percent/per mille characters in pattern \"" + pattern + '"');
-              }
-              multiplier = 100;
-            }
-            affix.append(numberConstants.percent());
-            break;
-          case PATTERN_PER_MILLE:
-            if (!inNegativePattern) {
-              if (multiplier != 1) {
-                throw new IllegalArgumentException(
-                    "Too many percent/per mille characters in pattern \"" + pattern + '"');
-              }
-              multiplier = 1000;
-            }
-            affix.append(numberConstants.perMill());
-            break;
-          case PATTERN_MINUS:
-            affix.append("-");
-            break;
-          default:
-            affix.append(ch);
-        }
-      }
-    }
-    return len - start;
-  }
-
   /**
    * This function parses a "localized" text into a <code>double</code>. It needs to handle locale
    * specific decimal, grouping, exponent and digit.
@@ -1460,9 +1382,11 @@ public class NumberFormat {
     boolean sawDigit = false;
     int scale = 1;
     String decimal =
-        isCurrencyFormat ? numberConstants.monetarySeparator() : numberConstants.decimalSeparator();
+        compiled.isCurrencyFormat
+            ? numberConstants.monetarySeparator()
+            : numberConstants.decimalSeparator();
     String grouping =
-        isCurrencyFormat
+        compiled.isCurrencyFormat
             ? numberConstants.monetaryGroupingSeparator()
             : numberConstants.groupingSeparator();
     String exponentChar = numberConstants.exponentialSymbol();
@@ -1526,199 +1450,34 @@ public class NumberFormat {
     return ret;
   }
 
-  /**
-   * Method parses provided pattern, result is stored in member variables.
-   *
-   * @param pattern
-   */
-  private void parsePattern(String pattern) {
-    int pos = 0;
-    StringBuilder affix = new StringBuilder();
-
-    pos += parseAffix(pattern, pos, affix, false);
-    positivePrefix = affix.toString();
-    pos += parseTrunk(pattern, pos, false);
-    pos += parseAffix(pattern, pos, affix, false);
-    positiveSuffix = affix.toString();
-
-    if (pos < pattern.length() && pattern.charAt(pos) == PATTERN_SEPARATOR) {
-      ++pos;
-      pos += parseAffix(pattern, pos, affix, true);
-      negativePrefix = affix.toString();
-      // the negative pattern is only used for prefix/suffix
-      pos += parseTrunk(pattern, pos, true);
-      pos += parseAffix(pattern, pos, affix, true);
-      negativeSuffix = affix.toString();
-    } else {
-      negativePrefix = numberConstants.minusSign() + positivePrefix;
-      negativeSuffix = positiveSuffix;
-    }
-  }
-
-  /**
-   * This method parses the trunk part of a pattern.
-   *
-   * @param pattern pattern string that need to be parsed
-   * @param start where parse started
-   * @param ignorePattern true if we are only parsing this for length and correctness, such as in
-   *     the negative portion of the pattern
-   * @return how many characters parsed
-   */
-  private int parseTrunk(String pattern, int start, boolean ignorePattern) {
-    int decimalPos = -1;
-    int digitLeftCount = 0, zeroDigitCount = 0, digitRightCount = 0;
-    byte groupingCount = -1;
-
-    int len = pattern.length();
-    int pos = start;
-    boolean loop = true;
-    for (; (pos < len) && loop; ++pos) {
-      char ch = pattern.charAt(pos);
-      switch (ch) {
-        case PATTERN_DIGIT:
-          if (zeroDigitCount > 0) {
-            ++digitRightCount;
-          } else {
-            ++digitLeftCount;
-          }
-          if (groupingCount >= 0 && decimalPos < 0) {
-            ++groupingCount;
-          }
-          break;
-        case PATTERN_ZERO_DIGIT:
-          if (digitRightCount > 0) {
-            throw new IllegalArgumentException("Unexpected '0' in pattern \"" + pattern + '"');
-          }
-          ++zeroDigitCount;
-          if (groupingCount >= 0 && decimalPos < 0) {
-            ++groupingCount;
-          }
-          break;
-        case PATTERN_GROUPING_SEPARATOR:
-          groupingCount = 0;
-          break;
-        case PATTERN_DECIMAL_SEPARATOR:
-          if (decimalPos >= 0) {
-            throw new IllegalArgumentException(
-                "Multiple decimal separators in pattern \"" + pattern + '"');
-          }
-          decimalPos = digitLeftCount + zeroDigitCount + digitRightCount;
-          break;
-        case PATTERN_EXPONENT:
-          if (!ignorePattern) {
-            if (useExponentialNotation) {
-              throw new IllegalArgumentException(
-                  "Multiple exponential " + "symbols in pattern \"" + pattern + '"');
-            }
-            useExponentialNotation = true;
-            minExponentDigits = 0;
-          }
-
-          // Use lookahead to parse out the exponential part
-          // of the pattern, then jump into phase 2.
-          while ((pos + 1) < len && pattern.charAt(pos + 1) == PATTERN_ZERO_DIGIT) {
-            ++pos;
-            if (!ignorePattern) {
-              ++minExponentDigits;
-            }
-          }
-
-          if (!ignorePattern && (digitLeftCount + zeroDigitCount) < 1 || minExponentDigits < 1) {
-            throw new IllegalArgumentException(
-                "Malformed exponential " + "pattern \"" + pattern + '"');
-          }
-          loop = false;
-          break;
-        default:
-          --pos;
-          loop = false;
-          break;
-      }
-    }
-
-    if (zeroDigitCount == 0 && digitLeftCount > 0 && decimalPos >= 0) {
-      // Handle "###.###" and "###." and ".###".
-      int n = decimalPos;
-      if (n == 0) { // Handle ".###"
-        ++n;
-      }
-      digitRightCount = digitLeftCount - n;
-      digitLeftCount = n - 1;
-      zeroDigitCount = 1;
-    }
-
-    // Do syntax checking on the digits.
-    if ((decimalPos < 0 && digitRightCount > 0)
-        || (decimalPos >= 0
-            && (decimalPos < digitLeftCount || decimalPos > (digitLeftCount + zeroDigitCount)))
-        || groupingCount == 0) {
-      throw new IllegalArgumentException("Malformed pattern \"" + pattern + '"');
-    }
-
-    if (ignorePattern) {
-      return pos - start;
-    }
-
-    int totalDigits = digitLeftCount + zeroDigitCount + digitRightCount;
-
-    maximumFractionDigits = (decimalPos >= 0 ? (totalDigits - decimalPos) : 0);
-    if (decimalPos >= 0) {
-      minimumFractionDigits = digitLeftCount + zeroDigitCount - decimalPos;
-      if (minimumFractionDigits < 0) {
-        minimumFractionDigits = 0;
-      }
-    }
-
-    /*
-     * The effectiveDecimalPos is the position the decimal is at or would be at
-     * if there is no decimal. Note that if decimalPos<0, then digitTotalCount ==
-     * digitLeftCount + zeroDigitCount.
-     */
-    int effectiveDecimalPos = decimalPos >= 0 ? decimalPos : totalDigits;
-    minimumIntegerDigits = effectiveDecimalPos - digitLeftCount;
-    if (useExponentialNotation) {
-      maximumIntegerDigits = digitLeftCount + minimumIntegerDigits;
-
-      // In exponential display, integer part can't be empty.
-      if (maximumFractionDigits == 0 && minimumIntegerDigits == 0) {
-        minimumIntegerDigits = 1;
-      }
-    }
-
-    this.groupingSize = (groupingCount > 0) ? groupingCount : 0;
-    decimalSeparatorAlwaysShown = (decimalPos == 0 || decimalPos == totalDigits);
-
-    return pos - start;
-  }
-
   /**
    * Remove excess leading zeros or add some if we don't have enough.
    *
    * @param digits
    */
-  private void processLeadingZeros(StringBuilder digits) {
+  private void processLeadingZeros(FormatState state, StringBuilder digits) {
     // make sure we have enough trailing zeros
-    if (decimalPosition > digitsLength) {
-      while (digitsLength < decimalPosition) {
+    if (state.decimalPosition > state.digitsLength) {
+      while (state.digitsLength < state.decimalPosition) {
         digits.append('0');
-        ++digitsLength;
+        ++state.digitsLength;
       }
     }
 
-    if (!useExponentialNotation) {
+    if (!compiled.useExponentialNotation) {
       // make sure we have the right number of leading zeros
-      if (decimalPosition < minimumIntegerDigits) {
+      if (state.decimalPosition < compiled.minimumIntegerDigits) {
         // add leading zeros
         StringBuilder prefix = new StringBuilder();
-        while (decimalPosition < minimumIntegerDigits) {
+        while (state.decimalPosition < compiled.minimumIntegerDigits) {
           prefix.append('0');
-          ++decimalPosition;
-          ++digitsLength;
+          ++state.decimalPosition;
+          ++state.digitsLength;
         }
         digits.insert(0, prefix);
-      } else if (decimalPosition > minimumIntegerDigits) {
+      } else if (state.decimalPosition > compiled.minimumIntegerDigits) {
         // trim excess leading zeros
-        int strip = decimalPosition - minimumIntegerDigits;
+        int strip = state.decimalPosition - compiled.minimumIntegerDigits;
         for (int i = 0; i < strip; ++i) {
           if (digits.charAt(i) != '0') {
             strip = i;
@@ -1727,8 +1486,8 @@ public class NumberFormat {
         }
         if (strip > 0) {
           digits.delete(0, strip);
-          digitsLength -= strip;
-          decimalPosition -= strip;
+          state.digitsLength -= strip;
+          state.decimalPosition -= strip;
         }
       }
     }
@@ -1739,8 +1498,9 @@ public class NumberFormat {
    *
    * @param digits
    * @param i digit to start incrementing
+   * @return true if a digit was prepended
    */
-  private void propagateCarry(StringBuilder digits, int i) {
+  private boolean propagateCarry(StringBuilder digits, int i) {
     boolean carry = true;
     while (carry && i >= 0) {
       char digit = digits.charAt(i);
@@ -1755,9 +1515,8 @@ public class NumberFormat {
     if (carry) {
       // ran off the front, prepend a 1
       digits.insert(0, '1');
-      ++decimalPosition;
-      ++digitsLength;
     }
+    return carry;
   }
 
   /**
@@ -1765,12 +1524,398 @@ public class NumberFormat {
    *
    * @param digits
    */
-  private void roundValue(StringBuilder digits) {
+  private void roundValue(FormatState state, StringBuilder digits) {
     // TODO(jat): other rounding modes?
-    if (digitsLength > decimalPosition + maximumFractionDigits
-        && digits.charAt(decimalPosition + maximumFractionDigits) >= '5') {
-      int i = decimalPosition + maximumFractionDigits - 1;
-      propagateCarry(digits, i);
+    if (state.digitsLength > state.decimalPosition + maximumFractionDigits
+        && digits.charAt(state.decimalPosition + maximumFractionDigits) >= '5') {
+      int i = state.decimalPosition + maximumFractionDigits - 1;
+      if (propagateCarry(digits, i)) {
+        ++state.decimalPosition;
+        ++state.digitsLength;
+      }
+    }
+  }
+
+  /** The state of one call to {@link #format(boolean, StringBuilder, int)}. */
+  private static final class FormatState {
+    /** The current decimal position. */
+    int decimalPosition;
+
+    /** The current digits length. */
+    int digitsLength;
+
+    /** The current exponent. */
+    int exponent;
+  }
+
+  /**
+   * The cache key of a compiled pattern. Currencies are compared by the symbols that end up in the
+   * affixes, since {@link CurrencyList} may create a new {@link CurrencyData} for each lookup.
+   */
+  private static final class PatternKey {
+    private final NumberConstants numberConstants;
+    private final String pattern;
+    private final String currencyCode;
+    private final String currencySymbol;
+    private final String simpleCurrencySymbol;
+
+    PatternKey(NumberConstants numberConstants, String pattern, CurrencyData cdata) {
+      this.numberConstants = numberConstants;
+      this.pattern = pattern;
+      this.currencyCode = cdata.getCurrencyCode();
+      this.currencySymbol = cdata.getCurrencySymbol();
+      this.simpleCurrencySymbol = cdata.getSimpleCurrencySymbol();
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+      if (!(obj instanceof PatternKey)) {
+        return false;
+      }
+      PatternKey other = (PatternKey) obj;
+      return numberConstants == other.numberConstants
+          && pattern.equals(other.pattern)
+          && Objects.equals(currencyCode, other.currencyCode)
+          && Objects.equals(currencySymbol, other.currencySymbol)
+          && Objects.equals(simpleCurrencySymbol, other.simpleCurrencySymbol);
+    }
+
+    @Override
+    public int hashCode() {
+      return 31 * (31 * pattern.hashCode() + System.identityHashCode(numberConstants))
+          + Objects.hashCode(currencyCode);
+    }
+  }
+
+  /**
+   * A pattern parsed into affixes and digit counts. Instances are immutable, so they can be shared
+   * by any number of formats and threads.
+   */
+  private static final class CompiledPattern {
+    final boolean decimalSeparatorAlwaysShown;
+    final int groupingSize;
+    final boolean isCurrencyFormat;
+    final int maximumFractionDigits;
+    final int maximumIntegerDigits;
+    final int minExponentDigits;
+    final int minimumFractionDigits;
+    final int minimumIntegerDigits;
+    final int multiplier;
+    final String negativePrefix;
+    final String negativeSuffix;
+    final String positivePrefix;
+    final String positiveSuffix;
+    final boolean useExponentialNotation;
+
+    CompiledPattern(NumberConstants numberConstants, String pattern, CurrencyData cdata) {
+      PatternParser parser = new PatternParser(numberConstants, cdata);
+      parser.parsePattern(pattern);
+      decimalSeparatorAlwaysShown = parser.decimalSeparatorAlwaysShown;
+      groupingSize = parser.groupingSize;
+      isCurrencyFormat = parser.isCurrencyFormat;
+      maximumFractionDigits = parser.maximumFractionDigits;
+      maximumIntegerDigits = parser.maximumIntegerDigits;
+      minExponentDigits = parser.minExponentDigits;
+      minimumFractionDigits = parser.minimumFractionDigits;
+      minimumIntegerDigits = parser.minimumIntegerDigits;
+      multiplier = parser.multiplier;
+      negativePrefix = parser.negativePrefix;
+      negativeSuffix = parser.negativeSuffix;
+      positivePrefix = parser.positivePrefix;
+      positiveSuffix = parser.positiveSuffix;
+      useExponentialNotation = parser.useExponentialNotation;
+    }
+  }
+
+  /** The mutable state of parsing a pattern into a {@link CompiledPattern}. */
+  private static final class PatternParser {
+    private final CurrencyData currencyData;
+    private final NumberConstants numberConstants;
+
+    /** Forces the decimal separator to always appear in a formatted number. */
+    boolean decimalSeparatorAlwaysShown = false;
+
+    /** The number of digits between grouping separators in the integer portion of a number. */
+    int groupingSize = 3;
+
+    boolean isCurrencyFormat = false;
+    int maximumFractionDigits = 3; // invariant, >= minFractionDigits.
+
+    int maximumIntegerDigits = 40;
+
+    int minExponentDigits;
+
+    int minimumFractionDigits = 0;
+
+    int minimumIntegerDigits = 1;
+
+    // The multiplier for use in percent, per mille, etc.
+    int multiplier = 1;
+
+    String negativePrefix = "-";
+
+    String negativeSuffix = "";
+
+    String positivePrefix = "";
+
+    String positiveSuffix = "";
+
+    // True to force the use of exponential (i.e. scientific) notation.
+    boolean useExponentialNotation = false;
+
+    PatternParser(NumberConstants numberConstants, CurrencyData cdata) {
+      this.numberConstants = numberConstants;
+      this.currencyData = cdata;
+    }
+
+    /**
+     * This method parses affix part of pattern.
+     *
+     * @param pattern pattern string that need to be parsed
+     * @param start start position to parse
+     * @param affix store the parsed result
+     * @param inNegativePattern true if we are parsing the negative pattern and therefore only care
+     *     about the prefix and suffix
+     * @return how many characters parsed
+     */
+    private int parseAffix(
+        String pattern, int start, StringBuilder affix, boolean inNegativePattern) {
+      affix.delete(0, affix.length());
+      boolean inQuote = false;
+      int len = pattern.length();
+
+      for (int pos = start; pos < len; ++pos) {
+        char ch = pattern.charAt(pos);
+        if (ch == QUOTE) {
+          if ((pos + 1) < len && pattern.charAt(pos + 1) == QUOTE) {
+            ++pos;
+            affix.append("'"); // 'don''t'
+          } else {
+            inQuote = !inQuote;
+          }
+          continue;
+        }
+
+        if (inQuote) {
+          affix.append(ch);
+        } else {
+          switch (ch) {
+            case PATTERN_DIGIT:
+            case PATTERN_ZERO_DIGIT:
+            case PATTERN_GROUPING_SEPARATOR:
+            case PATTERN_DECIMAL_SEPARATOR:
+            case PATTERN_SEPARATOR:
+              return pos - start;
+            case CURRENCY_SIGN:
+              isCurrencyFormat = true;
+              if ((pos + 1) < len && pattern.charAt(pos + 1) == CURRENCY_SIGN) {
+                ++pos;
+                if (pos < len - 2
+                    && pattern.charAt(pos + 1) == CURRENCY_SIGN
+                    && pattern.charAt(pos + 2) == CURRENCY_SIGN) {
+                  pos += 2;
+                  affix.append(currencyData.getSimpleCurrencySymbol());
+                } else {
+                  affix.append(currencyData.getCurrencyCode());
+                }
+              } else {
+                affix.append(currencyData.getCurrencySymbol());
+              }
+              break;
+            case PATTERN_PERCENT:
+              if (!inNegativePattern) {
+                if (multiplier != 1) {
+                  throw new IllegalArgumentException(
+                      "Too many percent/per mille characters in pattern \"" + pattern + '"');
+                }
+                multiplier = 100;
+              }
+              affix.append(numberConstants.percent());
+              break;
+            case PATTERN_PER_MILLE:
+              if (!inNegativePattern) {
+                if (multiplier != 1) {
+                  throw new IllegalArgumentException(
+                      "Too many percent/per mille characters in pattern \"" + pattern + '"');
+                }
+                multiplier = 1000;
+              }
+              affix.append(numberConstants.perMill());
+              break;
+            case PATTERN_MINUS:
+              affix.append("-");
+              break;
+            default:
+              affix.append(ch);
+          }
+        }
+      }
+      return len - start;
+    }
+
+    /**
+     * Method parses provided pattern, result is stored in member variables.
+     *
+     * @param pattern
+     */
+    private void parsePattern(String pattern) {
+      int pos = 0;
+      StringBuilder affix = new StringBuilder();
+
+      pos += parseAffix(pattern, pos, affix, false);
+      positivePrefix = affix.toString();
+      pos += parseTrunk(pattern, pos, false);
+      pos += parseAffix(pattern, pos, affix, false);
+      positiveSuffix = affix.toString();
+
+      if (pos < pattern.length() && pattern.charAt(pos) == PATTERN_SEPARATOR) {
+        ++pos;
+        pos += parseAffix(pattern, pos, affix, true);
+        negativePrefix = affix.toString();
+        // the negative pattern is only used for prefix/suffix
+        pos += parseTrunk(pattern, pos, true);
+        pos += parseAffix(pattern, pos, affix, true);
+        negativeSuffix = affix.toString();
+      } else {
+        negativePrefix = numberConstants.minusSign() + positivePrefix;
+        negativeSuffix = positiveSuffix;
+      }
+    }
+
+    /**
+     * This method parses the trunk part of a pattern.
+     *
+     * @param pattern pattern string that need to be parsed
+     * @param start where parse started
+     * @param ignorePattern true if we are only parsing this for length and correctness, such as in
+     *     the negative portion of the pattern
+     * @return how many characters parsed
+     */
+    private int parseTrunk(String pattern, int start, boolean ignorePattern) {
+      int decimalPos = -1;
+      int digitLeftCount = 0, zeroDigitCount = 0, digitRightCount = 0;
+      byte groupingCount = -1;
+
+      int len = pattern.length();
+      int pos = start;
+      boolean loop = true;
+      for (; (pos < len) && loop; ++pos) {
+        char ch = pattern.charAt(pos);
+        switch (ch) {
+          case PATTERN_DIGIT:
+            if (zeroDigitCount > 0) {
+              ++digitRightCount;
+            } else {
+              ++digitLeftCount;
+            }
+            if (groupingCount >= 0 && decimalPos < 0) {
+              ++groupingCount;
+            }
+            break;
+          case PATTERN_ZERO_DIGIT:
+            if (digitRightCount > 0) {
+              throw new IllegalArgumentException("Unexpected '0' in pattern \"" + pattern + '"');
+            }
+            ++zeroDigitCount;
+            if (groupingCount >= 0 && decimalPos < 0) {
+              ++groupingCount;
+            }
+            break;
+          case PATTERN_GROUPING_SEPARATOR:
+            groupingCount = 0;
+            break;
+          case PATTERN_DECIMAL_SEPARATOR:
+            if (decimalPos >= 0) {
+              throw new IllegalArgumentException(
+                  "Multiple decimal separators in pattern \"" + pattern + '"');
+            }
+            decimalPos = digitLeftCount + zeroDigitCount + digitRightCount;
+            break;
+          case PATTERN_EXPONENT:
+            if (!ignorePattern) {
+              if (useExponentialNotation) {
+                throw new IllegalArgumentException(
+                    "Multiple exponential " + "symbols in pattern \"" + pattern + '"');
+              }
+              useExponentialNotation = true;
+              minExponentDigits = 0;
+            }
+
+            // Use lookahead to parse out the exponential part
+            // of the pattern, then jump into phase 2.
+            while ((pos + 1) < len && pattern.charAt(pos + 1) == PATTERN_ZERO_DIGIT) {
+              ++pos;
+              if (!ignorePattern) {
+                ++minExponentDigits;
+              }
+            }
+
+            if (!ignorePattern && (digitLeftCount + zeroDigitCount) < 1 || minExponentDigits < 1) {
+              throw new IllegalArgumentException(
+                  "Malformed exponential " + "pattern \"" + pattern + '"');
+            }
+            loop = false;
+            break;
+          default:
+            --pos;
+            loop = false;
+            break;
+        }
+      }
+
+      if (zeroDigitCount == 0 && digitLeftCount > 0 && decimalPos >= 0) {
+        // Handle "###.###" and "###." and ".###".
+        int n = decimalPos;
+        if (n == 0) { // Handle ".###"
+          ++n;
+        }
+        digitRightCount = digitLeftCount - n;
+        digitLeftCount = n - 1;
+        zeroDigitCount = 1;
+      }
+
+      // Do syntax checking on the digits.
+      if ((decimalPos < 0 && digitRightCount > 0)
+          || (decimalPos >= 0
+              && (decimalPos < digitLeftCount || decimalPos > (digitLeftCount + zeroDigitCount)))
+          || groupingCount == 0) {
+        throw new IllegalArgumentException("Malformed pattern \"" + pattern + '"');
+      }
+
+      if (ignorePattern) {
+        return pos - start;
+      }
+
+      int totalDigits = digitLeftCount + zeroDigitCount + digitRightCount;
+
+      maximumFractionDigits = (decimalPos >= 0 ? (totalDigits - decimalPos) : 0);
+      if (decimalPos >= 0) {
+        minimumFractionDigits = digitLeftCount + zeroDigitCount - decimalPos;
+        if (minimumFractionDigits < 0) {
+          minimumFractionDigits = 0;
+        }
+      }
+
+      /*
+       * The effectiveDecimalPos is the position the decimal is at or would be at
+       * if there is no decimal. Note that if decimalPos<0, then digitTotalCount ==
+       * digitLeftCount + zeroDigitCount.
+       */
+      int effectiveDecimalPos = decimalPos >= 0 ? decimalPos : totalDigits;
+      minimumIntegerDigits = effectiveDecimalPos - digitLeftCount;
+      if (useExponentialNotation) {
+        maximumIntegerDigits = digitLeftCount + minimumIntegerDigits;
+
+        // In exponential display, integer part can't be empty.
+        if (maximumFractionDigits == 0 && minimumIntegerDigits == 0) {
+          minimumIntegerDigits = 1;
+        }
+      }
+
+      this.groupingSize = (groupingCount > 0) ? groupingCount : 0;
+      decimalSeparatorAlwaysShown = (decimalPos == 0 || decimalPos == totalDigits);
+
+      return pos - start;
     }
   }
 }
@@ -15,11 +15,10 @@
  */
 package org.gwtproject.i18n.shared;
 
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Date;
-import java.util.HashMap;
 import java.util.Locale;
-import java.util.Map;
 import org.gwtproject.i18n.shared.cldr.DateTimeFormatInfo;
 import org.gwtproject.i18n.shared.cldr.impl.DateTimeFormatInfo_factory;
 import org.gwtproject.i18n.shared.cldr.impl.DefaultDateTimeFormatInfo;
@@ -437,16 +436,53 @@ public class DateTimeFormat {
     }
   }
 
+  /** The key of a cached format, which compares the locale information by identity. */
+  private static final class CacheKey {
+    private final String pattern;
+    private final DateTimeFormatInfo dtfi;
+
+    CacheKey(String pattern, DateTimeFormatInfo dtfi) {
+      this.pattern = pattern;
+      this.dtfi = dtfi;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+      if (!(obj instanceof CacheKey)) {
+        return false;
+      }
+      CacheKey other = (CacheKey) obj;
+      return dtfi == other.dtfi && pattern.equals(other.pattern);
+    }
+
+    @Override
+    public int hashCode() {
+      return 31 * pattern.hashCode() + System.identityHashCode(dtfi);
+    }
+  }
+
   protected static final String RFC2822_PATTERN = "EEE, d MMM yyyy HH:mm:ss Z";
   protected static final String ISO8601_PATTERN = "yyyy-MM-dd'T'HH:mm:ss.SSSZZZ";
 
   private static final int NUMBER_BASE = 10;
-  private static final int JS_START_YEAR = 1900;
 
-  private static final Map<String, DateTimeFormat> cache;
+  /** The default maximum number of cached formats, see {@link #configureCache}. */
+  public static final int DEFAULT_CACHE_SIZE =
+      Integer.parseInt(System.getProperty("gwt.i18n.dateTimeFormatCacheSize", "256"));
+
+  private static final FormatCache<CacheKey, DateTimeFormat> cache =
+      new FormatCache<>(DEFAULT_CACHE_SIZE, FormatCache.EvictionPolicy.LRU);
+
+  /** The English names and separators of the fixed formats, shared so that they can be cached. */
+  private static final DateTimeFormatInfo FIXED_ENGLISH_DTFI = new DefaultDateTimeFormatInfo();
+
+  private static DateTimeFormatInfo defaultDtfi;
 
   private static final int NUM_MILLISECONDS_IN_DAY = 24 * 60 * 60000;
 
+  /** The day of week of 1970-01-01, a Thursday. */
+  private static final int EPOCH_DAY_OF_WEEK = 4;
+
   private static final String PATTERN_CHARS = "GyMLdkHmsSEcDahKzZv";
 
   // Note: M & L must be the first two characters
@@ -459,10 +495,6 @@ public class DateTimeFormat {
 
   private static final int MINUTES_PER_HOUR = 60;
 
-  static {
-    cache = new HashMap<>();
-  }
-
   /**
    * Get a DateTimeFormat instance for a predefined format.
    *
@@ -484,7 +516,7 @@ public class DateTimeFormat {
         default:
           throw new IllegalStateException("Unexpected predef type " + predef);
       }
-      return getFormat(pattern, new DefaultDateTimeFormatInfo());
+      return getFormat(pattern, FIXED_ENGLISH_DTFI);
     }
     DateTimeFormatInfo dtfi = getDefaultDateTimeFormatInfo();
     String pattern;
@@ -617,29 +649,55 @@ public class DateTimeFormat {
   }
 
   /**
-   * Internal factory method that provides caching.
+   * Changes the size and eviction policy of the cache of formats shared by the {@code getFormat}
+   * methods. Formats that no longer fit are dropped.
+   *
+   * <p>The cache holds {@link #DEFAULT_CACHE_SIZE} formats by default, least recently used formats
+   * are dropped first.
+   *
+   * @param maxSize the maximum number of cached formats, 0 disables caching
+   * @param policy which format to drop when the cache is full
+   */
+  public static void configureCache(int maxSize, FormatCache.EvictionPolicy policy) {
+    cache.configure(maxSize, policy);
+  }
+
+  /**
+   * Returns a snapshot of the hit, miss and eviction counts of the cache of formats shared by the
+   * {@code getFormat} methods.
+   *
+   * @return the statistics of the cache
+   */
+  public static FormatCache.Stats getCacheStats() {
+    return cache.getStats();
+  }
+
+  /** Drops all cached formats and resets the statistics of the cache. */
+  public static void clearCache() {
+    cache.clear();
+    cache.resetStats();
+  }
+
+  /**
+   * Internal factory method that provides caching. Formats are cached by pattern and {@link
+   * DateTimeFormatInfo} instance, so callers should reuse their {@code DateTimeFormatInfo}.
    *
    * @param pattern
    * @param dtfi
    * @return DateTimeFormat instance
    */
   protected static DateTimeFormat getFormat(String pattern, DateTimeFormatInfo dtfi) {
-    DateTimeFormatInfo defaultDtfi = getDefaultDateTimeFormatInfo();
-    DateTimeFormat dtf = null;
-    if (dtfi == defaultDtfi) {
-      dtf = cache.get(pattern);
-    }
-    if (dtf == null) {
-      dtf = new DateTimeFormat(pattern, dtfi);
-      if (dtfi == defaultDtfi) {
-        cache.put(pattern, dtf);
-      }
-    }
-    return dtf;
+    return cache.get(new CacheKey(pattern, dtfi), key -> new DateTimeFormat(pattern, dtfi));
   }
 
   private static DateTimeFormatInfo getDefaultDateTimeFormatInfo() {
-    return DateTimeFormatInfo_factory.create();
+    // the locale is fixed, so the same instance can be used in cache keys
+    DateTimeFormatInfo dtfi = defaultDtfi;
+    if (dtfi == null) {
+      dtfi = DateTimeFormatInfo_factory.create();
+      defaultDtfi = dtfi;
+    }
+    return dtfi;
   }
 
   /**
@@ -715,49 +773,37 @@ public class DateTimeFormat {
    *     default
    * @return string representation for this date in the format defined by this object
    */
-  @SuppressWarnings("deprecation")
   public String format(Date date, TimeZone timeZone) {
-    // We use the Date class to calculate each date/time field in order
-    // to maximize performance and minimize code size.
-    // JavaScript only provides an API for rendering local time (in the os time
-    // zone). Here we want to render time in any timezone. So suppose we try to
-    // render the date (20:00 GMT0000, or 16:00 GMT-0400, or 12:00 GMT-0800) for
-    // time zone GMT-0400, and OS has time zone GMT-0800. By adding the
-    // difference between OS time zone (GMT-0800) and target time zone
-    // (GMT-0400) to "date", we end up with 16:00 GMT-0800. This date object
-    // has the same date/time fields (year, month, date, hour, minutes, etc)
-    // in GMT-0800 as original date in our target time zone (GMT-0400). We
-    // just need to take care of time zone display, but that's needed anyway.
-
-    // Things get a little bit more tricky when a daylight time transition
-    // happens. For example, if the OS timezone is America/Los_Angeles,
-    // it is just impossible to have a Date represent 2006/4/2 02:30, because
-    // 2:00 to 3:00 on that day does not exist in US Pacific time zone because
-    // of the daylight time switch.
-
-    // But we can use 2 separate date objects, one to represent 2006/4/2, one
-    // to represent 02:30. Of course, for the 2nd date object its date can be
-    // any other day in that year, except 2006/4/2. So we end up have 3 Date
-    // objects: one for resolving "Year, month, day", one for time within that
-    // day, and the original date object, which is needed for figuring out
-    // actual time zone offset.
+    StringBuilder toAppendTo = new StringBuilder(64);
+    format(date, timeZone, toAppendTo);
+    return toAppendTo.toString();
+  }
 
+  /**
+   * Format a date object using specified time zone, appending the result to a buffer. Unlike {@link
+   * #format(Date, TimeZone)}, this method allocates no temporary objects, so that a buffer can be
+   * reused to format many dates.
+   *
+   * @param date the date object being formatted
+   * @param timeZone a TimeZone object that holds time zone information, or {@code null} to use the
+   *     default
+   * @param toAppendTo where the formatted date is appended to
+   */
+  @SuppressWarnings("deprecation")
+  public void format(Date date, TimeZone timeZone, StringBuilder toAppendTo) {
     if (timeZone == null) {
       timeZone = createTimeZone(date.getTimezoneOffset());
     }
-    int diff = (date.getTimezoneOffset() - timeZone.getOffset(date)) * 60000;
-    Date keepDate = new Date(date.getTime() + diff);
-    Date keepTime = keepDate;
-    if (keepDate.getTimezoneOffset() != date.getTimezoneOffset()) {
-      if (diff > 0) {
-        diff -= NUM_MILLISECONDS_IN_DAY;
-      } else {
-        diff += NUM_MILLISECONDS_IN_DAY;
-      }
-      keepTime = new Date(date.getTime() + diff);
-    }
+    // The date/time fields are computed from the local time in the target time zone, counted from
+    // the epoch as if it were UTC. Unlike the Date getters, this does not depend on the time zone
+    // of the OS, so that local times skipped by its daylight time switches can be formatted as
+    // well.
+    long localTime = date.getTime() - timeZone.getOffset(date) * 60000L;
+    long days = Math.floorDiv(localTime, (long) NUM_MILLISECONDS_IN_DAY);
+    int yearMonthDay = civilFromDays(days);
+    int dayOfWeek = (int) Math.floorMod(days + EPOCH_DAY_OF_WEEK, 7L);
+    int millisOfDay = (int) (localTime - days * NUM_MILLISECONDS_IN_DAY);
 
-    StringBuilder toAppendTo = new StringBuilder(64);
     int j, n = pattern.length();
     for (int i = 0; i < n; ) {
       char ch = pattern.charAt(i);
@@ -765,7 +811,7 @@ public class DateTimeFormat {
         // ch is a date-time pattern character to be interpreted by subFormat().
         // Count the number of times it is repeated.
         for (j = i + 1; j < n && pattern.charAt(j) == ch; ++j) {}
-        subFormat(toAppendTo, ch, j - i, date, keepDate, keepTime, timeZone);
+        subFormat(toAppendTo, ch, j - i, date, yearMonthDay, dayOfWeek, millisOfDay, timeZone);
         i = j;
       } else if (ch == '\'') {
         // Handle an entire quoted string, included embedded
@@ -801,7 +847,7 @@ public class DateTimeFormat {
           } else {
             trailQuote = true;
           }
-          toAppendTo.append(pattern.substring(i, j));
+          toAppendTo.append(pattern, i, j);
           i = j + 1;
         }
       } else {
@@ -810,8 +856,25 @@ public class DateTimeFormat {
         ++i;
       }
     }
+  }
 
-    return toAppendTo.toString();
+  /**
+   * Format a date object using specified time zone, appending the result to an {@link Appendable}.
+   * Formatting into a {@link StringBuilder} allocates no temporary objects, other appendables
+   * receive the formatted date in a single call.
+   *
+   * @param date the date object being formatted
+   * @param timeZone a TimeZone object that holds time zone information, or {@code null} to use the
+   *     default
+   * @param toAppendTo where the formatted date is appended to
+   * @throws IOException if appending fails
+   */
+  public void format(Date date, TimeZone timeZone, Appendable toAppendTo) throws IOException {
+    if (toAppendTo instanceof StringBuilder) {
+      format(date, timeZone, (StringBuilder) toAppendTo);
+    } else {
+      toAppendTo.append(format(date, timeZone));
+    }
   }
 
   /**
@@ -913,11 +976,10 @@ public class DateTimeFormat {
    *
    * @param buf where formatted string will be appended to
    * @param count number of time pattern char repeats; this controls how a field should be formatted
-   * @param date hold the date object to be formatted
+   * @param millisOfDay the local time of day to be formatted, in milliseconds
    */
-  @SuppressWarnings("deprecation")
-  private void format0To11Hours(StringBuilder buf, int count, Date date) {
-    int value = date.getHours() % 12;
+  private void format0To11Hours(StringBuilder buf, int count, int millisOfDay) {
+    int value = hours(millisOfDay) % 12;
     zeroPaddingNumber(buf, value, count);
   }
 
@@ -926,11 +988,10 @@ public class DateTimeFormat {
    *
    * @param buf where formatted string will be appended to
    * @param count number of time pattern char repeats; this controls how a field should be formatted
-   * @param date hold the date object to be formatted
+   * @param millisOfDay the local time of day to be formatted, in milliseconds
    */
-  @SuppressWarnings("deprecation")
-  private void format0To23Hours(StringBuilder buf, int count, Date date) {
-    int value = date.getHours();
+  private void format0To23Hours(StringBuilder buf, int count, int millisOfDay) {
+    int value = hours(millisOfDay);
     zeroPaddingNumber(buf, value, count);
   }
 
@@ -939,11 +1000,10 @@ public class DateTimeFormat {
    *
    * @param buf where formatted string will be appended to
    * @param count number of time pattern char repeats; this controls how a field should be formatted
-   * @param date hold the date object to be formatted
+   * @param millisOfDay the local time of day to be formatted, in milliseconds
    */
-  @SuppressWarnings("deprecation")
-  private void format1To12Hours(StringBuilder buf, int count, Date date) {
-    int value = date.getHours() % 12;
+  private void format1To12Hours(StringBuilder buf, int count, int millisOfDay) {
+    int value = hours(millisOfDay) % 12;
     if (value == 0) {
       zeroPaddingNumber(buf, 12, count);
     } else {
@@ -956,11 +1016,10 @@ public class DateTimeFormat {
    *
    * @param buf where formatted string will be appended to
    * @param count number of time pattern char repeats; this controls how a field should be formatted
-   * @param date hold the date object to be formatted
+   * @param millisOfDay the local time of day to be formatted, in milliseconds
    */
-  @SuppressWarnings("deprecation")
-  private void format24Hours(StringBuilder buf, int count, Date date) {
-    int value = date.getHours();
+  private void format24Hours(StringBuilder buf, int count, int millisOfDay) {
+    int value = hours(millisOfDay);
     if (value == 0) {
       zeroPaddingNumber(buf, 24, count);
     } else {
@@ -972,11 +1031,10 @@ public class DateTimeFormat {
    * Formats AM/PM field according to pattern specified.
    *
    * @param buf where formatted string will be appended to
-   * @param date hold the date object to be formatted
+   * @param millisOfDay the local time of day to be formatted, in milliseconds
    */
-  @SuppressWarnings("deprecation")
-  private void formatAmPm(StringBuilder buf, Date date) {
-    if (date.getHours() >= 12 && date.getHours() < 24) {
+  private void formatAmPm(StringBuilder buf, int millisOfDay) {
+    if (hours(millisOfDay) >= 12) {
       buf.append(dateTimeFormatInfo.ampms()[1]);
     } else {
       buf.append(dateTimeFormatInfo.ampms()[0]);
@@ -988,11 +1046,10 @@ public class DateTimeFormat {
    *
    * @param buf where formatted string will be appended to
    * @param count number of time pattern char repeats; this controls how a field should be formatted
-   * @param date hold the date object to be formatted
+   * @param yearMonthDay the local date to be formatted, see {@link #civilFromDays(long)}
    */
-  private void formatDate(StringBuilder buf, int count, Date date) {
-    @SuppressWarnings("deprecation")
-    int value = date.getDate();
+  private void formatDate(StringBuilder buf, int count, int yearMonthDay) {
+    int value = dayOfMonth(yearMonthDay);
     zeroPaddingNumber(buf, value, count);
   }
 
@@ -1001,17 +1058,15 @@ public class DateTimeFormat {
    *
    * @param buf where formatted string will be appended to
    * @param count number of time pattern char repeats; this controls how a field should be formatted
-   * @param date hold the date object to be formatted
+   * @param dayOfWeek the local day of week to be formatted, 0 for Sunday
    */
-  private void formatDayOfWeek(StringBuilder buf, int count, Date date) {
-    @SuppressWarnings("deprecation")
-    int value = date.getDay();
+  private void formatDayOfWeek(StringBuilder buf, int count, int dayOfWeek) {
     if (count == 5) {
-      buf.append(dateTimeFormatInfo.weekdaysNarrow()[value]);
+      buf.append(dateTimeFormatInfo.weekdaysNarrow()[dayOfWeek]);
     } else if (count == 4) {
-      buf.append(dateTimeFormatInfo.weekdaysFull()[value]);
+      buf.append(dateTimeFormatInfo.weekdaysFull()[dayOfWeek]);
     } else {
-      buf.append(dateTimeFormatInfo.weekdaysShort()[value]);
+      buf.append(dateTimeFormatInfo.weekdaysShort()[dayOfWeek]);
     }
   }
 
@@ -1020,11 +1075,10 @@ public class DateTimeFormat {
    *
    * @param buf where formatted string will be appended to
    * @param count number of time pattern char repeats; this controls how a field should be formatted
-   * @param date hold the date object to be formatted
+   * @param yearMonthDay the local date to be formatted, see {@link #civilFromDays(long)}
    */
-  private void formatEra(StringBuilder buf, int count, Date date) {
-    @SuppressWarnings("deprecation")
-    int value = date.getYear() >= -JS_START_YEAR ? 1 : 0;
+  private void formatEra(StringBuilder buf, int count, int yearMonthDay) {
+    int value = year(yearMonthDay) >= 0 ? 1 : 0;
     if (count >= 4) {
       buf.append(dateTimeFormatInfo.erasFull()[value]);
     } else {
@@ -1037,9 +1091,9 @@ public class DateTimeFormat {
    *
    * @param buf where formatted string will be appended to
    * @param count number of time pattern char repeats; this controls how a field should be formatted
-   * @param date hold the date object to be formatted
+   * @param millisOfDay the local time of day to be formatted, in milliseconds
    */
-  private void formatFractionalSeconds(StringBuilder buf, int count, Date date) {
+  private void formatFractionalSeconds(StringBuilder buf, int count, int millisOfDay) {
     /*
      * Fractional seconds should be left-justified, ie. zero must be padded from
      * left. For example, if the value in milliseconds is 5, and the count is 3,
@@ -1049,16 +1103,7 @@ public class DateTimeFormat {
      * places, but the rounded values are truncated at 9 or 99 in order to avoid
      * changing the values of seconds.
      */
-    long time = date.getTime();
-    int value;
-    if (time < 0) {
-      value = 1000 - (int) (-time % 1000);
-      if (value == 1000) {
-        value = 0;
-      }
-    } else {
-      value = (int) (time % 1000);
-    }
+    int value = millisOfDay % 1000;
     if (count == 1) {
       value = Math.min((value + 50) / 100, 9); // Round to 100ms, clamp to 9
       buf.append((char) ('0' + value));
@@ -1079,11 +1124,10 @@ public class DateTimeFormat {
    *
    * @param buf where formatted string will be appended to
    * @param count number of time pattern char repeats; this controls how a field should be formatted
-   * @param date hold the date object to be formatted
+   * @param millisOfDay the local time of day to be formatted, in milliseconds
    */
-  private void formatMinutes(StringBuilder buf, int count, Date date) {
-    @SuppressWarnings("deprecation")
-    int value = date.getMinutes();
+  private void formatMinutes(StringBuilder buf, int count, int millisOfDay) {
+    int value = millisOfDay / 60000 % 60;
     zeroPaddingNumber(buf, value, count);
   }
 
@@ -1092,11 +1136,10 @@ public class DateTimeFormat {
    *
    * @param buf where formatted string will be appended to
    * @param count number of time pattern char repeats; this controls how a field should be formatted
-   * @param date hold the date object to be formatted
+   * @param yearMonthDay the local date to be formatted, see {@link #civilFromDays(long)}
    */
-  private void formatMonth(StringBuilder buf, int count, Date date) {
-    @SuppressWarnings("deprecation")
-    int value = date.getMonth();
+  private void formatMonth(StringBuilder buf, int count, int yearMonthDay) {
+    int value = month(yearMonthDay);
     switch (count) {
       case 5:
         buf.append(dateTimeFormatInfo.monthsNarrow()[value]);
@@ -1117,11 +1160,10 @@ public class DateTimeFormat {
    *
    * @param buf where formatted string will be appended to
    * @param count number of time pattern char repeats; this controls how a field should be formatted
-   * @param date hold the date object to be formatted
+   * @param yearMonthDay the local date to be formatted, see {@link #civilFromDays(long)}
    */
-  private void formatQuarter(StringBuilder buf, int count, Date date) {
-    @SuppressWarnings("deprecation")
-    int value = date.getMonth() / 3;
+  private void formatQuarter(StringBuilder buf, int count, int yearMonthDay) {
+    int value = month(yearMonthDay) / 3;
     if (count < 4) {
       buf.append(dateTimeFormatInfo.quartersShort()[value]);
     } else {
@@ -1134,11 +1176,10 @@ public class DateTimeFormat {
    *
    * @param buf where formatted string will be appended to
    * @param count number of time pattern char repeats; this controls how a field should be formatted
-   * @param date hold the date object to be formatted
+   * @param millisOfDay the local time of day to be formatted, in milliseconds
    */
-  private void formatSeconds(StringBuilder buf, int count, Date date) {
-    @SuppressWarnings("deprecation")
-    int value = date.getSeconds();
+  private void formatSeconds(StringBuilder buf, int count, int millisOfDay) {
+    int value = millisOfDay / 1000 % 60;
     zeroPaddingNumber(buf, value, count);
   }
 
@@ -1147,19 +1188,17 @@ public class DateTimeFormat {
    *
    * @param buf where formatted string will be appended to
    * @param count number of time pattern char repeats; this controls how a field should be formatted
-   * @param date hold the date object to be formatted
+   * @param dayOfWeek the local day of week to be formatted, 0 for Sunday
    */
-  private void formatStandaloneDay(StringBuilder buf, int count, Date date) {
-    @SuppressWarnings("deprecation")
-    int value = date.getDay();
+  private void formatStandaloneDay(StringBuilder buf, int count, int dayOfWeek) {
     if (count == 5) {
-      buf.append(dateTimeFormatInfo.weekdaysNarrowStandalone()[value]);
+      buf.append(dateTimeFormatInfo.weekdaysNarrowStandalone()[dayOfWeek]);
     } else if (count == 4) {
-      buf.append(dateTimeFormatInfo.weekdaysFullStandalone()[value]);
+      buf.append(dateTimeFormatInfo.weekdaysFullStandalone()[dayOfWeek]);
     } else if (count == 3) {
-      buf.append(dateTimeFormatInfo.weekdaysShortStandalone()[value]);
+      buf.append(dateTimeFormatInfo.weekdaysShortStandalone()[dayOfWeek]);
     } else {
-      zeroPaddingNumber(buf, value, 1);
+      zeroPaddingNumber(buf, dayOfWeek, 1);
     }
   }
 
@@ -1168,11 +1207,10 @@ public class DateTimeFormat {
    *
    * @param buf where formatted string will be appended to
    * @param count number of time pattern char repeats; this controls how a field should be formatted
-   * @param date hold the date object to be formatted
+   * @param yearMonthDay the local date to be formatted, see {@link #civilFromDays(long)}
    */
-  private void formatStandaloneMonth(StringBuilder buf, int count, Date date) {
-    @SuppressWarnings("deprecation")
-    int value = date.getMonth();
+  private void formatStandaloneMonth(StringBuilder buf, int count, int yearMonthDay) {
+    int value = month(yearMonthDay);
     if (count == 5) {
       buf.append(dateTimeFormatInfo.monthsNarrowStandalone()[value]);
     } else if (count == 4) {
@@ -1217,20 +1255,18 @@ public class DateTimeFormat {
   }
 
   /**
-   * Formats Year field according to pattern specified. Javascript Date object seems incapable
-   * handling 1BC and year before. It can show you year 0 which does not exists. following we just
-   * keep consistent with javascript's toString method. But keep in mind those things should be
-   * unsupported.
+   * Formats Year field according to pattern specified. As with the Javascript Date object, years
+   * before 1AD are counted in the proleptic Gregorian calendar, with a year 0 which does not exist
+   * in the calendar. Keep in mind those years should be unsupported.
    *
    * @param buf where formatted string will be appended to
    * @param count number of time pattern char repeats; this controls how a field should be
    *     formatted; 2 is treated specially with the last two digits of the year, while more than 2
    *     digits are zero-padded
-   * @param date hold the date object to be formatted
+   * @param yearMonthDay the local date to be formatted, see {@link #civilFromDays(long)}
    */
-  private void formatYear(StringBuilder buf, int count, Date date) {
-    @SuppressWarnings("deprecation")
-    int value = date.getYear() + JS_START_YEAR;
+  private void formatYear(StringBuilder buf, int count, int yearMonthDay) {
+    int value = year(yearMonthDay);
     if (value < 0) {
       value = -value;
     }
@@ -1247,6 +1283,44 @@ public class DateTimeFormat {
     }
   }
 
+  /**
+   * Converts a day counted from 1970-01-01 to a date in the proleptic Gregorian calendar, using
+   * integer arithmetic only.
+   *
+   * @param days the number of days since 1970-01-01, negative before
+   * @return the year, 0-based month and day of month, packed as {@code year << 9 | month << 5 |
+   *     day}
+   */
+  private static int civilFromDays(long days) {
+    // Counts from 0000-03-01, so that the leap day is the last day of a year, in eras of 400 years.
+    long shifted = days + 719468;
+    long era = Math.floorDiv(shifted, 146097);
+    int dayOfEra = (int) (shifted - era * 146097);
+    int yearOfEra = (dayOfEra - dayOfEra / 1460 + dayOfEra / 36524 - dayOfEra / 146096) / 365;
+    int dayOfYear = dayOfEra - (365 * yearOfEra + yearOfEra / 4 - yearOfEra / 100);
+    int shiftedMonth = (5 * dayOfYear + 2) / 153;
+    int day = dayOfYear - (153 * shiftedMonth + 2) / 5 + 1;
+    int month = shiftedMonth < 10 ? shiftedMonth + 2 : shiftedMonth - 10;
+    int year = (int) (era * 400) + yearOfEra + (month < 2 ? 1 : 0);
+    return year << 9 | month << 5 | day;
+  }
+
+  private static int year(int yearMonthDay) {
+    return yearMonthDay >> 9;
+  }
+
+  private static int month(int yearMonthDay) {
+    return (yearMonthDay >> 5) & 0xF;
+  }
+
+  private static int dayOfMonth(int yearMonthDay) {
+    return yearMonthDay & 0x1F;
+  }
+
+  private static int hours(int millisOfDay) {
+    return millisOfDay / 3600000;
+  }
+
   /**
    * Method getNextCharCountInPattern calculate character repeat count in pattern.
    *
@@ -1648,8 +1722,9 @@ public class DateTimeFormat {
    * @param ch pattern character for this field
    * @param count number of time pattern char repeats; this controls how a field should be formatted
    * @param date the date object to be formatted
-   * @param adjustedDate holds the time zone adjusted date fields
-   * @param adjustedTime holds the time zone adjusted time fields
+   * @param yearMonthDay the local date, see {@link #civilFromDays(long)}
+   * @param dayOfWeek the local day of week, 0 for Sunday
+   * @param millisOfDay the local time of day, in milliseconds
    * @return <code>true</code> if pattern valid, otherwise <code>false</code>
    */
   private boolean subFormat(
@@ -1657,57 +1732,58 @@ public class DateTimeFormat {
       char ch,
       int count,
       Date date,
-      Date adjustedDate,
-      Date adjustedTime,
+      int yearMonthDay,
+      int dayOfWeek,
+      int millisOfDay,
       TimeZone timezone) {
     switch (ch) {
       case 'G':
-        formatEra(buf, count, adjustedDate);
+        formatEra(buf, count, yearMonthDay);
         break;
       case 'y':
-        formatYear(buf, count, adjustedDate);
+        formatYear(buf, count, yearMonthDay);
         break;
       case 'M':
-        formatMonth(buf, count, adjustedDate);
+        formatMonth(buf, count, yearMonthDay);
         break;
       case 'k':
-        format24Hours(buf, count, adjustedTime);
+        format24Hours(buf, count, millisOfDay);
         break;
       case 'S':
-        formatFractionalSeconds(buf, count, adjustedTime);
+        formatFractionalSeconds(buf, count, millisOfDay);
         break;
       case 'E':
-        formatDayOfWeek(buf, count, adjustedDate);
+        formatDayOfWeek(buf, count, dayOfWeek);
         break;
       case 'a':
-        formatAmPm(buf, adjustedTime);
+        formatAmPm(buf, millisOfDay);
         break;
       case 'h':
-        format1To12Hours(buf, count, adjustedTime);
+        format1To12Hours(buf, count, millisOfDay);
         break;
       case 'K':
-        format0To11Hours(buf, count, adjustedTime);
+        format0To11Hours(buf, count, millisOfDay);
         break;
       case 'H':
-        format0To23Hours(buf, count, adjustedTime);
+        format0To23Hours(buf, count, millisOfDay);
         break;
       case 'c':
-        formatStandaloneDay(buf, count, adjustedDate);
+        formatStandaloneDay(buf, count, dayOfWeek);
         break;
       case 'L':
-        formatStandaloneMonth(buf, count, adjustedDate);
+        formatStandaloneMonth(buf, count, yearMonthDay);
         break;
       case 'Q':
-        formatQuarter(buf, count, adjustedDate);
+        formatQuarter(buf, count, yearMonthDay);
         break;
       case 'd':
-        formatDate(buf, count, adjustedDate);
+        formatDate(buf, count, yearMonthDay);
         break;
       case 'm':
-        formatMinutes(buf, count, adjustedTime);
+        formatMinutes(buf, count, millisOfDay);
         break;
       case 's':
-        formatSeconds(buf, count, adjustedTime);
+        formatSeconds(buf, count, millisOfDay);
         break;
       case 'z':
         formatTimeZone(buf, count, date, timezone);
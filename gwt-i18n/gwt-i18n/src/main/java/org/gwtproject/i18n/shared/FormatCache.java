@@ -0,0 +1,244 @@
+/*
+ * Copyright © 2019 The GWT Project Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.gwtproject.i18n.shared;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+/**
+ * A size-bounded cache of compiled formats, safe to share between threads on the JVM. See {@link
+ * DateTimeFormat#configureCache} and {@link org.gwtproject.i18n.client.NumberFormat#configureCache}
+ * for the caches of date/time and number formats.
+ *
+ * <p>Lookups of cached formats do not take a lock. Formats are created outside of the lock that
+ * guards insertions, so that a slow pattern does not block other patterns; if two threads create
+ * the same format at once, both get the instance that was cached first. Evicting an entry scans the
+ * cache, which only happens on a miss when the cache is full.
+ *
+ * @param <K> the key type, which must implement {@code equals} and {@code hashCode}
+ * @param <V> the cached value type
+ */
+public final class FormatCache<K, V> {
+
+  /** Which entry to drop when the cache is full. */
+  public enum EvictionPolicy {
+    /** Drops the entry that was used least recently. */
+    LRU,
+    /** Drops the entry that was added first, lookups do not reorder entries. */
+    FIFO
+  }
+
+  /** Immutable snapshot of the statistics of a cache. */
+  public static final class Stats {
+    private final long hitCount;
+    private final long missCount;
+    private final long evictionCount;
+    private final int size;
+
+    Stats(long hitCount, long missCount, long evictionCount, int size) {
+      this.hitCount = hitCount;
+      this.missCount = missCount;
+      this.evictionCount = evictionCount;
+      this.size = size;
+    }
+
+    /** The number of lookups that found a cached value. */
+    public long getHitCount() {
+      return hitCount;
+    }
+
+    /** The number of lookups that had to create the value. */
+    public long getMissCount() {
+      return missCount;
+    }
+
+    /** The number of entries dropped to keep the cache within its maximum size. */
+    public long getEvictionCount() {
+      return evictionCount;
+    }
+
+    /** The number of entries in the cache. */
+    public int getSize() {
+      return size;
+    }
+
+    /** The share of lookups that found a cached value, 1 if there were no lookups. */
+    public double getHitRate() {
+      long lookups = hitCount + missCount;
+      return lookups == 0 ? 1 : (double) hitCount / lookups;
+    }
+
+    @Override
+    public String toString() {
+      return "Stats[hits="
+          + hitCount
+          + ", misses="
+          + missCount
+          + ", evictions="
+          + evictionCount
+          + ", size="
+          + size
+          + "]";
+    }
+  }
+
+  /** A cached value, stamped with its insertion or, with {@link EvictionPolicy#LRU}, last use. */
+  private static final class Entry<V> {
+    final V value;
+    volatile long stamp;
+
+    Entry(V value, long stamp) {
+      this.value = value;
+      this.stamp = stamp;
+    }
+  }
+
+  /** Guards insertions, evictions and configuration changes; lookups do not take it. */
+  private final Object lock = new Object();
+
+  private final ConcurrentHashMap<K, Entry<V>> entries = new ConcurrentHashMap<>();
+  private final AtomicLong clock = new AtomicLong();
+
+  private volatile int maxSize;
+  private volatile EvictionPolicy policy;
+
+  private final AtomicLong hitCount = new AtomicLong();
+  private final AtomicLong missCount = new AtomicLong();
+  private final AtomicLong evictionCount = new AtomicLong();
+
+  /**
+   * Creates an empty cache.
+   *
+   * @param maxSize the maximum number of entries, 0 disables caching
+   * @param policy which entry to drop when the cache is full
+   */
+  public FormatCache(int maxSize, EvictionPolicy policy) {
+    checkMaxSize(maxSize);
+    this.maxSize = maxSize;
+    this.policy = checkPolicy(policy);
+  }
+
+  /**
+   * Returns the cached value of a key, creating and caching it if there is none.
+   *
+   * @param key the key
+   * @param factory creates the value of the key on a miss
+   * @return the cached value
+   */
+  public V get(K key, Function<? super K, ? extends V> factory) {
+    Entry<V> entry = entries.get(key);
+    if (entry != null) {
+      if (policy == EvictionPolicy.LRU) {
+        entry.stamp = clock.incrementAndGet();
+      }
+      hitCount.incrementAndGet();
+      return entry.value;
+    }
+    missCount.incrementAndGet();
+    V created = factory.apply(key);
+    synchronized (lock) {
+      if (maxSize == 0) {
+        return created;
+      }
+      Entry<V> raced = entries.get(key);
+      if (raced != null) {
+        return raced.value;
+      }
+      entries.put(key, new Entry<>(created, clock.incrementAndGet()));
+      trim();
+    }
+    return created;
+  }
+
+  /**
+   * Changes the size and eviction policy of the cache. Entries that no longer fit are dropped, in
+   * the order of the new policy; the statistics are kept.
+   *
+   * @param maxSize the maximum number of entries, 0 disables caching
+   * @param policy which entry to drop when the cache is full
+   */
+  public void configure(int maxSize, EvictionPolicy policy) {
+    checkMaxSize(maxSize);
+    checkPolicy(policy);
+    synchronized (lock) {
+      // the stamps of the old policy are the insertion order of the new one
+      this.policy = policy;
+      this.maxSize = maxSize;
+      trim();
+    }
+  }
+
+  /** Returns the maximum number of entries. */
+  public int getMaxSize() {
+    return maxSize;
+  }
+
+  /** Returns which entry is dropped when the cache is full. */
+  public EvictionPolicy getEvictionPolicy() {
+    return policy;
+  }
+
+  /** Returns a snapshot of the statistics of the cache. */
+  public Stats getStats() {
+    return new Stats(hitCount.get(), missCount.get(), evictionCount.get(), entries.size());
+  }
+
+  /** Drops all entries, the statistics are kept. */
+  public void clear() {
+    synchronized (lock) {
+      entries.clear();
+    }
+  }
+
+  /** Resets the statistics, the entries are kept. */
+  public void resetStats() {
+    hitCount.set(0);
+    missCount.set(0);
+    evictionCount.set(0);
+  }
+
+  /** Drops the entries with the oldest stamps until the cache fits; callers hold the lock. */
+  private void trim() {
+    while (entries.size() > maxSize) {
+      K eldestKey = null;
+      long eldestStamp = Long.MAX_VALUE;
+      for (Map.Entry<K, Entry<V>> entry : entries.entrySet()) {
+        long stamp = entry.getValue().stamp;
+        if (stamp < eldestStamp) {
+          eldestKey = entry.getKey();
+          eldestStamp = stamp;
+        }
+      }
+      entries.remove(eldestKey);
+      evictionCount.incrementAndGet();
+    }
+  }
+
+  private static void checkMaxSize(int maxSize) {
+    if (maxSize < 0) {
+      throw new IllegalArgumentException("Cache size must not be negative: " + maxSize);
+    }
+  }
+
+  private static EvictionPolicy checkPolicy(EvictionPolicy policy) {
+    if (policy == null) {
+      throw new NullPointerException("policy");
+    }
+    return policy;
+  }
+}
@@ -15,11 +15,12 @@
  */
 package org.gwtproject.json;
 
+import org.gwtproject.json.client.JSONStreamGwt2Test;
 import org.gwtproject.json.client.JsonGwt2Test;
 import org.junit.runner.RunWith;
 import org.junit.runners.Suite;
 
 /** All JSON tests. */
 @RunWith(Suite.class)
-@Suite.SuiteClasses({JsonGwt2Test.class})
+@Suite.SuiteClasses({JsonGwt2Test.class, JSONStreamGwt2Test.class})
 public class JsonGwt2Suite {}
@@ -0,0 +1,292 @@
+/*
+ * Copyright © 2019 The GWT Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.gwtproject.json.client;
+
+import static junit.framework.TestCase.*;
+
+import com.google.j2cl.junit.apt.J2clTestInput;
+import org.gwtproject.json.client.JSONReader.Token;
+import org.junit.Test;
+
+/** Test case for {@link JSONReader} and {@link JSONWriter}. */
+@J2clTestInput(JSONStreamJ2clTest.class)
+public class JSONStreamJ2clTest {
+
+  static final String dashboardTest =
+      "{\"id\": \"sales\", \"widgets\": [\n"
+          + "  {\"type\": \"chart\", \"series\": [[1, 2.5], [2, -3e2]], \"options\": {}},\n"
+          + "  {\"type\": \"total\", \"value\": 1234.5, \"label\": \"Caf\\u00e9 \\\"A\\\"\"}\n"
+          + "], \"updated\": null, \"live\": true}";
+
+  @Test
+  public void testReadSelectedFields() {
+    JSONReader reader = new JSONReader(dashboardTest);
+    String label = null;
+    double value = 0;
+    boolean live = false;
+    reader.beginObject();
+    while (reader.hasNext()) {
+      String name = reader.nextName();
+      if (name.equals("widgets")) {
+        reader.beginArray();
+        while (reader.hasNext()) {
+          reader.beginObject();
+          while (reader.hasNext()) {
+            String field = reader.nextName();
+            if (field.equals("value")) {
+              value = reader.nextDouble();
+            } else if (field.equals("label")) {
+              label = reader.nextString();
+            } else {
+              reader.skipValue();
+            }
+          }
+          reader.endObject();
+        }
+        reader.endArray();
+      } else if (name.equals("live")) {
+        live = reader.nextBoolean();
+      } else {
+        reader.skipValue();
+      }
+    }
+    reader.endObject();
+    assertEquals(Token.END_DOCUMENT, reader.peek());
+    assertEquals("Caf\u00e9 \"A\"", label);
+    assertEquals(1234.5, value);
+    assertTrue(live);
+  }
+
+  @Test
+  public void testReadTokens() {
+    JSONReader reader = new JSONReader(" [\"a\\n\\t\\/\", -0.5, 1E3, {\"k\": false}, null, []] ");
+    reader.beginArray();
+    assertEquals(Token.STRING, reader.peek());
+    assertEquals("a\n\t/", reader.nextString());
+    assertEquals(-0.5, reader.nextDouble());
+    assertEquals(1000, reader.nextInt());
+    reader.beginObject();
+    assertEquals(Token.NAME, reader.peek());
+    assertEquals("k", reader.nextName());
+    assertEquals(Token.BOOLEAN, reader.peek());
+    assertFalse(reader.nextBoolean());
+    assertFalse(reader.hasNext());
+    reader.endObject();
+    assertEquals(Token.NULL, reader.peek());
+    reader.nextNull();
+    reader.beginArray();
+    assertFalse(reader.hasNext());
+    reader.endArray();
+    assertEquals(Token.END_ARRAY, reader.peek());
+    reader.endArray();
+    assertEquals(Token.END_DOCUMENT, reader.peek());
+    assertFalse(reader.hasNext());
+  }
+
+  @Test
+  public void testReadNumbers() {
+    JSONReader reader =
+        new JSONReader("[9223372036854775807, -9223372036854775808, 12345678901234567890, 2.5]");
+    reader.beginArray();
+    assertEquals(Long.MAX_VALUE, reader.nextLong());
+    assertEquals(Long.MIN_VALUE, reader.nextLong());
+    assertEquals("12345678901234567890", reader.nextString());
+    try {
+      reader.nextLong();
+      fail("2.5 read as a long");
+    } catch (JSONException expected) {
+    }
+
+    reader = new JSONReader("[2147483648]");
+    reader.beginArray();
+    try {
+      reader.nextInt();
+      fail("2147483648 read as an int");
+    } catch (JSONException expected) {
+    }
+  }
+
+  @Test
+  public void testSkipValue() {
+    JSONReader reader = new JSONReader("{\"a\": [1, {\"b\": [\"\\\"]\"]}], \"c\": 2}");
+    reader.beginObject();
+    reader.skipValue();
+    assertEquals("c", reader.nextName());
+    assertEquals(2, reader.nextInt());
+    try {
+      reader.skipValue();
+      fail("skipped the end of an object");
+    } catch (JSONException expected) {
+    }
+  }
+
+  @Test
+  public void testMalformed() {
+    String[] malformed = {
+      "",
+      " ",
+      "[1,]",
+      "{\"a\":1,}",
+      "{a:1}",
+      "{\"a\" 1}",
+      "[1 2]",
+      "[01]",
+      "[-]",
+      "[1.]",
+      "[1e]",
+      "[.5]",
+      "[tru]",
+      "[NaN]",
+      "['a']",
+      "[\"a\tb\"]",
+      "[\"\\x\"]",
+      "[\"\\u12\"]",
+      "[\"a]",
+      "[1] [2]",
+      "[",
+      "{\"a\":"
+    };
+    for (String json : malformed) {
+      JSONReader reader = new JSONReader(json);
+      try {
+        reader.skipValue();
+        reader.peek();
+        fail("accepted " + json);
+      } catch (JSONException expected) {
+      }
+    }
+  }
+
+  @Test
+  public void testReadWrongToken() {
+    JSONReader reader = new JSONReader("{\"a\": \"1\"}");
+    try {
+      reader.beginArray();
+      fail("read an object as an array");
+    } catch (JSONException expected) {
+    }
+    reader.beginObject();
+    reader.nextName();
+    try {
+      reader.nextDouble();
+      fail("read a string as a number");
+    } catch (JSONException expected) {
+    }
+  }
+
+  @Test
+  public void testWrite() {
+    JSONWriter writer = new JSONWriter();
+    writer
+        .beginObject()
+        .name("id")
+        .value(42)
+        .name("ratio")
+        .value(0.25)
+        .name("big")
+        .value(1e20)
+        .name("ok")
+        .value(true)
+        .name("none")
+        .value((String) null)
+        .name("tags")
+        .beginArray()
+        .value("a")
+        .beginObject()
+        .endObject()
+        .beginArray()
+        .endArray()
+        .nullValue()
+        .endArray()
+        .endObject();
+    String json = writer.toString();
+    assertTrue(
+        json,
+        json.startsWith("{\"id\":42,\"ratio\":0.25,\"big\":")
+            && json.endsWith(",\"ok\":true,\"none\":null,\"tags\":[\"a\",{},[],null]}"));
+
+    JSONReader reader = new JSONReader(json);
+    reader.beginObject();
+    reader.nextName();
+    reader.nextLong();
+    reader.nextName();
+    reader.nextDouble();
+    assertEquals("big", reader.nextName());
+    assertEquals(1e20, reader.nextDouble());
+  }
+
+  @Test
+  public void testWriteEscapes() {
+    String value = "\"\\/\b\f\n\r\t\u0000\u001f\u007f\u00e9\u2028\u2029";
+    String json = new JSONWriter().value(value).toString();
+    assertEquals("\"\\\"\\\\/\\b\\f\\n\\r\\t\\u0000\\u001f\u007f\u00e9\\u2028\\u2029\"", json);
+    assertEquals(value, new JSONReader(json).nextString());
+    assertEquals(value, JSONParser.parseStrict(json).isString().stringValue());
+  }
+
+  @Test
+  public void testWriteIllegalState() {
+    try {
+      new JSONWriter().beginObject().value(1);
+      fail("value without a name");
+    } catch (IllegalStateException expected) {
+    }
+    try {
+      new JSONWriter().beginArray().name("a");
+      fail("name in an array");
+    } catch (IllegalStateException expected) {
+    }
+    try {
+      new JSONWriter().beginObject().name("a").endObject();
+      fail("name without a value");
+    } catch (IllegalStateException expected) {
+    }
+    try {
+      new JSONWriter().beginArray().endObject();
+      fail("mismatched brackets");
+    } catch (IllegalStateException expected) {
+    }
+    try {
+      new JSONWriter().value(1).value(2);
+      fail("two top-level values");
+    } catch (IllegalStateException expected) {
+    }
+    try {
+      new JSONWriter().value(Double.NaN);
+      fail("wrote NaN");
+    } catch (IllegalArgumentException expected) {
+    }
+  }
+
+  @Test
+  public void testMatchesParser() {
+    JSONObject tree = JSONParser.parseStrict(dashboardTest).isObject();
+    JSONReader reader = new JSONReader(dashboardTest);
+    reader.beginObject();
+    assertEquals("id", reader.nextName());
+    assertEquals(tree.get("id").isString().stringValue(), reader.nextString());
+    assertEquals("widgets", reader.nextName());
+    reader.skipValue();
+    assertEquals("updated", reader.nextName());
+    reader.nextNull();
+    assertNotNull(tree.get("updated").isNull());
+
+    JSONWriter writer = new JSONWriter().beginArray().value(tree.get("widgets")).endArray();
+    JSONArray written = JSONParser.parseStrict(writer.toString()).isArray();
+    assertEquals(1, written.size());
+    assertEquals(2, written.get(0).isArray().size());
+  }
+}
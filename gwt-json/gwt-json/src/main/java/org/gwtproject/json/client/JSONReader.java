@@ -0,0 +1,604 @@
+/*
+ * Copyright © 2019 The GWT Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.gwtproject.json.client;
+
+import java.util.Arrays;
+
+/**
+ * Reads a JSON document one token at a time, without building a tree of {@link JSONValue}s. Only
+ * the values that are asked for are converted to Java values, everything else can be passed over
+ * with {@link #skipValue()}, which makes this the better choice for large documents of which only a
+ * few fields are used.
+ *
+ * <p>The document must strictly follow the JSON specification (RFC 8259). It is written in plain
+ * Java, and so behaves the same in the browser and on the JVM.
+ *
+ * <pre>
+ * JSONReader reader = new JSONReader(json);
+ * reader.beginObject();
+ * while (reader.hasNext()) {
+ *   String name = reader.nextName();
+ *   if (name.equals("total")) {
+ *     total = reader.nextDouble();
+ *   } else {
+ *     reader.skipValue();
+ *   }
+ * }
+ * reader.endObject();
+ * </pre>
+ *
+ * Methods throw a {@link JSONException} if the document is malformed, or if the next token is not
+ * the one they expect. The reader cannot be used any further after that.
+ *
+ * @see JSONWriter
+ */
+public class JSONReader {
+
+  /** The kinds of tokens of a JSON document, see {@link #peek()}. */
+  public enum Token {
+    /** The opening bracket of an array, see {@link #beginArray()}. */
+    BEGIN_ARRAY,
+    /** The closing bracket of an array, see {@link #endArray()}. */
+    END_ARRAY,
+    /** The opening brace of an object, see {@link #beginObject()}. */
+    BEGIN_OBJECT,
+    /** The closing brace of an object, see {@link #endObject()}. */
+    END_OBJECT,
+    /** The name of an object member, see {@link #nextName()}. */
+    NAME,
+    /** A string value, see {@link #nextString()}. */
+    STRING,
+    /** A number value, see {@link #nextDouble()}. */
+    NUMBER,
+    /** A {@code true} or {@code false} value, see {@link #nextBoolean()}. */
+    BOOLEAN,
+    /** A {@code null} value, see {@link #nextNull()}. */
+    NULL,
+    /** The end of the document, after its top-level value. */
+    END_DOCUMENT
+  }
+
+  private static final int EMPTY_DOCUMENT = 0;
+  private static final int NONEMPTY_DOCUMENT = 1;
+  private static final int EMPTY_ARRAY = 2;
+  private static final int NONEMPTY_ARRAY = 3;
+  private static final int EMPTY_OBJECT = 4;
+  private static final int DANGLING_NAME = 5;
+  private static final int NONEMPTY_OBJECT = 6;
+
+  private static final double TWO_TO_63 = 9223372036854775808.0;
+
+  private final String json;
+  private final int length;
+
+  /** The position of the next unread character. */
+  private int pos;
+
+  /** The scopes of the enclosing arrays and objects, innermost last. */
+  private int[] stack = new int[32];
+
+  private int stackSize = 1;
+
+  /**
+   * The next token if it has been peeked, else null. Peeking consumes any separator and bracket,
+   * and the opening quote of a string, but leaves numbers and literals to be read.
+   */
+  private Token peeked;
+
+  /** The end of the peeked number or literal. */
+  private int valueEnd;
+
+  /** Whether the peeked number has neither a fraction nor an exponent. */
+  private boolean integral;
+
+  /**
+   * Creates a reader for a JSON document.
+   *
+   * @param json the document to read
+   * @throws NullPointerException if <code>json</code> is <code>null</code>
+   */
+  public JSONReader(String json) {
+    if (json == null) {
+      throw new NullPointerException();
+    }
+    this.json = json;
+    this.length = json.length();
+    stack[0] = EMPTY_DOCUMENT;
+  }
+
+  /**
+   * Consumes the opening bracket of an array.
+   *
+   * @throws JSONException if the next token is not the beginning of an array
+   */
+  public void beginArray() {
+    expect(Token.BEGIN_ARRAY);
+    push(EMPTY_ARRAY);
+    peeked = null;
+  }
+
+  /**
+   * Consumes the closing bracket of the current array.
+   *
+   * @throws JSONException if the next token is not the end of an array
+   */
+  public void endArray() {
+    expect(Token.END_ARRAY);
+    stackSize--;
+    peeked = null;
+  }
+
+  /**
+   * Consumes the opening brace of an object.
+   *
+   * @throws JSONException if the next token is not the beginning of an object
+   */
+  public void beginObject() {
+    expect(Token.BEGIN_OBJECT);
+    push(EMPTY_OBJECT);
+    peeked = null;
+  }
+
+  /**
+   * Consumes the closing brace of the current object.
+   *
+   * @throws JSONException if the next token is not the end of an object
+   */
+  public void endObject() {
+    expect(Token.END_OBJECT);
+    stackSize--;
+    peeked = null;
+  }
+
+  /** Returns true if the current array or object has another element. */
+  public boolean hasNext() {
+    Token token = peek();
+    return token != Token.END_ARRAY && token != Token.END_OBJECT && token != Token.END_DOCUMENT;
+  }
+
+  /**
+   * Returns the kind of the next token without consuming it.
+   *
+   * @throws JSONException if the document is malformed
+   */
+  public Token peek() {
+    if (peeked == null) {
+      peeked = doPeek();
+    }
+    return peeked;
+  }
+
+  /**
+   * Consumes the name of the next member of the current object.
+   *
+   * @throws JSONException if the next token is not a name
+   */
+  public String nextName() {
+    expect(Token.NAME);
+    String name = readString(false);
+    peeked = null;
+    return name;
+  }
+
+  /**
+   * Consumes a string value. The text of a number is returned as is, so that numbers beyond the
+   * precision of a double can be passed to other parsers.
+   *
+   * @throws JSONException if the next token is neither a string nor a number
+   */
+  public String nextString() {
+    Token token = peek();
+    String value;
+    if (token == Token.STRING) {
+      value = readString(false);
+    } else if (token == Token.NUMBER) {
+      value = json.substring(pos, valueEnd);
+      pos = valueEnd;
+    } else {
+      throw unexpected(Token.STRING);
+    }
+    peeked = null;
+    return value;
+  }
+
+  /**
+   * Consumes a number value.
+   *
+   * @throws JSONException if the next token is not a number
+   */
+  public double nextDouble() {
+    expect(Token.NUMBER);
+    double value = Double.parseDouble(json.substring(pos, valueEnd));
+    pos = valueEnd;
+    peeked = null;
+    return value;
+  }
+
+  /**
+   * Consumes a number value that is an exact {@code long}.
+   *
+   * @throws JSONException if the next token is not a number, or not one that fits a long
+   */
+  public long nextLong() {
+    expect(Token.NUMBER);
+    long value = readLong();
+    peeked = null;
+    return value;
+  }
+
+  /**
+   * Consumes a number value that is an exact {@code int}.
+   *
+   * @throws JSONException if the next token is not a number, or not one that fits an int
+   */
+  public int nextInt() {
+    expect(Token.NUMBER);
+    int start = pos;
+    long value = readLong();
+    if ((int) value != value) {
+      throw syntaxError("expected an int but was " + json.substring(start, pos), start);
+    }
+    peeked = null;
+    return (int) value;
+  }
+
+  /**
+   * Consumes a {@code true} or {@code false} value.
+   *
+   * @throws JSONException if the next token is not a boolean
+   */
+  public boolean nextBoolean() {
+    expect(Token.BOOLEAN);
+    boolean value = json.charAt(pos) == 't';
+    pos = valueEnd;
+    peeked = null;
+    return value;
+  }
+
+  /**
+   * Consumes a {@code null} value.
+   *
+   * @throws JSONException if the next token is not null
+   */
+  public void nextNull() {
+    expect(Token.NULL);
+    pos = valueEnd;
+    peeked = null;
+  }
+
+  /**
+   * Skips the next value, including all of its elements if it is an array or object. If the next
+   * token is a name, the name and its value are skipped. Strings are checked but not unescaped.
+   *
+   * @throws JSONException if there is no next value, or the document is malformed
+   */
+  public void skipValue() {
+    if (peek() == Token.NAME) {
+      readString(true);
+      peeked = null;
+    }
+    int depth = 0;
+    do {
+      switch (peek()) {
+        case BEGIN_ARRAY:
+          push(EMPTY_ARRAY);
+          depth++;
+          break;
+        case BEGIN_OBJECT:
+          push(EMPTY_OBJECT);
+          depth++;
+          break;
+        case END_ARRAY:
+        case END_OBJECT:
+          if (depth == 0) {
+            throw unexpected(null);
+          }
+          stackSize--;
+          depth--;
+          break;
+        case NAME:
+        case STRING:
+          readString(true);
+          break;
+        case NUMBER:
+        case BOOLEAN:
+        case NULL:
+          pos = valueEnd;
+          break;
+        default:
+          throw unexpected(null);
+      }
+      peeked = null;
+    } while (depth > 0);
+  }
+
+  /** Returns the position of the next unread character, for error reporting. */
+  public int getPosition() {
+    return pos;
+  }
+
+  @Override
+  public String toString() {
+    return "JSONReader at position " + pos;
+  }
+
+  private Token doPeek() {
+    int scope = stack[stackSize - 1];
+    switch (scope) {
+      case EMPTY_DOCUMENT:
+        stack[stackSize - 1] = NONEMPTY_DOCUMENT;
+        break;
+      case NONEMPTY_DOCUMENT:
+        if (skipWhitespace() == length) {
+          return Token.END_DOCUMENT;
+        }
+        throw syntaxError("unexpected data after the document", pos);
+      case EMPTY_ARRAY:
+        stack[stackSize - 1] = NONEMPTY_ARRAY;
+        if (skipWhitespace() < length && json.charAt(pos) == ']') {
+          pos++;
+          return Token.END_ARRAY;
+        }
+        break;
+      case NONEMPTY_ARRAY:
+        {
+          char c = nextNonWhitespace();
+          if (c == ']') {
+            return Token.END_ARRAY;
+          } else if (c != ',') {
+            throw syntaxError("expected ',' or ']'", pos - 1);
+          }
+          break;
+        }
+      case EMPTY_OBJECT:
+      case NONEMPTY_OBJECT:
+        {
+          stack[stackSize - 1] = DANGLING_NAME;
+          char c = nextNonWhitespace();
+          if (c == '}') {
+            return Token.END_OBJECT;
+          } else if (scope == NONEMPTY_OBJECT) {
+            if (c != ',') {
+              throw syntaxError("expected ',' or '}'", pos - 1);
+            }
+            c = nextNonWhitespace();
+          }
+          if (c != '"') {
+            throw syntaxError("expected a name", pos - 1);
+          }
+          return Token.NAME;
+        }
+      case DANGLING_NAME:
+        stack[stackSize - 1] = NONEMPTY_OBJECT;
+        if (nextNonWhitespace() != ':') {
+          throw syntaxError("expected ':'", pos - 1);
+        }
+        break;
+      default:
+        throw new IllegalStateException();
+    }
+    return peekValue();
+  }
+
+  private Token peekValue() {
+    if (skipWhitespace() == length) {
+      throw syntaxError("unexpected end of input", pos);
+    }
+    char c = json.charAt(pos);
+    switch (c) {
+      case '[':
+        pos++;
+        return Token.BEGIN_ARRAY;
+      case '{':
+        pos++;
+        return Token.BEGIN_OBJECT;
+      case '"':
+        pos++;
+        return Token.STRING;
+      case 't':
+        return peekLiteral("true", Token.BOOLEAN);
+      case 'f':
+        return peekLiteral("false", Token.BOOLEAN);
+      case 'n':
+        return peekLiteral("null", Token.NULL);
+      default:
+        if (c == '-' || (c >= '0' && c <= '9')) {
+          return peekNumber();
+        }
+        throw syntaxError("unexpected character '" + c + "'", pos);
+    }
+  }
+
+  private Token peekLiteral(String literal, Token token) {
+    if (!json.startsWith(literal, pos)) {
+      throw syntaxError("unexpected character '" + json.charAt(pos) + "'", pos);
+    }
+    valueEnd = pos + literal.length();
+    return token;
+  }
+
+  private Token peekNumber() {
+    int p = pos;
+    if (json.charAt(p) == '-') {
+      p++;
+    }
+    if (p < length && json.charAt(p) == '0') {
+      p++;
+    } else {
+      p = skipDigits(p);
+    }
+    integral = true;
+    if (p < length && json.charAt(p) == '.') {
+      integral = false;
+      p = skipDigits(p + 1);
+    }
+    if (p < length && (json.charAt(p) == 'e' || json.charAt(p) == 'E')) {
+      integral = false;
+      p++;
+      if (p < length && (json.charAt(p) == '+' || json.charAt(p) == '-')) {
+        p++;
+      }
+      p = skipDigits(p);
+    }
+    valueEnd = p;
+    return Token.NUMBER;
+  }
+
+  /** Skips the digits starting at p, of which there must be at least one. */
+  private int skipDigits(int p) {
+    int start = p;
+    while (p < length && json.charAt(p) >= '0' && json.charAt(p) <= '9') {
+      p++;
+    }
+    if (p == start) {
+      throw syntaxError("malformed number", pos);
+    }
+    return p;
+  }
+
+  private long readLong() {
+    int start = pos;
+    String literal = json.substring(start, valueEnd);
+    pos = valueEnd;
+    if (integral) {
+      try {
+        return Long.parseLong(literal);
+      } catch (NumberFormatException e) {
+        throw syntaxError("expected a long but was " + literal, start);
+      }
+    }
+    double value = Double.parseDouble(literal);
+    long result = (long) value;
+    if (result != value || value >= TWO_TO_63) {
+      throw syntaxError("expected a long but was " + literal, start);
+    }
+    return result;
+  }
+
+  /**
+   * Reads the rest of a string whose opening quote has been consumed.
+   *
+   * @param skip if true, only checks the string and returns null
+   */
+  private String readString(boolean skip) {
+    // Most strings have no escapes and are returned as a substring of the document.
+    StringBuilder builder = null;
+    int start = pos;
+    while (pos < length) {
+      char c = json.charAt(pos++);
+      if (c == '"') {
+        if (skip) {
+          return null;
+        } else if (builder == null) {
+          return json.substring(start, pos - 1);
+        }
+        return builder.append(json, start, pos - 1).toString();
+      } else if (c == '\\') {
+        if (!skip && builder == null) {
+          builder = new StringBuilder();
+        }
+        if (builder != null) {
+          builder.append(json, start, pos - 1).append(readEscape());
+        } else {
+          readEscape();
+        }
+        start = pos;
+      } else if (c < 0x20) {
+        throw syntaxError("unescaped control character in string", pos - 1);
+      }
+    }
+    throw syntaxError("unterminated string", pos);
+  }
+
+  private char readEscape() {
+    if (pos == length) {
+      throw syntaxError("unterminated string", pos);
+    }
+    char c = json.charAt(pos++);
+    switch (c) {
+      case '"':
+      case '\\':
+      case '/':
+        return c;
+      case 'b':
+        return '\b';
+      case 'f':
+        return '\f';
+      case 'n':
+        return '\n';
+      case 'r':
+        return '\r';
+      case 't':
+        return '\t';
+      case 'u':
+        if (pos + 4 > length) {
+          throw syntaxError("unterminated string", length);
+        }
+        int value = 0;
+        for (int end = pos + 4; pos < end; pos++) {
+          int digit = Character.digit(json.charAt(pos), 16);
+          if (digit < 0) {
+            throw syntaxError("malformed \\u escape", pos);
+          }
+          value = value << 4 | digit;
+        }
+        return (char) value;
+      default:
+        throw syntaxError("invalid escape '\\" + c + "'", pos - 2);
+    }
+  }
+
+  /** Skips whitespace and returns the new position, which is the length at the end of input. */
+  private int skipWhitespace() {
+    while (pos < length) {
+      char c = json.charAt(pos);
+      if (c != ' ' && c != '\n' && c != '\r' && c != '\t') {
+        break;
+      }
+      pos++;
+    }
+    return pos;
+  }
+
+  private char nextNonWhitespace() {
+    if (skipWhitespace() == length) {
+      throw syntaxError("unexpected end of input", pos);
+    }
+    return json.charAt(pos++);
+  }
+
+  private void push(int scope) {
+    if (stackSize == stack.length) {
+      stack = Arrays.copyOf(stack, stackSize * 2);
+    }
+    stack[stackSize++] = scope;
+  }
+
+  private void expect(Token expected) {
+    if (peek() != expected) {
+      throw unexpected(expected);
+    }
+  }
+
+  private JSONException unexpected(Token expected) {
+    String message = expected == null ? "expected a value" : "expected " + expected;
+    return syntaxError(message + " but was " + peeked, pos);
+  }
+
+  private JSONException syntaxError(String message, int position) {
+    return new JSONException(message + " at position " + position);
+  }
+}
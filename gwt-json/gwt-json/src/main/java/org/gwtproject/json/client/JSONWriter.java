@@ -0,0 +1,282 @@
+/*
+ * Copyright © 2019 The GWT Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.gwtproject.json.client;
+
+import java.util.Arrays;
+
+/**
+ * Writes a JSON document one token at a time into a {@link StringBuilder}, without building a tree
+ * of {@link JSONValue}s first. It is written in plain Java, and so runs in the browser and on the
+ * JVM. Only the formatting of some numbers differs between the two, see {@link #value(double)}.
+ *
+ * <pre>
+ * String json = new JSONWriter()
+ *     .beginObject()
+ *     .name("id").value(42)
+ *     .name("tags").beginArray().value("a").value("b").endArray()
+ *     .endObject()
+ *     .toString();
+ * </pre>
+ *
+ * Methods throw an {@link IllegalStateException} if they would make the document malformed, such as
+ * a value in an object without a name, or a second top-level value.
+ *
+ * @see JSONReader
+ */
+public class JSONWriter {
+
+  private static final int EMPTY_DOCUMENT = 0;
+  private static final int NONEMPTY_DOCUMENT = 1;
+  private static final int EMPTY_ARRAY = 2;
+  private static final int NONEMPTY_ARRAY = 3;
+  private static final int EMPTY_OBJECT = 4;
+  private static final int DANGLING_NAME = 5;
+  private static final int NONEMPTY_OBJECT = 6;
+
+  /** Doubles below this magnitude that are integers are written without a fraction. */
+  private static final double MAX_PLAIN_INTEGER = 1e15;
+
+  /** The escape sequences of the characters below 128 that need one, else null. */
+  private static final String[] REPLACEMENTS = new String[128];
+
+  static {
+    for (int c = 0; c < 0x20; c++) {
+      REPLACEMENTS[c] =
+          c < 0x10 ? "\\u000" + Integer.toHexString(c) : "\\u00" + Integer.toHexString(c);
+    }
+    REPLACEMENTS['"'] = "\\\"";
+    REPLACEMENTS['\\'] = "\\\\";
+    REPLACEMENTS['\b'] = "\\b";
+    REPLACEMENTS['\f'] = "\\f";
+    REPLACEMENTS['\n'] = "\\n";
+    REPLACEMENTS['\r'] = "\\r";
+    REPLACEMENTS['\t'] = "\\t";
+  }
+
+  private final StringBuilder out;
+
+  /** The scopes of the enclosing arrays and objects, innermost last. */
+  private int[] stack = new int[32];
+
+  private int stackSize = 1;
+
+  /** Creates a writer that writes into a new buffer, see {@link #toString()}. */
+  public JSONWriter() {
+    this(new StringBuilder());
+  }
+
+  /**
+   * Creates a writer that appends to a buffer.
+   *
+   * @param out the buffer to append to
+   * @throws NullPointerException if <code>out</code> is <code>null</code>
+   */
+  public JSONWriter(StringBuilder out) {
+    if (out == null) {
+      throw new NullPointerException();
+    }
+    this.out = out;
+    stack[0] = EMPTY_DOCUMENT;
+  }
+
+  /** Begins an array, returning this writer. */
+  public JSONWriter beginArray() {
+    beforeValue();
+    push(EMPTY_ARRAY);
+    out.append('[');
+    return this;
+  }
+
+  /** Ends the current array, returning this writer. */
+  public JSONWriter endArray() {
+    return close(EMPTY_ARRAY, NONEMPTY_ARRAY, ']');
+  }
+
+  /** Begins an object, returning this writer. */
+  public JSONWriter beginObject() {
+    beforeValue();
+    push(EMPTY_OBJECT);
+    out.append('{');
+    return this;
+  }
+
+  /** Ends the current object, returning this writer. */
+  public JSONWriter endObject() {
+    return close(EMPTY_OBJECT, NONEMPTY_OBJECT, '}');
+  }
+
+  /**
+   * Writes the name of the next member of the current object, returning this writer.
+   *
+   * @throws NullPointerException if <code>name</code> is <code>null</code>
+   */
+  public JSONWriter name(String name) {
+    if (name == null) {
+      throw new NullPointerException();
+    }
+    int scope = stack[stackSize - 1];
+    if (scope == NONEMPTY_OBJECT) {
+      out.append(',');
+    } else if (scope != EMPTY_OBJECT) {
+      throw new IllegalStateException("A name must be in an object, and followed by a value");
+    }
+    stack[stackSize - 1] = DANGLING_NAME;
+    string(name);
+    return this;
+  }
+
+  /** Writes a string value, or null if <code>value</code> is <code>null</code>. */
+  public JSONWriter value(String value) {
+    if (value == null) {
+      return nullValue();
+    }
+    beforeValue();
+    string(value);
+    return this;
+  }
+
+  /** Writes a boolean value, returning this writer. */
+  public JSONWriter value(boolean value) {
+    beforeValue();
+    out.append(value);
+    return this;
+  }
+
+  /**
+   * Writes a number value, returning this writer. Integers of a magnitude below 10<sup>15</sup> are
+   * written without a fraction. Other numbers are written as {@link StringBuilder#append(double)}
+   * formats them, which differs between the browser and the JVM: for example 10<sup>15</sup> is
+   * written as <code>1000000000000000</code> in the browser and as <code>1.0E15</code> on the JVM,
+   * and 10<sup>-7</sup> as <code>1e-7</code> and <code>1.0E-7</code>. Both forms are valid JSON and
+   * are read back as the same number.
+   *
+   * @throws IllegalArgumentException if <code>value</code> is NaN or infinite, which JSON does not
+   *     allow
+   */
+  public JSONWriter value(double value) {
+    if (Double.isNaN(value) || Double.isInfinite(value)) {
+      throw new IllegalArgumentException("JSON does not allow the number " + value);
+    }
+    beforeValue();
+    if (value == Math.floor(value) && Math.abs(value) < MAX_PLAIN_INTEGER) {
+      out.append((long) value);
+    } else {
+      out.append(value);
+    }
+    return this;
+  }
+
+  /** Writes a number value, returning this writer. */
+  public JSONWriter value(long value) {
+    beforeValue();
+    out.append(value);
+    return this;
+  }
+
+  /** Writes a value that has been built as a tree, or null if <code>value</code> is null. */
+  public JSONWriter value(JSONValue value) {
+    if (value == null) {
+      return nullValue();
+    }
+    beforeValue();
+    out.append(value.toString());
+    return this;
+  }
+
+  /** Writes a null value, returning this writer. */
+  public JSONWriter nullValue() {
+    beforeValue();
+    out.append("null");
+    return this;
+  }
+
+  /** Returns the JSON written so far, which is a complete document once the top-level value is. */
+  @Override
+  public String toString() {
+    return out.toString();
+  }
+
+  private void beforeValue() {
+    switch (stack[stackSize - 1]) {
+      case EMPTY_DOCUMENT:
+        stack[stackSize - 1] = NONEMPTY_DOCUMENT;
+        break;
+      case EMPTY_ARRAY:
+        stack[stackSize - 1] = NONEMPTY_ARRAY;
+        break;
+      case NONEMPTY_ARRAY:
+        out.append(',');
+        break;
+      case DANGLING_NAME:
+        stack[stackSize - 1] = NONEMPTY_OBJECT;
+        out.append(':');
+        break;
+      case NONEMPTY_DOCUMENT:
+        throw new IllegalStateException("A JSON document has a single top-level value");
+      default:
+        throw new IllegalStateException("A value in an object must follow a name");
+    }
+  }
+
+  private JSONWriter close(int empty, int nonempty, char bracket) {
+    int scope = stack[stackSize - 1];
+    if (scope != empty && scope != nonempty) {
+      throw new IllegalStateException("Nesting problem, cannot write '" + bracket + "'");
+    }
+    stackSize--;
+    out.append(bracket);
+    return this;
+  }
+
+  private void push(int scope) {
+    if (stackSize == stack.length) {
+      stack = Arrays.copyOf(stack, stackSize * 2);
+    }
+    stack[stackSize++] = scope;
+  }
+
+  private void string(String value) {
+    out.append('"');
+    int length = value.length();
+    int last = 0;
+    for (int i = 0; i < length; i++) {
+      char c = value.charAt(i);
+      String replacement;
+      if (c < 128) {
+        replacement = REPLACEMENTS[c];
+        if (replacement == null) {
+          continue;
+        }
+      } else if (c == '\u2028') {
+        // Line separators are valid in JSON strings, but not in Javascript ones.
+        replacement = "\\u2028";
+      } else if (c == '\u2029') {
+        replacement = "\\u2029";
+      } else {
+        continue;
+      }
+      if (last < i) {
+        out.append(value, last, i);
+      }
+      out.append(replacement);
+      last = i + 1;
+    }
+    if (last < length) {
+      out.append(value, last, length);
+    }
+    out.append('"');
+  }
+}
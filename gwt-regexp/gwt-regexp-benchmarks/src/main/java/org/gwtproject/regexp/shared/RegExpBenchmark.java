@@ -0,0 +1,95 @@
+/*
+ * Copyright © 2019 The GWT Project Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.gwtproject.regexp.shared;
+
+import java.util.concurrent.TimeUnit;
+import org.gwtproject.regexp.server.JavaRegExp;
+import org.gwtproject.regexp.server.ReplacementTemplate;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures {@link RegExp} on the JVM, the way shared validation code uses it: compiling the same
+ * sources again for each request, and matching, replacing and splitting short inputs.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class RegExpBenchmark {
+
+  private static final String EMAIL = "^[\\w.+-]+@([\\w-]+\\.)+[a-zA-Z]{2,}$";
+  private static final String DATE = "(\\d{4})-(\\d{2})-(\\d{2})";
+
+  private static final String DATES =
+      "from 2019-03-14 to 2019-04-01, then 2020-01-31 and 2021-12-24";
+  private static final String CSV = "alpha, beta,gamma ,delta, epsilon,zeta, eta ,theta";
+
+  private RegExp email;
+  private RegExp date;
+  private RegExp separator;
+  private ReplacementTemplate template;
+
+  @Setup
+  public void setUp() {
+    email = RegExp.compile(EMAIL);
+    date = RegExp.compile(DATE, "g");
+    separator = RegExp.compile("\\s*,\\s*");
+    template = ReplacementTemplate.compile("$3/$2/$1 ($&)");
+  }
+
+  /** Compiles the same source, as code that compiles its patterns on each request does. */
+  @Benchmark
+  public RegExp compile() {
+    return RegExp.compile(EMAIL, "i");
+  }
+
+  @Benchmark
+  public boolean compileAndTest() {
+    return RegExp.compile(EMAIL).test("someone.else+tag@mail.example.org");
+  }
+
+  @Benchmark
+  public MatchResult exec() {
+    return email.exec("someone.else+tag@mail.example.org");
+  }
+
+  @Benchmark
+  public String replace() {
+    return date.replace(DATES, "$3/$2/$1 ($&)");
+  }
+
+  /** Replaces with a replacement parsed once, which is not possible through {@link RegExp}. */
+  @Benchmark
+  public String replaceTemplate() {
+    return ((JavaRegExp) date).replace(DATES, template);
+  }
+
+  @Benchmark
+  public SplitResult split() {
+    return separator.split(CSV);
+  }
+}
@@ -653,6 +653,44 @@ public class RegExpJ2clTest {
     assertFalse(RegExp.compile("test").getMultiline());
   }
 
+  @Test
+  public void testMatchAll() {
+    regExp = RegExp.compile("(\\d)(x)?", "g");
+    regExp.setLastIndex(2);
+    StringBuilder sb = new StringBuilder();
+    for (MatchResult match : regExp.matchAll("1x 2 3x")) {
+      sb.append(match.getIndex()).append(':').append(match.getGroup(1));
+      sb.append(match.getGroupCount()).append(' ');
+    }
+    assertEquals("0:13 3:23 5:33 ", sb.toString());
+    assertEquals(2, regExp.getLastIndex());
+    assertFalse(RegExp.compile("a").matchAll("bbb").iterator().hasNext());
+  }
+
+  @Test
+  public void testMatchAll_emptyMatches() {
+    regExp = RegExp.compile("a*");
+    StringBuilder sb = new StringBuilder();
+    for (MatchResult match : regExp.matchAll("baa")) {
+      sb.append(match.getIndex()).append('[').append(match.getGroup(0)).append(']');
+    }
+    assertEquals("0[]1[aa]3[]", sb.toString());
+  }
+
+  @Test
+  public void testForEachMatch() {
+    regExp = RegExp.compile("\\w+");
+    StringBuilder sb = new StringBuilder();
+    regExp.forEachMatch(
+        "one two three four",
+        match -> {
+          sb.append(match.getGroup(0)).append('@').append(match.getIndex()).append(' ');
+          return !"three".equals(match.getGroup(0));
+        });
+    assertEquals("one@0 two@4 three@8 ", sb.toString());
+    assertEquals(0, regExp.getLastIndex());
+  }
+
   @Test
   public void testGetSource() {
     assertEquals("a(b|c)+d$", RegExp.compile("a(b|c)+d$").getSource());
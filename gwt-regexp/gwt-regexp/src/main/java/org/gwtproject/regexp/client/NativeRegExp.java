@@ -19,7 +19,10 @@ import static java.util.Objects.isNull;
 
 import elemental2.core.JsRegExp;
 import elemental2.core.JsString;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
 import jsinterop.base.Js;
+import org.gwtproject.regexp.shared.MatchCallback;
 import org.gwtproject.regexp.shared.MatchResult;
 import org.gwtproject.regexp.shared.RegExp;
 import org.gwtproject.regexp.shared.SplitResult;
@@ -99,6 +102,73 @@ public class NativeRegExp implements RegExp {
     return isNull(result) ? null : new NativeMatchResult(Js.cast(result));
   }
 
+  @Override
+  public Iterable<MatchResult> matchAll(String input) {
+    return () ->
+        new Iterator<MatchResult>() {
+          private final JsRegExp scanner = newScanner();
+          private MatchResult next;
+          private boolean done = isNull(input);
+
+          @Override
+          public boolean hasNext() {
+            if (next == null && !done) {
+              next = find(scanner, input);
+              done = isNull(next);
+            }
+            return next != null;
+          }
+
+          @Override
+          public MatchResult next() {
+            if (!hasNext()) {
+              throw new NoSuchElementException();
+            }
+            MatchResult result = next;
+            next = null;
+            return result;
+          }
+        };
+  }
+
+  @Override
+  public void forEachMatch(String input, MatchCallback callback) {
+    if (isNull(input)) {
+      return;
+    }
+    JsRegExp scanner = newScanner();
+    MatchResult match;
+    while ((match = find(scanner, input)) != null) {
+      if (!callback.onMatch(match)) {
+        return;
+      }
+    }
+  }
+
+  /** Returns a global copy of this regular expression, so that searches leave lastIndex alone. */
+  private JsRegExp newScanner() {
+    String flags = "g";
+    if (jsRegExp.ignoreCase) {
+      flags += "i";
+    }
+    if (jsRegExp.multiline) {
+      flags += "m";
+    }
+    return new JsRegExp(jsRegExp.source, flags);
+  }
+
+  /** Finds the next match of a global regular expression, stepping over empty matches. */
+  private static MatchResult find(JsRegExp scanner, String input) {
+    String[] result = Js.uncheckedCast(scanner.exec(input));
+    if (isNull(result)) {
+      return null;
+    }
+    if (result[0].isEmpty()) {
+      scanner.lastIndex++;
+    }
+    return new NativeMatchResult(Js.cast(result));
+  }
+
   @Override
   public boolean getGlobal() {
     return jsRegExp.global;
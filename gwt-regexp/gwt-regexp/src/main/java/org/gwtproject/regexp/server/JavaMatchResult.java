@@ -17,10 +17,16 @@ package org.gwtproject.regexp.server;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.regex.Matcher;
 import org.gwtproject.regexp.shared.GwtIncompatible;
 import org.gwtproject.regexp.shared.MatchResult;
 
-/** Pure Java implementation of a regular expression match result. */
+/**
+ * Pure Java implementation of a regular expression match result.
+ *
+ * <p>Results created by {@link JavaRegExp} only keep the offsets of the groups in the input, and
+ * create the group strings when they are asked for.
+ */
 @GwtIncompatible
 public class JavaMatchResult implements MatchResult {
 
@@ -28,18 +34,42 @@ public class JavaMatchResult implements MatchResult {
   private final int index;
   private final String input;
 
+  /** The start and end of each group, -1 for groups that did not match; or {@code null}. */
+  private final int[] offsets;
+
   public JavaMatchResult(int index, String input, List<String> groups) {
     this.index = index;
     this.input = input;
     this.groups = new ArrayList<>(groups);
+    this.offsets = null;
+  }
+
+  JavaMatchResult(String input, Matcher matcher) {
+    int groupCount = matcher.groupCount();
+    int[] offsets = new int[2 * (groupCount + 1)];
+    for (int group = 0; group <= groupCount; group++) {
+      offsets[2 * group] = matcher.start(group);
+      offsets[2 * group + 1] = matcher.end(group);
+    }
+    this.index = offsets[0];
+    this.input = input;
+    this.groups = null;
+    this.offsets = offsets;
   }
 
   public String getGroup(int index) {
-    return groups.get(index);
+    if (offsets == null) {
+      return groups.get(index);
+    }
+    if (index < 0 || 2 * index >= offsets.length) {
+      throw new IndexOutOfBoundsException("No group " + index);
+    }
+    int start = offsets[2 * index];
+    return start < 0 ? null : input.substring(start, offsets[2 * index + 1]);
   }
 
   public int getGroupCount() {
-    return groups.size();
+    return offsets == null ? groups.size() : offsets.length / 2;
   }
 
   public int getIndex() {
@@ -15,13 +15,16 @@
  */
 package org.gwtproject.regexp.server;
 
-import java.util.ArrayList;
 import java.util.HashSet;
-import java.util.List;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.NoSuchElementException;
 import java.util.Set;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 import org.gwtproject.regexp.shared.GwtIncompatible;
+import org.gwtproject.regexp.shared.MatchCallback;
 import org.gwtproject.regexp.shared.MatchResult;
 import org.gwtproject.regexp.shared.RegExp;
 import org.gwtproject.regexp.shared.SplitResult;
@@ -29,42 +32,24 @@ import org.gwtproject.regexp.shared.SplitResult;
 @GwtIncompatible
 public class JavaRegExp implements RegExp {
 
-  // In JS syntax, a \ in the replacement string has no special meaning.
-  // In Java syntax, a \ in the replacement string escapes the next character,
-  // so we have to translate \ to \\ before passing it to Java.
-  private static final Pattern REPLACEMENT_BACKSLASH = Pattern.compile("\\\\");
-  // To get \\, we have to say \\\\\\\\:
-  // \\\\\\\\ --> Java string unescape --> \\\\
-  // \\\\ ---> Pattern replacement unescape in replacement preprocessing --> \\
-  private static final String REPLACEMENT_BACKSLASH_FOR_JAVA = "\\\\\\\\";
-
-  // In JS syntax, a $& in the replacement string stands for the whole match.
-  // In Java syntax, the equivalent is $0, so we have to translate $& to
-  // $0 before passing it to Java. However, we have to watch out for $$&, which
-  // is actually a Javascript $$ (see below) followed by a & with no special
-  // meaning, and must not get translated.
-  private static final Pattern REPLACEMENT_DOLLAR_AMPERSAND =
-      Pattern.compile("((?:^|\\G|[^$])(?:\\$\\$)*)\\$&");
-  private static final String REPLACEMENT_DOLLAR_AMPERSAND_FOR_JAVA = "$1\\$0";
-
-  // In JS syntax, a $` and $' in the replacement string stand for everything
-  // before the match and everything after the match.
-  // In Java syntax, there is no equivalent, so we detect and reject $` and $'.
-  // However, we have to watch out for $$` and $$', which are actually a JS $$
-  // (see below) followed by a ` or ' with no special meaning, and must not be
-  // rejected.
-  private static final Pattern REPLACEMENT_DOLLAR_APOSTROPHE =
-      Pattern.compile("(?:^|[^$])(?:\\$\\$)*\\$[`']");
-
-  // In JS syntax, a $$ in the replacement string stands for a (single) dollar
-  // sign, $.
-  // In Java syntax, the equivalent is \$, so we have to translate $$ to \$
-  // before passing it to Java.
-  private static final Pattern REPLACEMENT_DOLLAR_DOLLAR = Pattern.compile("\\$\\$");
-  // To get \$, we have to say \\\\\\$:
-  // \\\\\\$ --> Java string unescape --> \\\$
-  // \\\$ ---> Pattern replacement unescape in replacement preprocessing --> \$
-  private static final String REPLACEMENT_DOLLAR_DOLLAR_FOR_JAVA = "\\\\\\$";
+  /**
+   * The maximum number of compiled patterns kept by {@link #compile(String, String)}, set by the
+   * {@code gwt.regexp.cacheSize} system property; zero disables the cache.
+   */
+  private static final int CACHE_SIZE = Integer.getInteger("gwt.regexp.cacheSize", 256);
+
+  /**
+   * Compiled patterns by Java flags and source, least recently used first. Patterns are immutable,
+   * unlike {@link JavaRegExp}, which keeps a last index, so they can be shared.
+   */
+  private static final Map<PatternKey, Pattern> PATTERN_CACHE =
+      new LinkedHashMap<PatternKey, Pattern>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<PatternKey, Pattern> eldest) {
+          return size() > CACHE_SIZE;
+        }
+      };
+
   private final boolean globalFlag;
   private final Pattern pattern;
   private final String source;
@@ -121,9 +106,27 @@ public class JavaRegExp implements RegExp {
       }
     }
 
-    Pattern javaPattern = Pattern.compile(pattern, javaPatternFlags);
+    return new JavaRegExp(pattern, compilePattern(pattern, javaPatternFlags), globalFlag);
+  }
 
-    return new JavaRegExp(pattern, javaPattern, globalFlag);
+  /** Returns the cached pattern for a source and flags, compiling it if needed. */
+  private static Pattern compilePattern(String source, int flags) {
+    if (CACHE_SIZE <= 0) {
+      return Pattern.compile(source, flags);
+    }
+    PatternKey key = new PatternKey(source, flags);
+    Pattern pattern;
+    synchronized (PATTERN_CACHE) {
+      pattern = PATTERN_CACHE.get(key);
+    }
+    if (pattern == null) {
+      // Compile outside the lock; a concurrent compilation of the same pattern is harmless.
+      pattern = Pattern.compile(source, flags);
+      synchronized (PATTERN_CACHE) {
+        PATTERN_CACHE.put(key, pattern);
+      }
+    }
+    return pattern;
   }
 
   /**
@@ -175,20 +178,12 @@ public class JavaRegExp implements RegExp {
     }
 
     if (matcher != null) {
-      // Match: create a result
-
-      // Retrieve the matched groups.
-      int groupCount = matcher.groupCount();
-      List<String> groups = new ArrayList<>(1 + groupCount);
-      for (int group = 0; group <= groupCount; group++) {
-        groups.add(matcher.group(group));
-      }
-
+      // Match: create a result, which reads the groups from the input when asked for them.
       if (globalFlag) {
         lastIndex = matcher.end();
       }
 
-      return new JavaMatchResult(matcher.start(), input, groups);
+      return new JavaMatchResult(input, matcher);
     } else {
       // No match
       if (globalFlag) {
@@ -198,6 +193,47 @@ public class JavaRegExp implements RegExp {
     }
   }
 
+  @Override
+  public Iterable<MatchResult> matchAll(String input) {
+    return () ->
+        new Iterator<MatchResult>() {
+          private final Matcher matcher = input == null ? null : pattern.matcher(input);
+          private MatchResult next;
+
+          @Override
+          public boolean hasNext() {
+            if (next == null && matcher != null && matcher.find()) {
+              next = new JavaMatchResult(input, matcher);
+            }
+            return next != null;
+          }
+
+          @Override
+          public MatchResult next() {
+            if (!hasNext()) {
+              throw new NoSuchElementException();
+            }
+            MatchResult result = next;
+            next = null;
+            return result;
+          }
+        };
+  }
+
+  @Override
+  public void forEachMatch(String input, MatchCallback callback) {
+    if (input == null) {
+      return;
+    }
+    Matcher matcher = pattern.matcher(input);
+    MatchResult match = new MatcherMatchResult(input, matcher);
+    while (matcher.find()) {
+      if (!callback.onMatch(match)) {
+        return;
+      }
+    }
+  }
+
   @Override
   public boolean getGlobal() {
     return globalFlag;
@@ -225,32 +261,32 @@ public class JavaRegExp implements RegExp {
 
   @Override
   public String replace(String input, String replacement) {
-    // Replace \ in the replacement with \\ to escape it for Java replace.
-    replacement =
-        REPLACEMENT_BACKSLASH.matcher(replacement).replaceAll(REPLACEMENT_BACKSLASH_FOR_JAVA);
-
-    // Replace the Javascript-ese $& in the replacement with Java-ese $0, but
-    // watch out for $$&, which should stay $$&, to be changed to \$& below.
-    replacement =
-        REPLACEMENT_DOLLAR_AMPERSAND
-            .matcher(replacement)
-            .replaceAll(REPLACEMENT_DOLLAR_AMPERSAND_FOR_JAVA);
-
-    // Test for Javascript-ese $` and $', which we do not support in the pure
-    // Java version.
-    if (REPLACEMENT_DOLLAR_APOSTROPHE.matcher(replacement).find()) {
-      throw new UnsupportedOperationException("$` and $' replacements are not supported");
-    }
-
-    // Replace the Javascript-ese $$ in the replacement with Java-ese \$.
-    replacement =
-        REPLACEMENT_DOLLAR_DOLLAR
-            .matcher(replacement)
-            .replaceAll(REPLACEMENT_DOLLAR_DOLLAR_FOR_JAVA);
+    return replace(input, ReplacementTemplate.compile(replacement));
+  }
 
-    return globalFlag
-        ? pattern.matcher(input).replaceAll(replacement)
-        : pattern.matcher(input).replaceFirst(replacement);
+  /**
+   * Returns the input string with the part(s) matching the regular expression replaced with a
+   * replacement parsed beforehand, which saves parsing it again for each call. See {@link
+   * #replace(String, String)}.
+   *
+   * @param input the string in which the regular expression is to be searched
+   * @param template the replacement
+   * @return the input string with the regular expression replaced by the replacement
+   */
+  public String replace(String input, ReplacementTemplate template) {
+    Matcher matcher = pattern.matcher(input);
+    if (!matcher.find()) {
+      return input;
+    }
+    StringBuilder sb = new StringBuilder(input.length() + 16);
+    int end = 0;
+    do {
+      sb.append(input, end, matcher.start());
+      template.appendTo(matcher, sb);
+      end = matcher.end();
+    } while (globalFlag && matcher.find());
+    sb.append(input, end, input.length());
+    return sb.toString();
   }
 
   @Override
@@ -296,4 +332,59 @@ public class JavaRegExp implements RegExp {
   public boolean test(String input) {
     return exec(input) != null;
   }
+
+  /** A match result that reads the current match of a matcher, see {@link #forEachMatch}. */
+  private static final class MatcherMatchResult implements MatchResult {
+    private final String input;
+    private final Matcher matcher;
+
+    MatcherMatchResult(String input, Matcher matcher) {
+      this.input = input;
+      this.matcher = matcher;
+    }
+
+    @Override
+    public String getGroup(int index) {
+      return matcher.group(index);
+    }
+
+    @Override
+    public int getGroupCount() {
+      return matcher.groupCount() + 1;
+    }
+
+    @Override
+    public int getIndex() {
+      return matcher.start();
+    }
+
+    @Override
+    public String getInput() {
+      return input;
+    }
+  }
+
+  private static final class PatternKey {
+    private final String source;
+    private final int flags;
+
+    PatternKey(String source, int flags) {
+      this.source = source;
+      this.flags = flags;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (!(o instanceof PatternKey)) {
+        return false;
+      }
+      PatternKey other = (PatternKey) o;
+      return flags == other.flags && source.equals(other.source);
+    }
+
+    @Override
+    public int hashCode() {
+      return 31 * source.hashCode() + flags;
+    }
+  }
 }
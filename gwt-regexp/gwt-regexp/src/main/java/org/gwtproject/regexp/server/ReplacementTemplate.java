@@ -0,0 +1,175 @@
+/*
+ * Copyright © 2019 The GWT Project Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.gwtproject.regexp.server;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Matcher;
+import org.gwtproject.regexp.shared.GwtIncompatible;
+
+/**
+ * A replacement string in Javascript syntax, parsed once so that it can be applied to any number of
+ * matches, see {@link JavaRegExp#replace(String, ReplacementTemplate)}.
+ *
+ * <p>As in Javascript, backslashes get no special treatment, and the following patterns are
+ * expanded:
+ *
+ * <ul>
+ *   <li>$1, $2, ... $99 - the n'th group matched by the regular expression. A two-digit reference
+ *       to a group that does not exist is read as a one-digit reference followed by a digit, and a
+ *       reference to a group that does not exist is inserted as is.
+ *   <li>$&amp; - the entire string matched by the regular expression.
+ *   <li>$$ - a $.
+ * </ul>
+ *
+ * A $ that does not start one of these patterns is inserted as is. Instances are immutable and can
+ * be shared between threads.
+ */
+@GwtIncompatible
+public final class ReplacementTemplate {
+
+  /**
+   * Parses a replacement string.
+   *
+   * @param replacement the replacement string, in Javascript syntax
+   * @return the parsed replacement
+   * @throws UnsupportedOperationException if the replacement uses $` or $', which are not supported
+   */
+  public static ReplacementTemplate compile(String replacement) {
+    List<String> literals = new ArrayList<>();
+    List<Integer> references = new ArrayList<>();
+    StringBuilder literal = new StringBuilder();
+    int length = replacement.length();
+    int i = 0;
+    while (i < length) {
+      char c = replacement.charAt(i++);
+      if (c != '$' || i == length) {
+        literal.append(c);
+        continue;
+      }
+      char next = replacement.charAt(i);
+      if (next == '$') {
+        literal.append('$');
+        i++;
+      } else if (next == '&') {
+        addReference(literals, references, literal, WHOLE_MATCH);
+        i++;
+      } else if (next == '`' || next == '\'') {
+        throw new UnsupportedOperationException("$` and $' replacements are not supported");
+      } else if (next >= '0' && next <= '9') {
+        // Keep both digits, which group they refer to depends on the group count.
+        int reference = next - '0';
+        i++;
+        if (i < length && replacement.charAt(i) >= '0' && replacement.charAt(i) <= '9') {
+          reference = reference * 10 + replacement.charAt(i) - '0' + TWO_DIGITS;
+          i++;
+        }
+        addReference(literals, references, literal, reference);
+      } else {
+        literal.append('$');
+      }
+    }
+    literals.add(literal.toString());
+
+    int[] referenceArray = new int[references.size()];
+    for (int r = 0; r < referenceArray.length; r++) {
+      referenceArray[r] = references.get(r);
+    }
+    return new ReplacementTemplate(
+        replacement, literals.toArray(new String[literals.size()]), referenceArray);
+  }
+
+  /** The reference of $&amp;. */
+  private static final int WHOLE_MATCH = -1;
+
+  /** Added to references that were written with two digits. */
+  private static final int TWO_DIGITS = 100;
+
+  private static void addReference(
+      List<String> literals, List<Integer> references, StringBuilder literal, int reference) {
+    literals.add(literal.toString());
+    literal.setLength(0);
+    references.add(reference);
+  }
+
+  private final String source;
+
+  /** The literal parts, one more than there are references. */
+  private final String[] literals;
+
+  /** The references between the literal parts. */
+  private final int[] references;
+
+  private ReplacementTemplate(String source, String[] literals, int[] references) {
+    this.source = source;
+    this.literals = literals;
+    this.references = references;
+  }
+
+  /**
+   * Returns the replacement string this template was parsed from.
+   *
+   * @return the source
+   */
+  public String getSource() {
+    return source;
+  }
+
+  /**
+   * Appends the expansion of this template for the current match of a matcher.
+   *
+   * @param matcher the matcher, positioned on a match
+   * @param sb the builder to append to
+   */
+  void appendTo(Matcher matcher, StringBuilder sb) {
+    sb.append(literals[0]);
+    for (int r = 0; r < references.length; r++) {
+      int reference = references[r];
+      if (reference == WHOLE_MATCH) {
+        sb.append(matcher.group());
+      } else if (reference < TWO_DIGITS) {
+        appendGroup(matcher, sb, reference, "$" + reference);
+      } else {
+        int twoDigits = reference - TWO_DIGITS;
+        if (twoDigits >= 1 && twoDigits <= matcher.groupCount()) {
+          appendGroup(matcher, sb, twoDigits, null);
+        } else {
+          // Fall back to a one-digit reference followed by a digit.
+          appendGroup(matcher, sb, twoDigits / 10, "$" + twoDigits / 10);
+          sb.append((char) ('0' + twoDigits % 10));
+        }
+      }
+      sb.append(literals[r + 1]);
+    }
+  }
+
+  private static void appendGroup(Matcher matcher, StringBuilder sb, int group, String text) {
+    if (group >= 1 && group <= matcher.groupCount()) {
+      String value = matcher.group(group);
+      if (value != null) {
+        sb.append(value);
+      }
+    } else {
+      // Not a group reference after all.
+      sb.append(text);
+    }
+  }
+
+  @Override
+  public String toString() {
+    return source;
+  }
+}
@@ -0,0 +1,30 @@
+/*
+ * Copyright © 2019 The GWT Project Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.gwtproject.regexp.shared;
+
+/** Receives the matches found by {@link RegExp#forEachMatch(String, MatchCallback)}. */
+@FunctionalInterface
+public interface MatchCallback {
+
+  /**
+   * Called for each match, in order. The match result may be backed by the state of the matcher and
+   * is only valid during this call: its groups must be read, or copied, before returning.
+   *
+   * @param match the match
+   * @return {@code true} to continue with the next match, {@code false} to stop
+   */
+  boolean onMatch(MatchResult match);
+}
@@ -0,0 +1,91 @@
+/*
+ * Copyright © 2019 The GWT Project Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.gwtproject.regexp.shared;
+
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * Iterates over the matches of a regular expression with {@link RegExp#exec(String)}, for the
+ * default implementation of {@link RegExp#matchAll(String)}.
+ */
+class MatchIterator implements Iterator<MatchResult> {
+  private final RegExp scanner;
+  private final String input;
+
+  /** Where the next search starts, or -1 once there are no more matches. */
+  private int position;
+
+  private MatchResult next;
+
+  MatchIterator(RegExp regExp, String input) {
+    this.scanner = regExp.getGlobal() ? regExp : RegExp.compile(regExp.getSource(), flags(regExp));
+    this.input = input;
+    this.position = input == null ? -1 : 0;
+  }
+
+  private static String flags(RegExp regExp) {
+    String flags = "g";
+    if (regExp.getIgnoreCase()) {
+      flags += "i";
+    }
+    if (regExp.getMultiline()) {
+      flags += "m";
+    }
+    return flags;
+  }
+
+  @Override
+  public boolean hasNext() {
+    if (next == null && position >= 0) {
+      next = find();
+    }
+    return next != null;
+  }
+
+  @Override
+  public MatchResult next() {
+    if (!hasNext()) {
+      throw new NoSuchElementException();
+    }
+    MatchResult result = next;
+    next = null;
+    return result;
+  }
+
+  /** Finds the match at or after the position, stepping over empty matches. */
+  private MatchResult find() {
+    if (position > input.length()) {
+      position = -1;
+      return null;
+    }
+    int lastIndex = scanner.getLastIndex();
+    MatchResult match;
+    try {
+      scanner.setLastIndex(position);
+      match = scanner.exec(input);
+    } finally {
+      scanner.setLastIndex(lastIndex);
+    }
+    if (match == null) {
+      position = -1;
+      return null;
+    }
+    int end = match.getIndex() + match.getGroup(0).length();
+    position = end == match.getIndex() ? end + 1 : end;
+    return match;
+  }
+}
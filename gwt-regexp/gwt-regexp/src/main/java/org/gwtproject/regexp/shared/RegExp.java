@@ -65,6 +65,43 @@ public interface RegExp {
    */
   MatchResult exec(String input);
 
+  /**
+   * Returns all matches of the regular expression in the given string, as with Javascript's {@code
+   * String.prototype.matchAll}. The matches are searched from the start of the string as the
+   * iteration proceeds, whether or not the global flag is set; after an empty match the search
+   * resumes one character further. This call does not affect the value returned by {@link
+   * #getLastIndex()}.
+   *
+   * <p>The default implementation calls {@link #exec(String)} on a global copy of the regular
+   * expression for each match, or on this regular expression if it is global, restoring its last
+   * index after each call.
+   *
+   * @param input the string to apply the regular expression to
+   * @return the matches, each of which stays valid after the iteration moves on
+   */
+  default Iterable<MatchResult> matchAll(String input) {
+    return () -> new MatchIterator(this, input);
+  }
+
+  /**
+   * Passes each match of the regular expression in the given string to a callback, searching the
+   * string as {@link #matchAll(String)} does. Unlike {@link #matchAll(String)}, the match results
+   * are only valid during the call to the callback, which lets implementations avoid allocating a
+   * result for each match. This call does not affect the value returned by {@link #getLastIndex()}.
+   *
+   * <p>The default implementation iterates over {@link #matchAll(String)}.
+   *
+   * @param input the string to apply the regular expression to
+   * @param callback receives the matches, and can stop the search by returning {@code false}
+   */
+  default void forEachMatch(String input, MatchCallback callback) {
+    for (MatchResult match : matchAll(input)) {
+      if (!callback.onMatch(match)) {
+        return;
+      }
+    }
+  }
+
   /**
    * Returns whether the regular expression captures all occurences of the pattern.
    *
@@ -16,6 +16,8 @@
 package org.gwtproject.regexp.shared;
 
 import junit.framework.TestCase;
+import org.gwtproject.regexp.server.JavaRegExp;
+import org.gwtproject.regexp.server.ReplacementTemplate;
 import org.gwtproject.testing.TestUtils;
 
 /** Tests the Java implementation of RegExp. */
@@ -43,6 +45,17 @@ public class RegExpJUnitTest extends TestCase {
     }
   }
 
+  public void testCompile_cachedPatternKeepsOwnLastIndex() {
+    RegExp first = RegExp.compile("a", "g");
+    RegExp second = RegExp.compile("a", "g");
+    assertNotSame(first, second);
+    assertNotNull(first.exec("aa"));
+    assertEquals(1, first.getLastIndex());
+    assertEquals(0, second.getLastIndex());
+    assertFalse(RegExp.compile("a").getGlobal());
+    assertTrue(RegExp.compile("a", "i").test("A"));
+  }
+
   public void testCompile_unknownFlags() {
     checkCompileThrows("regexp", "z", true);
   }
@@ -589,6 +602,136 @@ public class RegExpJUnitTest extends TestCase {
     assertFalse(RegExp.compile("test").getMultiline());
   }
 
+  public void testMatchAll() {
+    regExp = RegExp.compile("(\\d)(x)?", "g");
+    regExp.setLastIndex(2);
+    StringBuilder sb = new StringBuilder();
+    for (MatchResult match : regExp.matchAll("1x 2 3x")) {
+      sb.append(match.getIndex()).append(':').append(match.getGroup(1));
+      sb.append(match.getGroupCount()).append(' ');
+    }
+    assertEquals("0:13 3:23 5:33 ", sb.toString());
+    assertEquals(2, regExp.getLastIndex());
+    assertFalse(RegExp.compile("a").matchAll("bbb").iterator().hasNext());
+  }
+
+  public void testMatchAll_emptyMatches() {
+    regExp = RegExp.compile("a*");
+    StringBuilder sb = new StringBuilder();
+    for (MatchResult match : regExp.matchAll("baa")) {
+      sb.append(match.getIndex()).append('[').append(match.getGroup(0)).append(']');
+    }
+    assertEquals("0[]1[aa]3[]", sb.toString());
+  }
+
+  public void testForEachMatch() {
+    regExp = RegExp.compile("\\w+");
+    StringBuilder sb = new StringBuilder();
+    regExp.forEachMatch(
+        "one two three four",
+        match -> {
+          sb.append(match.getGroup(0)).append('@').append(match.getIndex()).append(' ');
+          return !"three".equals(match.getGroup(0));
+        });
+    assertEquals("one@0 two@4 three@8 ", sb.toString());
+    assertEquals(0, regExp.getLastIndex());
+  }
+
+  public void testMatchAll_defaultMethods() {
+    // an implementation that relies on the default matchAll and forEachMatch
+    RegExp global = new ExecOnly(RegExp.compile("(\\d)(x)?", "g"));
+    global.setLastIndex(2);
+    StringBuilder sb = new StringBuilder();
+    for (MatchResult match : global.matchAll("1x 2 3x")) {
+      sb.append(match.getIndex()).append(':').append(match.getGroup(1)).append(' ');
+    }
+    assertEquals("0:1 3:2 5:3 ", sb.toString());
+    assertEquals(2, global.getLastIndex());
+
+    sb.setLength(0);
+    for (MatchResult match : new ExecOnly(RegExp.compile("A*", "i")).matchAll("baa")) {
+      sb.append(match.getIndex()).append('[').append(match.getGroup(0)).append(']');
+    }
+    assertEquals("0[]1[aa]3[]", sb.toString());
+
+    sb.setLength(0);
+    new ExecOnly(RegExp.compile("\\w+"))
+        .forEachMatch(
+            "one two three four",
+            match -> {
+              sb.append(match.getGroup(0)).append(' ');
+              return !"three".equals(match.getGroup(0));
+            });
+    assertEquals("one two three ", sb.toString());
+    assertFalse(new ExecOnly(RegExp.compile("a")).matchAll(null).iterator().hasNext());
+  }
+
+  /**
+   * Implements only the abstract methods of {@link RegExp}, as an external implementation would.
+   */
+  private static class ExecOnly implements RegExp {
+    private final RegExp delegate;
+
+    ExecOnly(RegExp delegate) {
+      this.delegate = delegate;
+    }
+
+    @Override
+    public MatchResult exec(String input) {
+      return delegate.exec(input);
+    }
+
+    @Override
+    public boolean getGlobal() {
+      return delegate.getGlobal();
+    }
+
+    @Override
+    public boolean getIgnoreCase() {
+      return delegate.getIgnoreCase();
+    }
+
+    @Override
+    public int getLastIndex() {
+      return delegate.getLastIndex();
+    }
+
+    @Override
+    public void setLastIndex(int lastIndex) {
+      delegate.setLastIndex(lastIndex);
+    }
+
+    @Override
+    public boolean getMultiline() {
+      return delegate.getMultiline();
+    }
+
+    @Override
+    public String getSource() {
+      return delegate.getSource();
+    }
+
+    @Override
+    public String replace(String input, String replacement) {
+      return delegate.replace(input, replacement);
+    }
+
+    @Override
+    public SplitResult split(String input) {
+      return delegate.split(input);
+    }
+
+    @Override
+    public SplitResult split(String input, int limit) {
+      return delegate.split(input, limit);
+    }
+
+    @Override
+    public boolean test(String input) {
+      return delegate.test(input);
+    }
+  }
+
   public void testGetSource() {
     assertEquals("a(b|c)+d$", RegExp.compile("a(b|c)+d$").getSource());
   }
@@ -615,6 +758,23 @@ public class RegExpJUnitTest extends TestCase {
     checkReplace("it's 123456789abc.", "[$11]", "it's [b].");
   }
 
+  public void testReplace_missingGroupReplacement() {
+    regExp = RegExp.compile("(a)(b)?");
+    checkReplace("xax", "[$2]", "x[]x");
+    checkReplace("xax", "[$3]", "x[$3]x");
+    checkReplace("xax", "[$0]", "x[$0]x");
+    checkReplace("xax", "[$13]", "x[a3]x");
+    checkReplace("xax", "[$x$]", "x[$x$]x");
+  }
+
+  public void testReplace_template() {
+    ReplacementTemplate template = ReplacementTemplate.compile("<$1:$&>");
+    JavaRegExp javaRegExp = (JavaRegExp) RegExp.compile("(\\w)\\d", "g");
+    assertEquals("<a:a1> <b:b2>", javaRegExp.replace("a1 b2", template));
+    assertEquals("<c:c3>", javaRegExp.replace("c3", template));
+    assertEquals("<$1:$&>", template.getSource());
+  }
+
   public void testReplace_emptyGlobalRegExp() {
     regExp = RegExp.compile("", "g");
     checkReplace("abc", "x", "xaxbxcx");
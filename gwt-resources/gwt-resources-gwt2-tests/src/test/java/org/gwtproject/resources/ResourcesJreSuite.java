@@ -17,8 +17,11 @@ package org.gwtproject.resources;
 
 import junit.framework.Test;
 import junit.framework.TestSuite;
+import org.gwtproject.resources.context.ResourceContextTest;
 import org.gwtproject.resources.rg.CssClassNamesTestCase;
+import org.gwtproject.resources.rg.ImageResourceGeneratorTest;
 import org.gwtproject.resources.rg.css.*;
+import org.gwtproject.resources.rg.util.BuildCacheTest;
 
 /** @author Dmitrii Tikhomirov Created by treblereel 11/30/18 */
 public class ResourcesJreSuite {
@@ -33,6 +36,9 @@ public class ResourcesJreSuite {
     // suite.addTestSuite(ExtractClassNamesVisitorTest.class);
     // suite.addTestSuite(ResourceGeneratorUtilTest.class);
     suite.addTestSuite(UnknownAtRuleTest.class);
+    suite.addTestSuite(BuildCacheTest.class);
+    suite.addTestSuite(ResourceContextTest.class);
+    suite.addTestSuite(ImageResourceGeneratorTest.class);
 
     // GSS tests
     /*        suite.addTestSuite(ExternalClassesCollectorTest.class);
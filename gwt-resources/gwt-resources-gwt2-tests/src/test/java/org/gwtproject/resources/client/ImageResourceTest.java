@@ -111,6 +111,8 @@ public class ImageResourceTest extends GWTTestCase {
     assertTrue(((ImageResourcePrototype) lossy).isLossy());
     assertTrue(!i64.getSafeUri().equals(lossy.getSafeUri()));
     assertFalse(lossy instanceof TextResource);
+    assertTrue(i64 instanceof ImageResourcePrototype.Bundle);
+    assertFalse(lossy instanceof ImageResourcePrototype.Bundle);
 
     assertEquals(16, r.i16x16Vertical().getWidth());
     assertEquals(16, r.i16x16Vertical().getHeight());
@@ -135,8 +137,9 @@ public class ImageResourceTest extends GWTTestCase {
     assertTrue(a.getSafeUri().asString().startsWith("data:"));
     assertTrue(b.getSafeUri().asString().startsWith("data:"));
     assertFalse(c.getSafeUri().asString().startsWith("data:"));
-    // Should be fetched from different URLs
-    assertFalse(a.getSafeUri().asString().equals(b.getSafeUri().asString()));
+    // Should be packed into the same sprite, at different positions
+    assertEquals(a.getSafeUri().asString(), b.getSafeUri().asString());
+    assertFalse(a.getLeft() == b.getLeft() && a.getTop() == b.getTop());
   }
 
   @Resource
@@ -0,0 +1,226 @@
+/*
+ * Copyright © 2019 The GWT Project Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.gwtproject.resources.context;
+
+import com.google.common.io.BaseEncoding;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.PrintWriter;
+import java.security.MessageDigest;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import junit.framework.TestCase;
+import org.gwtproject.resources.ext.ConfigurationProperty;
+import org.gwtproject.resources.ext.DefaultConfigurationProperty;
+import org.gwtproject.resources.ext.GeneratorContext;
+import org.gwtproject.resources.ext.PropertyOracle;
+import org.gwtproject.resources.ext.ResourceOracle;
+import org.gwtproject.resources.ext.SelectionProperty;
+import org.gwtproject.resources.ext.TreeLogger;
+import org.gwtproject.resources.ext.UnableToCompleteException;
+import org.gwtproject.resources.rg.resource.ConfigurationProperties;
+import org.gwtproject.resources.rg.util.Util;
+
+/** Tests the hashing, encoding and deployment of resources by the resource contexts. */
+public class ResourceContextTest extends TestCase {
+
+  public void testStrongNameDigest() {
+    Random random = new Random(42);
+    for (int length : new int[] {0, 1, 3 * 1024, 10000}) {
+      byte[] data = new byte[length];
+      random.nextBytes(data);
+
+      MessageDigest digest = Util.createStrongNameDigest(length);
+      for (int offset = 0; offset < length; offset += 1000) {
+        digest.update(data, offset, Math.min(1000, length - offset));
+      }
+      assertEquals(Util.computeStrongName(data), Util.computeStrongName(digest));
+    }
+  }
+
+  public void testBase64() {
+    Random random = new Random(42);
+    for (int length = 0; length < 100; length++) {
+      byte[] data = new byte[length];
+      random.nextBytes(data);
+      String expected = BaseEncoding.base64().encode(data);
+
+      assertEquals(expected, AbstractResourceContext.toBase64(data));
+      assertEquals(expected.length(), AbstractResourceContext.getBase64Length(length));
+
+      // encoding in chunks of a multiple of three bytes gives the same result
+      StringBuilder chunked = new StringBuilder();
+      for (int offset = 0; offset < length; offset += 6) {
+        AbstractResourceContext.appendBase64(chunked, data, offset, Math.min(6, length - offset));
+      }
+      assertEquals(expected, chunked.toString());
+    }
+  }
+
+  public void testInlinedSizePerContent() throws UnableToCompleteException {
+    FakeGeneratorContext generatorContext = new FakeGeneratorContext(true);
+    InlineResourceContext context =
+        new InlineResourceContext(
+            TreeLogger.NULL, generatorContext, null, new ClientBundleContext());
+
+    // about 26,700 characters once encoded, so it fits the budget twice
+    byte[] large = new byte[20000];
+    new Random(42).nextBytes(large);
+    assertTrue(context.deploy("large.png", "image/png", large, false).startsWith("\"data:"));
+    assertTrue(context.deploy("copy.png", "image/png", large, false).startsWith("\"data:"));
+    String external = context.deploy("large.png", "image/png", large, false);
+    assertEquals("\"/cache/" + Util.computeStrongName(large) + ".cache.png\"", external);
+    assertEquals(1, generatorContext.committed.size());
+
+    // other content has a budget of its own
+    byte[] other = large.clone();
+    other[0]++;
+    assertTrue(context.deploy("other.png", "image/png", other, false).startsWith("\"data:"));
+
+    // small content stays inlined however often it is used
+    byte[] icon = new byte[100];
+    for (int i = 0; i < 200; i++) {
+      assertTrue(context.deploy("icon.png", "image/png", icon, false).startsWith("\"data:"));
+    }
+    assertEquals(1, generatorContext.committed.size());
+  }
+
+  public void testFailedCopyIsAborted() throws UnableToCompleteException {
+    FakeGeneratorContext generatorContext = new FakeGeneratorContext(false);
+    StaticResourceContext context =
+        new StaticResourceContext(
+            TreeLogger.NULL, generatorContext, null, new ClientBundleContext());
+
+    InputStream failing =
+        new InputStream() {
+          @Override
+          public int read() throws IOException {
+            throw new IOException("failed read");
+          }
+        };
+    try {
+      context.deploy("broken.png", "image/png", null, failing, 10, true);
+      fail("failed read ignored");
+    } catch (IOException expected) {
+    }
+    assertEquals(1, generatorContext.aborted.size());
+    assertTrue(generatorContext.pending.isEmpty());
+
+    // the name can be deployed again
+    assertEquals(
+        "\"/cache/broken.png\"",
+        context.deploy("broken.png", "image/png", new byte[] {1, 2, 3}, true));
+    assertEquals(1, generatorContext.committed.size());
+    assertTrue(generatorContext.pending.isEmpty());
+  }
+
+  /** Keeps resources in memory, and records which are committed and aborted. */
+  private static class FakeGeneratorContext implements GeneratorContext, PropertyOracle {
+    final Map<String, OutputStream> pending = new HashMap<>();
+    final Map<String, byte[]> committed = new HashMap<>();
+    final Set<OutputStream> aborted = new HashSet<>();
+    private final boolean renaming;
+
+    FakeGeneratorContext(boolean renaming) {
+      this.renaming = renaming;
+    }
+
+    @Override
+    public boolean checkRebindRuleAvailable(String sourceTypeName) {
+      return false;
+    }
+
+    @Override
+    public void abortResource(TreeLogger logger, OutputStream os) {
+      if (pending.values().remove(os)) {
+        aborted.add(os);
+      }
+    }
+
+    @Override
+    public void commit(TreeLogger logger, PrintWriter pw) {}
+
+    @Override
+    public void commitResource(TreeLogger logger, OutputStream os)
+        throws UnableToCompleteException {
+      for (Map.Entry<String, OutputStream> entry : pending.entrySet()) {
+        if (entry.getValue() == os) {
+          committed.put(entry.getKey(), ((ByteArrayOutputStream) os).toByteArray());
+          pending.remove(entry.getKey());
+          return;
+        }
+      }
+      throw new UnableToCompleteException();
+    }
+
+    @Override
+    public PropertyOracle getPropertyOracle() {
+      return this;
+    }
+
+    @Override
+    public ResourceOracle getResourcesOracle() {
+      return null;
+    }
+
+    @Override
+    public AptContext getAptContext() {
+      return null;
+    }
+
+    @Override
+    public PrintWriter tryCreate(TreeLogger logger, String packageName, String simpleName) {
+      return null;
+    }
+
+    @Override
+    public OutputStream tryCreateResource(TreeLogger logger, String partialPath) {
+      if (pending.containsKey(partialPath) || committed.containsKey(partialPath)) {
+        return null;
+      }
+      OutputStream out = new ByteArrayOutputStream();
+      pending.put(partialPath, out);
+      return out;
+    }
+
+    @Override
+    public ConfigurationProperty getConfigurationProperty(TreeLogger logger, String propertyName) {
+      String value;
+      switch (propertyName) {
+        case ConfigurationProperties.KEY_CLIENT_BUNDLE_ENABLE_RENAMING:
+          value = String.valueOf(renaming);
+          break;
+        case ConfigurationProperties.KEY_CLIENT_BUNDLE_CACHE_URL:
+          value = "/cache/";
+          break;
+        default:
+          throw new IllegalArgumentException(propertyName);
+      }
+      return new DefaultConfigurationProperty(propertyName, Collections.singleton(value));
+    }
+
+    @Override
+    public SelectionProperty getSelectionProperty(TreeLogger logger, String propertyName) {
+      throw new IllegalArgumentException(propertyName);
+    }
+  }
+}
@@ -0,0 +1,196 @@
+/*
+ * Copyright © 2019 The GWT Project Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.gwtproject.resources.rg;
+
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+import java.util.stream.Stream;
+import javax.imageio.ImageIO;
+import javax.tools.ToolProvider;
+import junit.framework.TestCase;
+import org.gwtproject.resources.rg.util.Util;
+
+/**
+ * Tests that {@link ImageResourceGenerator} writes the same images and fields whichever number of
+ * threads prepares the images. Each build runs in a JVM of its own, as the image pool is sized once
+ * per JVM.
+ */
+public class ImageResourceGeneratorTest extends TestCase {
+
+  private static final String BUNDLE_PACKAGE = "org.gwtproject.resources.imagetest";
+
+  private File dir;
+
+  @Override
+  protected void setUp() throws IOException {
+    dir = Files.createTempDirectory("ImageResourceGeneratorTest").toFile();
+    File sources = new File(dir, "src/" + BUNDLE_PACKAGE.replace('.', '/'));
+    assertTrue(sources.mkdirs());
+
+    StringBuilder bundle = new StringBuilder();
+    bundle.append("package ").append(BUNDLE_PACKAGE).append(";\n\n");
+    bundle.append("import org.gwtproject.resources.client.*;\n");
+    bundle.append("import org.gwtproject.resources.client.ImageResource.*;\n\n");
+    bundle.append("@GWT3Resources(clientBundle = @GWT3Resources.ClientBundle(");
+    bundle.append("cacheLocation = \"cache\", cacheUrl = \"/cache/\"))\n");
+    bundle.append("public class Images {\n");
+    bundle.append("  @Resource\n");
+    bundle.append("  interface Bundle extends ClientBundle {\n");
+
+    Random random = new Random(42);
+    for (int i = 0; i < 24; i++) {
+      // mostly small images that share composite images, and a few large external ones
+      int size = i % 8 == 7 ? 300 + i : 8 + random.nextInt(64);
+      writeImage(random, new File(sources, "image" + i + ".png"), size, size / 2 + 1);
+
+      bundle.append("    @Source(\"image").append(i).append(".png\")\n");
+      if (i % 3 == 1) {
+        bundle.append("    @ImageOptions(repeatStyle = RepeatStyle.Horizontal)\n");
+      } else if (i % 3 == 2) {
+        bundle.append("    @ImageOptions(repeatStyle = RepeatStyle.Vertical)\n");
+      }
+      bundle.append("    ImageResource image").append(i).append("();\n\n");
+    }
+    // the same content twice
+    bundle.append("    @Source(\"image0.png\")\n");
+    bundle.append("    ImageResource image0Copy();\n");
+    bundle.append("  }\n");
+    bundle.append("}\n");
+    Files.write(
+        new File(sources, "Images.java").toPath(),
+        bundle.toString().getBytes(StandardCharsets.UTF_8));
+  }
+
+  @Override
+  protected void tearDown() {
+    Util.recursiveDelete(dir, false);
+  }
+
+  public void testOutputDoesNotDependOnThreads() throws Exception {
+    Map<String, byte[]> serial = build("serial", 1);
+    assertTrue(serial.toString(), serial.keySet().stream().anyMatch(s -> s.endsWith(".java")));
+    assertTrue(serial.toString(), serial.keySet().stream().anyMatch(s -> s.endsWith(".cache.png")));
+
+    for (int threads : new int[] {2, 16}) {
+      Map<String, byte[]> parallel = build("threads" + threads, threads);
+      assertEquals(serial.keySet(), parallel.keySet());
+      for (Map.Entry<String, byte[]> entry : serial.entrySet()) {
+        assertTrue(
+            entry.getKey() + " differs with " + threads + " threads",
+            Arrays.equals(entry.getValue(), parallel.get(entry.getKey())));
+      }
+    }
+  }
+
+  private static void writeImage(Random random, File file, int width, int height)
+      throws IOException {
+    BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB);
+    for (int x = 0; x < width; x++) {
+      for (int y = 0; y < height; y++) {
+        // few colors, so the images compress
+        image.setRGB(x, y, 0xff000000 | random.nextInt(4) * 0x3f3f3f);
+      }
+    }
+    assertTrue(ImageIO.write(image, "png", file));
+  }
+
+  /**
+   * Runs the processor on the bundle in a new JVM, and returns the generated sources and resources,
+   * and the images deployed to the cache location, by their relative paths.
+   */
+  private Map<String, byte[]> build(String name, int threads) throws Exception {
+    File output = new File(dir, name);
+    assertTrue(output.mkdir());
+    File java = new File(System.getProperty("java.home"), "bin" + File.separator + "java");
+    Process process =
+        new ProcessBuilder(
+                java.getPath(),
+                "-Dgwt.imageResource.threads=" + threads,
+                "-cp",
+                absoluteClassPath(),
+                Compile.class.getName(),
+                new File(dir, "src").getPath(),
+                output.getPath())
+            // the relative cache location is resolved against the working directory
+            .directory(output)
+            .redirectErrorStream(true)
+            .redirectOutput(new File(dir, name + ".log"))
+            .start();
+    int exitCode = process.waitFor();
+    byte[] log = Files.readAllBytes(new File(dir, name + ".log").toPath());
+    assertEquals(new String(log, StandardCharsets.UTF_8), 0, exitCode);
+
+    Map<String, byte[]> files = new TreeMap<>();
+    Path root = output.toPath();
+    try (Stream<Path> paths = Files.walk(root)) {
+      for (Path path : (Iterable<Path>) paths::iterator) {
+        if (Files.isRegularFile(path)) {
+          files.put(root.relativize(path).toString(), Files.readAllBytes(path));
+        }
+      }
+    }
+    return files;
+  }
+
+  private static String absoluteClassPath() {
+    StringBuilder classPath = new StringBuilder();
+    for (String entry : System.getProperty("java.class.path").split(File.pathSeparator)) {
+      if (classPath.length() > 0) {
+        classPath.append(File.pathSeparator);
+      }
+      classPath.append(new File(entry).getAbsolutePath());
+    }
+    return classPath.toString();
+  }
+
+  /** Runs the annotation processors on the sources of a directory. */
+  public static class Compile {
+    public static void main(String[] args) throws IOException {
+      File sources = new File(args[0]);
+      File output = new File(args[1]);
+      File generated = new File(output, "generated");
+      File classes = new File(output, "classes");
+      if (!generated.mkdirs() || !classes.mkdirs()) {
+        throw new IOException("Unable to create " + output);
+      }
+      File bundle = new File(sources, BUNDLE_PACKAGE.replace('.', '/') + "/Images.java");
+      System.exit(
+          ToolProvider.getSystemJavaCompiler()
+              .run(
+                  null,
+                  null,
+                  null,
+                  "-proc:only",
+                  "-encoding",
+                  "UTF-8",
+                  "-cp",
+                  System.getProperty("java.class.path") + File.pathSeparator + sources,
+                  "-s",
+                  generated.getPath(),
+                  "-d",
+                  classes.getPath(),
+                  bundle.getPath()));
+    }
+  }
+}
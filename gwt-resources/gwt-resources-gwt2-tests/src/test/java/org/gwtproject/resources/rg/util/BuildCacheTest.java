@@ -0,0 +1,100 @@
+/*
+ * Copyright © 2019 The GWT Project Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.gwtproject.resources.rg.util;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.List;
+import junit.framework.TestCase;
+
+/** Tests {@link BuildCache}. */
+public class BuildCacheTest extends TestCase {
+
+  private File dir;
+  private BuildCache cache;
+
+  @Override
+  protected void setUp() throws IOException {
+    dir = Files.createTempDirectory("BuildCacheTest").toFile();
+    cache = new BuildCache(dir);
+  }
+
+  @Override
+  protected void tearDown() {
+    Util.recursiveDelete(dir, false);
+  }
+
+  public void testMissAndHit() {
+    assertTrue(cache.isEnabled());
+    assertNull(cache.readByteArray("image:a"));
+
+    cache.writeByteArray("image:a", new byte[] {1, 2, 3});
+    assertTrue(Arrays.equals(new byte[] {1, 2, 3}, cache.readByteArray("image:a")));
+
+    // a fresh instance on the same directory sees the entries of earlier builds
+    BuildCache nextBuild = new BuildCache(dir);
+    assertTrue(Arrays.equals(new byte[] {1, 2, 3}, nextBuild.readByteArray("image:a")));
+  }
+
+  public void testChangedInputsMiss() {
+    String before = "css:" + Util.computeStrongName(Util.getBytes(".a { color: red; }"));
+    String after = "css:" + Util.computeStrongName(Util.getBytes(".a { color: blue; }"));
+    cache.writeStrings(before, Arrays.asList("red"));
+
+    assertEquals(Arrays.asList("red"), cache.readStrings(before));
+    assertNull(cache.readStrings(after));
+  }
+
+  public void testReplace() {
+    cache.writeByteArray("key", new byte[] {1});
+    cache.writeByteArray("key", new byte[] {2, 2});
+    assertTrue(Arrays.equals(new byte[] {2, 2}, cache.readByteArray("key")));
+  }
+
+  public void testStrings() {
+    char[] large = new char[100000];
+    Arrays.fill(large, 'é');
+    List<String> strings = Arrays.asList("", null, "café 😀", new String(large));
+
+    cache.writeStrings("strings", strings);
+    assertEquals(strings, cache.readStrings("strings"));
+  }
+
+  public void testDamagedEntriesMiss() {
+    // bytes that are not a list of strings, such as a truncated entry
+    cache.writeByteArray("truncated", new byte[] {0, 0, 0, 2, 0, 0, 0, 5, 'a'});
+    assertNull(cache.readStrings("truncated"));
+
+    cache.writeByteArray("huge", new byte[] {0x7f, 0, 0, 0});
+    assertNull(cache.readStrings("huge"));
+
+    // a serialized object is never deserialized
+    cache.writeByteArray("object", new byte[] {(byte) 0xac, (byte) 0xed, 0, 5, 0x74, 0, 1, 'a'});
+    assertNull(cache.readStrings("object"));
+  }
+
+  public void testDisabled() {
+    BuildCache disabled = new BuildCache(null);
+    assertFalse(disabled.isEnabled());
+
+    disabled.writeByteArray("key", new byte[] {1});
+    disabled.writeStrings("strings", Arrays.asList("a"));
+    assertNull(disabled.readByteArray("key"));
+    assertNull(disabled.readStrings("strings"));
+  }
+}
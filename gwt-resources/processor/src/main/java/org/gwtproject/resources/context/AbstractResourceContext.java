@@ -15,12 +15,13 @@
  */
 package org.gwtproject.resources.context;
 
-import com.google.common.io.BaseEncoding;
+import com.google.common.io.ByteStreams;
 import java.io.IOException;
+import java.io.InputStream;
 import java.net.URL;
+import java.net.URLConnection;
 import javax.lang.model.element.TypeElement;
 import org.gwtproject.resources.ext.*;
-import org.gwtproject.resources.rg.util.Util;
 
 /** Defines base methods for ResourceContext implementations. */
 public abstract class AbstractResourceContext implements ResourceContext {
@@ -48,8 +49,43 @@ public abstract class AbstractResourceContext implements ResourceContext {
     this.clientBundleCtx = clientBundleCtx;
   }
 
+  private static final char[] BASE64_ALPHABET =
+      "ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz0123456789+/".toCharArray();
+
   protected static String toBase64(byte[] data) {
-    return BaseEncoding.base64().encode(data).replaceAll("\\s+", "");
+    StringBuilder sb = new StringBuilder(getBase64Length(data.length));
+    appendBase64(sb, data, 0, data.length);
+    return sb.toString();
+  }
+
+  /**
+   * Returns the number of characters of the padded Base64 encoding of <code>length</code> bytes.
+   */
+  protected static int getBase64Length(int length) {
+    return (length + 2) / 3 * 4;
+  }
+
+  /**
+   * Appends the padded Base64 encoding of a range of bytes. Consecutive ranges whose lengths are
+   * multiples of three append the encoding of the bytes of all of them.
+   */
+  protected static void appendBase64(StringBuilder sb, byte[] data, int offset, int length) {
+    int end = offset + length;
+    int i = offset;
+    for (; i + 2 < end; i += 3) {
+      int bits = (data[i] & 0xff) << 16 | (data[i + 1] & 0xff) << 8 | (data[i + 2] & 0xff);
+      sb.append(BASE64_ALPHABET[bits >>> 18])
+          .append(BASE64_ALPHABET[(bits >>> 12) & 0x3f])
+          .append(BASE64_ALPHABET[(bits >>> 6) & 0x3f])
+          .append(BASE64_ALPHABET[bits & 0x3f]);
+    }
+    if (i < end) {
+      int bits = (data[i] & 0xff) << 16 | (i + 1 < end ? (data[i + 1] & 0xff) << 8 : 0);
+      sb.append(BASE64_ALPHABET[bits >>> 18])
+          .append(BASE64_ALPHABET[(bits >>> 12) & 0x3f])
+          .append(i + 1 < end ? BASE64_ALPHABET[(bits >>> 6) & 0x3f] : '=')
+          .append('=');
+    }
   }
 
   @Deprecated
@@ -60,15 +96,47 @@ public abstract class AbstractResourceContext implements ResourceContext {
   public String deploy(URL resource, String mimeType, boolean forceExternal)
       throws UnableToCompleteException {
     String fileName = ResourceGeneratorUtil.baseName(resource);
-    byte[] bytes = Util.readURLAsBytes(resource);
+    URLConnection connection;
+    String finalMimeType;
     try {
-      String finalMimeType =
-          (mimeType != null) ? mimeType : resource.openConnection().getContentType();
-      return deploy(fileName, finalMimeType, bytes, forceExternal);
+      connection = resource.openConnection();
+      finalMimeType = (mimeType != null) ? mimeType : connection.getContentType();
     } catch (IOException e) {
       getLogger().log(TreeLogger.ERROR, "Unable to determine mime type of resource", e);
       throw new UnableToCompleteException();
     }
+
+    try (InputStream in = connection.getInputStream()) {
+      return deploy(
+          fileName, finalMimeType, resource, in, connection.getContentLengthLong(), forceExternal);
+    } catch (IOException e) {
+      getLogger().log(TreeLogger.ERROR, "Unable to read resource " + resource, e);
+      throw new UnableToCompleteException();
+    }
+  }
+
+  /**
+   * Deploys the contents of a resource while they are read, so that implementations need not hold
+   * large resources in memory. This implementation reads the contents and calls {@link
+   * #deploy(String, String, byte[], boolean)}.
+   *
+   * @param resource the resource, which may be opened again to read the contents twice
+   * @param in the contents of the resource
+   * @param length the number of bytes of the contents, or -1 if it is not known
+   */
+  protected String deploy(
+      String suggestedFileName,
+      String mimeType,
+      URL resource,
+      InputStream in,
+      long length,
+      boolean forceExternal)
+      throws IOException, UnableToCompleteException {
+    return deploy(suggestedFileName, mimeType, ByteStreams.toByteArray(in), forceExternal);
+  }
+
+  protected ClientBundleContext getClientBundleContext() {
+    return clientBundleCtx;
   }
 
   protected TreeLogger getLogger() {
@@ -27,6 +27,9 @@ public class ClientBundleContext {
    */
   private final Map<String, Object> cachedData = new HashMap<String, Object>();
 
+  /** The number of characters of the data: URLs inlined for each content, by strong name. */
+  private final Map<String, Integer> inlinedSizes = new HashMap<>();
+
   public Object getCachedData(String string) {
     return cachedData.get(string);
   }
@@ -34,4 +37,12 @@ public class ClientBundleContext {
   public Object putCachedData(String key, Object value) {
     return cachedData.put(key, value);
   }
+
+  public int getInlinedSize(String strongName) {
+    return inlinedSizes.getOrDefault(strongName, 0);
+  }
+
+  public void setInlinedSize(String strongName, int size) {
+    inlinedSizes.put(strongName, size);
+  }
 }
@@ -16,16 +16,34 @@
  */
 package org.gwtproject.resources.context;
 
+import com.google.common.io.ByteStreams;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URL;
+import java.security.MessageDigest;
 import javax.lang.model.element.TypeElement;
 import org.gwtproject.resources.ext.GeneratorContext;
 import org.gwtproject.resources.ext.TreeLogger;
 import org.gwtproject.resources.ext.UnableToCompleteException;
+import org.gwtproject.resources.rg.util.Util;
 
 /** @author Dmitrii Tikhomirov Created by treblereel 11/11/18 */
 class InlineResourceContext extends StaticResourceContext {
   /** String constants in Java have a maximum limit that we must obey. */
   public static final int MAX_ENCODED_SIZE = (2 << 15) - 1;
 
+  /**
+   * The number of characters that the data: URLs of the same content may add to the generated code
+   * before its other uses are deployed as an external file, which is downloaded and cached once.
+   * Every resource small enough to be inlined is inlined at least once, and small resources such as
+   * icons stay inlined however often they are used.
+   */
+  static final int MAX_INLINED_SIZE_PER_CONTENT =
+      Integer.getInteger("gwt.resources.maxInlinedSizePerContent", MAX_ENCODED_SIZE);
+
+  /** The number of bytes hashed and encoded at a time, a multiple of three. */
+  private static final int CHUNK_SIZE = 3 * 1024;
+
   InlineResourceContext(
       TreeLogger logger,
       GeneratorContext context,
@@ -42,27 +60,67 @@ class InlineResourceContext extends StaticResourceContext {
 
     // data: URLs are not compatible with XHRs on FF and Safari browsers
     if ((!forceExternal) && (data.length < MAX_INLINE_SIZE)) {
-      logger.log(TreeLogger.DEBUG, "Inlining", null);
-
-      String base64Contents = toBase64(data);
-
-      // CHECKSTYLE_OFF
-      String encoded =
-          "\"data:" + mimeType.replaceAll("\"", "\\\\\"") + ";base64," + base64Contents + "\"";
-      // CHECKSTYLE_ON
+      String prefix = getDataUrlPrefix(mimeType);
 
       /*
        * We know that the encoded format will be one byte per character, since
        * we're using only ASCII characters.
        */
-      if (encoded.length() < MAX_ENCODED_SIZE) {
-        return encoded;
+      int encodedLength = prefix.length() + getBase64Length(data.length) + 1;
+      if (encodedLength < MAX_ENCODED_SIZE) {
+        // Hash the data while it is encoded, to count the uses of the same content
+        MessageDigest digest = Util.createStrongNameDigest(data.length);
+        StringBuilder encoded = new StringBuilder(encodedLength).append(prefix);
+        for (int offset = 0; offset < data.length; offset += CHUNK_SIZE) {
+          int length = Math.min(CHUNK_SIZE, data.length - offset);
+          digest.update(data, offset, length);
+          appendBase64(encoded, data, offset, length);
+        }
+        encoded.append('"');
+        String strongName = Util.computeStrongName(digest);
+
+        ClientBundleContext clientBundleCtx = getClientBundleContext();
+        int inlinedSize = clientBundleCtx.getInlinedSize(strongName) + encodedLength;
+        if (inlinedSize <= MAX_INLINED_SIZE_PER_CONTENT) {
+          logger.log(TreeLogger.DEBUG, "Inlining", null);
+          clientBundleCtx.setInlinedSize(strongName, inlinedSize);
+          return encoded.toString();
+        }
+
+        logger.log(TreeLogger.DEBUG, "Content inlined too often, using an external file", null);
+        return deployExternal(suggestedFileName, isRenamingEnabled() ? strongName : null, data);
       }
     }
 
     return super.deploy(suggestedFileName, mimeType, data, true);
   }
 
+  /** Reads only the resources that fit into a data: URL, and streams the others. */
+  @Override
+  protected String deploy(
+      String suggestedFileName,
+      String mimeType,
+      URL resource,
+      InputStream in,
+      long length,
+      boolean forceExternal)
+      throws IOException, UnableToCompleteException {
+    if ((!forceExternal)
+        && (length >= 0)
+        && (length < MAX_INLINE_SIZE)
+        && (getDataUrlPrefix(mimeType).length() + getBase64Length((int) length) + 1
+            < MAX_ENCODED_SIZE)) {
+      return deploy(suggestedFileName, mimeType, ByteStreams.toByteArray(in), false);
+    }
+    return super.deploy(suggestedFileName, mimeType, resource, in, length, forceExternal);
+  }
+
+  // CHECKSTYLE_OFF
+  private static String getDataUrlPrefix(String mimeType) {
+    return "\"data:" + mimeType.replaceAll("\"", "\\\\\"") + ";base64,";
+  }
+  // CHECKSTYLE_ON
+
   @Override
   public boolean supportsDataUrls() {
     return true;
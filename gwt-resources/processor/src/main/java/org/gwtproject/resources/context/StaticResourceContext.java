@@ -19,11 +19,15 @@ package org.gwtproject.resources.context;
 import static org.gwtproject.resources.rg.resource.ConfigurationProperties.KEY_CLIENT_BUNDLE_CACHE_URL;
 import static org.gwtproject.resources.rg.resource.ConfigurationProperties.KEY_CLIENT_BUNDLE_ENABLE_RENAMING;
 
+import com.google.common.io.ByteStreams;
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.OutputStream;
+import java.net.URL;
+import java.security.DigestOutputStream;
+import java.security.MessageDigest;
 import javax.lang.model.element.TypeElement;
 import org.gwtproject.resources.ext.GeneratorContext;
-import org.gwtproject.resources.ext.PropertyOracle;
 import org.gwtproject.resources.ext.TreeLogger;
 import org.gwtproject.resources.ext.UnableToCompleteException;
 import org.gwtproject.resources.rg.util.Util;
@@ -42,64 +46,139 @@ class StaticResourceContext extends AbstractResourceContext {
   public String deploy(
       String suggestedFileName, String mimeType, byte[] data, boolean forceExternal)
       throws UnableToCompleteException {
+    String strongName = isRenamingEnabled() ? Util.computeStrongName(data) : null;
+    return deployExternal(suggestedFileName, strongName, data);
+  }
+
+  /**
+   * Writes a resource of known length while it is read, rather than holding it in memory. When
+   * renaming is enabled, the contents are read once to compute the strong name and once more to
+   * copy them.
+   */
+  @Override
+  protected String deploy(
+      String suggestedFileName,
+      String mimeType,
+      URL resource,
+      InputStream in,
+      long length,
+      boolean forceExternal)
+      throws IOException, UnableToCompleteException {
+    if (length < 0 || length > Integer.MAX_VALUE) {
+      return super.deploy(suggestedFileName, mimeType, resource, in, length, forceExternal);
+    }
     TreeLogger logger = getLogger();
-    GeneratorContext context = getGeneratorContext();
-    PropertyOracle oracle = context.getPropertyOracle();
-
-    // See if filename obfuscation should be enabled
-    boolean enableRenaming =
-        oracle
-            .getConfigurationProperty(logger, KEY_CLIENT_BUNDLE_ENABLE_RENAMING)
-            .asSingleBooleanValue();
-
-    // Determine the final filename for the resource's file
-    String outputName;
-    if (enableRenaming) {
-      String strongName = Util.computeStrongName(data);
-
-      // Determine the extension of the original file
-      String extension;
-      int lastIdx = suggestedFileName.lastIndexOf('.');
-      if (lastIdx != -1) {
-        extension = suggestedFileName.substring(lastIdx + 1);
-      } else {
-        extension = "noext";
+
+    String strongName = null;
+    if (isRenamingEnabled()) {
+      MessageDigest digest = Util.createStrongNameDigest((int) length);
+      long read =
+          ByteStreams.copy(in, new DigestOutputStream(ByteStreams.nullOutputStream(), digest));
+      if (read != length) {
+        throw new IOException("Read " + read + " bytes of " + resource + ", expected " + length);
+      }
+      strongName = Util.computeStrongName(digest);
+    }
+    String outputName = getOutputName(suggestedFileName, strongName);
+
+    OutputStream out = getGeneratorContext().tryCreateResource(logger, outputName);
+    if (out != null) {
+      try {
+        long written;
+        if (strongName == null) {
+          written = ByteStreams.copy(in, out);
+        } else {
+          try (InputStream again = resource.openStream()) {
+            written = ByteStreams.copy(again, out);
+          }
+        }
+        commit(out, outputName, written);
+      } finally {
+        // Does nothing once the resource is committed
+        getGeneratorContext().abortResource(logger, out);
       }
-      // The name will be MD5.cache.ext
-      outputName = strongName + ".cache." + extension;
-    } else {
-      outputName = suggestedFileName.substring(suggestedFileName.lastIndexOf('/') + 1);
     }
+    return getUrlExpression(outputName);
+  }
+
+  /**
+   * Writes a resource to an external file.
+   *
+   * @param strongName the strong name of the data, or <code>null</code> if renaming is disabled
+   */
+  String deployExternal(String suggestedFileName, String strongName, byte[] data)
+      throws UnableToCompleteException {
+    String outputName = getOutputName(suggestedFileName, strongName);
 
     // Ask the context for an OutputStream into the named resource
-    OutputStream out = context.tryCreateResource(logger, outputName);
+    OutputStream out = getGeneratorContext().tryCreateResource(getLogger(), outputName);
 
     // This would be null if the resource has already been created in the
     // output (because two or more resources had identical content).
     if (out != null) {
       try {
         out.write(data);
-
+        commit(out, outputName, data.length);
       } catch (IOException e) {
-        logger.log(TreeLogger.ERROR, "Unable to write data to output name " + outputName, e);
+        getLogger().log(TreeLogger.ERROR, "Unable to write data to output name " + outputName, e);
         throw new UnableToCompleteException();
-      }
-
-      // If there's an error, this won't be called and there will be nothing
-      // created in the output directory.
-      context.commitResource(logger, out);
-      if (logger.isLoggable(TreeLogger.DEBUG)) {
-        logger.log(TreeLogger.DEBUG, "Copied " + data.length + " bytes to " + outputName, null);
+      } finally {
+        // Does nothing once the resource is committed
+        getGeneratorContext().abortResource(getLogger(), out);
       }
     }
 
     // Return a Java expression
+    return getUrlExpression(outputName);
+  }
+
+  /** Returns whether filename obfuscation should be enabled. */
+  boolean isRenamingEnabled() throws UnableToCompleteException {
+    return getGeneratorContext()
+        .getPropertyOracle()
+        .getConfigurationProperty(getLogger(), KEY_CLIENT_BUNDLE_ENABLE_RENAMING)
+        .asSingleBooleanValue();
+  }
+
+  /** Determine the final filename for the resource's file. */
+  private static String getOutputName(String suggestedFileName, String strongName) {
+    if (strongName == null) {
+      return suggestedFileName.substring(suggestedFileName.lastIndexOf('/') + 1);
+    }
+
+    // Determine the extension of the original file
+    String extension;
+    int lastIdx = suggestedFileName.lastIndexOf('.');
+    if (lastIdx != -1) {
+      extension = suggestedFileName.substring(lastIdx + 1);
+    } else {
+      extension = "noext";
+    }
+    // The name will be MD5.cache.ext
+    return strongName + ".cache." + extension;
+  }
+
+  private String getUrlExpression(String outputName) throws UnableToCompleteException {
     return "\""
-        + oracle.getConfigurationProperty(logger, KEY_CLIENT_BUNDLE_CACHE_URL).asSingleValue()
+        + getGeneratorContext()
+            .getPropertyOracle()
+            .getConfigurationProperty(getLogger(), KEY_CLIENT_BUNDLE_CACHE_URL)
+            .asSingleValue()
         + outputName
         + "\"";
   }
 
+  private void commit(OutputStream out, String outputName, long length)
+      throws UnableToCompleteException {
+    TreeLogger logger = getLogger();
+    // If there's an error, this won't be called and there will be nothing
+    // created in the output directory.
+    getGeneratorContext().commitResource(logger, out);
+    if (logger.isLoggable(TreeLogger.DEBUG)) {
+      logger.log(TreeLogger.DEBUG, "Copied " + length + " bytes to " + outputName, null);
+    }
+  }
+
   @Override
   public boolean supportsDataUrls() {
     return false;
@@ -31,6 +31,14 @@ public interface GeneratorContext {
    */
   boolean checkRebindRuleAvailable(String sourceTypeName);
 
+  /**
+   * Discards resource generation begun with {@link #tryCreateResource(TreeLogger, String)}: the
+   * stream is closed, the partial file is deleted and the name may be created again. Does nothing
+   * if the stream is unknown or has already been committed or aborted, so that it can be called
+   * from a <code>finally</code> block.
+   */
+  void abortResource(TreeLogger logger, OutputStream os);
+
   /** Commits source generation begun with {@link #tryCreate(TreeLogger, String, String)}. */
   void commit(TreeLogger logger, PrintWriter pw);
 
@@ -19,6 +19,8 @@ package org.gwtproject.resources.ext;
 import static org.gwtproject.resources.rg.resource.ConfigurationProperties.KEY_CLIENT_BUNDLE_CACHE_LOCATION;
 
 import java.io.*;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
 import java.util.*;
 import javax.tools.JavaFileObject;
 import org.gwtproject.resources.context.AptContext;
@@ -63,6 +65,20 @@ public class StandardGeneratorContext implements GeneratorContext {
     committedGeneratedCups.put(gcup.getTypeName(), gcup);
   }
 
+  @Override
+  public void abortResource(TreeLogger logger, OutputStream os) {
+    if (!(os instanceof PendingResource)) {
+      return;
+    }
+    PendingResource pendingResource = (PendingResource) os;
+    String partialPath = pendingResource.getPartialPath();
+    if (!pendingResource.isCommitted() && pendingResources.get(partialPath) == pendingResource) {
+      pendingResources.remove(partialPath);
+      pendingResource.abort();
+      logger.log(TreeLogger.DEBUG, "Aborted the resource '" + partialPath + "'", null);
+    }
+  }
+
   @Override
   public void commitResource(TreeLogger logger, OutputStream os) throws UnableToCompleteException {
     PendingResource pendingResource = null;
@@ -80,19 +96,11 @@ public class StandardGeneratorContext implements GeneratorContext {
       throw new UnableToCompleteException();
     }
 
-    String gwtCacheDir =
-        propertyOracle
-            .getConfigurationProperty(logger, KEY_CLIENT_BUNDLE_CACHE_LOCATION)
-            .asSingleValue();
-    File gwtCacheDirFile = new File(gwtCacheDir);
-    if (!gwtCacheDirFile.exists()) {
-      gwtCacheDirFile.mkdirs();
-    }
-
-    try (OutputStream outputStream =
-        new FileOutputStream(new File(gwtCacheDir, pendingResource.partialPath))) {
-      pendingResource.baos.writeTo(outputStream);
+    try {
+      pendingResource.commit();
     } catch (IOException e) {
+      pendingResources.remove(partialPath);
+      pendingResource.abort();
       logger.log(TreeLogger.ERROR, "Unable to write a file " + e.getMessage(), null);
       throw new UnableToCompleteException();
     }
@@ -195,7 +203,17 @@ public class StandardGeneratorContext implements GeneratorContext {
           TreeLogger.DEBUG, "The file '" + partialPath + "' is already a pending resource", null);
       return null;
     }
-    PendingResource pendingResource = new PendingResource(partialPath);
+    String gwtCacheDir =
+        propertyOracle
+            .getConfigurationProperty(logger, KEY_CLIENT_BUNDLE_CACHE_LOCATION)
+            .asSingleValue();
+    PendingResource pendingResource;
+    try {
+      pendingResource = new PendingResource(partialPath, new File(gwtCacheDir, partialPath));
+    } catch (IOException e) {
+      logger.log(TreeLogger.ERROR, "Unable to create a file " + e.getMessage(), null);
+      throw new UnableToCompleteException();
+    }
     pendingResources.put(partialPath, pendingResource);
     return pendingResource;
   }
@@ -278,52 +296,86 @@ public class StandardGeneratorContext implements GeneratorContext {
     }
   }
 
-  /** Manages a resource that is in the process of being created by a generator. */
+  /**
+   * Manages a resource that is in the process of being created by a generator. The contents are
+   * written to a temporary file next to the resource, which replaces the resource when it is
+   * committed, so that resources are never held in memory.
+   */
   private static class PendingResource extends OutputStream {
 
     private final String partialPath;
-    private ByteArrayOutputStream baos = new ByteArrayOutputStream();
+    private final File file;
+    private final File tempFile;
+    private OutputStream out;
+    private boolean committed;
 
-    public PendingResource(String partialPath) {
+    public PendingResource(String partialPath, File file) throws IOException {
       this.partialPath = partialPath;
+      this.file = file;
+      File parent = file.getParentFile();
+      parent.mkdirs();
+      tempFile = File.createTempFile(file.getName() + ".part", ".tmp", parent);
+      out = new BufferedOutputStream(new FileOutputStream(tempFile));
     }
 
     public void abort() {
-      baos = null;
+      try {
+        close();
+        Files.deleteIfExists(tempFile.toPath());
+      } catch (IOException e) {
+        // Nothing more to do
+      }
+    }
+
+    public void commit() throws IOException {
+      close();
+      Files.move(tempFile.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+      committed = true;
+    }
+
+    public boolean isCommitted() {
+      return committed;
     }
 
     public String getPartialPath() {
       return partialPath;
     }
 
-    public byte[] takeBytes() {
-      byte[] result = baos.toByteArray();
-      baos = null;
-      return result;
+    @Override
+    public void close() throws IOException {
+      if (out != null) {
+        OutputStream closing = out;
+        out = null;
+        closing.close();
+      }
     }
 
     @Override
-    public void write(byte[] b) throws IOException {
-      if (baos == null) {
-        throw new IOException("stream closed");
+    public void flush() throws IOException {
+      if (out != null) {
+        out.flush();
       }
-      baos.write(b);
+    }
+
+    @Override
+    public void write(byte[] b) throws IOException {
+      write(b, 0, b.length);
     }
 
     @Override
     public void write(byte[] b, int off, int len) throws IOException {
-      if (baos == null) {
+      if (out == null) {
         throw new IOException("stream closed");
       }
-      baos.write(b, off, len);
+      out.write(b, off, len);
     }
 
     @Override
     public void write(int b) throws IOException {
-      if (baos == null) {
+      if (out == null) {
         throw new IOException("stream closed");
       }
-      baos.write(b);
+      out.write(b);
     }
   }
 }
@@ -41,6 +41,7 @@ import java.io.OutputStreamWriter;
 import java.io.Serializable;
 import java.net.URL;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Comparator;
 import java.util.HashMap;
 import java.util.IdentityHashMap;
@@ -142,6 +143,7 @@ public class CssResourceGenerator extends AbstractCssResourceGenerator {
   private Map<TypeElement, Map<ExecutableElement, String>> replacementsByClassAndMethod;
   private Map<ExecutableElement, String> replacementsForSharedMethods;
   private Map<ExecutableElement, CssStylesheet> stylesheetMap = new IdentityHashMap<>();
+  private StylesheetCache stylesheetCache;
 
   private static String makeIdent(long id) {
     assert id >= 0;
@@ -369,14 +371,14 @@ public class CssResourceGenerator extends AbstractCssResourceGenerator {
       }
       writer.flush();
       writer.close();
+      context.getGeneratorContext().commitResource(logger, os);
     } catch (IOException e) {
       logger.log(TreeLogger.WARN, "Error writing artifact: " + mappingFileName);
-    }
-
-    try {
-      context.getGeneratorContext().commitResource(logger, os);
     } catch (UnableToCompleteException e) {
       logger.log(TreeLogger.WARN, "Error trying to commit artifact: " + mappingFileName);
+    } finally {
+      // Does nothing once the artifact is committed
+      context.getGeneratorContext().abortResource(logger, os);
     }
   }
 
@@ -861,6 +863,7 @@ public class CssResourceGenerator extends AbstractCssResourceGenerator {
 
   @Override
   public void init(TreeLogger logger, ResourceContext context) throws UnableToCompleteException {
+    stylesheetCache = StylesheetCache.get(context);
     PropertyOracle propertyOracle = context.getGeneratorContext().getPropertyOracle();
     Types types = context.getGeneratorContext().getAptContext().types;
     Elements elements = context.getGeneratorContext().getAptContext().elements;
@@ -1154,8 +1157,16 @@ public class CssResourceGenerator extends AbstractCssResourceGenerator {
 
     // At this point, gss is not enabled so we shouldn't try to compile a gss file.
     ensureNoGssFile(resources, logger);
-    // Create the AST and do a quick scan for requirements
-    CssStylesheet sheet = GenerateCssAst.exec(logger, resources);
+    // Create the AST once per compilation, and do a quick scan for requirements on a copy
+    String cacheKey = "css:" + StylesheetCache.key(Arrays.asList(resources));
+    CssStylesheet parsed = stylesheetCache.get(cacheKey, CssStylesheet.class);
+    if (parsed == null) {
+      parsed = GenerateCssAst.exec(logger, resources);
+      stylesheetCache.put(cacheKey, parsed);
+    } else {
+      logger.log(TreeLogger.DEBUG, "Using cached stylesheet");
+    }
+    CssStylesheet sheet = new CssStylesheet(parsed);
     checkSheet(logger, sheet);
     stylesheetMap.put(method, sheet);
   }
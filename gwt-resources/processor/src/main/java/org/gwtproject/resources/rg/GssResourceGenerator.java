@@ -99,7 +99,6 @@ import com.google.common.io.Resources;
 import java.io.File;
 import java.io.FileOutputStream;
 import java.io.IOException;
-import java.io.PrintWriter;
 import java.net.URL;
 import java.nio.charset.Charset;
 import java.nio.charset.UnsupportedCharsetException;
@@ -112,6 +111,7 @@ import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
+import java.util.Objects;
 import java.util.Set;
 import java.util.SortedSet;
 import java.util.TreeSet;
@@ -158,6 +158,7 @@ import org.gwtproject.resources.rg.gss.RecordingBidiFlipper;
 import org.gwtproject.resources.rg.gss.RenamingSubstitutionMap;
 import org.gwtproject.resources.rg.gss.RuntimeConditionalBlockCollector;
 import org.gwtproject.resources.rg.gss.ValidateRuntimeConditionalNode;
+import org.gwtproject.resources.rg.util.BuildCache;
 import org.gwtproject.resources.rg.util.SourceWriter;
 import org.gwtproject.resources.rg.util.StringSourceWriter;
 import org.gwtproject.resources.rg.util.Util;
@@ -188,31 +189,8 @@ public class GssResourceGenerator extends AbstractCssResourceGenerator {
   // see: http://www.w3.org/TR/CSS2/syndata.html#charset
   private static final Pattern CHARSET = Pattern.compile("^@charset \"([^\"]*)\";");
   private static final int CHARSET_MIN_LENGTH = "@charset \"\";".length();
-  /*
-   * TODO(dankurka): This is a nasty hack to get the compiler to output all @def's
-   * it has seen in a compile. Once GSS migration is done this needs to be removed.
-   */
-  private static boolean shouldEmitVariables;
-  private static PrintWriter printWriter;
-  private static Set<String> writtenAtDefs = new HashSet<>();
-
-  static {
-    String varFileName = System.getProperty("emitGssVarNameFile");
-    shouldEmitVariables = varFileName != null;
-    if (shouldEmitVariables) {
-      try {
-        File file = new File(varFileName);
-        file.createNewFile();
-        printWriter = new PrintWriter(new FileOutputStream(file));
-      } catch (Exception e) {
-        System.err.println("Error while opening file");
-        e.printStackTrace();
-        System.exit(-1);
-      }
-    }
-  }
-
   private final GssOptions gssOptions;
+  private StylesheetCache stylesheetCache;
   private Map<ExecutableElement, CssParsingResult> cssParsingResultMap;
   private Set<String> allowedNonStandardFunctions;
   private LoggerErrorManager errorManager;
@@ -401,13 +379,27 @@ public class GssResourceGenerator extends AbstractCssResourceGenerator {
       throw new UnableToCompleteException();
     }
 
+    // The tree depends on the contents of the files, and on the options used below
+    String cacheKey =
+        "gss:"
+            + gssOptions.isLenientConversion()
+            + ":"
+            + new TreeSet<>(allowedAtRules)
+            + ":"
+            + StylesheetCache.key(resources);
+    CssParsingResult cached = stylesheetCache.get(cacheKey, CssParsingResult.class);
+    if (cached != null) {
+      logger.log(Type.DEBUG, "Using cached stylesheet");
+      return cached.copy();
+    }
+
     if (css) {
       String concatenatedCss = concatCssFiles(resources, logger);
 
       ConversionResult result = convertToGss(concatenatedCss, context, logger);
 
-      if (shouldEmitVariables) {
-        write(result.defNameMapping.keySet());
+      if (stylesheetCache.isEmittingAtDefs()) {
+        stylesheetCache.writeAtDefs(logger, result.defNameMapping.keySet());
       }
 
       String gss = result.gss;
@@ -444,11 +436,14 @@ public class GssResourceGenerator extends AbstractCssResourceGenerator {
         new PermutationsCollector(tree.getMutatingVisitController());
     permutationsCollector.runPass();
 
-    return new CssParsingResult(
-        tree,
-        permutationsCollector.getPermutationAxes(),
-        booleanConditionCollector.getBooleanConditions(),
-        constantNameMappingBuilder.build());
+    CssParsingResult result =
+        new CssParsingResult(
+            tree,
+            permutationsCollector.getPermutationAxes(),
+            booleanConditionCollector.getBooleanConditions(),
+            constantNameMappingBuilder.build());
+    stylesheetCache.put(cacheKey, result);
+    return result.copy();
   }
 
   private void finalizeTree(CssTree cssTree) throws UnableToCompleteException {
@@ -482,15 +477,6 @@ public class GssResourceGenerator extends AbstractCssResourceGenerator {
     }
   }
 
-  private static synchronized void write(Set<String> variables) {
-    for (String atDef : variables) {
-      if (writtenAtDefs.add(atDef)) {
-        printWriter.println("@def " + atDef + " 1px;");
-      }
-    }
-    printWriter.flush();
-  }
-
   public static SourceCode readUrlContent(URL fileUrl, TreeLogger logger)
       throws UnableToCompleteException {
     TreeLogger branchLogger =
@@ -543,9 +529,27 @@ public class GssResourceGenerator extends AbstractCssResourceGenerator {
     return null;
   }
 
+  /**
+   * Converts CSS to GSS, or reuses the conversion of the same CSS from the {@link BuildCache} if
+   * the configuration properties it depends on are unchanged.
+   */
   private ConversionResult convertToGss(
       String concatenatedCss, ResourceContext context, TreeLogger logger)
       throws UnableToCompleteException {
+    BuildCache cache = BuildCache.INSTANCE;
+    String cacheKey =
+        cache.isEnabled()
+            ? "GssResourceGenerator.convertToGss:"
+                + gssOptions.isLenientConversion()
+                + ":"
+                + Util.computeStrongName(Util.getBytes(concatenatedCss))
+            : null;
+    ConversionResult cached = ConversionResult.fromStrings(cache.readStrings(cacheKey));
+    if (cached != null && cached.isUpToDate()) {
+      logger.log(Type.DEBUG, "Reusing the GSS converted from the same CSS by an earlier build");
+      return cached;
+    }
+
     File tempFile = null;
     FileOutputStream fos = null;
     try {
@@ -572,7 +576,11 @@ public class GssResourceGenerator extends AbstractCssResourceGenerator {
         throw new UnableToCompleteException();
       }
 
-      return new ConversionResult(gss, converter.getDefNameMapping());
+      ConversionResult result =
+          new ConversionResult(
+              gss, converter.getDefNameMapping(), configurationPropertyMatcher.properties);
+      cache.writeStrings(cacheKey, result.toStrings());
+      return result;
 
     } catch (Css2GssConversionException e) {
       String message = "An error occurs during the automatic conversion: " + e.getMessage();
@@ -1297,6 +1305,7 @@ public class GssResourceGenerator extends AbstractCssResourceGenerator {
   @Override
   public void init(TreeLogger logger, ResourceContext context) throws UnableToCompleteException {
     cssParsingResultMap = new IdentityHashMap<>();
+    stylesheetCache = StylesheetCache.get(context);
     errorManager = new LoggerErrorManager(logger);
     PropertyOracle propertyOracle = context.getGeneratorContext().getPropertyOracle();
 
@@ -1444,6 +1453,9 @@ public class GssResourceGenerator extends AbstractCssResourceGenerator {
   private static class ConfigurationPropertyMatcher implements Predicate<String> {
     private final TreeLogger logger;
     private final ResourceContext context;
+    /** The values of the properties that were looked up, which the conversion depends on. */
+    private final Map<String, String> properties = new HashMap<>();
+
     private boolean error;
 
     ConfigurationPropertyMatcher(ResourceContext context, TreeLogger logger) {
@@ -1460,6 +1472,7 @@ public class GssResourceGenerator extends AbstractCssResourceGenerator {
       }
 
       String value = System.getProperty(booleanCondition);
+      properties.put(booleanCondition, value);
 
       if (value == null) {
         logger.log(Type.WARN, "No such property " + booleanCondition);
@@ -1527,10 +1540,72 @@ public class GssResourceGenerator extends AbstractCssResourceGenerator {
   private static class ConversionResult {
     final String gss;
     final Map<String, String> defNameMapping;
+    final Map<String, String> properties;
 
-    private ConversionResult(String gss, Map<String, String> defNameMapping) {
+    private ConversionResult(
+        String gss, Map<String, String> defNameMapping, Map<String, String> properties) {
       this.gss = gss;
-      this.defNameMapping = defNameMapping;
+      this.defNameMapping = new LinkedHashMap<>(defNameMapping);
+      this.properties = new HashMap<>(properties);
+    }
+
+    /**
+     * Restores a result stored by {@link #toStrings}.
+     *
+     * @return the result, or null if there is none or the strings are malformed
+     */
+    static ConversionResult fromStrings(List<String> strings) {
+      if (strings == null || strings.size() < 2 || strings.get(0) == null) {
+        return null;
+      }
+      int defCount;
+      try {
+        defCount = Integer.parseInt(strings.get(1));
+      } catch (NumberFormatException e) {
+        return null;
+      }
+      int propertiesStart = 2 + 2 * defCount;
+      if (defCount < 0 || propertiesStart > strings.size() || strings.size() % 2 != 0) {
+        return null;
+      }
+      Map<String, String> defNameMapping = new LinkedHashMap<>();
+      for (int i = 2; i < propertiesStart; i += 2) {
+        defNameMapping.put(strings.get(i), strings.get(i + 1));
+      }
+      Map<String, String> properties = new HashMap<>();
+      for (int i = propertiesStart; i < strings.size(); i += 2) {
+        properties.put(strings.get(i), strings.get(i + 1));
+      }
+      return new ConversionResult(strings.get(0), defNameMapping, properties);
+    }
+
+    /**
+     * Flattens the result for the {@link BuildCache}: the GSS, the number of defs, the def names
+     * and their mappings, then the properties and their values.
+     */
+    List<String> toStrings() {
+      List<String> strings = new ArrayList<>();
+      strings.add(gss);
+      strings.add(String.valueOf(defNameMapping.size()));
+      for (Map.Entry<String, String> entry : defNameMapping.entrySet()) {
+        strings.add(entry.getKey());
+        strings.add(entry.getValue());
+      }
+      for (Map.Entry<String, String> entry : properties.entrySet()) {
+        strings.add(entry.getKey());
+        strings.add(entry.getValue());
+      }
+      return strings;
+    }
+
+    /** Whether the properties that the conversion depends on still have the same values. */
+    boolean isUpToDate() {
+      for (Map.Entry<String, String> entry : properties.entrySet()) {
+        if (!Objects.equals(entry.getValue(), System.getProperty(entry.getKey()))) {
+          return false;
+        }
+      }
+      return true;
     }
   }
 
@@ -1560,6 +1635,12 @@ public class GssResourceGenerator extends AbstractCssResourceGenerator {
       this.originalConstantNameMapping = originalConstantNameMapping;
       this.trueConditions = trueConditions;
     }
+
+    /** Returns a copy of the tree, which renaming and optimization change, sharing the rest. */
+    CssParsingResult copy() {
+      return new CssParsingResult(
+          new CssTree(tree), permutationAxes, trueConditions, originalConstantNameMapping);
+    }
   }
 
   /**
@@ -0,0 +1,376 @@
+/*
+ * Copyright © 2019 The GWT Project Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.gwtproject.resources.rg;
+
+import static org.gwtproject.resources.client.ImageResource.RepeatStyle;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import org.gwtproject.resources.rg.ImageResourceGenerator.ImageRect;
+
+/**
+ * Arranges images into one or more composite images, or atlases, no larger than a given size. How
+ * the images are arranged depends on how they are repeated: images that are not repeated are packed
+ * as tightly as possible, images that repeat horizontally are stacked on top of each other, and
+ * images that repeat vertically are placed side by side.
+ *
+ * <p>Images with the same key are placed only once. The arrangement depends only on the keys and
+ * sizes of the images, not on the order in which they were added, so that the same images always
+ * produce the same atlases.
+ */
+class ImageBundleBuilder {
+
+  /** A composite image, and the position of each image in it. */
+  static class Atlas {
+    private final List<String> keys = new ArrayList<>();
+    private final List<ImageRect> rects = new ArrayList<>();
+    private final RepeatStyle repeatStyle;
+    private int width, height;
+
+    Atlas(RepeatStyle repeatStyle) {
+      this.repeatStyle = repeatStyle;
+    }
+
+    public int getHeight() {
+      return height;
+    }
+
+    /**
+     * Returns a string that is the same for atlases with the same images in the same places, and so
+     * the same contents.
+     */
+    public String getContentKey() {
+      StringBuilder sb = new StringBuilder();
+      sb.append(repeatStyle).append(':').append(width).append('x').append(height);
+      for (int i = 0; i < rects.size(); i++) {
+        ImageRect rect = rects.get(i);
+        sb.append(':').append(keys.get(i)).append('@').append(rect.getLeft());
+        sb.append(',').append(rect.getTop());
+      }
+      return sb.toString();
+    }
+
+    public List<ImageRect> getRects() {
+      return rects;
+    }
+
+    public RepeatStyle getRepeatStyle() {
+      return repeatStyle;
+    }
+
+    public int getWidth() {
+      return width;
+    }
+
+    private void add(String key, ImageRect rect) {
+      keys.add(key);
+      rects.add(rect);
+      width = Math.max(width, rect.getLeft() + rect.getWidth());
+      height = Math.max(height, rect.getTop() + rect.getHeight());
+    }
+  }
+
+  /** Orders images by decreasing height, then decreasing width, then key. */
+  private static final Comparator<Map.Entry<String, ImageRect>> BY_DECREASING_HEIGHT =
+      (a, b) -> {
+        int c = Integer.compare(b.getValue().getHeight(), a.getValue().getHeight());
+        if (c == 0) {
+          c = Integer.compare(b.getValue().getWidth(), a.getValue().getWidth());
+        }
+        return c != 0 ? c : a.getKey().compareTo(b.getKey());
+      };
+
+  /** Orders images by width, then key. */
+  private static final Comparator<Map.Entry<String, ImageRect>> BY_WIDTH =
+      (a, b) -> {
+        int c = Integer.compare(a.getValue().getWidth(), b.getValue().getWidth());
+        return c != 0 ? c : a.getKey().compareTo(b.getKey());
+      };
+
+  /** Orders images by height, then key. */
+  private static final Comparator<Map.Entry<String, ImageRect>> BY_HEIGHT =
+      (a, b) -> {
+        int c = Integer.compare(a.getValue().getHeight(), b.getValue().getHeight());
+        return c != 0 ? c : a.getKey().compareTo(b.getKey());
+      };
+
+  private static int gcd(int a, int b) {
+    while (b != 0) {
+      int t = a % b;
+      a = b;
+      b = t;
+    }
+    return a;
+  }
+
+  private static long lcm(long a, int b) {
+    return a / gcd((int) a, b) * b;
+  }
+
+  private final int maxSize;
+  private final RepeatStyle repeatStyle;
+  private final Map<String, ImageRect> rectsByKey = new LinkedHashMap<>();
+
+  /**
+   * Creates a builder.
+   *
+   * @param repeatStyle how the images are repeated, not {@link RepeatStyle#Both}
+   * @param maxSize the largest width and height of an atlas, at least that of every image
+   */
+  ImageBundleBuilder(RepeatStyle repeatStyle, int maxSize) {
+    assert repeatStyle != RepeatStyle.Both;
+    this.repeatStyle = repeatStyle;
+    this.maxSize = maxSize;
+  }
+
+  /**
+   * Adds an image, unless an image with the same key has already been added.
+   *
+   * @param key identifies the contents and size of the image
+   * @param rect the image, no larger than the maximum size
+   * @return the image that will be placed in an atlas, which is a previously added one if there was
+   *     one with the same key
+   */
+  public ImageRect add(String key, ImageRect rect) {
+    assert rect.getWidth() <= maxSize && rect.getHeight() <= maxSize;
+    ImageRect existing = rectsByKey.get(key);
+    if (existing != null) {
+      return existing;
+    }
+    rectsByKey.put(key, rect);
+    return rect;
+  }
+
+  /** Positions all images, returning the atlases they are in. */
+  public List<Atlas> arrange() {
+    List<Map.Entry<String, ImageRect>> entries = new ArrayList<>(rectsByKey.entrySet());
+    switch (repeatStyle) {
+      case Horizontal:
+        Collections.sort(entries, BY_WIDTH);
+        return arrangeRepeating(entries, true);
+      case Vertical:
+        Collections.sort(entries, BY_HEIGHT);
+        return arrangeRepeating(entries, false);
+      default:
+        Collections.sort(entries, BY_DECREASING_HEIGHT);
+        return arrangeBestFit(entries);
+    }
+  }
+
+  /**
+   * Stacks horizontally repeating images on top of each other, or places vertically repeating ones
+   * side by side. The width (or height) of the atlas is the least common multiple of those of its
+   * images, across which each image is repeated when drawn, so that the atlas can be repeated in
+   * turn.
+   */
+  private List<Atlas> arrangeRepeating(
+      List<Map.Entry<String, ImageRect>> entries, boolean horizontal) {
+    List<Atlas> atlases = new ArrayList<>();
+    Atlas atlas = null;
+    long across = 1;
+    int along = 0;
+    for (Map.Entry<String, ImageRect> entry : entries) {
+      ImageRect rect = entry.getValue();
+      int rectAcross = horizontal ? rect.getWidth() : rect.getHeight();
+      int rectAlong = horizontal ? rect.getHeight() : rect.getWidth();
+      long newAcross = lcm(across, rectAcross);
+      if (atlas == null || newAcross > maxSize || along + rectAlong > maxSize) {
+        atlas = new Atlas(repeatStyle);
+        atlases.add(atlas);
+        across = rectAcross;
+        along = 0;
+      } else {
+        across = newAcross;
+      }
+      if (horizontal) {
+        rect.setPosition(0, along);
+      } else {
+        rect.setPosition(along, 0);
+      }
+      along += rectAlong;
+      atlas.add(entry.getKey(), rect);
+    }
+    for (Atlas each : atlases) {
+      long size = 1;
+      for (ImageRect rect : each.getRects()) {
+        size = lcm(size, horizontal ? rect.getWidth() : rect.getHeight());
+      }
+      if (horizontal) {
+        each.width = (int) size;
+      } else {
+        each.height = (int) size;
+      }
+    }
+    return atlases;
+  }
+
+  /**
+   * Packs images that are not repeated, largest first. Several atlas widths are tried, and the one
+   * that fits the most images in the least area is kept. Images that do not fit go to the next
+   * atlas.
+   */
+  private List<Atlas> arrangeBestFit(List<Map.Entry<String, ImageRect>> entries) {
+    List<Atlas> atlases = new ArrayList<>();
+    while (!entries.isEmpty()) {
+      Skyline best = null;
+      for (int width : candidateWidths(entries)) {
+        Skyline skyline = new Skyline(width, maxSize);
+        skyline.pack(entries);
+        if (best == null || skyline.isBetterThan(best)) {
+          best = skyline;
+        }
+      }
+
+      Atlas atlas = new Atlas(repeatStyle);
+      List<Map.Entry<String, ImageRect>> remaining = new ArrayList<>();
+      for (int i = 0; i < entries.size(); i++) {
+        Map.Entry<String, ImageRect> entry = entries.get(i);
+        if (best.lefts[i] < 0) {
+          remaining.add(entry);
+        } else {
+          entry.getValue().setPosition(best.lefts[i], best.tops[i]);
+          atlas.add(entry.getKey(), entry.getValue());
+        }
+      }
+      atlases.add(atlas);
+      entries = remaining;
+    }
+    return atlases;
+  }
+
+  /** Returns the atlas widths to try, from the widest image to the maximum size. */
+  private List<Integer> candidateWidths(List<Map.Entry<String, ImageRect>> entries) {
+    int widest = 0;
+    long area = 0;
+    for (Map.Entry<String, ImageRect> entry : entries) {
+      ImageRect rect = entry.getValue();
+      widest = Math.max(widest, rect.getWidth());
+      area += (long) rect.getWidth() * rect.getHeight();
+    }
+    List<Integer> widths = new ArrayList<>();
+    widths.add(widest);
+    int square = (int) Math.ceil(Math.sqrt(area));
+    for (int percent = 100; percent <= 200; percent += 20) {
+      int width = (int) Math.min(maxSize, Math.max(widest, (long) square * percent / 100));
+      if (!widths.contains(width)) {
+        widths.add(width);
+      }
+    }
+    if (!widths.contains(maxSize)) {
+      widths.add(maxSize);
+    }
+    return widths;
+  }
+
+  /**
+   * Places images of decreasing height at the top-most, then left-most, position along the bottom
+   * edge, or skyline, of the images placed so far.
+   */
+  private static class Skyline {
+    private final int width;
+    private final int maxHeight;
+
+    /** The segments of the skyline, left to right: where they start, how far down they are. */
+    private final List<int[]> segments = new ArrayList<>();
+
+    private int[] lefts;
+    private int[] tops;
+    private int placed;
+    private int usedWidth, usedHeight;
+
+    Skyline(int width, int maxHeight) {
+      this.width = width;
+      this.maxHeight = maxHeight;
+      segments.add(new int[] {0, 0});
+    }
+
+    void pack(List<Map.Entry<String, ImageRect>> entries) {
+      lefts = new int[entries.size()];
+      tops = new int[entries.size()];
+      for (int i = 0; i < entries.size(); i++) {
+        ImageRect rect = entries.get(i).getValue();
+        lefts[i] = tops[i] = -1;
+        place(rect.getWidth(), rect.getHeight(), i);
+      }
+    }
+
+    boolean isBetterThan(Skyline other) {
+      if (placed != other.placed) {
+        return placed > other.placed;
+      }
+      long area = (long) usedWidth * usedHeight;
+      long otherArea = (long) other.usedWidth * other.usedHeight;
+      if (area != otherArea) {
+        return area < otherArea;
+      }
+      return usedWidth < other.usedWidth;
+    }
+
+    private void place(int w, int h, int index) {
+      int bestSegment = -1;
+      int bestTop = Integer.MAX_VALUE;
+      for (int s = 0; s < segments.size(); s++) {
+        int left = segments.get(s)[0];
+        if (left + w > width) {
+          break;
+        }
+        // The image rests on the lowest of the segments it spans.
+        int top = 0;
+        for (int t = s; t < segments.size() && segments.get(t)[0] < left + w; t++) {
+          top = Math.max(top, segments.get(t)[1]);
+        }
+        if (top < bestTop) {
+          bestTop = top;
+          bestSegment = s;
+        }
+      }
+      if (bestSegment < 0 || bestTop + h > maxHeight) {
+        return;
+      }
+
+      int left = segments.get(bestSegment)[0];
+      lefts[index] = left;
+      tops[index] = bestTop;
+      placed++;
+      usedWidth = Math.max(usedWidth, left + w);
+      usedHeight = Math.max(usedHeight, bestTop + h);
+
+      // Replace the spanned segments by the bottom of the image, keeping what sticks out on the
+      // right of the last one.
+      int right = left + w;
+      int s = bestSegment;
+      int restTop = -1;
+      while (s < segments.size() && segments.get(s)[0] < right) {
+        restTop = segments.remove(s)[1];
+      }
+      if (s == segments.size() ? right < width : segments.get(s)[0] > right) {
+        segments.add(s, new int[] {right, restTop});
+      }
+      segments.add(bestSegment, new int[] {left, bestTop + h});
+
+      // Merge neighbours that are equally far down.
+      for (int i = segments.size() - 1; i > 0; i--) {
+        if (segments.get(i)[1] == segments.get(i - 1)[1]) {
+          segments.remove(i);
+        }
+      }
+    }
+  }
+}
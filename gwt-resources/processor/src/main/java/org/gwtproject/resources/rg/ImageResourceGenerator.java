@@ -28,10 +28,17 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.net.URL;
 import java.net.URLConnection;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
 import java.util.Iterator;
 import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Locale;
 import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
 import javax.imageio.ImageIO;
 import javax.imageio.ImageReader;
 import javax.imageio.metadata.IIOMetadata;
@@ -46,6 +53,8 @@ import org.gwtproject.resources.ext.ResourceContext;
 import org.gwtproject.resources.ext.ResourceOracle;
 import org.gwtproject.resources.ext.TreeLogger;
 import org.gwtproject.resources.ext.UnableToCompleteException;
+import org.gwtproject.resources.rg.ImageBundleBuilder.Atlas;
+import org.gwtproject.resources.rg.util.BuildCache;
 import org.gwtproject.resources.rg.util.SourceWriter;
 import org.gwtproject.resources.rg.util.StringKey;
 import org.gwtproject.resources.rg.util.StringSourceWriter;
@@ -64,7 +73,21 @@ public class ImageResourceGenerator extends AbstractResourceGenerator {
   static final String BUNDLE_FILE_TYPE = "png";
   private static final int IMAGE_MAX_SIZE =
       Integer.getInteger("gwt.imageResource.maxBundleSize", 256);
-
+  /** The largest width and height of a composite image, beyond which another one is started. */
+  private static final int ATLAS_MAX_SIZE =
+      Math.max(IMAGE_MAX_SIZE, Integer.getInteger("gwt.imageResource.maxAtlasSize", 2048));
+  /**
+   * Decodes and re-encodes the images of all ClientBundles. The results are only used in the order
+   * of the methods, so the output does not depend on the number of threads.
+   */
+  private static final ForkJoinPool IMAGE_POOL =
+      new ForkJoinPool(
+          Math.max(
+              1,
+              Integer.getInteger(
+                  "gwt.imageResource.threads", Runtime.getRuntime().availableProcessors())));
+
+  private AtlasCache atlasCache;
   private CachedState shared;
 
   @Override
@@ -74,6 +97,9 @@ public class ImageResourceGenerator extends AbstractResourceGenerator {
 
     ImageResourceDeclaration image = new ImageResourceDeclaration(method);
     DisplayedImage bundle = getImage(image);
+    if (bundle == null) {
+      throw new NullPointerException("No DisplayedImage ever created for " + name);
+    }
 
     SourceWriter sw = new StringSourceWriter();
     sw.println("new " + bundle.getResourceType().getCanonicalName() + "(");
@@ -84,11 +110,11 @@ public class ImageResourceGenerator extends AbstractResourceGenerator {
     if (rect == null) {
       throw new NullPointerException("No ImageRect ever computed for " + name);
     }
-    rect.setHeight(image.getScaleHeight());
-    rect.setWidth(image.getScaleWidth());
 
     String[] urlExpressions =
-        new String[] {bundle.getNormalContentsFieldName(), bundle.getRtlContentsFieldName()};
+        new String[] {
+          bundle.getNormalContentsFieldName(image), bundle.getRtlContentsFieldName(image)
+        };
     assert urlExpressions[0] != null : "No primary URL expression for " + name;
 
     if (urlExpressions[1] == null) {
@@ -123,12 +149,12 @@ public class ImageResourceGenerator extends AbstractResourceGenerator {
     return sw.toString();
   }
 
-  private ExternalImage getImage(ImageResourceDeclaration image) {
+  private DisplayedImage getImage(ImageResourceDeclaration image) {
     ExternalImage toReturn = shared.externalImages.get(new BundleKey(image, true));
     if (toReturn != null) {
       return toReturn;
     }
-    return null;
+    return shared.bundledImages.get(new BundleKey(image, false));
   }
 
   /**
@@ -138,6 +164,8 @@ public class ImageResourceGenerator extends AbstractResourceGenerator {
   @Override
   public void createFields(TreeLogger logger, ResourceContext context, ClientBundleFields fields)
       throws UnableToCompleteException {
+    placePreparedImages(logger);
+    renderImageMap(logger, context, fields, shared.bundledImages);
     renderImageMap(logger, context, fields, shared.externalImages);
   }
 
@@ -163,6 +191,13 @@ public class ImageResourceGenerator extends AbstractResourceGenerator {
       shared = new CachedState();
       context.putCachedData(key, shared);
     }
+
+    // Shared by all bundles
+    atlasCache = context.getCachedData(AtlasCache.class.getName(), AtlasCache.class);
+    if (atlasCache == null) {
+      atlasCache = new AtlasCache();
+      context.putCachedData(AtlasCache.class.getName(), atlasCache);
+    }
   }
 
   /**
@@ -183,8 +218,9 @@ public class ImageResourceGenerator extends AbstractResourceGenerator {
   }
 
   /**
-   * Process each image method. This will either assign the image to an ImageBundleBuilder or
-   * reencode an external image.
+   * Process each image method. The image is decoded, and re-encoded if it is not bundled, on {@link
+   * #IMAGE_POOL}; it is assigned to a composite image or made external in {@link #createFields},
+   * once the methods of all ClientBundles of the round have been prepared.
    */
   @Override
   public void prepare(
@@ -206,7 +242,35 @@ public class ImageResourceGenerator extends AbstractResourceGenerator {
 
     URL resource = resources[0];
 
+    shared.preparedImages.add(
+        IMAGE_POOL.submit(() -> prepareImage(logger, image, localized, resource)));
+  }
+
+  /**
+   * Reads an image, and unless it can be bundled, re-encodes it. Images are bundled unless they are
+   * animated or lossy, larger than {@link #IMAGE_MAX_SIZE}, repeated both ways, or must not be
+   * inlined. Called concurrently, so it must not touch the generator's state.
+   */
+  private static PreparedImage prepareImage(
+      TreeLogger logger, ImageResourceDeclaration image, LocalizedImage localized, URL resource)
+      throws UnableToCompleteException {
     ImageRect rect = addImage(logger, resource.getFile(), resource);
+    if (image.getScaleWidth() > 0) {
+      rect.setWidth(image.getScaleWidth());
+    }
+    if (image.getScaleHeight() > 0) {
+      rect.setHeight(image.getScaleHeight());
+    }
+
+    if (new BundleKey(image, false).isArranged()
+        && !rect.isAnimated()
+        && !rect.isLossy()
+        && rect.getWidth() <= IMAGE_MAX_SIZE
+        && rect.getHeight() <= IMAGE_MAX_SIZE) {
+      // Hash the contents here rather than when the image is placed
+      localized.getKey();
+      return new PreparedImage(image, localized, rect, true);
+    }
 
     if (rect.isAnimated() || rect.isLossy()) {
       // Don't re-encode
@@ -216,19 +280,9 @@ public class ImageResourceGenerator extends AbstractResourceGenerator {
        * they actually offer a space-savings.
        */
       try {
-        int originalSize = getContentLength(resource);
-        // Re-encode the data
-        URL reencodedContents = reencodeToTempFile(logger, rect);
-        int newSize = getContentLength(reencodedContents);
-
-        // But only use it if we did a better job on compression
-
-        if (newSize < originalSize) {
-          //  if (logger.isLoggable(TreeLogger.SPAM)) {
-          logger.log(
-              TreeLogger.SPAM, "Reencoded image and saved " + (originalSize - newSize) + " bytes");
-          //    }
-          localized = new LocalizedImage(localized, reencodedContents);
+        byte[] reencoded = reencode(logger, localized, rect, resource);
+        if (reencoded.length > 0) {
+          localized = new LocalizedImage(localized, writeToTempFile(logger, reencoded));
         }
       } catch (IOException e2) {
         // Non-fatal, but weird
@@ -238,12 +292,75 @@ public class ImageResourceGenerator extends AbstractResourceGenerator {
             e2);
       }
     }
+    return new PreparedImage(image, localized, rect, false);
+  }
 
-    ExternalImage externalImage = new ExternalImage(image, localized, rect);
-    shared.externalImages.put(new BundleKey(image, true), externalImage);
+  /** Assigns the prepared images to their DisplayedImages, in the order of the methods. */
+  private void placePreparedImages(TreeLogger logger) throws UnableToCompleteException {
+    UnableToCompleteException failure = null;
+    try {
+      for (Future<PreparedImage> future : shared.preparedImages) {
+        PreparedImage prepared;
+        try {
+          prepared = getPreparedImage(logger, future);
+        } catch (UnableToCompleteException e) {
+          // Report the failures of the other images too
+          failure = e;
+          continue;
+        }
+
+        ImageResourceDeclaration image = prepared.image;
+        if (prepared.bundled) {
+          BundleKey bundleKey = new BundleKey(image, false);
+          BundledImage bundled = shared.bundledImages.get(bundleKey);
+          if (bundled == null) {
+            bundled = new BundledImage(bundleKey.getRepeatStyle(), atlasCache);
+            shared.bundledImages.put(bundleKey, bundled);
+          }
+          bundled.addImage(image, prepared.localized, prepared.rect);
+        } else {
+          ExternalImage externalImage = new ExternalImage(image, prepared.localized, prepared.rect);
+          shared.externalImages.put(new BundleKey(image, true), externalImage);
+        }
+      }
+    } finally {
+      shared.preparedImages.clear();
+    }
+
+    if (failure != null) {
+      throw failure;
+    }
   }
 
-  private ImageRect addImage(TreeLogger logger, String imageName, URL imageUrl)
+  /**
+   * Waits for an image to be prepared. A failure of {@link #prepareImage} is rethrown as it was
+   * thrown, rather than wrapped by the pool.
+   */
+  private static PreparedImage getPreparedImage(TreeLogger logger, Future<PreparedImage> future)
+      throws UnableToCompleteException {
+    try {
+      return future.get();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      logger.log(TreeLogger.ERROR, "Interrupted while preparing images", e);
+      throw new UnableToCompleteException();
+    } catch (ExecutionException e) {
+      // The pool wraps checked exceptions once more
+      for (Throwable t = e.getCause(); t != null; t = t.getCause()) {
+        if (t instanceof UnableToCompleteException) {
+          // The error has been logged already
+          throw (UnableToCompleteException) t;
+        }
+      }
+      if (e.getCause() instanceof Error) {
+        throw (Error) e.getCause();
+      }
+      logger.log(TreeLogger.ERROR, "Unable to prepare image", e.getCause());
+      throw new UnableToCompleteException();
+    }
+  }
+
+  private static ImageRect addImage(TreeLogger logger, String imageName, URL imageUrl)
       throws UnableToCompleteException {
 
     logger = logger.branch(TreeLogger.TRACE, "Adding image '" + imageName + "'", null);
@@ -362,7 +479,7 @@ public class ImageResourceGenerator extends AbstractResourceGenerator {
    * Helper method to read the contentLength of a given URL, automatically closing the InputStream
    * that is opened as a side effect.
    */
-  private int getContentLength(URL url) throws IOException {
+  private static int getContentLength(URL url) throws IOException {
     URLConnection conn = url.openConnection();
     try {
       return conn.getContentLength();
@@ -371,16 +488,42 @@ public class ImageResourceGenerator extends AbstractResourceGenerator {
     }
   }
 
-  /** Re-encode an image as a PNG to strip random header data. */
-  private URL reencodeToTempFile(TreeLogger logger, ImageRect rect)
-      throws UnableToCompleteException {
-    try {
-      byte[] imageBytes = toPng(logger, rect);
+  /**
+   * Re-encode an image as a PNG to strip random header data, returning the new bytes if they are
+   * smaller than the original ones, else an empty array. The result is kept in the {@link
+   * BuildCache}, keyed by the original bytes and the scaling.
+   */
+  private static byte[] reencode(
+      TreeLogger logger, LocalizedImage localized, ImageRect rect, URL resource)
+      throws UnableToCompleteException, IOException {
+    BuildCache cache = BuildCache.INSTANCE;
+    String cacheKey =
+        cache.isEnabled() ? "ImageResourceGenerator.reencode:" + localized.getKey() : null;
+    byte[] toReturn = cache.readByteArray(cacheKey);
+    if (toReturn != null) {
+      return toReturn;
+    }
 
-      if (imageBytes == null) {
-        return null;
-      }
+    int originalSize = getContentLength(resource);
+    // Re-encode the data
+    byte[] imageBytes = toPng(logger, rect);
+
+    // But only use it if we did a better job on compression
+    if (imageBytes.length < originalSize) {
+      logger.log(
+          TreeLogger.SPAM,
+          "Reencoded image and saved " + (originalSize - imageBytes.length) + " bytes");
+      toReturn = imageBytes;
+    } else {
+      toReturn = new byte[0];
+    }
+    cache.writeByteArray(cacheKey, toReturn);
+    return toReturn;
+  }
 
+  private static URL writeToTempFile(TreeLogger logger, byte[] imageBytes)
+      throws UnableToCompleteException {
+    try {
       File file = File.createTempFile(ImageResourceGenerator.class.getSimpleName(), ".png");
       file.deleteOnExit();
       Util.writeBytesToFile(logger, file, imageBytes);
@@ -460,6 +603,10 @@ public class ImageResourceGenerator extends AbstractResourceGenerator {
       return repeatStyle;
     }
 
+    public boolean isArranged() {
+      return get().startsWith("Arranged: ");
+    }
+
     public boolean isExternal() {
       return get().startsWith("External: ");
     }
@@ -467,7 +614,153 @@ public class ImageResourceGenerator extends AbstractResourceGenerator {
 
   /** This is client that can be client across permutations for a given ClientBundle . */
   static class CachedState {
+    public final Map<BundleKey, BundledImage> bundledImages = new LinkedHashMap<>();
     public final Map<BundleKey, ExternalImage> externalImages = new LinkedHashMap<>();
+    public final List<Future<PreparedImage>> preparedImages = new ArrayList<>();
+  }
+
+  /** An image that has been read, and re-encoded if it is not bundled. */
+  static class PreparedImage {
+    private final ImageResourceDeclaration image;
+    private final LocalizedImage localized;
+    private final ImageRect rect;
+    private final boolean bundled;
+
+    PreparedImage(
+        ImageResourceDeclaration image, LocalizedImage localized, ImageRect rect, boolean bundled) {
+      this.image = image;
+      this.localized = localized;
+      this.rect = rect;
+      this.bundled = bundled;
+    }
+  }
+
+  /**
+   * The encoded composite images of all ClientBundles, by the strong name of their {@link
+   * Atlas#getContentKey() content key}, so that bundles with the same images share them. Backed by
+   * the {@link BuildCache}, so that they are also shared with later builds.
+   */
+  static class AtlasCache {
+    private final Map<String, byte[]> pngs = new HashMap<>();
+
+    public byte[] get(Atlas atlas) {
+      String key = key(atlas);
+      byte[] png = pngs.get(key);
+      if (png == null) {
+        png = BuildCache.INSTANCE.readByteArray("ImageResourceGenerator.atlas:" + key);
+        if (png != null) {
+          pngs.put(key, png);
+        }
+      }
+      return png;
+    }
+
+    public void put(Atlas atlas, byte[] png) {
+      String key = key(atlas);
+      pngs.put(key, png);
+      BuildCache.INSTANCE.writeByteArray("ImageResourceGenerator.atlas:" + key, png);
+    }
+
+    private static String key(Atlas atlas) {
+      return Util.computeStrongName(Util.getBytes(atlas.getContentKey()));
+    }
+  }
+
+  /** Represents images that are packed into one or more composite images. */
+  static class BundledImage extends DisplayedImage {
+    private final AtlasCache atlasCache;
+    private final ImageBundleBuilder builder;
+    private final Map<ImageResourceDeclaration, ImageRect> rects = new LinkedHashMap<>();
+    private final Map<ImageRect, String> fieldNames = new IdentityHashMap<>();
+
+    public BundledImage(RepeatStyle repeatStyle, AtlasCache atlasCache) {
+      this.atlasCache = atlasCache;
+      this.builder = new ImageBundleBuilder(repeatStyle, ATLAS_MAX_SIZE);
+    }
+
+    /** Adds an image, which shares its place with any other image of the same content and size. */
+    public void addImage(ImageResourceDeclaration image, LocalizedImage localized, ImageRect rect) {
+      rects.put(image, builder.add(localized.getKey(), rect));
+    }
+
+    @Override
+    public Class<?> getResourceType() {
+      return ImageResourcePrototype.Bundle.class;
+    }
+
+    @Override
+    public ImageRect getImageRect(ImageResourceDeclaration image) {
+      return rects.get(image);
+    }
+
+    @Override
+    public String getNormalContentsFieldName(ImageResourceDeclaration image) {
+      return fieldNames.get(rects.get(image));
+    }
+
+    @Override
+    public void setRtlImage(LocalizedImage image) {
+      // Composite images are not mirrored
+    }
+
+    @Override
+    public void render(
+        TreeLogger logger,
+        ResourceContext context,
+        ClientBundleFields fields,
+        RepeatStyle repeatStyle)
+        throws UnableToCompleteException {
+      int index = 0;
+      for (Atlas atlas : builder.arrange()) {
+        byte[] png = atlasCache.get(atlas);
+        if (png == null) {
+          png = renderAtlas(logger, atlas);
+          atlasCache.put(atlas, png);
+        } else {
+          logger.log(TreeLogger.DEBUG, "Reusing composite image of another bundle");
+        }
+
+        String contentsExpression =
+            context.deploy(
+                context.getImplementationSimpleSourceName() + "_" + repeatStyle + index++ + ".png",
+                "image/png",
+                png,
+                false);
+        String fieldName = fields.define("String", "bundledImage", contentsExpression, true, true);
+        for (ImageRect rect : atlas.getRects()) {
+          fieldNames.put(rect, fieldName);
+        }
+      }
+    }
+
+    private static byte[] renderAtlas(TreeLogger logger, Atlas atlas)
+        throws UnableToCompleteException {
+      BufferedImage bundledImage =
+          new BufferedImage(atlas.getWidth(), atlas.getHeight(), BufferedImage.TYPE_INT_ARGB_PRE);
+      Graphics2D g2d = bundledImage.createGraphics();
+      setBetterRenderingQuality(g2d);
+
+      for (ImageRect rect : atlas.getRects()) {
+        // Repeated images are repeated across the whole composite image
+        int stepX = 0, stepY = 0;
+        if (atlas.getRepeatStyle() == RepeatStyle.Horizontal) {
+          stepX = rect.getWidth();
+        } else if (atlas.getRepeatStyle() == RepeatStyle.Vertical) {
+          stepY = rect.getHeight();
+        }
+        int x = 0, y = 0;
+        do {
+          AffineTransform tx = AffineTransform.getTranslateInstance(x, y);
+          tx.concatenate(rect.transform());
+          g2d.drawImage(rect.getImage(), tx, null);
+          x += stepX;
+          y += stepY;
+        } while ((stepX > 0 && x < atlas.getWidth()) || (stepY > 0 && y < atlas.getHeight()));
+      }
+      g2d.dispose();
+
+      return createImageBytes(logger, bundledImage);
+    }
   }
 
   /** Represents a file that contains exactly one image. */
@@ -589,7 +882,7 @@ public class ImageResourceGenerator extends AbstractResourceGenerator {
     public abstract ImageRect getImageRect(ImageResourceDeclaration image);
 
     /** Only valid after calling {@link #render}. */
-    public String getNormalContentsFieldName() {
+    public String getNormalContentsFieldName(ImageResourceDeclaration image) {
       return normalContentsFieldName;
     }
 
@@ -597,7 +890,7 @@ public class ImageResourceGenerator extends AbstractResourceGenerator {
      * Only valid after calling {@link #render}, may be <code>null</code> if there is no RTL version
      * of the image.
      */
-    public String getRtlContentsFieldName() {
+    public String getRtlContentsFieldName(ImageResourceDeclaration image) {
       return rtlContentsFieldName;
     }
 
@@ -702,7 +995,7 @@ public class ImageResourceGenerator extends AbstractResourceGenerator {
       // Scale
       assert height > 0 == width > 0;
       if (height > 0) {
-        toReturn.scale((double) height / intrinsicHeight, (double) width / intrinsicWidth);
+        toReturn.scale((double) width / intrinsicWidth, (double) height / intrinsicHeight);
       }
 
       // Use the base concatenation
@@ -774,6 +1067,7 @@ public class ImageResourceGenerator extends AbstractResourceGenerator {
   static class LocalizedImage {
     private final ImageResourceDeclaration image;
     private final URL url;
+    private String key;
 
     public LocalizedImage(LocalizedImage other, URL alternateUrl) {
       this(other.image, alternateUrl);
@@ -812,6 +1106,14 @@ public class ImageResourceGenerator extends AbstractResourceGenerator {
       return toReturn;
     }
 
+    /** Identifies the contents of the image and the size it is displayed at. */
+    public String getKey() {
+      if (key == null) {
+        key = key(image, url);
+      }
+      return key;
+    }
+
     public URL getUrl() {
       return url;
     }
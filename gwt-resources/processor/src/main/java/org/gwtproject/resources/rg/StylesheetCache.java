@@ -0,0 +1,117 @@
+/*
+ * Copyright © 2019 The GWT Project Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.gwtproject.resources.rg;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.net.URL;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.WeakHashMap;
+import java.util.concurrent.ConcurrentHashMap;
+import javax.annotation.processing.ProcessingEnvironment;
+import org.gwtproject.resources.ext.ResourceContext;
+import org.gwtproject.resources.ext.TreeLogger;
+import org.gwtproject.resources.ext.UnableToCompleteException;
+import org.gwtproject.resources.rg.util.Util;
+
+/**
+ * The parsed stylesheets of a compilation, so that stylesheets shared by many CssResource methods
+ * and ClientBundles, such as theme files of constants and mixins, are parsed once. Entries are
+ * keyed by the contents of all the sources of a method, because constants are resolved across them,
+ * and by the options that affect parsing. Callers must copy an entry before they change it.
+ *
+ * <p>Instances are thread-safe.
+ */
+final class StylesheetCache {
+
+  /** Keyed by the processing environment, which lives as long as the compilation. */
+  private static final Map<ProcessingEnvironment, StylesheetCache> CACHES = new WeakHashMap<>();
+
+  private final Map<String, Object> entries = new ConcurrentHashMap<>();
+
+  /*
+   * TODO(dankurka): This is a nasty hack to get the compiler to output all @def's
+   * it has seen in a compile. Once GSS migration is done this needs to be removed.
+   */
+  private final File atDefFile;
+  private final Set<String> writtenAtDefs = new HashSet<>();
+  private boolean atDefFileCreated;
+
+  private StylesheetCache() {
+    String varFileName = System.getProperty("emitGssVarNameFile");
+    atDefFile = varFileName == null ? null : new File(varFileName);
+  }
+
+  /** Returns the cache of the compilation that the context belongs to. */
+  static StylesheetCache get(ResourceContext context) {
+    ProcessingEnvironment processingEnv =
+        context.getGeneratorContext().getAptContext().processingEnv;
+    synchronized (CACHES) {
+      return CACHES.computeIfAbsent(processingEnv, k -> new StylesheetCache());
+    }
+  }
+
+  /** Returns a key identifying the names and the contents of stylesheets. */
+  static String key(List<URL> stylesheets) {
+    StringBuilder sb = new StringBuilder();
+    for (URL stylesheet : stylesheets) {
+      sb.append(stylesheet.toExternalForm())
+          .append('=')
+          .append(Util.computeStrongName(Util.readURLAsBytes(stylesheet)))
+          .append(';');
+    }
+    return sb.toString();
+  }
+
+  /** Returns the entry stored under a key, which must not be changed, or <code>null</code>. */
+  <T> T get(String key, Class<T> type) {
+    return type.cast(entries.get(key));
+  }
+
+  void put(String key, Object value) {
+    entries.putIfAbsent(key, value);
+  }
+
+  boolean isEmittingAtDefs() {
+    return atDefFile != null;
+  }
+
+  /** Appends the @defs that were not written before to the <code>emitGssVarNameFile</code>. */
+  synchronized void writeAtDefs(TreeLogger logger, Set<String> atDefs)
+      throws UnableToCompleteException {
+    // Start with an empty file in each compilation
+    try (PrintWriter printWriter =
+        new PrintWriter(new FileOutputStream(atDefFile, atDefFileCreated))) {
+      atDefFileCreated = true;
+      for (String atDef : atDefs) {
+        if (writtenAtDefs.add(atDef)) {
+          printWriter.println("@def " + atDef + " 1px;");
+        }
+      }
+      if (printWriter.checkError()) {
+        throw new IOException("Write error");
+      }
+    } catch (IOException e) {
+      logger.log(TreeLogger.ERROR, "Unable to write to " + atDefFile, e);
+      throw new UnableToCompleteException();
+    }
+  }
+}
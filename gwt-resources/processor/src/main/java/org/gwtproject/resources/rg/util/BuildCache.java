@@ -0,0 +1,202 @@
+/*
+ * Copyright © 2019 The GWT Project Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.gwtproject.resources.rg.util;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.CodeSource;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A content-addressed store of generated resources that outlives the build, so that resource
+ * generators do not redo work whose inputs have not changed since the last build. Entries are files
+ * named by the strong name of their key, and callers build keys from the strong names of the input
+ * bytes and every option that affects the result.
+ *
+ * <p>The cache is disabled unless the <code>gwt.resources.cacheDir</code> system property names a
+ * directory. Entries are written to a temporary file and then moved into place, so concurrent
+ * threads and builds sharing the directory never read a partial entry. Nothing is ever evicted;
+ * delete the directory to reclaim space.
+ *
+ * <p>Only results that depend on nothing but their input bytes and options belong here: re-encoded
+ * images, image atlases and CSS to GSS conversions. Compiled stylesheets are not cached, since
+ * their obfuscated class names depend on the other bundles of the build.
+ *
+ * <p>Entries hold plain bytes or strings, never serialized objects, so that a directory shared with
+ * other users cannot be used to run code in the build. The cache is a pure optimization, so I/O
+ * errors and damaged entries are treated as misses.
+ */
+public class BuildCache {
+
+  /** The cache of the current process. */
+  public static final BuildCache INSTANCE = create(System.getProperty("gwt.resources.cacheDir"));
+
+  /** Changes whenever the processor does, so that a new version never reads stale results. */
+  private static final String VERSION = computeVersion();
+
+  private final File dir;
+
+  BuildCache(File dir) {
+    this.dir = dir;
+  }
+
+  private static BuildCache create(String path) {
+    if (path == null || path.isEmpty()) {
+      return new BuildCache(null);
+    }
+    File dir = new File(path);
+    dir.mkdirs();
+    return new BuildCache(dir.isDirectory() ? dir : null);
+  }
+
+  private static String computeVersion() {
+    CodeSource source = BuildCache.class.getProtectionDomain().getCodeSource();
+    if (source == null || source.getLocation() == null) {
+      return "";
+    }
+    File location = new File(source.getLocation().getPath());
+    return location.getPath() + ":" + location.length() + ":" + location.lastModified();
+  }
+
+  public boolean isEnabled() {
+    return dir != null;
+  }
+
+  /**
+   * Retrieve the bytes stored under a key.
+   *
+   * @param key identifies the inputs the bytes were generated from
+   * @return the bytes, or <code>null</code> if there are none
+   */
+  public byte[] readByteArray(String key) {
+    if (dir == null) {
+      return null;
+    }
+    File file = getFile(key);
+    if (!file.isFile()) {
+      return null;
+    }
+    try {
+      return Files.readAllBytes(file.toPath());
+    } catch (IOException e) {
+      return null;
+    }
+  }
+
+  /**
+   * Retrieve the strings stored under a key by {@link #writeStrings}.
+   *
+   * @param key identifies the inputs the strings were generated from
+   * @return the strings, or <code>null</code> if there are none
+   */
+  public List<String> readStrings(String key) {
+    byte[] bytes = readByteArray(key);
+    if (bytes == null) {
+      return null;
+    }
+    try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(bytes))) {
+      int count = in.readInt();
+      if (count < 0 || count > bytes.length / 4) {
+        return null;
+      }
+      List<String> strings = new ArrayList<>(count);
+      for (int i = 0; i < count; i++) {
+        int length = in.readInt();
+        if (length == -1) {
+          strings.add(null);
+          continue;
+        }
+        if (length < 0 || length > in.available()) {
+          return null;
+        }
+        byte[] utf8 = new byte[length];
+        in.readFully(utf8);
+        strings.add(new String(utf8, StandardCharsets.UTF_8));
+      }
+      return in.available() == 0 ? strings : null;
+    } catch (IOException e) {
+      return null;
+    }
+  }
+
+  /** Store bytes under a key, replacing any previous ones. */
+  public void writeByteArray(String key, byte[] bytes) {
+    if (dir == null) {
+      return;
+    }
+    File file = getFile(key);
+    try {
+      File parent = file.getParentFile();
+      parent.mkdirs();
+      Path temp = Files.createTempFile(parent.toPath(), file.getName(), ".tmp");
+      try {
+        Files.write(temp, bytes);
+        try {
+          Files.move(temp, file.toPath(), StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException e) {
+          Files.move(temp, file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        }
+      } finally {
+        Files.deleteIfExists(temp);
+      }
+    } catch (IOException e) {
+      // Another build may have stored the same entry, otherwise it is recomputed next time
+    }
+  }
+
+  /**
+   * Store strings under a key, replacing any previous ones. The strings may contain <code>null
+   * </code>.
+   */
+  public void writeStrings(String key, List<String> strings) {
+    if (dir == null) {
+      return;
+    }
+    try {
+      ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+      DataOutputStream out = new DataOutputStream(bytes);
+      out.writeInt(strings.size());
+      for (String string : strings) {
+        if (string == null) {
+          out.writeInt(-1);
+          continue;
+        }
+        byte[] utf8 = string.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(utf8.length);
+        out.write(utf8);
+      }
+      out.flush();
+      writeByteArray(key, bytes.toByteArray());
+    } catch (IOException e) {
+      throw new RuntimeException("Unexpected IOException on in-memory stream", e);
+    }
+  }
+
+  private File getFile(String key) {
+    String name = Util.computeStrongName(Util.getBytes(VERSION + "\n" + key));
+    return new File(new File(dir, name.substring(0, 2)), name);
+  }
+}
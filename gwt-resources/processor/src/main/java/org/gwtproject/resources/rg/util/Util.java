@@ -89,12 +89,7 @@ public final class Util {
    *     file name
    */
   public static String computeStrongName(byte[][] contents) {
-    MessageDigest md5;
-    try {
-      md5 = MessageDigest.getInstance("MD5");
-    } catch (NoSuchAlgorithmException e) {
-      throw new RuntimeException("Error initializing MD5", e);
-    }
+    MessageDigest md5 = createMd5();
 
     /*
      * Include the lengths of the contents components in the hash, so that the
@@ -113,9 +108,42 @@ public final class Util {
     for (int i = 0; i < contents.length; i++) {
       md5.update(contents[i]);
     }
+    return computeStrongName(md5);
+  }
+
+  /**
+   * Creates a digest of content of the given length, which computes the same strong name as {@link
+   * #computeStrongName(byte[])} once the content has been added to it, so that content can be
+   * hashed while it is streamed.
+   */
+  public static MessageDigest createStrongNameDigest(int length) {
+    MessageDigest md5 = createMd5();
+    ByteBuffer b = ByteBuffer.allocate(8);
+    b.putInt(1);
+    b.putInt(length);
+    b.flip();
+    md5.update(b);
+    return md5;
+  }
+
+  /**
+   * Completes a digest created by {@link #createStrongNameDigest(int)}.
+   *
+   * @return a big fat string encoding of the MD5 for the content, suitably formatted for use as a
+   *     file name
+   */
+  public static String computeStrongName(MessageDigest md5) {
     return printHexBinary(md5.digest()).toUpperCase();
   }
 
+  private static MessageDigest createMd5() {
+    try {
+      return MessageDigest.getInstance("MD5");
+    } catch (NoSuchAlgorithmException e) {
+      throw new RuntimeException("Error initializing MD5", e);
+    }
+  }
+
   public static String printHexBinary(byte[] data) {
     StringBuilder r = new StringBuilder(data.length * 2);
     byte[] var3 = data;
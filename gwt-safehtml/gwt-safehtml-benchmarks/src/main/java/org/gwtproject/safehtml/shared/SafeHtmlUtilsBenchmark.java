@@ -0,0 +1,147 @@
+/*
+ * Copyright © 2019 The GWT Project Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.gwtproject.safehtml.shared;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Compares the HTML escaping of {@link SafeHtmlUtils} on the JVM with the regular expression based
+ * implementation it replaced, kept in {@link RegexEscaper}.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class SafeHtmlUtilsBenchmark {
+
+  /** A table cell value: no markup, a few meta-characters, or mostly markup. */
+  @Param({"plain", "sparse", "markup"})
+  public String text;
+
+  private String input;
+
+  @Setup
+  public void setUp() {
+    StringBuilder sb = new StringBuilder();
+    for (int i = 0; i < 8; i++) {
+      switch (text) {
+        case "plain":
+          sb.append("Quarterly report for region ").append(i).append(' ');
+          break;
+        case "sparse":
+          sb.append("Smith & Sons ").append(i).append(" said \"on time\" ");
+          break;
+        default:
+          sb.append("<b class='x'>").append(i).append("</b> &amp; <i>&lt;</i> ");
+      }
+    }
+    input = sb.toString();
+  }
+
+  @Benchmark
+  public String htmlEscape() {
+    return SafeHtmlUtils.htmlEscape(input);
+  }
+
+  @Benchmark
+  public String htmlEscapeRegex() {
+    return RegexEscaper.htmlEscape(input);
+  }
+
+  @Benchmark
+  public String htmlEscapeAllowEntities() {
+    return SafeHtmlUtils.htmlEscapeAllowEntities(input);
+  }
+
+  @Benchmark
+  public String htmlEscapeAllowEntitiesRegex() {
+    return RegexEscaper.htmlEscapeAllowEntities(input);
+  }
+
+  @Benchmark
+  public String appendEscaped() {
+    return new SafeHtmlBuilder().appendEscaped(input).appendEscaped(input).toSafeHtml().asString();
+  }
+
+  @Benchmark
+  public String sanitizeHtml() {
+    return SimpleHtmlSanitizer.sanitizeHtml(input).asString();
+  }
+
+  /** The JVM implementation of the escaping methods before the single-pass escaper. */
+  static class RegexEscaper {
+
+    private static final String HTML_ENTITY_REGEX = "[a-z]+|#[0-9]+|#x[0-9a-fA-F]+";
+
+    static String htmlEscape(String s) {
+      if (!s.matches("[\\s\\S]*" + SafeHtmlUtils.HTML_CHARS + "[\\s\\S]*")) {
+        return s;
+      }
+      if (s.indexOf("&") != -1) {
+        s = s.replaceAll("&", "&amp;");
+      }
+      if (s.indexOf("<") != -1) {
+        s = s.replaceAll("<", "&lt;");
+      }
+      if (s.indexOf(">") != -1) {
+        s = s.replaceAll(">", "&gt;");
+      }
+      if (s.indexOf("\"") != -1) {
+        s = s.replaceAll("\"", "&quot;");
+      }
+      if (s.indexOf("'") != -1) {
+        s = s.replaceAll("'", "&#39;");
+      }
+      return s;
+    }
+
+    static String htmlEscapeAllowEntities(String text) {
+      StringBuilder escaped = new StringBuilder();
+
+      boolean firstSegment = true;
+      for (String segment : text.split("&", -1)) {
+        if (firstSegment) {
+          firstSegment = false;
+          escaped.append(htmlEscape(segment));
+          continue;
+        }
+
+        int entityEnd = segment.indexOf(';');
+        if (entityEnd > 0 && segment.substring(0, entityEnd).matches(HTML_ENTITY_REGEX)) {
+          escaped.append("&").append(segment.substring(0, entityEnd + 1));
+          escaped.append(htmlEscape(segment.substring(entityEnd + 1)));
+        } else {
+          escaped.append("&amp;").append(htmlEscape(segment));
+        }
+      }
+
+      return escaped.toString();
+    }
+  }
+}
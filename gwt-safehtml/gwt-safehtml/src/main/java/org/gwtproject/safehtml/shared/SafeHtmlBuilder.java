@@ -142,7 +142,7 @@ public final class SafeHtmlBuilder {
    * @see SafeHtmlUtils#htmlEscape(String)
    */
   public SafeHtmlBuilder appendEscaped(String text) {
-    sb.append(SafeHtmlUtils.htmlEscape(text));
+    SafeHtmlUtils.htmlEscape(text, sb);
     return this;
   }
 
@@ -108,6 +108,20 @@ public final class SafeHtmlUtils {
     return impl.htmlEscape(s);
   }
 
+  /**
+   * HTML-escapes a string and appends the result to the given {@link StringBuilder}.
+   *
+   * <p>On the JVM the input is scanned once and appended without any intermediate copies; if no
+   * HTML meta-characters are found, the string is appended as-is.
+   *
+   * @param s the string to be escaped
+   * @param sb the builder the escaped string is appended to
+   * @see #htmlEscape(String)
+   */
+  public static void htmlEscape(String s, StringBuilder sb) {
+    impl.htmlEscape(s, 0, s.length(), sb);
+  }
+
   /**
    * Returns a {@link SafeHtml} constructed from a trusted string, i.e., without escaping the
    * string. No checks are performed. The calling code should be carefully reviewed to ensure the
@@ -162,37 +176,91 @@ public final class SafeHtmlUtils {
   @IsSafeHtml
   @SuppressIsSafeHtmlCastCheck
   public static String htmlEscapeAllowEntities(String text) {
-    StringBuilder escaped = new StringBuilder();
+    StringBuilder escaped = new StringBuilder(text.length() + 16);
+    htmlEscapeAllowEntities(text, 0, text.length(), escaped);
+    return escaped.toString();
+  }
 
-    boolean firstSegment = true;
-    for (String segment : text.split("&", -1)) {
-      if (firstSegment) {
-        /*
-         * The first segment is never part of an entity reference, so we always
-         * escape it.
-         * Note that if the input starts with an ampersand, we will get an empty
-         * segment before that.
-         */
-        firstSegment = false;
-        escaped.append(htmlEscape(segment));
-        continue;
+  /**
+   * HTML-escapes the {@code [start, end)} range of a string into the given builder, but does not
+   * double-escape HTML-entities already present in that range.
+   *
+   * @param text the string to be escaped
+   * @param start the index of the first character to escape
+   * @param end the index after the last character to escape
+   * @param sb the builder the escaped characters are appended to
+   */
+  static void htmlEscapeAllowEntities(String text, int start, int end, StringBuilder sb) {
+    int segmentStart = start;
+    int amp;
+    while ((amp = indexOf(text, '&', segmentStart, end)) != -1) {
+      impl.htmlEscape(text, segmentStart, amp, sb);
+
+      int entityEnd = findEntityEnd(text, amp + 1, end);
+      if (entityEnd != -1) {
+        // Append the entity, including the trailing semicolon, without escaping.
+        sb.append(text, amp, entityEnd + 1);
+        segmentStart = entityEnd + 1;
+      } else {
+        // The ampersand did not start an entity reference, so escape it.
+        sb.append("&amp;");
+        segmentStart = amp + 1;
       }
+    }
+    impl.htmlEscape(text, segmentStart, end, sb);
+  }
 
-      int entityEnd = segment.indexOf(';');
-      if (entityEnd > 0 && segment.substring(0, entityEnd).matches(HTML_ENTITY_REGEX)) {
-        // Append the entity without escaping.
-        escaped.append("&").append(segment.substring(0, entityEnd + 1));
+  /**
+   * Returns the index of the first occurrence of {@code c} in the {@code [from, end)} range of a
+   * string, or -1 if there is none. Unlike {@link String#indexOf(int, int)}, this does not look
+   * past {@code end}, so that scanning consecutive ranges stays linear.
+   */
+  static int indexOf(String text, char c, int from, int end) {
+    for (int i = from; i < end; i++) {
+      if (text.charAt(i) == c) {
+        return i;
+      }
+    }
+    return -1;
+  }
 
-        // Append the rest of the segment, escaped.
-        escaped.append(htmlEscape(segment.substring(entityEnd + 1)));
-      } else {
-        // The segment did not start with an entity reference, so escape the
-        // whole segment.
-        escaped.append("&amp;").append(htmlEscape(segment));
+  /**
+   * Returns the index of the semicolon terminating an HTML entity reference that starts at {@code
+   * start} (i.e. right after an ampersand), or -1 if there is none. Accepted are named references
+   * ({@code [a-z]+}), decimal ({@code #[0-9]+}) and hexadecimal ({@code #x[0-9a-fA-F]+}) numeric
+   * references.
+   */
+  private static int findEntityEnd(String text, int start, int end) {
+    int i = start;
+    if (i < end && text.charAt(i) == '#') {
+      i++;
+      boolean hex = i < end && text.charAt(i) == 'x';
+      if (hex) {
+        i++;
+      }
+      int digitsStart = i;
+      while (i < end && isEntityDigit(text.charAt(i), hex)) {
+        i++;
+      }
+      if (i == digitsStart) {
+        return -1;
+      }
+    } else {
+      while (i < end && text.charAt(i) >= 'a' && text.charAt(i) <= 'z') {
+        i++;
+      }
+      if (i == start) {
+        return -1;
       }
     }
+    return i < end && text.charAt(i) == ';' ? i : -1;
+  }
 
-    return escaped.toString();
+  private static boolean isEntityDigit(char c, boolean hex) {
+    if (c >= '0' && c <= '9') {
+      return true;
+    }
+    return hex && ((c >= 'a' && c <= 'f') || (c >= 'A' && c <= 'F'));
   }
 
   static class JsImpl {
@@ -225,32 +293,72 @@ public final class SafeHtmlUtils {
       }
       return s;
     }
+
+    void htmlEscape(String s, int start, int end, StringBuilder sb) {
+      if (start == end) {
+        return;
+      }
+      sb.append(htmlEscape(start == 0 && end == s.length() ? s : s.substring(start, end)));
+    }
   }
 
   static class JvmImpl extends JsImpl {
 
+    /** Replacement strings indexed by character; {@code null} for characters left as-is. */
+    @GwtIncompatible private static final String[] ESCAPES = createEscapes();
+
+    @GwtIncompatible
+    private static String[] createEscapes() {
+      String[] escapes = new String['>' + 1];
+      escapes['"'] = "&quot;";
+      escapes['&'] = "&amp;";
+      escapes['\''] = "&#39;";
+      escapes['<'] = "&lt;";
+      escapes['>'] = "&gt;";
+      return escapes;
+    }
+
     @GwtIncompatible
     @Override
     String htmlEscape(String s) {
-      if (!s.matches("[\\s\\S]*" + HTML_CHARS + "[\\s\\S]*")) {
+      int first = indexOfHtmlChar(s, 0, s.length());
+      if (first == -1) {
         return s;
       }
-      if (s.indexOf("&") != -1) {
-        s = s.replaceAll("&", "&amp;");
-      }
-      if (s.indexOf("<") != -1) {
-        s = s.replaceAll("<", "&lt;");
-      }
-      if (s.indexOf(">") != -1) {
-        s = s.replaceAll(">", "&gt;");
-      }
-      if (s.indexOf("\"") != -1) {
-        s = s.replaceAll("\"", "&quot;");
+      StringBuilder sb = new StringBuilder(s.length() + 16);
+      sb.append(s, 0, first);
+      appendEscaped(s, first, s.length(), sb);
+      return sb.toString();
+    }
+
+    @GwtIncompatible
+    @Override
+    void htmlEscape(String s, int start, int end, StringBuilder sb) {
+      appendEscaped(s, start, end, sb);
+    }
+
+    @GwtIncompatible
+    private static int indexOfHtmlChar(String s, int start, int end) {
+      for (int i = start; i < end; i++) {
+        char c = s.charAt(i);
+        if (c < ESCAPES.length && ESCAPES[c] != null) {
+          return i;
+        }
       }
-      if (s.indexOf("'") != -1) {
-        s = s.replaceAll("'", "&#39;");
+      return -1;
+    }
+
+    @GwtIncompatible
+    private static void appendEscaped(String s, int start, int end, StringBuilder sb) {
+      int unescaped = start;
+      for (int i = start; i < end; i++) {
+        char c = s.charAt(i);
+        if (c < ESCAPES.length && ESCAPES[c] != null) {
+          sb.append(s, unescaped, i).append(ESCAPES[c]);
+          unescaped = i + 1;
+        }
       }
-      return s;
+      sb.append(s, unescaped, end);
     }
   }
 }
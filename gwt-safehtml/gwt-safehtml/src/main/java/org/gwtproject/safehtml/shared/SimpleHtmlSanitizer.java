@@ -91,47 +91,46 @@ public final class SimpleHtmlSanitizer implements HtmlSanitizer {
 
   /*
    * Sanitize a string containing simple HTML markup as defined above. The
-   * approach is as follows: We split the string at each occurence of '<'. Each
+   * approach is as follows: We scan the string for each occurence of '<'. Each
    * segment thus obtained is inspected to determine if the leading '<' was
    * indeed the start of a whitelisted tag or not. If so, the tag is emitted
    * unescaped, and the remainder of the segment (which cannot contain any
    * additional tags) is emitted in escaped form. Otherwise, the entire segment
    * is emitted in escaped form.
    *
-   * In either case, EscapeUtils.htmlEscapeAllowEntities is used to escape,
+   * In either case, SafeHtmlUtils.htmlEscapeAllowEntities is used to escape,
    * which escapes HTML but does not double escape existing syntactially valid
-   * HTML entities.
+   * HTML entities. Segments are escaped in place, straight into the result.
    */
   // TODO(xtof): should this be in a utils class?
   private static String simpleSanitize(String text) {
-    StringBuilder sanitized = new StringBuilder();
-
-    boolean firstSegment = true;
-    for (String segment : text.split("<", -1)) {
-      if (firstSegment) {
-        /*
-         *  the first segment is never part of a valid tag; note that if the
-         *  input string starts with a tag, we will get an empty segment at the
-         *  beginning.
-         */
-        firstSegment = false;
-        sanitized.append(SafeHtmlUtils.htmlEscapeAllowEntities(segment));
-        continue;
-      }
+    StringBuilder sanitized = new StringBuilder(text.length() + 16);
+
+    /*
+     *  the first segment is never part of a valid tag; note that if the
+     *  input string starts with a tag, the first segment is empty.
+     */
+    int segmentEnd = nextSegmentEnd(text, 0);
+    SafeHtmlUtils.htmlEscapeAllowEntities(text, 0, segmentEnd, sanitized);
+
+    while (segmentEnd < text.length()) {
+      // skip the '<' that starts this segment
+      int segmentStart = segmentEnd + 1;
+      segmentEnd = nextSegmentEnd(text, segmentStart);
 
       /*
        *  determine if the current segment is the start of an attribute-free tag
        *  or end-tag in our whitelist
        */
-      int tagStart = 0; // will be 1 if this turns out to be an end tag.
-      int tagEnd = segment.indexOf('>');
+      int tagStart = segmentStart; // will be one more if this turns out to be an end tag.
+      int tagEnd = SafeHtmlUtils.indexOf(text, '>', segmentStart, segmentEnd);
       String tag = null;
       boolean isValidTag = false;
-      if (tagEnd > 0) {
-        if (segment.charAt(0) == '/') {
-          tagStart = 1;
+      if (tagEnd > segmentStart) {
+        if (text.charAt(segmentStart) == '/') {
+          tagStart++;
         }
-        tag = segment.substring(tagStart, tagEnd);
+        tag = text.substring(tagStart, tagEnd);
         if (TAG_WHITELIST.contains(tag)) {
           isValidTag = true;
         }
@@ -139,7 +138,7 @@ public final class SimpleHtmlSanitizer implements HtmlSanitizer {
 
       if (isValidTag) {
         // append the tag, not escaping it
-        if (tagStart == 0) {
+        if (tagStart == segmentStart) {
           sanitized.append('<');
         } else {
           // we had seen an end-tag
@@ -148,12 +147,19 @@ public final class SimpleHtmlSanitizer implements HtmlSanitizer {
         sanitized.append(tag).append('>');
 
         // append the rest of the segment, escaping it
-        sanitized.append(SafeHtmlUtils.htmlEscapeAllowEntities(segment.substring(tagEnd + 1)));
+        SafeHtmlUtils.htmlEscapeAllowEntities(text, tagEnd + 1, segmentEnd, sanitized);
       } else {
         // just escape the whole segment
-        sanitized.append("&lt;").append(SafeHtmlUtils.htmlEscapeAllowEntities(segment));
+        sanitized.append("&lt;");
+        SafeHtmlUtils.htmlEscapeAllowEntities(text, segmentStart, segmentEnd, sanitized);
       }
     }
     return sanitized.toString();
   }
+
+  /** Returns the index of the next '<' at or after {@code from}, or the length of the text. */
+  private static int nextSegmentEnd(String text, int from) {
+    int end = text.indexOf('<', from);
+    return end == -1 ? text.length() : end;
+  }
 }
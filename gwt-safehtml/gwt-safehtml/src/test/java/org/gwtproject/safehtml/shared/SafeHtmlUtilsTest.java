@@ -50,6 +50,19 @@ public class SafeHtmlUtilsTest extends TestCase {
     assertEquals("f&quot;bar &#39;&lt;&amp;em&gt;&lt;e/m&gt;oo&amp;bar", escaped);
   }
 
+  public void testEscape_appendToBuilder() {
+    StringBuilder sb = new StringBuilder("x");
+    SafeHtmlUtils.htmlEscape("foobar", sb);
+    SafeHtmlUtils.htmlEscape("", sb);
+    SafeHtmlUtils.htmlEscape("f\"bar \'<&em><e/m>oo&bar", sb);
+    assertEquals("xfoobarf&quot;bar &#39;&lt;&amp;em&gt;&lt;e/m&gt;oo&amp;bar", sb.toString());
+  }
+
+  public void testEscape_noEscapeReturnsSameInstance() {
+    String s = "foo bar baz";
+    assertSame(s, SafeHtmlUtils.htmlEscape(s));
+  }
+
   public void testEscape_withEntities1() {
     String escaped = SafeHtmlUtils.htmlEscapeAllowEntities("f\"bar \'<&em><e/m>oo&bar");
     assertEquals("f&quot;bar &#39;&lt;&amp;em&gt;&lt;e/m&gt;oo&amp;bar", escaped);
@@ -75,6 +88,11 @@ public class SafeHtmlUtilsTest extends TestCase {
     assertEquals("&amp;a mp;&amp;;&x;&amp;#;&amp;#x;", escaped);
   }
 
+  public void testEscape_withEntitiesNumeric() {
+    String escaped = SafeHtmlUtils.htmlEscapeAllowEntities("&#x1F;&#xz;&#12;&#1a;&Amp;&amp<");
+    assertEquals("&#x1F;&amp;#xz;&#12;&amp;#1a;&amp;Amp;&amp;amp&lt;", escaped);
+  }
+
   public void testFromSafeConstant() {
     SafeHtml h = SafeHtmlUtils.fromSafeConstant(CONSTANT_HTML);
     assertEquals(CONSTANT_HTML, h.asString());
@@ -97,4 +97,19 @@ public class SimpleHtmlSanitizerTest extends TestCase {
     SafeHtml html = SimpleHtmlSanitizer.sanitizeHtml("<script>evil()</script>");
     assertEquals("&lt;script&gt;evil()&lt;/script&gt;", html.asString());
   }
+
+  public void testManyLoneLessThanSigns() {
+    // each segment must be scanned on its own, or this takes quadratic time
+    int count = 200000;
+    StringBuilder text = new StringBuilder();
+    StringBuilder expected = new StringBuilder();
+    for (int i = 0; i < count; i++) {
+      text.append('<');
+      expected.append("&lt;");
+    }
+    text.append("b&");
+    expected.append("b&amp;");
+    SafeHtml html = SimpleHtmlSanitizer.sanitizeHtml(text.toString());
+    assertEquals(expected.toString(), html.asString());
+  }
 }
@@ -0,0 +1,125 @@
+/*
+ * Copyright © 2019 The GWT Project Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.gwtproject.typedarrays.shared;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures the JVM implementation of {@link TypedArrays}: element and {@link DataView} accesses,
+ * and the bulk copies of geometry and binary protocol code. Each operation covers {@link #LENGTH}
+ * elements.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class TypedArraysBenchmark {
+
+  private static final int LENGTH = 1024;
+
+  private float[] values;
+  private Float32Array floats;
+  private Float32Array copy;
+  private DataView view;
+
+  @Setup
+  public void setUp() {
+    values = new float[LENGTH];
+    for (int i = 0; i < LENGTH; i++) {
+      values[i] = i * 0.5f;
+    }
+    floats = TypedArrays.createFloat32Array(LENGTH);
+    floats.set(values);
+    copy = TypedArrays.createFloat32Array(LENGTH);
+    view = TypedArrays.createDataView(TypedArrays.createArrayBuffer(LENGTH * 4));
+  }
+
+  @Benchmark
+  public float elementGet() {
+    float sum = 0;
+    for (int i = 0; i < LENGTH; i++) {
+      sum += floats.get(i);
+    }
+    return sum;
+  }
+
+  @Benchmark
+  public Float32Array elementSet() {
+    for (int i = 0; i < LENGTH; i++) {
+      copy.set(i, values[i]);
+    }
+    return copy;
+  }
+
+  /** Big-endian accesses, which the JVM buffer does not use natively. */
+  @Benchmark
+  public int dataViewBigEndian() {
+    int sum = 0;
+    for (int i = 0; i < LENGTH; i++) {
+      view.setInt32(i * 4, i);
+      sum += view.getInt32(i * 4);
+    }
+    return sum;
+  }
+
+  @Benchmark
+  public int dataViewLittleEndian() {
+    int sum = 0;
+    for (int i = 0; i < LENGTH; i++) {
+      view.setInt32(i * 4, i, true);
+      sum += view.getInt32(i * 4, true);
+    }
+    return sum;
+  }
+
+  @Benchmark
+  public Float32Array setArray() {
+    copy.set(values);
+    return copy;
+  }
+
+  @Benchmark
+  public Float32Array setTypedArray() {
+    copy.set(floats);
+    return copy;
+  }
+
+  @Benchmark
+  public Float32Array subarraySet() {
+    copy.subarray(LENGTH / 2).set(floats.subarray(0, LENGTH / 2));
+    return copy;
+  }
+
+  /** Four threads reading the same array, which contended on the buffer's lock. */
+  @Benchmark
+  @Threads(4)
+  public float sharedElementGet() {
+    return elementGet();
+  }
+}
@@ -17,6 +17,8 @@ package org.gwtproject.typedarrays;
 
 import junit.framework.Test;
 import junit.framework.TestSuite;
+import org.gwtproject.typedarrays.server.ArrayBufferImplTest;
+import org.gwtproject.typedarrays.shared.DataViewStreamTest;
 import org.gwtproject.typedarrays.shared.DataViewTest;
 import org.gwtproject.typedarrays.shared.Float32ArrayTest;
 import org.gwtproject.typedarrays.shared.Float64ArrayTest;
@@ -34,7 +36,9 @@ public class TypedArraysJreSuite {
     TestSuite suite = new TestSuite("TypedArray tests for shared code");
 
     // $JUnit-BEGIN$
+    suite.addTestSuite(ArrayBufferImplTest.class);
     suite.addTestSuite(DataViewTest.class);
+    suite.addTestSuite(DataViewStreamTest.class);
     suite.addTestSuite(Float32ArrayTest.class);
     suite.addTestSuite(Float64ArrayTest.class);
     suite.addTestSuite(Int16ArrayTest.class);
@@ -18,6 +18,7 @@ package org.gwtproject.typedarrays;
 import com.google.gwt.junit.tools.GWTTestSuite;
 import junit.framework.Test;
 import org.gwtproject.typedarrays.client.ClientSupportTest;
+import org.gwtproject.typedarrays.client.GwtDataViewStreamTest;
 import org.gwtproject.typedarrays.client.GwtDataViewTest;
 import org.gwtproject.typedarrays.client.GwtFloat32ArrayTest;
 import org.gwtproject.typedarrays.client.GwtFloat64ArrayTest;
@@ -38,6 +39,7 @@ public class TypedArraysSuite {
     // $JUnit-BEGIN$
     suite.addTestSuite(ClientSupportTest.class);
     suite.addTestSuite(GwtDataViewTest.class);
+    suite.addTestSuite(GwtDataViewStreamTest.class);
     suite.addTestSuite(GwtFloat32ArrayTest.class);
     suite.addTestSuite(GwtFloat64ArrayTest.class);
     suite.addTestSuite(GwtInt16ArrayTest.class);
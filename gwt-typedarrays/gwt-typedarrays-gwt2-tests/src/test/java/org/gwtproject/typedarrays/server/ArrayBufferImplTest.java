@@ -0,0 +1,90 @@
+/*
+ * Copyright 2013 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.gwtproject.typedarrays.server;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.ReadOnlyBufferException;
+import java.nio.channels.FileChannel;
+import junit.framework.TestCase;
+import org.gwtproject.typedarrays.shared.ArrayBuffer;
+import org.gwtproject.typedarrays.shared.DataView;
+import org.gwtproject.typedarrays.shared.Float32Array;
+import org.gwtproject.typedarrays.shared.Int32Array;
+import org.gwtproject.typedarrays.shared.TypedArrays;
+
+/** Tests the off-heap and memory-mapped variants of {@link ArrayBufferImpl}. */
+public class ArrayBufferImplTest extends TestCase {
+
+  public void testAllocateDirect() {
+    ArrayBufferImpl buf = ArrayBufferImpl.allocateDirect(16);
+    assertTrue(buf.isDirect());
+    assertEquals(16, buf.byteLength());
+    Float32Array floats = TypedArrays.createFloat32Array(buf);
+    floats.set(new float[] {1.5f, -2f}, 1);
+    Float32Array copy = TypedArrays.createFloat32Array(new ArrayBufferImpl(16));
+    copy.set(floats);
+    assertEquals(1.5f, copy.get(1), 0);
+    assertEquals(-2f, copy.get(2), 0);
+    assertFalse(((ArrayBufferImpl) copy.buffer()).isDirect());
+  }
+
+  public void testWrap() {
+    ByteBuffer bytes = ByteBuffer.allocate(8).order(ByteOrder.BIG_ENDIAN);
+    bytes.putInt(4, 0x01020304);
+    bytes.position(6);
+    ArrayBuffer buf = ArrayBufferImpl.wrap(bytes);
+    assertEquals(8, buf.byteLength());
+    assertEquals(0x04030201, TypedArrays.createInt32Array(buf).get(1));
+    TypedArrays.createDataView(buf).setInt32(0, 7);
+    assertEquals(7, bytes.getInt(0));
+    assertEquals(6, bytes.position());
+    assertEquals(ByteOrder.BIG_ENDIAN, bytes.order());
+  }
+
+  public void testMap() throws IOException {
+    File file = File.createTempFile("ArrayBufferImplTest", ".bin");
+    try {
+      try (RandomAccessFile raf = new RandomAccessFile(file, "rw");
+          FileChannel channel = raf.getChannel()) {
+        ArrayBuffer buf = ArrayBufferImpl.map(channel, FileChannel.MapMode.READ_WRITE, 8, 16);
+        assertEquals(16, buf.byteLength());
+        Int32Array ints = TypedArrays.createInt32Array(buf);
+        ints.set(new int[] {1, 2, 3, 4});
+        assertEquals(24, channel.size());
+      }
+      try (RandomAccessFile raf = new RandomAccessFile(file, "r");
+          FileChannel channel = raf.getChannel()) {
+        ArrayBuffer buf = ArrayBufferImpl.map(channel, FileChannel.MapMode.READ_ONLY, 0, 24);
+        DataView view = TypedArrays.createDataView(buf);
+        assertEquals(0, view.getInt32(4, true));
+        assertEquals(1, view.getInt32(8, true));
+        assertEquals(4, view.getInt32(20, true));
+        try {
+          view.setInt8(0, 1);
+          fail("Expected ReadOnlyBufferException");
+        } catch (ReadOnlyBufferException expected) {
+          // expected
+        }
+      }
+    } finally {
+      file.delete();
+    }
+  }
+}
@@ -0,0 +1,176 @@
+/*
+ * Copyright 2012 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.gwtproject.typedarrays.shared;
+
+import com.google.gwt.junit.client.GWTTestCase;
+
+/** Test {@link DataViewStream}. */
+public class DataViewStreamTest extends GWTTestCase {
+
+  @Override
+  public String getModuleName() {
+    // returns null for a pure Java test
+    return null;
+  }
+
+  public void testGrowAndRead() {
+    if (!TypedArrays.isSupported()) {
+      // TODO: some way of showing test as skipped in this case?
+      return;
+    }
+    DataViewStream stream = new DataViewStream(2);
+    stream.putInt8(-1);
+    stream.putUint16(0xBEEF);
+    stream.putInt32(0x12345678, true);
+    stream.putFloat64(Math.PI);
+    stream.putUint32(0xFFFFFFFEL);
+    assertEquals(19, stream.position());
+    assertEquals(19, stream.limit());
+
+    stream.rewind();
+    assertEquals(-1, stream.getInt8());
+    assertEquals(0xBEEF, stream.getUint16());
+    assertEquals(0x12345678, stream.getInt32(true));
+    assertEquals(Math.PI, stream.getFloat64(), 0);
+    assertEquals(0xFFFFFFFEL, stream.getUint32());
+    assertEquals(0, stream.remaining());
+    try {
+      stream.getInt8();
+      fail("Expected IndexOutOfBoundsException");
+    } catch (IndexOutOfBoundsException expected) {
+      // expected
+    }
+
+    Uint8Array bytes = stream.toUint8Array();
+    assertEquals(19, bytes.length());
+    assertEquals(0xFF, bytes.get(0));
+    assertEquals(0xBE, bytes.get(1));
+    assertEquals(0x78, bytes.get(3));
+  }
+
+  public void testFixedView() {
+    if (!TypedArrays.isSupported()) {
+      // TODO: some way of showing test as skipped in this case?
+      return;
+    }
+    DataViewStream stream =
+        new DataViewStream(TypedArrays.createDataView(TypedArrays.createArrayBuffer(8), 2, 4));
+    stream.putInt16(7);
+    stream.putInt16(-7);
+    try {
+      stream.putInt8(0);
+      fail("Expected IndexOutOfBoundsException");
+    } catch (IndexOutOfBoundsException expected) {
+      // expected
+    }
+    stream.setPosition(2);
+    assertEquals(-7, stream.getInt16());
+  }
+
+  public void testVarInts() {
+    if (!TypedArrays.isSupported()) {
+      // TODO: some way of showing test as skipped in this case?
+      return;
+    }
+    DataViewStream stream = new DataViewStream(0);
+    stream.putVarUint32(0);
+    stream.putVarUint32(127);
+    stream.putVarUint32(128);
+    assertEquals(4, stream.position());
+    stream.putVarUint32(-1);
+    assertEquals(9, stream.position());
+    stream.putVarInt32(-1);
+    stream.putVarInt32(Integer.MIN_VALUE);
+    stream.putVarInt64(Long.MIN_VALUE);
+    stream.putVarUint64(1L << 40);
+
+    stream.rewind();
+    assertEquals(0, stream.getVarUint32());
+    assertEquals(127, stream.getVarUint32());
+    assertEquals(128, stream.getVarUint32());
+    assertEquals(-1, stream.getVarUint32());
+    int position = stream.position();
+    assertEquals(-1, stream.getVarInt32());
+    assertEquals(1, stream.position() - position);
+    assertEquals(Integer.MIN_VALUE, stream.getVarInt32());
+    assertEquals(Long.MIN_VALUE, stream.getVarInt64());
+    assertEquals(1L << 40, stream.getVarUint64());
+    assertEquals(0, stream.remaining());
+  }
+
+  public void testStrings() {
+    if (!TypedArrays.isSupported()) {
+      // TODO: some way of showing test as skipped in this case?
+      return;
+    }
+    DataViewStream stream = new DataViewStream();
+    String text = "a\u00e9\u20ac\ud83d\ude00";
+    stream.putString(text);
+    stream.putString("");
+    stream.putString("x\ud800y");
+    assertEquals(1 + 10 + 1 + 1 + 5, stream.limit());
+
+    stream.rewind();
+    stream.mark();
+    assertEquals(text, stream.getString());
+    assertEquals("", stream.getString());
+    assertEquals("x\ufffdy", stream.getString());
+    stream.reset();
+    assertEquals(text, stream.getString());
+
+    // malformed input
+    stream.clear();
+    stream.putVarUint32(3);
+    stream.putUint8(0x61);
+    stream.putUint8(0xE2);
+    stream.putUint8(0x62);
+    stream.rewind();
+    assertEquals("a\ufffdb", stream.getString());
+  }
+
+  public void testBulk() {
+    if (!TypedArrays.isSupported()) {
+      // TODO: some way of showing test as skipped in this case?
+      return;
+    }
+    Float32Array floats = TypedArrays.createFloat32Array(4);
+    floats.set(new float[] {1, 2.5f, -3, 4});
+    Int32Array ints = TypedArrays.createInt32Array(3);
+    ints.set(new int[] {7, -8, 9});
+
+    DataViewStream stream = new DataViewStream(4);
+    stream.putFloat32s(floats, 1, 3, true);
+    stream.putInt8(0);
+    // unaligned and big-endian
+    stream.putInt32s(ints, 0, 3, false);
+    assertEquals(25, stream.limit());
+    stream.rewind();
+    assertEquals(2.5f, stream.getFloat32(true), 0);
+    stream.rewind();
+
+    Float32Array floatsRead = TypedArrays.createFloat32Array(4);
+    stream.getFloat32s(floatsRead, 1, 3, true);
+    assertEquals(0f, floatsRead.get(0), 0);
+    assertEquals(2.5f, floatsRead.get(1), 0);
+    assertEquals(4f, floatsRead.get(3), 0);
+    stream.getInt8();
+    Int32Array intsRead = TypedArrays.createInt32Array(3);
+    stream.getInt32s(intsRead, 0, 3, false);
+    assertEquals(7, intsRead.get(0));
+    assertEquals(-8, intsRead.get(1));
+    assertEquals(9, intsRead.get(2));
+  }
+}
@@ -70,6 +70,47 @@ public class Float32ArrayTest extends GWTTestCase {
     assertEquals(1.0f, array.get(1));
   }
 
+  public void testSubarray() {
+    if (!TypedArrays.isSupported()) {
+      // TODO: some way of showing test as skipped in this case?
+      return;
+    }
+    Float32Array array = TypedArrays.createFloat32Array(6);
+    array.set(new float[] {0, 1, 2, 3, 4, 5});
+    Float32Array sub = array.subarray(1, 4);
+    assertEquals(3, sub.length());
+    assertEquals(BYTES_PER_ELEMENT, sub.byteOffset());
+    assertEquals(1.0f, sub.get(0));
+    assertEquals(3.0f, sub.get(2));
+    sub.set(new float[] {-1, -2}, 1);
+    assertEquals(-1.0f, array.get(2));
+    assertEquals(-2.0f, array.get(3));
+    Float32Array tail = sub.subarray(-1);
+    assertEquals(1, tail.length());
+    assertEquals(-2.0f, tail.get(0));
+  }
+
+  public void testSetFromTypedArray() {
+    if (!TypedArrays.isSupported()) {
+      // TODO: some way of showing test as skipped in this case?
+      return;
+    }
+    Float32Array array = TypedArrays.createFloat32Array(6);
+    array.set(new float[] {0, 1, 2, 3, 4, 5});
+    Float32Array copy = TypedArrays.createFloat32Array(6);
+    copy.set(array.subarray(2), 1);
+    assertEquals(0.0f, copy.get(0));
+    assertEquals(2.0f, copy.get(1));
+    assertEquals(5.0f, copy.get(4));
+
+    // overlapping views of the same buffer
+    array.set(array.subarray(0, 4), 2);
+    float[] expected = {0, 1, 0, 1, 2, 3};
+    for (int i = 0; i < expected.length; ++i) {
+      assertEquals("index " + i, expected[i], array.get(i));
+    }
+  }
+
   public void testSetFromJavaArray() {
     if (!TypedArrays.isSupported()) {
       // TODO: some way of showing test as skipped in this case?
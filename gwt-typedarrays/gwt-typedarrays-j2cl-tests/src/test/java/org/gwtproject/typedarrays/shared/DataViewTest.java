@@ -77,6 +77,28 @@ public class DataViewTest {
     assertEquals(0x80042001, view.getInt32(0, true));
   }
 
+  @Test
+  public void testOffset() {
+    if (!TypedArrays.isSupported()) {
+      // TODO: some way of showing test as skipped in this case?
+      return;
+    }
+    ArrayBuffer buf = TypedArrays.createArrayBuffer(16);
+    DataView view = TypedArrays.createDataView(buf, 4, 8);
+    assertEquals(4, view.byteOffset());
+    assertEquals(8, view.byteLength());
+    view.setInt32(0, 0x01020304);
+    view.setFloat32(4, 1.5f, true);
+    DataView whole = TypedArrays.createDataView(buf);
+    assertEquals(0, whole.getInt32(0));
+    assertEquals(0x01020304, whole.getInt32(4));
+    assertEquals(0x0102, view.getUint16(0));
+    assertEquals(1.5f, whole.getFloat32(8, true), 0);
+    Uint16Array shorts = TypedArrays.createUint16Array(buf);
+    shorts.set(7, 0xC0FF);
+    assertEquals(0xC0FF, shorts.get(7));
+  }
+
   //  public void testFoo() {
   //    System.out.println((short)0x80);
   //    System.out.println((byte)((short)0x80));
@@ -15,29 +15,96 @@
  */
 package org.gwtproject.typedarrays.server;
 
+import java.io.IOException;
+import java.nio.Buffer;
 import java.nio.ByteBuffer;
 import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
 import org.gwtproject.core.shared.GwtIncompatible;
 import org.gwtproject.typedarrays.shared.ArrayBuffer;
 
 /**
  * Pure Java implementation of {@link ArrayBuffer}, plus package-protected methods for use by
  * related implementation classes.
+ *
+ * <p>All accesses are absolute, through one view of the bytes in each byte order, so that no state
+ * of the underlying {@link ByteBuffer} ever changes and no locking is needed. As with JS array
+ * buffers, concurrent writes to the same bytes are not coordinated.
+ *
+ * <p>Buffers are allocated on the heap by default. {@link #allocateDirect(int)} allocates them
+ * off-heap, and {@link #map(FileChannel, FileChannel.MapMode, long, int)} and {@link
+ * #wrap(ByteBuffer)} back them by a memory-mapped file or any other byte buffer, so that the typed
+ * array views can work on large amounts of data without copying it onto the heap.
  */
 @GwtIncompatible
 public class ArrayBufferImpl implements ArrayBuffer {
 
-  private final Object lock = new Object();
-
   private final ByteBuffer buf;
 
+  /** The same bytes as {@link #buf}, in big-endian order. */
+  private final ByteBuffer bigEndianBuf;
+
   /** @param length the size in bytes of the new array buffer instance */
   public ArrayBufferImpl(int length) {
-    buf = ByteBuffer.allocate(length);
+    this(ByteBuffer.allocate(length));
+  }
+
+  /** @param bytes the bytes of the new array buffer instance, from index 0 to the capacity */
+  private ArrayBufferImpl(ByteBuffer bytes) {
+    buf = bytes.duplicate();
+    ((Buffer) buf).clear();
     // JS lets native byte order show through, which is typically little-endian
     // so if there is code that incorrectly assumes anything, it will be
     // little-endian.
     buf.order(ByteOrder.LITTLE_ENDIAN);
+    bigEndianBuf = buf.duplicate().order(ByteOrder.BIG_ENDIAN);
+  }
+
+  /**
+   * Creates an array buffer whose bytes are allocated outside of the Java heap.
+   *
+   * @param length the size in bytes of the new array buffer instance
+   * @return a new array buffer
+   */
+  public static ArrayBufferImpl allocateDirect(int length) {
+    return new ArrayBufferImpl(ByteBuffer.allocateDirect(length));
+  }
+
+  /**
+   * Creates an array buffer backed by a region of a file, mapped into memory. With {@link
+   * FileChannel.MapMode#READ_WRITE}, changes made through the views of the buffer are eventually
+   * written to the file, see {@link java.nio.MappedByteBuffer#force()}; with {@link
+   * FileChannel.MapMode#READ_ONLY}, they throw a {@link java.nio.ReadOnlyBufferException}.
+   *
+   * <p>An array buffer is at most 2GB long; larger files can be processed by mapping one region at
+   * a time.
+   *
+   * @param channel the file to map
+   * @param mode how the file is mapped
+   * @param position where the region starts in the file
+   * @param length the size in bytes of the region
+   * @return a new array buffer
+   * @throws IOException if the file cannot be mapped
+   */
+  public static ArrayBufferImpl map(
+      FileChannel channel, FileChannel.MapMode mode, long position, int length) throws IOException {
+    return new ArrayBufferImpl(channel.map(mode, position, length));
+  }
+
+  /**
+   * Creates an array buffer that shares the bytes of a byte buffer, from index 0 to its capacity.
+   * The position, limit and byte order of the byte buffer are ignored, and not changed.
+   *
+   * @param bytes the bytes of the new array buffer
+   * @return a new array buffer
+   */
+  public static ArrayBufferImpl wrap(ByteBuffer bytes) {
+    return new ArrayBufferImpl(bytes);
+  }
+
+  /** @return whether the bytes of this buffer are outside of the Java heap */
+  public boolean isDirect() {
+    return buf.isDirect();
   }
 
   @Override
@@ -46,63 +113,19 @@ public class ArrayBufferImpl implements ArrayBuffer {
   }
 
   float getFloat32(int byteOffset, boolean littleEndian) {
-    synchronized (lock) {
-      try {
-        if (!littleEndian) {
-          buf.order(ByteOrder.BIG_ENDIAN);
-        }
-        return buf.getFloat(byteOffset);
-      } finally {
-        if (!littleEndian) {
-          buf.order(ByteOrder.LITTLE_ENDIAN);
-        }
-      }
-    }
+    return order(littleEndian).getFloat(byteOffset);
   }
 
   double getFloat64(int byteOffset, boolean littleEndian) {
-    synchronized (lock) {
-      try {
-        if (!littleEndian) {
-          buf.order(ByteOrder.BIG_ENDIAN);
-        }
-        return buf.getDouble(byteOffset);
-      } finally {
-        if (!littleEndian) {
-          buf.order(ByteOrder.LITTLE_ENDIAN);
-        }
-      }
-    }
+    return order(littleEndian).getDouble(byteOffset);
   }
 
   short getInt16(int byteOffset, boolean littleEndian) {
-    synchronized (lock) {
-      try {
-        if (!littleEndian) {
-          buf.order(ByteOrder.BIG_ENDIAN);
-        }
-        return buf.getShort(byteOffset);
-      } finally {
-        if (!littleEndian) {
-          buf.order(ByteOrder.LITTLE_ENDIAN);
-        }
-      }
-    }
+    return order(littleEndian).getShort(byteOffset);
   }
 
   int getInt32(int byteOffset, boolean littleEndian) {
-    synchronized (lock) {
-      try {
-        if (!littleEndian) {
-          buf.order(ByteOrder.BIG_ENDIAN);
-        }
-        return buf.getInt(byteOffset);
-      } finally {
-        if (!littleEndian) {
-          buf.order(ByteOrder.LITTLE_ENDIAN);
-        }
-      }
-    }
+    return order(littleEndian).getInt(byteOffset);
   }
 
   byte getInt8(int byteOffset) {
@@ -110,66 +133,83 @@ public class ArrayBufferImpl implements ArrayBuffer {
   }
 
   void setFloat32(int byteOffset, float value, boolean littleEndian) {
-    synchronized (lock) {
-      try {
-        if (!littleEndian) {
-          buf.order(ByteOrder.BIG_ENDIAN);
-        }
-        buf.putFloat(byteOffset, value);
-      } finally {
-        if (!littleEndian) {
-          buf.order(ByteOrder.LITTLE_ENDIAN);
-        }
-      }
-    }
+    order(littleEndian).putFloat(byteOffset, value);
   }
 
   void setFloat64(int byteOffset, double value, boolean littleEndian) {
-    synchronized (lock) {
-      try {
-        if (!littleEndian) {
-          buf.order(ByteOrder.BIG_ENDIAN);
-        }
-        buf.putDouble(byteOffset, value);
-      } finally {
-        if (!littleEndian) {
-          buf.order(ByteOrder.LITTLE_ENDIAN);
-        }
-      }
-    }
+    order(littleEndian).putDouble(byteOffset, value);
   }
 
   void setInt16(int byteOffset, short value, boolean littleEndian) {
-    synchronized (lock) {
-      try {
-        if (!littleEndian) {
-          buf.order(ByteOrder.BIG_ENDIAN);
-        }
-        buf.putShort(byteOffset, value);
-      } finally {
-        if (!littleEndian) {
-          buf.order(ByteOrder.LITTLE_ENDIAN);
-        }
-      }
-    }
+    order(littleEndian).putShort(byteOffset, value);
   }
 
   void setInt32(int byteOffset, int value, boolean littleEndian) {
-    synchronized (lock) {
-      try {
-        if (!littleEndian) {
-          buf.order(ByteOrder.BIG_ENDIAN);
-        }
-        buf.putInt(byteOffset, value);
-      } finally {
-        if (!littleEndian) {
-          buf.order(ByteOrder.LITTLE_ENDIAN);
-        }
-      }
-    }
+    order(littleEndian).putInt(byteOffset, value);
   }
 
   void setInt8(int byteOffset, byte value) {
     buf.put(byteOffset, value);
   }
+
+  /** Stores the given bytes, starting at {@code byteOffset}. */
+  void setInt8s(int byteOffset, byte[] values) {
+    slice(byteOffset, values.length).put(values);
+  }
+
+  /** Stores the given values in little-endian order, starting at {@code byteOffset}. */
+  void setInt16s(int byteOffset, short[] values) {
+    slice(byteOffset, values.length * 2).asShortBuffer().put(values);
+  }
+
+  /** Stores the given values in little-endian order, starting at {@code byteOffset}. */
+  void setInt32s(int byteOffset, int[] values) {
+    slice(byteOffset, values.length * 4).asIntBuffer().put(values);
+  }
+
+  /** Stores the given values in little-endian order, starting at {@code byteOffset}. */
+  void setFloat32s(int byteOffset, float[] values) {
+    slice(byteOffset, values.length * 4).asFloatBuffer().put(values);
+  }
+
+  /** Stores the given values in little-endian order, starting at {@code byteOffset}. */
+  void setFloat64s(int byteOffset, double[] values) {
+    slice(byteOffset, values.length * 8).asDoubleBuffer().put(values);
+  }
+
+  /**
+   * Copies bytes from another buffer, which may be this one, as if they were first copied to a
+   * temporary buffer.
+   *
+   * @param byteOffset where to copy the bytes to in this buffer
+   * @param source the buffer to copy from
+   * @param sourceByteOffset where the bytes start in the source buffer
+   * @param byteLength the number of bytes to copy
+   */
+  void copyFrom(int byteOffset, ArrayBufferImpl source, int sourceByteOffset, int byteLength) {
+    ByteBuffer from = source.slice(sourceByteOffset, byteLength);
+    if (source == this
+        && sourceByteOffset < byteOffset + byteLength
+        && byteOffset < sourceByteOffset + byteLength) {
+      // overlapping ranges of the same buffer, copy the source bytes first
+      byte[] bytes = new byte[byteLength];
+      from.get(bytes);
+      slice(byteOffset, byteLength).put(bytes);
+    } else {
+      slice(byteOffset, byteLength).put(from);
+    }
+  }
+
+  private ByteBuffer order(boolean littleEndian) {
+    return littleEndian ? buf : bigEndianBuf;
+  }
+
+  /** Returns a little-endian buffer over the given range of bytes, positioned at its start. */
+  private ByteBuffer slice(int byteOffset, int byteLength) {
+    ByteBuffer slice = buf.duplicate();
+    // cast for Java 8, where Buffer.limit and Buffer.position do not return a ByteBuffer
+    ((Buffer) slice).limit(byteOffset + byteLength);
+    ((Buffer) slice).position(byteOffset);
+    return slice.slice().order(ByteOrder.LITTLE_ENDIAN);
+  }
 }
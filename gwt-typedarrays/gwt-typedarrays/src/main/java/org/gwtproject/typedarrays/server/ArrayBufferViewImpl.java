@@ -73,9 +73,36 @@ public abstract class ArrayBufferViewImpl implements ArrayBufferView {
    */
   protected int checkRange(int index, int bytesPerElement) {
     int byteIndex = index * bytesPerElement;
-    if (byteIndex < byteOffset || byteIndex + bytesPerElement > byteLength) {
+    if (index < 0 || byteIndex + bytesPerElement > byteLength) {
       throw new ArrayIndexOutOfBoundsException(index);
     }
-    return byteIndex;
+    return byteOffset + byteIndex;
+  }
+
+  /**
+   * Check that a number of elements fits at an offset and throw an exception if not, if ok return
+   * the byte index of the element at the offset.
+   *
+   * @param offset the element index at which to set elements
+   * @param length the number of elements to set
+   * @param bytesPerElement the size of each element in bytes
+   * @return the byte index of the start of the element at {@code offset}
+   */
+  protected int checkSet(int offset, int length, int bytesPerElement) {
+    if (offset < 0 || (offset + length) * bytesPerElement > byteLength) {
+      throw new IndexOutOfBoundsException();
+    }
+    return byteOffset + offset * bytesPerElement;
+  }
+
+  /**
+   * Copies all bytes of another view into this one, as if they were first copied to a temporary
+   * buffer, so that views sharing a buffer can overlap.
+   *
+   * @param source the view to copy from, of the same element type as this one
+   * @param byteIndex the byte index to copy the bytes to, see {@link #checkSet}
+   */
+  protected void copyFrom(ArrayBufferViewImpl source, int byteIndex) {
+    arrayBuf.copyFrom(byteIndex, source.arrayBuf, source.byteOffset, source.byteLength);
   }
 }
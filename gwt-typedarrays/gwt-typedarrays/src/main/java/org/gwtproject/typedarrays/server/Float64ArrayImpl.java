@@ -49,13 +49,7 @@ public final class Float64ArrayImpl extends ArrayBufferViewImpl implements Float
 
   @Override
   public void set(double[] array, int offset) {
-    int len = array.length;
-    if (offset + len > length()) {
-      throw new IndexOutOfBoundsException();
-    }
-    for (int i = 0; i < len; ++i) {
-      set(offset++, array[i]);
-    }
+    arrayBuf.setFloat64s(checkSet(offset, array.length, BYTES_PER_ELEMENT), array);
   }
 
   @Override
@@ -66,8 +60,10 @@ public final class Float64ArrayImpl extends ArrayBufferViewImpl implements Float
   @Override
   public void set(Float64Array array, int offset) {
     int len = array.length();
-    if (offset + len > length()) {
-      throw new IndexOutOfBoundsException();
+    int byteIndex = checkSet(offset, len, BYTES_PER_ELEMENT);
+    if (array instanceof ArrayBufferViewImpl) {
+      copyFrom((ArrayBufferViewImpl) array, byteIndex);
+      return;
     }
     for (int i = 0; i < len; ++i) {
       set(offset++, array.get(i));
@@ -81,13 +77,13 @@ public final class Float64ArrayImpl extends ArrayBufferViewImpl implements Float
 
   @Override
   public Float64Array subarray(int begin) {
-    int count = (byteLength() - byteOffset()) / BYTES_PER_ELEMENT;
+    int count = length();
     return subarray(begin, count);
   }
 
   @Override
   public Float64Array subarray(int begin, int end) {
-    int count = (byteLength() - byteOffset()) / BYTES_PER_ELEMENT;
+    int count = length();
     if (begin < 0) {
       begin += count;
       if (begin < 0) {
@@ -107,6 +103,6 @@ public final class Float64ArrayImpl extends ArrayBufferViewImpl implements Float
     if (end < begin) {
       end = begin;
     }
-    return new Float64ArrayImpl(arrayBuf, begin * BYTES_PER_ELEMENT, end * BYTES_PER_ELEMENT);
+    return new Float64ArrayImpl(arrayBuf, byteOffset + begin * BYTES_PER_ELEMENT, end - begin);
   }
 }
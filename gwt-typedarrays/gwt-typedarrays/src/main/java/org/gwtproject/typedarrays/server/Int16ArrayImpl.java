@@ -72,8 +72,10 @@ public final class Int16ArrayImpl extends ArrayBufferViewImpl implements Int16Ar
   @Override
   public void set(Int16Array array, int offset) {
     int len = array.length();
-    if (offset + len > length()) {
-      throw new IndexOutOfBoundsException();
+    int byteIndex = checkSet(offset, len, BYTES_PER_ELEMENT);
+    if (array instanceof ArrayBufferViewImpl) {
+      copyFrom((ArrayBufferViewImpl) array, byteIndex);
+      return;
     }
     for (int i = 0; i < len; ++i) {
       set(offset++, array.get(i));
@@ -87,24 +89,18 @@ public final class Int16ArrayImpl extends ArrayBufferViewImpl implements Int16Ar
 
   @Override
   public void set(short[] array, int offset) {
-    int len = array.length;
-    if (offset + len > length()) {
-      throw new IndexOutOfBoundsException();
-    }
-    for (int i = 0; i < len; ++i) {
-      set(offset++, array[i]);
-    }
+    arrayBuf.setInt16s(checkSet(offset, array.length, BYTES_PER_ELEMENT), array);
   }
 
   @Override
   public Int16Array subarray(int begin) {
-    int count = (byteLength() - byteOffset()) / BYTES_PER_ELEMENT;
+    int count = length();
     return subarray(begin, count);
   }
 
   @Override
   public Int16Array subarray(int begin, int end) {
-    int count = (byteLength() - byteOffset()) / BYTES_PER_ELEMENT;
+    int count = length();
     if (begin < 0) {
       begin += count;
       if (begin < 0) {
@@ -124,6 +120,6 @@ public final class Int16ArrayImpl extends ArrayBufferViewImpl implements Int16Ar
     if (end < begin) {
       end = begin;
     }
-    return new Int16ArrayImpl(arrayBuf, begin * BYTES_PER_ELEMENT, end * BYTES_PER_ELEMENT);
+    return new Int16ArrayImpl(arrayBuf, byteOffset + begin * BYTES_PER_ELEMENT, end - begin);
   }
 }
@@ -54,13 +54,7 @@ public final class Int32ArrayImpl extends ArrayBufferViewImpl implements Int32Ar
 
   @Override
   public void set(int[] array, int offset) {
-    int len = array.length;
-    if (offset + len > length()) {
-      throw new IndexOutOfBoundsException();
-    }
-    for (int i = 0; i < len; ++i) {
-      set(offset++, array[i]);
-    }
+    arrayBuf.setInt32s(checkSet(offset, array.length, BYTES_PER_ELEMENT), array);
   }
 
   @Override
@@ -71,8 +65,10 @@ public final class Int32ArrayImpl extends ArrayBufferViewImpl implements Int32Ar
   @Override
   public void set(Int32Array array, int offset) {
     int len = array.length();
-    if (offset + len > length()) {
-      throw new IndexOutOfBoundsException();
+    int byteIndex = checkSet(offset, len, BYTES_PER_ELEMENT);
+    if (array instanceof ArrayBufferViewImpl) {
+      copyFrom((ArrayBufferViewImpl) array, byteIndex);
+      return;
     }
     for (int i = 0; i < len; ++i) {
       set(offset++, array.get(i));
@@ -81,13 +77,13 @@ public final class Int32ArrayImpl extends ArrayBufferViewImpl implements Int32Ar
 
   @Override
   public Int32Array subarray(int begin) {
-    int count = (byteLength() - byteOffset()) / BYTES_PER_ELEMENT;
+    int count = length();
     return subarray(begin, count);
   }
 
   @Override
   public Int32Array subarray(int begin, int end) {
-    int count = (byteLength() - byteOffset()) / BYTES_PER_ELEMENT;
+    int count = length();
     if (begin < 0) {
       begin += count;
       if (begin < 0) {
@@ -107,6 +103,6 @@ public final class Int32ArrayImpl extends ArrayBufferViewImpl implements Int32Ar
     if (end < begin) {
       end = begin;
     }
-    return new Int32ArrayImpl(arrayBuf, begin * BYTES_PER_ELEMENT, end * BYTES_PER_ELEMENT);
+    return new Int32ArrayImpl(arrayBuf, byteOffset + begin * BYTES_PER_ELEMENT, end - begin);
   }
 }
@@ -49,13 +49,7 @@ public final class Int8ArrayImpl extends ArrayBufferViewImpl implements Int8Arra
 
   @Override
   public void set(byte[] array, int offset) {
-    int len = array.length;
-    if (offset + len > length()) {
-      throw new IndexOutOfBoundsException();
-    }
-    for (int i = 0; i < len; ++i) {
-      set(offset++, array[i]);
-    }
+    arrayBuf.setInt8s(checkSet(offset, array.length, BYTES_PER_ELEMENT), array);
   }
 
   @Override
@@ -87,8 +81,10 @@ public final class Int8ArrayImpl extends ArrayBufferViewImpl implements Int8Arra
   @Override
   public void set(Int8Array array, int offset) {
     int len = array.length();
-    if (offset + len > length()) {
-      throw new IndexOutOfBoundsException();
+    int byteIndex = checkSet(offset, len, BYTES_PER_ELEMENT);
+    if (array instanceof ArrayBufferViewImpl) {
+      copyFrom((ArrayBufferViewImpl) array, byteIndex);
+      return;
     }
     for (int i = 0; i < len; ++i) {
       set(offset++, array.get(i));
@@ -97,13 +93,13 @@ public final class Int8ArrayImpl extends ArrayBufferViewImpl implements Int8Arra
 
   @Override
   public Int8Array subarray(int begin) {
-    int count = (byteLength() - byteOffset()) / BYTES_PER_ELEMENT;
+    int count = length();
     return subarray(begin, count);
   }
 
   @Override
   public Int8Array subarray(int begin, int end) {
-    int count = (byteLength() - byteOffset()) / BYTES_PER_ELEMENT;
+    int count = length();
     if (begin < 0) {
       begin += count;
       if (begin < 0) {
@@ -123,6 +119,6 @@ public final class Int8ArrayImpl extends ArrayBufferViewImpl implements Int8Arra
     if (end < begin) {
       end = begin;
     }
-    return new Int8ArrayImpl(arrayBuf, begin * BYTES_PER_ELEMENT, end * BYTES_PER_ELEMENT);
+    return new Int8ArrayImpl(arrayBuf, byteOffset + begin * BYTES_PER_ELEMENT, end - begin);
   }
 }
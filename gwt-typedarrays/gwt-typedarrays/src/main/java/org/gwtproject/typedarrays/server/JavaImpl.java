@@ -30,13 +30,22 @@ import org.gwtproject.typedarrays.shared.Uint32Array;
 import org.gwtproject.typedarrays.shared.Uint8Array;
 import org.gwtproject.typedarrays.shared.Uint8ClampedArray;
 
-/** Pure Java implementation class for typed arrays. */
+/**
+ * Pure Java implementation class for typed arrays.
+ *
+ * <p>Array buffers are allocated on the heap, or outside of it if the {@code
+ * gwt.typedarrays.direct} system property is {@code true}, see {@link
+ * ArrayBufferImpl#allocateDirect(int)}.
+ */
 public class JavaImpl extends NativeImpl {
 
+  @GwtIncompatible
+  private static final boolean DIRECT = Boolean.getBoolean("gwt.typedarrays.direct");
+
   @GwtIncompatible
   @Override
   public ArrayBuffer createArrayBuffer(int length) {
-    return new ArrayBufferImpl(length);
+    return DIRECT ? ArrayBufferImpl.allocateDirect(length) : new ArrayBufferImpl(length);
   }
 
   @GwtIncompatible
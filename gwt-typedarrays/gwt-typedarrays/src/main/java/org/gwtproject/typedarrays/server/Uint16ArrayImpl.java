@@ -34,7 +34,7 @@ public class Uint16ArrayImpl extends ArrayBufferViewImpl implements Uint16Array
 
   @Override
   public int get(int index) {
-    int val = arrayBuf.getInt8(checkRange(index, BYTES_PER_ELEMENT));
+    int val = arrayBuf.getInt16(checkRange(index, BYTES_PER_ELEMENT), USE_LITTLE_ENDIAN);
     if (val < 0) {
       val += 0x10000;
     }
@@ -76,8 +76,10 @@ public class Uint16ArrayImpl extends ArrayBufferViewImpl implements Uint16Array
   @Override
   public void set(Uint16Array array, int offset) {
     int len = array.length();
-    if (offset + len > length()) {
-      throw new IndexOutOfBoundsException();
+    int byteIndex = checkSet(offset, len, BYTES_PER_ELEMENT);
+    if (array instanceof ArrayBufferViewImpl) {
+      copyFrom((ArrayBufferViewImpl) array, byteIndex);
+      return;
     }
     for (int i = 0; i < len; ++i) {
       set(offset++, array.get(i));
@@ -86,13 +88,13 @@ public class Uint16ArrayImpl extends ArrayBufferViewImpl implements Uint16Array
 
   @Override
   public Uint16Array subarray(int begin) {
-    int count = (byteLength() - byteOffset()) / BYTES_PER_ELEMENT;
+    int count = length();
     return subarray(begin, count);
   }
 
   @Override
   public Uint16Array subarray(int begin, int end) {
-    int count = (byteLength() - byteOffset()) / BYTES_PER_ELEMENT;
+    int count = length();
     if (begin < 0) {
       begin += count;
       if (begin < 0) {
@@ -112,6 +114,6 @@ public class Uint16ArrayImpl extends ArrayBufferViewImpl implements Uint16Array
     if (end < begin) {
       end = begin;
     }
-    return new Uint16ArrayImpl(arrayBuf, begin * BYTES_PER_ELEMENT, end * BYTES_PER_ELEMENT);
+    return new Uint16ArrayImpl(arrayBuf, byteOffset + begin * BYTES_PER_ELEMENT, end - begin);
   }
 }
@@ -102,8 +102,10 @@ public class Uint32ArrayImpl extends ArrayBufferViewImpl implements Uint32Array
   @Override
   public void set(Uint32Array array, int offset) {
     int len = array.length();
-    if (offset + len > length()) {
-      throw new IndexOutOfBoundsException();
+    int byteIndex = checkSet(offset, len, BYTES_PER_ELEMENT);
+    if (array instanceof ArrayBufferViewImpl) {
+      copyFrom((ArrayBufferViewImpl) array, byteIndex);
+      return;
     }
     for (int i = 0; i < len; ++i) {
       set(offset++, array.get(i));
@@ -112,13 +114,13 @@ public class Uint32ArrayImpl extends ArrayBufferViewImpl implements Uint32Array
 
   @Override
   public Uint32Array subarray(int begin) {
-    int count = (byteLength() - byteOffset()) / BYTES_PER_ELEMENT;
+    int count = length();
     return subarray(begin, count);
   }
 
   @Override
   public Uint32Array subarray(int begin, int end) {
-    int count = (byteLength() - byteOffset()) / BYTES_PER_ELEMENT;
+    int count = length();
     if (begin < 0) {
       begin += count;
       if (begin < 0) {
@@ -138,6 +140,6 @@ public class Uint32ArrayImpl extends ArrayBufferViewImpl implements Uint32Array
     if (end < begin) {
       end = begin;
     }
-    return new Uint32ArrayImpl(arrayBuf, begin * BYTES_PER_ELEMENT, end * BYTES_PER_ELEMENT);
+    return new Uint32ArrayImpl(arrayBuf, byteOffset + begin * BYTES_PER_ELEMENT, end - begin);
   }
 }
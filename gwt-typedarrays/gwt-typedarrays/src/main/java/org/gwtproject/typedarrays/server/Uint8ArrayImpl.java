@@ -91,8 +91,10 @@ public class Uint8ArrayImpl extends ArrayBufferViewImpl implements Uint8Array {
   @Override
   public void set(Uint8Array array, int offset) {
     int len = array.length();
-    if (offset + len > length()) {
-      throw new IndexOutOfBoundsException();
+    int byteIndex = checkSet(offset, len, BYTES_PER_ELEMENT);
+    if (array instanceof ArrayBufferViewImpl) {
+      copyFrom((ArrayBufferViewImpl) array, byteIndex);
+      return;
     }
     for (int i = 0; i < len; ++i) {
       set(offset++, array.get(i));
@@ -101,13 +103,13 @@ public class Uint8ArrayImpl extends ArrayBufferViewImpl implements Uint8Array {
 
   @Override
   public Uint8Array subarray(int begin) {
-    int count = (byteLength() - byteOffset()) / BYTES_PER_ELEMENT;
+    int count = length();
     return subarray(begin, count);
   }
 
   @Override
   public Uint8Array subarray(int begin, int end) {
-    int count = (byteLength() - byteOffset()) / BYTES_PER_ELEMENT;
+    int count = length();
     if (begin < 0) {
       begin += count;
       if (begin < 0) {
@@ -127,6 +129,6 @@ public class Uint8ArrayImpl extends ArrayBufferViewImpl implements Uint8Array {
     if (end < begin) {
       end = begin;
     }
-    return new Uint8ArrayImpl(arrayBuf, begin * BYTES_PER_ELEMENT, end * BYTES_PER_ELEMENT);
+    return new Uint8ArrayImpl(arrayBuf, byteOffset + begin * BYTES_PER_ELEMENT, end - begin);
   }
 }
@@ -39,13 +39,13 @@ public final class Uint8ClampedArrayImpl extends Uint8ArrayImpl implements Uint8
 
   @Override
   public Uint8ClampedArray subarray(int begin) {
-    int count = byteLength() - byteOffset();
+    int count = length();
     return subarray(begin, count);
   }
 
   @Override
   public Uint8ClampedArray subarray(int begin, int end) {
-    int count = byteLength() - byteOffset();
+    int count = length();
     if (begin < 0) {
       begin += count;
       if (begin < 0) {
@@ -65,6 +65,6 @@ public final class Uint8ClampedArrayImpl extends Uint8ArrayImpl implements Uint8
     if (end < begin) {
       end = begin;
     }
-    return new Uint8ClampedArrayImpl(buffer(), begin, end);
+    return new Uint8ClampedArrayImpl(arrayBuf, byteOffset + begin, end - begin);
   }
 }
@@ -15,17 +15,87 @@
  */
 package org.gwtproject.typedarrays.shared;
 
-/** A stream of heterogeneous values on top of a {@link DataViewStream}. */
-// CHECKSTYLE_OFF ignore missing javadoc on this unused/incomplete class
+/**
+ * A stream of heterogeneous values on top of a {@link DataView}, which reads and writes values one
+ * after the other.
+ *
+ * <p>A stream created on an existing view reads and writes within that view. A stream created
+ * without a view owns its buffer, and grows it as needed when writing; {@link #toUint8Array()} then
+ * returns the bytes written.
+ *
+ * <p>Besides fixed-size numbers, which are big-endian unless told otherwise as with {@link
+ * DataView}, a stream supports bulk transfers of {@link Float32Array} and {@link Int32Array}
+ * contents, LEB128 variable-length integers and length-prefixed UTF-8 strings. Fixed-size numbers
+ * and variable-length integers are read and written without allocating. Reading a string allocates
+ * the string, bulk transfers may create temporary views, and writing to a stream that owns its
+ * buffer allocates a larger buffer whenever the current one is full.
+ */
+// CHECKSTYLE_OFF ignore missing javadoc on the fixed-size accessors
 public class DataViewStream {
-  // TODO: add methods to pack/unpack strings in various formats
 
-  private final DataView dataView;
+  private static final int DEFAULT_CAPACITY = 256;
+
+  /** 1 if typed array views use little-endian byte order, 0 if not, -1 if not known yet. */
+  private static int littleEndianPlatform = -1;
+
+  private final boolean growable;
+  private DataView dataView;
   private int offset;
 
+  /** The end of the bytes in the stream. */
+  private int limit;
+
+  private int mark = -1;
+
+  /** Reused to decode strings. */
+  private char[] chars = new char[0];
+
+  /**
+   * Creates a stream on all bytes of an existing view. The stream cannot grow beyond the view.
+   *
+   * @param dataView the view to read and write
+   */
   public DataViewStream(DataView dataView) {
     this.dataView = dataView;
-    offset = 0;
+    growable = false;
+    limit = dataView.byteLength();
+  }
+
+  /** Creates an empty stream, which grows its buffer as values are written. */
+  public DataViewStream() {
+    this(DEFAULT_CAPACITY);
+  }
+
+  /**
+   * Creates an empty stream, which grows its buffer as values are written.
+   *
+   * @param initialCapacity the initial size of the buffer in bytes
+   */
+  public DataViewStream(int initialCapacity) {
+    if (initialCapacity < 0) {
+      throw new IllegalArgumentException("Negative capacity: " + initialCapacity);
+    }
+    dataView = TypedArrays.createDataView(TypedArrays.createArrayBuffer(initialCapacity));
+    growable = true;
+  }
+
+  /**
+   * Returns the view the stream works on, which is replaced when the stream grows.
+   *
+   * @return the current view
+   */
+  public DataView getDataView() {
+    return dataView;
+  }
+
+  /**
+   * Returns the bytes of the stream, up to {@link #limit()}. The array shares the buffer of the
+   * stream until the stream grows.
+   *
+   * @return the bytes of the stream
+   */
+  public Uint8Array toUint8Array() {
+    return TypedArrays.createUint8Array(dataView.buffer(), dataView.byteOffset(), limit);
   }
 
   public float getFloat32() {
@@ -33,7 +103,7 @@ public class DataViewStream {
   }
 
   public float getFloat32(boolean littleEndian) {
-    float val = dataView.getFloat32(offset, littleEndian);
+    float val = dataView.getFloat32(read(4), littleEndian);
     offset += 4;
     return val;
   }
@@ -43,7 +113,7 @@ public class DataViewStream {
   }
 
   public double getFloat64(boolean littleEndian) {
-    double val = dataView.getFloat64(offset, littleEndian);
+    double val = dataView.getFloat64(read(8), littleEndian);
     offset += 8;
     return val;
   }
@@ -53,7 +123,7 @@ public class DataViewStream {
   }
 
   public short getInt16(boolean littleEndian) {
-    short val = dataView.getInt16(offset, littleEndian);
+    short val = dataView.getInt16(read(2), littleEndian);
     offset += 2;
     return val;
   }
@@ -63,13 +133,15 @@ public class DataViewStream {
   }
 
   public int getInt32(boolean littleEndian) {
-    int val = dataView.getInt32(offset, littleEndian);
+    int val = dataView.getInt32(read(4), littleEndian);
     offset += 4;
     return val;
   }
 
   public byte getInt8() {
-    return dataView.getInt8(offset++);
+    byte val = dataView.getInt8(read(1));
+    offset++;
+    return val;
   }
 
   public int getUint16() {
@@ -77,7 +149,7 @@ public class DataViewStream {
   }
 
   public int getUint16(boolean littleEndian) {
-    int val = dataView.getUint16(offset, littleEndian);
+    int val = dataView.getUint16(read(2), littleEndian);
     offset += 2;
     return val;
   }
@@ -87,7 +159,7 @@ public class DataViewStream {
   }
 
   public long getUint32(boolean littleEndian) {
-    long val = dataView.getUint32(offset, littleEndian);
+    long val = dataView.getUint32(read(4), littleEndian);
     offset += 4;
     return val;
   }
@@ -102,13 +174,203 @@ public class DataViewStream {
    * @return unsigned 32-bit int as a double
    */
   public double getUint32AsDouble(boolean littleEndian) {
-    double val = dataView.getUint32AsDouble(offset, littleEndian);
+    double val = dataView.getUint32AsDouble(read(4), littleEndian);
     offset += 4;
     return val;
   }
 
   public short getUint8() {
-    return dataView.getUint8(offset++);
+    short val = dataView.getUint8(read(1));
+    offset++;
+    return val;
+  }
+
+  /**
+   * Reads 32-bit floats into an array.
+   *
+   * @param dest the array to read into
+   * @param destOffset the index in {@code dest} of the first value
+   * @param count the number of values to read
+   * @param littleEndian true if the values are little endian, false otherwise
+   */
+  public void getFloat32s(Float32Array dest, int destOffset, int count, boolean littleEndian) {
+    int start = read(count * 4);
+    if (isAligned(start, 4, littleEndian)) {
+      dest.set(
+          TypedArrays.createFloat32Array(dataView.buffer(), dataView.byteOffset() + start, count),
+          destOffset);
+      offset += count * 4;
+      return;
+    }
+    for (int i = 0; i < count; i++) {
+      dest.set(destOffset + i, dataView.getFloat32(offset, littleEndian));
+      offset += 4;
+    }
+  }
+
+  /**
+   * Reads 32-bit ints into an array.
+   *
+   * @param dest the array to read into
+   * @param destOffset the index in {@code dest} of the first value
+   * @param count the number of values to read
+   * @param littleEndian true if the values are little endian, false otherwise
+   */
+  public void getInt32s(Int32Array dest, int destOffset, int count, boolean littleEndian) {
+    int start = read(count * 4);
+    if (isAligned(start, 4, littleEndian)) {
+      dest.set(
+          TypedArrays.createInt32Array(dataView.buffer(), dataView.byteOffset() + start, count),
+          destOffset);
+      offset += count * 4;
+      return;
+    }
+    for (int i = 0; i < count; i++) {
+      dest.set(destOffset + i, dataView.getInt32(offset, littleEndian));
+      offset += 4;
+    }
+  }
+
+  /**
+   * Reads an unsigned LEB128 variable-length integer of up to 32 bits.
+   *
+   * @return the value, which may be negative if it uses all 32 bits
+   * @throws IllegalArgumentException if the encoding is longer than 5 bytes
+   */
+  public int getVarUint32() {
+    int result = 0;
+    for (int shift = 0; shift < 35; shift += 7) {
+      int b = getUint8();
+      result |= (b & 0x7F) << shift;
+      if ((b & 0x80) == 0) {
+        return result;
+      }
+    }
+    throw new IllegalArgumentException("Malformed variable-length integer");
+  }
+
+  /**
+   * Reads a signed, zigzag-encoded LEB128 variable-length integer of up to 32 bits.
+   *
+   * @return the value
+   * @throws IllegalArgumentException if the encoding is longer than 5 bytes
+   */
+  public int getVarInt32() {
+    int n = getVarUint32();
+    return (n >>> 1) ^ -(n & 1);
+  }
+
+  /**
+   * Reads an unsigned LEB128 variable-length integer of up to 64 bits.
+   *
+   * @return the value, which may be negative if it uses all 64 bits
+   * @throws IllegalArgumentException if the encoding is longer than 10 bytes
+   */
+  public long getVarUint64() {
+    long result = 0;
+    for (int shift = 0; shift < 70; shift += 7) {
+      int b = getUint8();
+      result |= (long) (b & 0x7F) << shift;
+      if ((b & 0x80) == 0) {
+        return result;
+      }
+    }
+    throw new IllegalArgumentException("Malformed variable-length integer");
+  }
+
+  /**
+   * Reads a signed, zigzag-encoded LEB128 variable-length integer of up to 64 bits.
+   *
+   * @return the value
+   * @throws IllegalArgumentException if the encoding is longer than 10 bytes
+   */
+  public long getVarInt64() {
+    long n = getVarUint64();
+    return (n >>> 1) ^ -(n & 1);
+  }
+
+  /**
+   * Reads a string written by {@link #putString(String)}: its length in bytes as an unsigned
+   * variable-length integer, then its UTF-8 encoding. Malformed UTF-8 sequences are decoded as
+   * U+FFFD.
+   *
+   * @return the string
+   */
+  public String getString() {
+    int byteLength = getVarUint32();
+    if (byteLength < 0) {
+      throw new IndexOutOfBoundsException();
+    }
+    int end = read(byteLength) + byteLength;
+    if (chars.length < byteLength) {
+      // a UTF-8 string never has more UTF-16 chars than bytes
+      chars = new char[Math.max(byteLength, 2 * chars.length)];
+    }
+    int length = 0;
+    while (offset < end) {
+      int b = dataView.getUint8(offset++);
+      if (b < 0x80) {
+        chars[length++] = (char) b;
+        continue;
+      }
+      int continuationBytes;
+      int minCodePoint;
+      int codePoint;
+      if (b >= 0xC2 && b <= 0xDF) {
+        continuationBytes = 1;
+        minCodePoint = 0x80;
+        codePoint = b & 0x1F;
+      } else if (b >= 0xE0 && b <= 0xEF) {
+        continuationBytes = 2;
+        minCodePoint = 0x800;
+        codePoint = b & 0x0F;
+      } else if (b >= 0xF0 && b <= 0xF4) {
+        continuationBytes = 3;
+        minCodePoint = 0x10000;
+        codePoint = b & 0x07;
+      } else {
+        chars[length++] = '\uFFFD';
+        continue;
+      }
+      int read = 0;
+      while (read < continuationBytes && offset < end) {
+        int c = dataView.getUint8(offset);
+        if ((c & 0xC0) != 0x80) {
+          break;
+        }
+        codePoint = (codePoint << 6) | (c & 0x3F);
+        offset++;
+        read++;
+      }
+      if (read < continuationBytes
+          || codePoint < minCodePoint
+          || codePoint > 0x10FFFF
+          || (codePoint >= 0xD800 && codePoint <= 0xDFFF)) {
+        chars[length++] = '\uFFFD';
+      } else if (codePoint >= 0x10000) {
+        codePoint -= 0x10000;
+        chars[length++] = (char) (0xD800 + (codePoint >> 10));
+        chars[length++] = (char) (0xDC00 + (codePoint & 0x3FF));
+      } else {
+        chars[length++] = (char) codePoint;
+      }
+    }
+    return new String(chars, 0, length);
+  }
+
+  /**
+   * Returns the position of the end of the bytes in the stream: the length of the view for a stream
+   * on an existing view, else the furthest position written to.
+   *
+   * @return the limit
+   */
+  public int limit() {
+    return limit;
+  }
+
+  /** Remembers the current position, see {@link #reset()}. */
+  public void mark() {
+    mark = offset;
   }
 
   public int position() {
@@ -120,8 +382,9 @@ public class DataViewStream {
   }
 
   public void putFloat32(float value, boolean littleEndian) {
-    dataView.setFloat32(offset, value, littleEndian);
-    offset += 4;
+    int position = write(4);
+    dataView.setFloat32(position, value, littleEndian);
+    advance(4);
   }
 
   public void putFloat64(double value) {
@@ -129,8 +392,9 @@ public class DataViewStream {
   }
 
   public void putFloat64(double value, boolean littleEndian) {
-    dataView.setFloat64(offset, value, littleEndian);
-    offset += 8;
+    int position = write(8);
+    dataView.setFloat64(position, value, littleEndian);
+    advance(8);
   }
 
   public void putInt16(int value) {
@@ -138,8 +402,9 @@ public class DataViewStream {
   }
 
   public void putInt16(int value, boolean littleEndian) {
-    dataView.setInt16(offset, value, littleEndian);
-    offset += 2;
+    int position = write(2);
+    dataView.setInt16(position, value, littleEndian);
+    advance(2);
   }
 
   public void putInt32(int value) {
@@ -147,12 +412,15 @@ public class DataViewStream {
   }
 
   public void putInt32(int value, boolean littleEndian) {
-    dataView.setInt32(offset, value, littleEndian);
-    offset += 4;
+    int position = write(4);
+    dataView.setInt32(position, value, littleEndian);
+    advance(4);
   }
 
   public void putInt8(int value) {
-    dataView.setInt8(offset++, value);
+    int position = write(1);
+    dataView.setInt8(position, value);
+    advance(1);
   }
 
   public void putUint16(int value) {
@@ -160,8 +428,9 @@ public class DataViewStream {
   }
 
   public void putUint16(int value, boolean littleEndian) {
-    dataView.setUint16(offset, value, littleEndian);
-    offset += 2;
+    int position = write(2);
+    dataView.setUint16(position, value, littleEndian);
+    advance(2);
   }
 
   public void putUint32(long value) {
@@ -169,8 +438,9 @@ public class DataViewStream {
   }
 
   public void putUint32(long value, boolean littleEndian) {
-    dataView.setUint32(offset, value, littleEndian);
-    offset += 4;
+    int position = write(4);
+    dataView.setUint32(position, value, littleEndian);
+    advance(4);
   }
 
   /** @param value a double value to write as an unsigned 32 bit integer. */
@@ -184,22 +454,276 @@ public class DataViewStream {
    *     otherwise
    */
   public void putUint32FromDouble(double value, boolean littleEndian) {
-    dataView.setUint32FromDouble(offset, value, littleEndian);
-    offset += 4;
+    int position = write(4);
+    dataView.setUint32FromDouble(position, value, littleEndian);
+    advance(4);
   }
 
   public void putUint8(int value) {
-    dataView.setUint8(offset++, value);
+    int position = write(1);
+    dataView.setUint8(position, value);
+    advance(1);
+  }
+
+  /**
+   * Writes 32-bit floats from an array.
+   *
+   * @param src the array to write from
+   * @param srcOffset the index in {@code src} of the first value
+   * @param count the number of values to write
+   * @param littleEndian true if the values should be little endian, false otherwise
+   */
+  public void putFloat32s(Float32Array src, int srcOffset, int count, boolean littleEndian) {
+    int start = write(count * 4);
+    if (isAligned(start, 4, littleEndian)) {
+      TypedArrays.createFloat32Array(dataView.buffer(), dataView.byteOffset() + start, count)
+          .set(src.subarray(srcOffset, srcOffset + count));
+    } else {
+      for (int i = 0; i < count; i++) {
+        dataView.setFloat32(start + i * 4, src.get(srcOffset + i), littleEndian);
+      }
+    }
+    advance(count * 4);
+  }
+
+  /**
+   * Writes 32-bit ints from an array.
+   *
+   * @param src the array to write from
+   * @param srcOffset the index in {@code src} of the first value
+   * @param count the number of values to write
+   * @param littleEndian true if the values should be little endian, false otherwise
+   */
+  public void putInt32s(Int32Array src, int srcOffset, int count, boolean littleEndian) {
+    int start = write(count * 4);
+    if (isAligned(start, 4, littleEndian)) {
+      TypedArrays.createInt32Array(dataView.buffer(), dataView.byteOffset() + start, count)
+          .set(src.subarray(srcOffset, srcOffset + count));
+    } else {
+      for (int i = 0; i < count; i++) {
+        dataView.setInt32(start + i * 4, src.get(srcOffset + i), littleEndian);
+      }
+    }
+    advance(count * 4);
+  }
+
+  /**
+   * Writes an unsigned LEB128 variable-length integer, of 1 to 5 bytes.
+   *
+   * @param value the value, negative values are written as their unsigned 32-bit equivalent
+   */
+  public void putVarUint32(int value) {
+    int size = 1;
+    for (int rest = value >>> 7; rest != 0; rest >>>= 7) {
+      size++;
+    }
+    int position = write(size);
+    while ((value & ~0x7F) != 0) {
+      dataView.setUint8(position++, (value & 0x7F) | 0x80);
+      value >>>= 7;
+    }
+    dataView.setUint8(position, value);
+    advance(size);
+  }
+
+  /**
+   * Writes a signed, zigzag-encoded LEB128 variable-length integer, so that values close to zero
+   * take few bytes whatever their sign.
+   *
+   * @param value the value
+   */
+  public void putVarInt32(int value) {
+    putVarUint32((value << 1) ^ (value >> 31));
+  }
+
+  /**
+   * Writes an unsigned LEB128 variable-length integer, of 1 to 10 bytes.
+   *
+   * @param value the value, negative values are written as their unsigned 64-bit equivalent
+   */
+  public void putVarUint64(long value) {
+    int size = 1;
+    for (long rest = value >>> 7; rest != 0; rest >>>= 7) {
+      size++;
+    }
+    int position = write(size);
+    while ((value & ~0x7FL) != 0) {
+      dataView.setUint8(position++, (int) (value & 0x7F) | 0x80);
+      value >>>= 7;
+    }
+    dataView.setUint8(position, (int) value);
+    advance(size);
+  }
+
+  /**
+   * Writes a signed, zigzag-encoded LEB128 variable-length integer.
+   *
+   * @param value the value
+   */
+  public void putVarInt64(long value) {
+    putVarUint64((value << 1) ^ (value >> 63));
+  }
+
+  /**
+   * Writes a string as its length in bytes, as an unsigned variable-length integer, followed by its
+   * UTF-8 encoding. Unpaired surrogates are encoded as U+FFFD.
+   *
+   * @param value the string
+   */
+  public void putString(String value) {
+    int length = value.length();
+    int byteLength = 0;
+    for (int i = 0; i < length; i++) {
+      char c = value.charAt(i);
+      if (c < 0x80) {
+        byteLength++;
+      } else if (c < 0x800) {
+        byteLength += 2;
+      } else if (isSurrogatePair(value, i)) {
+        byteLength += 4;
+        i++;
+      } else {
+        byteLength += 3;
+      }
+    }
+    putVarUint32(byteLength);
+    int position = write(byteLength);
+    for (int i = 0; i < length; i++) {
+      int c = value.charAt(i);
+      if (c < 0x80) {
+        dataView.setUint8(position++, c);
+      } else if (c < 0x800) {
+        dataView.setUint8(position++, 0xC0 | (c >> 6));
+        dataView.setUint8(position++, 0x80 | (c & 0x3F));
+      } else if (isSurrogatePair(value, i)) {
+        int codePoint = 0x10000 + ((c - 0xD800) << 10) + (value.charAt(++i) - 0xDC00);
+        dataView.setUint8(position++, 0xF0 | (codePoint >> 18));
+        dataView.setUint8(position++, 0x80 | ((codePoint >> 12) & 0x3F));
+        dataView.setUint8(position++, 0x80 | ((codePoint >> 6) & 0x3F));
+        dataView.setUint8(position++, 0x80 | (codePoint & 0x3F));
+      } else {
+        if (c >= 0xD800 && c <= 0xDFFF) {
+          // unpaired surrogate
+          c = 0xFFFD;
+        }
+        dataView.setUint8(position++, 0xE0 | (c >> 12));
+        dataView.setUint8(position++, 0x80 | ((c >> 6) & 0x3F));
+        dataView.setUint8(position++, 0x80 | (c & 0x3F));
+      }
+    }
+    advance(byteLength);
+  }
+
+  /**
+   * Returns the number of bytes between the position and the limit.
+   *
+   * @return the number of bytes left to read
+   */
+  public int remaining() {
+    return limit - offset;
+  }
+
+  /**
+   * Moves back to the position remembered by {@link #mark()}.
+   *
+   * @throws IllegalStateException if no position has been marked
+   */
+  public void reset() {
+    if (mark < 0) {
+      throw new IllegalStateException("No mark");
+    }
+    offset = mark;
   }
 
   public void rewind() {
     offset = 0;
   }
 
+  /**
+   * Empties the stream so that it can be reused: moves to the start, forgets the mark and, for a
+   * growable stream, the bytes written. The buffer is kept.
+   */
+  public void clear() {
+    offset = 0;
+    mark = -1;
+    if (growable) {
+      limit = 0;
+    }
+  }
+
   public void setPosition(int position) {
-    if (position < 0 || position >= dataView.byteLength()) {
+    if (position < 0 || position > limit) {
       throw new IndexOutOfBoundsException();
     }
     offset = position;
   }
+
+  /** Checks that {@code byteCount} bytes can be read, and returns the position to read them at. */
+  private int read(int byteCount) {
+    if (byteCount < 0 || byteCount > limit - offset) {
+      throw new IndexOutOfBoundsException();
+    }
+    return offset;
+  }
+
+  /**
+   * Makes room for {@code byteCount} bytes, growing the buffer if needed, and returns the position
+   * to write them at.
+   */
+  private int write(int byteCount) {
+    int capacity = dataView.byteLength();
+    if (byteCount < 0 || byteCount > capacity - offset) {
+      if (!growable || byteCount < 0 || offset + byteCount < 0) {
+        throw new IndexOutOfBoundsException();
+      }
+      grow(offset + byteCount);
+    }
+    return offset;
+  }
+
+  /** Moves past {@code byteCount} bytes that have been written. */
+  private void advance(int byteCount) {
+    offset += byteCount;
+    if (offset > limit) {
+      limit = offset;
+    }
+  }
+
+  private void grow(int minCapacity) {
+    int capacity = 2 * dataView.byteLength();
+    if (capacity < minCapacity) {
+      // also covers overflow
+      capacity = minCapacity;
+    }
+    ArrayBuffer buffer = TypedArrays.createArrayBuffer(capacity);
+    TypedArrays.createUint8Array(buffer).set(toUint8Array());
+    dataView = TypedArrays.createDataView(buffer);
+  }
+
+  /**
+   * Returns whether values at a position can be transferred through a typed array view: the
+   * position must be aligned, and the byte order must be that of the platform.
+   */
+  private boolean isAligned(int position, int bytesPerElement, boolean littleEndian) {
+    return (dataView.byteOffset() + position) % bytesPerElement == 0
+        && littleEndian == isLittleEndianPlatform();
+  }
+
+  private static boolean isLittleEndianPlatform() {
+    if (littleEndianPlatform < 0) {
+      ArrayBuffer buffer = TypedArrays.createArrayBuffer(2);
+      TypedArrays.createUint16Array(buffer).set(0, 1);
+      littleEndianPlatform = TypedArrays.createDataView(buffer).getUint8(0);
+    }
+    return littleEndianPlatform == 1;
+  }
+
+  private static boolean isSurrogatePair(String value, int index) {
+    char c = value.charAt(index);
+    if (c < 0xD800 || c > 0xDBFF || index + 1 >= value.length()) {
+      return false;
+    }
+    char next = value.charAt(index + 1);
+    return next >= 0xDC00 && next <= 0xDFFF;
+  }
 }
@@ -16,6 +16,7 @@
 package org.gwtproject.user.cellview.client;
 
 import com.google.j2cl.junit.apt.J2clTestInput;
+import java.util.List;
 import org.gwtproject.dom.client.TableCellElement;
 import org.gwtproject.dom.client.TableElement;
 import org.gwtproject.dom.client.TableRowElement;
@@ -88,6 +89,46 @@ public class DataGridTest extends AbstractCellTableTestBase<DataGrid<String>> {
     RootPanel.get().remove(table);
   }
 
+  /** Test that rows still displayed after the page start changes are kept. */
+  public void testRecycleRows() {
+    DataGrid<String> table = createAbstractHasData();
+    table.addColumn(
+        new TextColumn<String>() {
+          @Override
+          public String getValue(String object) {
+            return object;
+          }
+        });
+    table.setRecycleRows(true);
+    List<String> values = createData(0, 20);
+    table.setVisibleRange(0, 10);
+    table.setRowData(0, values.subList(0, 10));
+    table.getPresenter().flush();
+    TableSectionElement tbody = table.getTableBodyElement();
+    TableRowElement kept = tbody.getRows().getItem(5);
+
+    // Scroll down by three rows.
+    table.setVisibleRange(3, 10);
+    table.setRowData(3, values.subList(3, 13));
+    table.getPresenter().flush();
+    assertEquals(10, tbody.getRows().getLength());
+    assertSame(kept, tbody.getRows().getItem(2));
+    assertEquals(values.get(12), getBodyElement(table, 9, 0).getInnerText());
+
+    // Scroll back up.
+    table.setVisibleRange(1, 10);
+    table.setRowData(1, values.subList(1, 11));
+    table.getPresenter().flush();
+    assertEquals(10, tbody.getRows().getLength());
+    assertSame(kept, tbody.getRows().getItem(4));
+    assertEquals(values.get(1), getBodyElement(table, 0, 0).getInnerText());
+
+    // A redraw renders all rows again.
+    table.redraw();
+    table.getPresenter().flush();
+    assertNotSame(kept, tbody.getRows().getItem(4));
+  }
+
   @Override
   protected DataGrid<String> createAbstractHasData() {
     return new DataGrid<String>();
@@ -0,0 +1,169 @@
+/*
+ * Copyright © 2019 The GWT Project Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.gwtproject.view.client;
+
+import com.google.j2cl.junit.apt.J2clTestInput;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+
+/** Test cases for {@link ListDataView}. */
+@J2clTestInput(ListDataViewTest.class)
+public class ListDataViewTest extends AbstractDataProviderTest {
+
+  private static final Comparator<String> LENGTH =
+      new Comparator<String>() {
+        @Override
+        public int compare(String o1, String o2) {
+          return o1.length() - o2.length();
+        }
+      };
+
+  public void testFilter() {
+    ListDataProvider<String> source = new ListDataProvider<String>(source("a", "bb", "c", "dd"));
+    ListDataView<String> view = new ListDataView<String>(source);
+    MockHasData<String> display = createDisplay(view);
+
+    view.setFilter(s -> s.length() == 1);
+    view.flush();
+    assertEquals(list("a", "c"), view.getList());
+    assertEquals(2, display.getRowCount());
+    assertEquals(list("a", "c"), display.getLastRowData());
+
+    // Values rejected by the filter do not affect the displays.
+    display.clearLastRowDataAndRange();
+    source.getList().add(0, "ee");
+    source.flush();
+    view.flush();
+    assertNull(display.getLastRowDataRange());
+
+    // Accepted values are inserted in place.
+    source.getList().add(2, "f");
+    view.flush();
+    assertEquals(list("a", "f", "c"), view.getList());
+    assertEquals(new Range(1, 2), display.getLastRowDataRange());
+  }
+
+  public void testDetach() {
+    ListDataProvider<String> source = new ListDataProvider<String>(source("a", "bb"));
+    ListDataView<String> view = new ListDataView<String>(source);
+    MockHasData<String> display = createDisplay(view);
+    view.flush();
+
+    view.detach();
+    display.clearLastRowDataAndRange();
+    source.getList().add("c");
+    source.flush();
+    view.flush();
+    assertEquals(list("a", "bb"), view.getList());
+    assertNull(display.getLastRowDataRange());
+
+    // Detaching again has no effect.
+    view.detach();
+    assertEquals(list("a", "bb", "c"), source.getList());
+  }
+
+  public void testSortInsertRemove() {
+    ListDataProvider<String> source =
+        new ListDataProvider<String>(source("ccc", "a", "dddd", "bb"));
+    ListDataView<String> view = new ListDataView<String>(source);
+    view.addSortIndex("length", LENGTH);
+    MockHasData<String> display = createDisplay(view);
+
+    view.setSort("length", true);
+    view.flush();
+    assertEquals(list("a", "bb", "ccc", "dddd"), view.getList());
+    assertEquals(new Range(0, 4), display.getLastRowDataRange());
+
+    // The new row and the rows after it are pushed.
+    display.clearLastRowDataAndRange();
+    source.getList().add("eeeee");
+    view.flush();
+    assertEquals(list("a", "bb", "ccc", "dddd", "eeeee"), view.getList());
+    assertEquals(new Range(4, 1), display.getLastRowDataRange());
+
+    source.getList().remove("bb");
+    view.flush();
+    assertEquals(list("a", "ccc", "dddd", "eeeee"), view.getList());
+    assertEquals(new Range(1, 3), display.getLastRowDataRange());
+
+    // Descending order.
+    view.setSort("length", false);
+    view.flush();
+    assertEquals(list("eeeee", "dddd", "ccc", "a"), view.getList());
+  }
+
+  public void testSortSet() {
+    ListDataProvider<String> source =
+        new ListDataProvider<String>(source("a", "bb", "ccc", "dddd", "eeeee"));
+    ListDataView<String> view = new ListDataView<String>(source);
+    view.addSortIndex("length", LENGTH);
+    view.setSort("length", true);
+    MockHasData<String> display = createDisplay(view);
+    view.flush();
+    display.clearLastRowDataAndRange();
+
+    // Only the rows between the old and the new index are pushed.
+    source.getList().set(1, "xxxx");
+    view.flush();
+    assertEquals(list("a", "ccc", "dddd", "xxxx", "eeeee"), view.getList());
+    assertEquals(new Range(1, 3), display.getLastRowDataRange());
+
+    // Equal values stay in the order in which they were added.
+    source.getList().set(0, "yyyy");
+    view.flush();
+    assertEquals(list("ccc", "dddd", "xxxx", "yyyy", "eeeee"), view.getList());
+  }
+
+  public void testClearSort() {
+    ListDataProvider<String> source = new ListDataProvider<String>(source("bb", "a"));
+    ListDataView<String> view = new ListDataView<String>(source);
+    view.addSortIndex("length", LENGTH);
+    view.setSort("length", true);
+    assertEquals(list("a", "bb"), view.getList());
+
+    view.clearSort();
+    assertEquals(list("bb", "a"), view.getList());
+
+    try {
+      view.setSort("unknown", true);
+      fail("Expected IllegalArgumentException");
+    } catch (IllegalArgumentException e) {
+      // Expected.
+    }
+  }
+
+  @Override
+  protected AbstractDataProvider<String> createDataProvider() {
+    return new ListDataView<String>(new ListDataProvider<String>());
+  }
+
+  private MockHasData<String> createDisplay(ListDataView<String> view) {
+    MockHasData<String> display = new MockHasData<String>();
+    display.setVisibleRange(0, 10);
+    view.addDataDisplay(display);
+    return display;
+  }
+
+  private static List<String> list(String... values) {
+    return Arrays.asList(values);
+  }
+
+  private static List<String> source(String... values) {
+    return new ArrayList<String>(Arrays.asList(values));
+  }
+}
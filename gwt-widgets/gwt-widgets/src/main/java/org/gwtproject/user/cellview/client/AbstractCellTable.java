@@ -543,6 +543,81 @@ public abstract class AbstractCellTable<T> extends AbstractHasData<T> {
       }
     }
 
+    /**
+     * Remove the rows outside of a range of row values and render new rows before and after the
+     * remaining rows.
+     *
+     * @param table the {@link AbstractCellTable}
+     * @param section the {@link TableSectionElement} containing the rows
+     * @param keepStart the absolute index of the first row value to keep
+     * @param keepEnd the absolute index after the last row value to keep
+     * @param headHtml the html of the rows to insert before the kept rows, or null
+     * @param tailHtml the html of the rows to append after the kept rows, or null
+     */
+    public final void replaceShiftedRows(
+        AbstractCellTable<?> table,
+        TableSectionElement section,
+        int keepStart,
+        int keepEnd,
+        SafeHtml headHtml,
+        SafeHtml tailHtml) {
+      // If the widget is not attached, attach an event listener so we can catch
+      // synchronous load events from cached images.
+      if (!table.isAttached()) {
+        DOM.setEventListener(table.getElement(), table);
+      }
+
+      // Remove the section from the tbody.
+      Element parent = section.getParentElement();
+      Element nextSection = section.getNextSiblingElement();
+      detachSectionElement(section);
+
+      // Remove the rows that left the page.
+      NodeList<TableRowElement> rows = section.getRows();
+      while (rows.getLength() > 0
+          && table.tableBuilder.getRowValueIndex(rows.getItem(0)) < keepStart) {
+        section.removeChild(rows.getItem(0));
+      }
+      while (rows.getLength() > 0
+          && table.tableBuilder.getRowValueIndex(rows.getItem(rows.getLength() - 1)) >= keepEnd) {
+        section.removeChild(rows.getItem(rows.getLength() - 1));
+      }
+
+      // Add the rows that entered the page.
+      if (headHtml != null) {
+        Element firstKept = section.getFirstChildElement();
+        TableSectionElement newSection =
+            convertToSectionElement(table, section.getTagName(), headHtml);
+        Element newChild = newSection.getFirstChildElement();
+        while (newChild != null) {
+          Element next = newChild.getNextSiblingElement();
+          section.insertBefore(newChild, firstKept);
+          newChild = next;
+        }
+      }
+      if (tailHtml != null) {
+        TableSectionElement newSection =
+            convertToSectionElement(table, section.getTagName(), tailHtml);
+        Element newChild = newSection.getFirstChildElement();
+        while (newChild != null) {
+          Element next = newChild.getNextSiblingElement();
+          section.appendChild(newChild);
+          newChild = next;
+        }
+      }
+
+      /*
+       * Reattach the section. If next section is null, the section will be
+       * appended instead.
+       */
+      reattachSectionElement(parent, section, nextSection);
+
+      // Detach the event listener.
+      if (!table.isAttached()) {
+        DOM.setEventListener(table.getElement(), null);
+      }
+    }
+
     /**
      * Detach a table section element from its parent.
      *
@@ -673,6 +748,21 @@ public abstract class AbstractCellTable<T> extends AbstractHasData<T> {
   private boolean skipRowHoverFloatElementCheck;
   private boolean skipRowHoverStyleUpdate;
 
+  /** Indicates that rows still displayed after the page start changes are not rendered again. */
+  private boolean recycleRows;
+
+  /**
+   * The row values currently rendered and their selection state, used to recycle rows. Null if
+   * unknown, which forces the next render to render all rows.
+   */
+  private List<T> renderedRowValues;
+
+  private boolean[] renderedRowSelected;
+  private int renderedRowStart;
+
+  /** The absolute index of the row that was last keyboard selected, or -1. */
+  private int renderedKeyboardRow = -1;
+
   /**
    * Constructs a table with the given page size, the specified {@link Style}, and the given key
    * provider.
@@ -1911,6 +2001,13 @@ public abstract class AbstractCellTable<T> extends AbstractHasData<T> {
     }
   }
 
+  @Override
+  public void redraw() {
+    // The row values may be the same, but the way they are rendered has changed.
+    renderedRowValues = null;
+    super.redraw();
+  }
+
   @Override
   protected void replaceAllChildren(List<T> values, SafeHtml html) {
     refreshHeadersAndColumnsImpl();
@@ -1921,11 +2018,15 @@ public abstract class AbstractCellTable<T> extends AbstractHasData<T> {
      * The legacy method is deprecated but still supported.
      */
     if (html == null || legacyRenderRowValues == false) {
+      if (recycleRows && replaceShiftedRows(values)) {
+        return;
+      }
       html = buildRowValues(values, getPageStart(), true);
     }
 
     TABLE_IMPL.replaceAllRows(
         this, getTableBodyElement(), CellBasedWidgetImpl.get().processHtml(html));
+    rememberRenderedRows(values, 0);
   }
 
   @Override
@@ -1947,6 +2048,7 @@ public abstract class AbstractCellTable<T> extends AbstractHasData<T> {
         CellBasedWidgetImpl.get().processHtml(html),
         start,
         values.size());
+    rememberRenderedRows(values, start);
   }
 
   @Override
@@ -1985,6 +2087,7 @@ public abstract class AbstractCellTable<T> extends AbstractHasData<T> {
     if (selected) {
       subrow = keyboardSelectedSubrow;
       lastKeyboardSelectedSubrow = keyboardSelectedSubrow;
+      renderedKeyboardRow = index + getPageStart();
     }
 
     // Deselect the row.
@@ -2023,6 +2126,22 @@ public abstract class AbstractCellTable<T> extends AbstractHasData<T> {
     }
   }
 
+  /**
+   * Set whether the rows that are still displayed when the page start changes are kept, instead of
+   * rendering all rows again. Only the rows that scroll into the page are rendered, which makes
+   * shifting the visible range by a few rows cheap. Rows are only kept if their values are the same
+   * instances, with the same selection state, as when they were rendered.
+   *
+   * <p>Tables rendered with the deprecated {@link #renderRowValues(SafeHtmlBuilder, List, int,
+   * SelectionModel)} are always rendered completely.
+   *
+   * @param recycleRows true to keep the rows that are still displayed
+   */
+  void setRecycleRows(boolean recycleRows) {
+    this.recycleRows = recycleRows;
+    renderedRowValues = null;
+  }
+
   /**
    * Get the column width. Associating a width with a {@link Column} takes precedence over setting
    * the width of a column index.
@@ -2109,6 +2228,113 @@ public abstract class AbstractCellTable<T> extends AbstractHasData<T> {
     return null;
   }
 
+  /**
+   * Update the rows after the page start changed by removing the rows that left the page and only
+   * rendering the rows that entered it.
+   *
+   * @param values the row values of the page
+   * @return true if the rows were updated, false if all rows must be rendered
+   */
+  private boolean replaceShiftedRows(List<T> values) {
+    if (renderedRowValues == null) {
+      return false;
+    }
+    int oldStart = renderedRowStart;
+    int newStart = getPageStart();
+    int newEnd = newStart + values.size();
+    int keepStart = Math.max(oldStart, newStart);
+    int keepEnd = Math.min(oldStart + renderedRowValues.size(), newEnd);
+    if (newStart == oldStart || keepStart >= keepEnd) {
+      // The data itself changed, or there is nothing to keep.
+      return false;
+    }
+
+    // Only keep rows that would be rendered the same way.
+    SelectionModel<? super T> selectionModel = getSelectionModel();
+    for (int i = keepStart; i < keepEnd; i++) {
+      T value = values.get(i - newStart);
+      if (value != renderedRowValues.get(i - oldStart)
+          || isSelected(selectionModel, value) != renderedRowSelected[i - oldStart]) {
+        return false;
+      }
+    }
+
+    SafeHtml headHtml = null;
+    if (keepStart > newStart) {
+      headHtml =
+          CellBasedWidgetImpl.get()
+              .processHtml(
+                  buildRowValues(values.subList(0, keepStart - newStart), newStart, false));
+    }
+    SafeHtml tailHtml = null;
+    if (newEnd > keepEnd) {
+      tailHtml =
+          CellBasedWidgetImpl.get()
+              .processHtml(
+                  buildRowValues(
+                      values.subList(keepEnd - newStart, values.size()), keepEnd, false));
+    }
+    /*
+     * The kept rows move under the mouse, so the hovered row element no longer
+     * shows the row the mouse is over. The next mouseover will resolve it again.
+     */
+    if (hoveringRow != null) {
+      if (!skipRowHoverStyleUpdate) {
+        setRowStyleName(hoveringRow, style.hoveredRow(), style.hoveredRowCell(), false);
+      }
+      hoveringRow = null;
+    }
+    TABLE_IMPL.replaceShiftedRows(
+        this, getTableBodyElement(), keepStart, keepEnd, headHtml, tailHtml);
+
+    // The kept row that was keyboard selected may no longer be.
+    if (renderedKeyboardRow >= keepStart && renderedKeyboardRow < keepEnd) {
+      setKeyboardSelected(renderedKeyboardRow - newStart, false, false);
+    }
+    renderedKeyboardRow = getKeyboardSelectedRow() + newStart;
+
+    rememberRenderedRows(values, 0);
+    return true;
+  }
+
+  /**
+   * Record the row values that have been rendered, so they can be recycled.
+   *
+   * @param values the rendered row values
+   * @param start the start index of the values, relative to the page start
+   */
+  private void rememberRenderedRows(List<T> values, int start) {
+    if (!recycleRows || legacyRenderRowValues) {
+      renderedRowValues = null;
+      return;
+    }
+    int pageStart = getPageStart();
+    if (start == 0) {
+      renderedRowValues = new ArrayList<T>(values);
+      renderedRowSelected = new boolean[values.size()];
+      renderedRowStart = pageStart;
+      renderedKeyboardRow = getKeyboardSelectedRow() + pageStart;
+    } else if (renderedRowValues == null
+        || renderedRowStart != pageStart
+        || start + values.size() > renderedRowValues.size()) {
+      // The rendered rows are not known.
+      renderedRowValues = null;
+      return;
+    } else {
+      for (int i = 0; i < values.size(); i++) {
+        renderedRowValues.set(start + i, values.get(i));
+      }
+    }
+    SelectionModel<? super T> selectionModel = getSelectionModel();
+    for (int i = 0; i < values.size(); i++) {
+      renderedRowSelected[start + i] = isSelected(selectionModel, values.get(i));
+    }
+  }
+
+  private static <T> boolean isSelected(SelectionModel<? super T> selectionModel, T value) {
+    return selectionModel != null && value != null && selectionModel.isSelected(value);
+  }
+
   /**
    * Build a list of row values.
    *
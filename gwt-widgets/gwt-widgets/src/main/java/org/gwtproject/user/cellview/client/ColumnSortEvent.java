@@ -25,6 +25,7 @@ import org.gwtproject.event.shared.HasHandlers;
 import org.gwtproject.view.client.AsyncDataProvider;
 import org.gwtproject.view.client.HasData;
 import org.gwtproject.view.client.ListDataProvider;
+import org.gwtproject.view.client.ListDataView;
 import org.gwtproject.view.client.Range;
 
 /** Represents a column sort event. */
@@ -59,6 +60,45 @@ public class ColumnSortEvent extends Event<ColumnSortEvent.Handler> {
     }
   }
 
+  /**
+   * A handler used to sort a {@link ListDataView}. Each column with a {@link Comparator} gets a
+   * sort index in the view, so that sorting by a column does not sort the list, and modifications
+   * of the list only update the rows that changed.
+   *
+   * @param <T> the data type of the list
+   */
+  public static class ListDataViewHandler<T> implements Handler {
+    private final ListDataView<T> view;
+
+    public ListDataViewHandler(ListDataView<T> view) {
+      this.view = view;
+    }
+
+    public ListDataView<T> getView() {
+      return view;
+    }
+
+    public void onColumnSort(ColumnSortEvent event) {
+      // Get the sorted column.
+      Column<?, ?> column = event.getColumn();
+      if (column == null || !view.hasSortIndex(column)) {
+        return;
+      }
+
+      view.setSort(column, event.isSortAscending());
+    }
+
+    /**
+     * Set the comparator used to sort the specified column in ascending order.
+     *
+     * @param column the {@link Column}
+     * @param comparator the {@link Comparator} to use for the {@link Column}
+     */
+    public void setComparator(Column<T, ?> column, Comparator<T> comparator) {
+      view.addSortIndex(column, comparator);
+    }
+  }
+
   /**
    * A default handler used to sort a {@link List} backing a table. If the sorted column has an
    * associated {@link Comparator}, the list is sorted using the comparator.
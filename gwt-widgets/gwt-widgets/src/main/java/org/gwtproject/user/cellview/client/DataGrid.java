@@ -27,6 +27,7 @@ import org.gwtproject.dom.style.shared.TableLayout;
 import org.gwtproject.dom.style.shared.Unit;
 import org.gwtproject.event.dom.client.ScrollEvent;
 import org.gwtproject.event.dom.client.ScrollHandler;
+import org.gwtproject.event.shared.HandlerRegistration;
 import org.gwtproject.resources.client.ClientBundle;
 import org.gwtproject.resources.client.CssResource;
 import org.gwtproject.resources.client.CssResource.ImportedWithPrefix;
@@ -42,6 +43,9 @@ import org.gwtproject.user.client.ui.ScrollPanel;
 import org.gwtproject.user.client.ui.SimplePanel;
 import org.gwtproject.user.client.ui.Widget;
 import org.gwtproject.view.client.ProvidesKey;
+import org.gwtproject.view.client.Range;
+import org.gwtproject.view.client.RangeChangeEvent;
+import org.gwtproject.view.client.RowCountChangeEvent;
 
 /**
  * A tabular view with a fixed header and footer section and a scrollable data section in the
@@ -451,6 +455,7 @@ public class DataGrid<T> extends AbstractCellTable<T> implements RequiresResize
   private final Element tableFooterScroller;
   private final SimplePanel tableHeaderContainer;
   private final Element tableHeaderScroller;
+  private VirtualScroller virtualScroller;
 
   /** Constructs a table with a default page size of 50. */
   public DataGrid() {
@@ -628,9 +633,34 @@ public class DataGrid<T> extends AbstractCellTable<T> implements RequiresResize
     tableDataContainer.getStyle().clearWidth();
   }
 
+  /**
+   * Disable virtual scrolling. The visible range is left as it is.
+   *
+   * @see #setVirtualScrolling(int, int)
+   */
+  public void clearVirtualScrolling() {
+    if (virtualScroller != null) {
+      virtualScroller.dispose();
+      virtualScroller = null;
+    }
+  }
+
+  /**
+   * Check whether virtual scrolling is enabled.
+   *
+   * @return true if only the rows inside the viewport are rendered
+   * @see #setVirtualScrolling(int, int)
+   */
+  public boolean isVirtualScrolling() {
+    return virtualScroller != null;
+  }
+
   @Override
   public void onResize() {
     headerPanel.onResize();
+    if (virtualScroller != null) {
+      virtualScroller.update();
+    }
   }
 
   @Override
@@ -682,6 +712,33 @@ public class DataGrid<T> extends AbstractCellTable<T> implements RequiresResize
     tableDataContainer.getStyle().setProperty("minWidth", value, unit);
   }
 
+  /**
+   * Enable virtual scrolling: the grid scrolls through all rows, but only the rows inside the
+   * scroll viewport, plus {@code overscan} rows before and after them, are rendered. The visible
+   * range follows the scroll position, so the data provider is only asked for the rows that are
+   * displayed, and the rows that are still displayed after scrolling are reused rather than
+   * rendered again. The space of the rows that are not rendered is reserved with padding, so that
+   * the scroll bar reflects the row count.
+   *
+   * <p>All rows must have the given height, and the row count should be known, see {@link
+   * #setRowCount(int, boolean)}. The keyboard selected row is kept while it is in the visible
+   * range, and the grid scrolls to it when keyboard navigation changes the visible range.
+   *
+   * @param rowHeight the height of every row, in pixels
+   * @param overscan the number of rows rendered beyond each edge of the viewport
+   */
+  public void setVirtualScrolling(int rowHeight, int overscan) {
+    if (rowHeight <= 0) {
+      throw new IllegalArgumentException("Row height must be positive: " + rowHeight);
+    }
+    if (overscan < 0) {
+      throw new IllegalArgumentException("Overscan cannot be negative: " + overscan);
+    }
+    clearVirtualScrolling();
+    virtualScroller = new VirtualScroller(rowHeight, overscan);
+    virtualScroller.update();
+  }
+
   /**
    * Set the width of the tables in this widget. By default, the width is not set and the tables
    * take the available width.
@@ -784,4 +841,114 @@ public class DataGrid<T> extends AbstractCellTable<T> implements RequiresResize
     tableData.hideUnusedColumns(columnCount);
     tableFooter.hideUnusedColumns(columnCount);
   }
+
+  /** Keeps the visible range in line with the scroll position, see {@link #setVirtualScrolling}. */
+  private class VirtualScroller {
+
+    private final int rowHeight;
+    private final int overscan;
+    private final HandlerRegistration[] registrations;
+
+    /** Indicates that the visible range is being changed by this scroller. */
+    private boolean updating;
+
+    VirtualScroller(int rowHeight, int overscan) {
+      this.rowHeight = rowHeight;
+      this.overscan = overscan;
+      registrations =
+          new HandlerRegistration[] {
+            tableDataScroller.addScrollHandler(
+                new ScrollHandler() {
+                  @Override
+                  public void onScroll(ScrollEvent event) {
+                    update();
+                  }
+                }),
+            addRowCountChangeHandler(
+                new RowCountChangeEvent.Handler() {
+                  @Override
+                  public void onRowCountChange(RowCountChangeEvent event) {
+                    update();
+                  }
+                }),
+            addRangeChangeHandler(
+                new RangeChangeEvent.Handler() {
+                  @Override
+                  public void onRangeChange(RangeChangeEvent event) {
+                    if (!updating) {
+                      // Keyboard navigation or a pager moved the range.
+                      scrollToKeyboardSelectedRow();
+                    }
+                  }
+                }),
+            addRedrawHandler(
+                new RedrawEvent.Handler() {
+                  @Override
+                  public void onRedraw() {
+                    updatePadding();
+                  }
+                })
+          };
+      setRecycleRows(true);
+    }
+
+    void dispose() {
+      for (HandlerRegistration registration : registrations) {
+        registration.removeHandler();
+      }
+      setRecycleRows(false);
+      tableDataContainer.getStyle().clearPaddingTop();
+      tableDataContainer.getStyle().clearPaddingBottom();
+    }
+
+    /** Move the visible range if it does not cover the viewport, or has the wrong length. */
+    void update() {
+      int rowCount = getRowCount();
+      int visibleRows = tableDataScroller.getOffsetHeight() / rowHeight + 2;
+      int length = visibleRows + 2 * overscan;
+      int firstVisible = tableDataScroller.getVerticalScrollPosition() / rowHeight;
+      int lastVisible = Math.min(firstVisible + visibleRows, rowCount);
+
+      Range range = getVisibleRange();
+      if (range.getLength() != length
+          || firstVisible < range.getStart()
+          || lastVisible > range.getStart() + range.getLength()) {
+        int start = Math.max(0, Math.min(firstVisible - overscan, rowCount - length));
+        updating = true;
+        try {
+          setVisibleRange(start, length);
+        } finally {
+          updating = false;
+        }
+      }
+      updatePadding();
+    }
+
+    /** Reserve the space of the rows before and after the visible range. */
+    void updatePadding() {
+      int start = getPageStart();
+      int end = Math.max(start, Math.min(start + getPageSize(), getRowCount()));
+      tableDataContainer.getStyle().setPaddingTop(start * rowHeight, Unit.PX);
+      tableDataContainer
+          .getStyle()
+          .setPaddingBottom(Math.max(0, getRowCount() - end) * rowHeight, Unit.PX);
+    }
+
+    /** Scroll the keyboard selected row into the viewport. */
+    void scrollToKeyboardSelectedRow() {
+      int row = getKeyboardSelectedRow();
+      if (row < 0) {
+        return;
+      }
+      updatePadding();
+      int top = (getPageStart() + row) * rowHeight;
+      int scrollTop = tableDataScroller.getVerticalScrollPosition();
+      int viewportHeight = tableDataScroller.getOffsetHeight();
+      if (top < scrollTop) {
+        tableDataScroller.setVerticalScrollPosition(top);
+      } else if (top + rowHeight > scrollTop + viewportHeight) {
+        tableDataScroller.setVerticalScrollPosition(top + rowHeight - viewportHeight);
+      }
+    }
+  }
 }
@@ -40,6 +40,26 @@ import org.gwtproject.core.client.Scheduler.ScheduledCommand;
  */
 public class ListDataProvider<T> extends AbstractDataProvider<T> {
 
+  /**
+   * Notified of each modification of the list, as it happens, so that views over the list can be
+   * maintained incrementally.
+   *
+   * @param <T> the data type of the list
+   */
+  interface ListObserver<T> {
+    /** Called after a value has been inserted at the given index. */
+    void onInsert(int index, T value);
+
+    /** Called after the value at the given index has been removed. */
+    void onRemove(int index);
+
+    /** Called after the value at the given index has been replaced. */
+    void onSet(int index, T value);
+
+    /** Called when the list has changed in a way that is not described by the other methods. */
+    void onReset(List<T> list);
+  }
+
   /** A wrapper around a list that updates the model on any change. */
   private class ListWrapper implements List<T> {
 
@@ -205,6 +225,7 @@ public class ListDataProvider<T> extends AbstractDataProvider<T> {
         minModified = Math.min(minModified, index);
         maxModified = size();
         modified = true;
+        notifyInserted(index, 1);
         flush();
       } catch (IndexOutOfBoundsException e) {
         throw new IndexOutOfBoundsException(e.getMessage());
@@ -217,16 +238,19 @@ public class ListDataProvider<T> extends AbstractDataProvider<T> {
       minModified = Math.min(minModified, size() - 1);
       maxModified = size();
       modified = true;
+      notifyInserted(size() - 1, 1);
       flush();
       return toRet;
     }
 
     @Override
     public boolean addAll(Collection<? extends T> c) {
-      minModified = Math.min(minModified, size());
+      int oldSize = size();
+      minModified = Math.min(minModified, oldSize);
       boolean toRet = list.addAll(c);
       maxModified = size();
       modified = true;
+      notifyInserted(oldSize, size() - oldSize);
       flush();
       return toRet;
     }
@@ -234,10 +258,12 @@ public class ListDataProvider<T> extends AbstractDataProvider<T> {
     @Override
     public boolean addAll(int index, Collection<? extends T> c) {
       try {
+        int oldSize = size();
         boolean toRet = list.addAll(index, c);
         minModified = Math.min(minModified, index);
         maxModified = size();
         modified = true;
+        notifyInserted(index, size() - oldSize);
         flush();
         return toRet;
       } catch (IndexOutOfBoundsException e) {
@@ -250,6 +276,7 @@ public class ListDataProvider<T> extends AbstractDataProvider<T> {
       list.clear();
       minModified = maxModified = 0;
       modified = true;
+      notifyReset();
       flush();
     }
 
@@ -315,6 +342,7 @@ public class ListDataProvider<T> extends AbstractDataProvider<T> {
         minModified = Math.min(minModified, index);
         maxModified = size();
         modified = true;
+        notifyRemoved(index);
         flush();
         return toRet;
       } catch (IndexOutOfBoundsException e) {
@@ -338,6 +366,7 @@ public class ListDataProvider<T> extends AbstractDataProvider<T> {
       minModified = 0;
       maxModified = size();
       modified = true;
+      notifyReset();
       flush();
       return toRet;
     }
@@ -348,6 +377,7 @@ public class ListDataProvider<T> extends AbstractDataProvider<T> {
       minModified = 0;
       maxModified = size();
       modified = true;
+      notifyReset();
       flush();
       return toRet;
     }
@@ -358,6 +388,11 @@ public class ListDataProvider<T> extends AbstractDataProvider<T> {
       minModified = Math.min(minModified, index);
       maxModified = Math.max(maxModified, index + 1);
       modified = true;
+      if (!observers.isEmpty() && isCurrent()) {
+        for (ListObserver<T> observer : observers) {
+          observer.onSet(offset() + index, element);
+        }
+      }
       flush();
       return toRet;
     }
@@ -382,6 +417,57 @@ public class ListDataProvider<T> extends AbstractDataProvider<T> {
       return list.toArray(a);
     }
 
+    /**
+     * Check if this list, or the list it is a sublist of, is still the list of the data provider.
+     */
+    private boolean isCurrent() {
+      ListWrapper root = this;
+      while (root.delegate != null) {
+        root = root.delegate;
+      }
+      return root == listWrapper;
+    }
+
+    /** Get the index of the first value of this list in the list of the data provider. */
+    private int offset() {
+      int toRet = 0;
+      for (ListWrapper wrapper = this; wrapper.delegate != null; wrapper = wrapper.delegate) {
+        toRet += wrapper.offset;
+      }
+      return toRet;
+    }
+
+    /** Inform the observers of values inserted at the given index of this list. */
+    private void notifyInserted(int index, int count) {
+      if (observers.isEmpty() || !isCurrent()) {
+        return;
+      }
+      int offset = offset();
+      for (int i = index; i < index + count; i++) {
+        for (ListObserver<T> observer : observers) {
+          observer.onInsert(offset + i, list.get(i));
+        }
+      }
+    }
+
+    /** Inform the observers that the list changed in an unspecified way. */
+    private void notifyReset() {
+      if (isCurrent()) {
+        ListDataProvider.this.notifyReset();
+      }
+    }
+
+    /** Inform the observers of the value removed at the given index of this list. */
+    private void notifyRemoved(int index) {
+      if (observers.isEmpty() || !isCurrent()) {
+        return;
+      }
+      int offset = offset();
+      for (ListObserver<T> observer : observers) {
+        observer.onRemove(offset + index);
+      }
+    }
+
     /** Flush the data to the model. */
     private void flush() {
       // Defer to the delegate.
@@ -430,6 +516,9 @@ public class ListDataProvider<T> extends AbstractDataProvider<T> {
   /** The wrapper around the actual list. */
   private ListWrapper listWrapper;
 
+  /** The observers of the list. */
+  private final List<ListObserver<T>> observers = new ArrayList<ListObserver<T>>();
+
   /** Creates an empty model. */
   public ListDataProvider() {
     this(new ArrayList<T>(), null);
@@ -514,6 +603,7 @@ public class ListDataProvider<T> extends AbstractDataProvider<T> {
    * knows which rows were modified and can push only the modified rows the displays.
    */
   public void refresh() {
+    notifyReset();
     updateRowData(0, listWrapper);
   }
 
@@ -532,9 +622,35 @@ public class ListDataProvider<T> extends AbstractDataProvider<T> {
     listWrapper.minModified = 0;
     listWrapper.maxModified = listWrapper.size();
     listWrapper.modified = true;
+    notifyReset();
     flush();
   }
 
+  /**
+   * Add an observer that is notified of each modification of the list.
+   *
+   * @param observer the observer
+   */
+  void addObserver(ListObserver<T> observer) {
+    observers.add(observer);
+  }
+
+  /**
+   * Remove an observer that was added with {@link #addObserver(ListObserver)}.
+   *
+   * @param observer the observer
+   */
+  void removeObserver(ListObserver<T> observer) {
+    observers.remove(observer);
+  }
+
+  /** Inform the observers that the list changed in an unspecified way. */
+  private void notifyReset() {
+    for (ListObserver<T> observer : observers) {
+      observer.onReset(listWrapper);
+    }
+  }
+
   @Override
   protected void onRangeChanged(org.gwtproject.view.client.HasData<T> display) {
     int size = listWrapper.size();
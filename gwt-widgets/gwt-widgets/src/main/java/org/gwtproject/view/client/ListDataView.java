@@ -0,0 +1,668 @@
+/*
+ * Copyright © 2019 The GWT Project Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.gwtproject.view.client;
+
+import java.util.AbstractList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Predicate;
+import org.gwtproject.core.client.Scheduler;
+import org.gwtproject.core.client.Scheduler.ScheduledCommand;
+
+/**
+ * A sorted and filtered view of the list of a {@link ListDataProvider}, which is itself a data
+ * provider for displays.
+ *
+ * <p>The view keeps an index for each sort order added with {@link #addSortIndex(Object,
+ * Comparator)}, and applies each modification of the underlying list to the indexes in O(log n).
+ * Only the rows of the view that actually moved or changed are pushed to the displays, so that
+ * editing a single value of a large list does not require sorting and redrawing all of it.
+ * Switching between sort orders that have an index does not sort either, although all rows are
+ * pushed to the displays.
+ *
+ * <p>Values that are equal according to the comparator are kept in the order in which they were
+ * added to the view, in reverse order when sorting in descending order.
+ *
+ * <p>As with {@link ListDataProvider}, mutations of the values contained in the list are not
+ * detected. Call {@link List#set(int, Object)} on the list of the {@link ListDataProvider} to
+ * update a value, or call {@link #refresh()} to sort and filter all values again.
+ *
+ * @param <T> the data type of the list
+ */
+public class ListDataView<T> extends AbstractDataProvider<T> {
+
+  /** A value of the underlying list. */
+  private static final class Entry<T> {
+    final T value;
+
+    /** Orders values that compare as equal. */
+    final long sequence;
+
+    /** Whether the value is accepted by the filter. */
+    final boolean visible;
+
+    Entry(T value, long sequence, boolean visible) {
+      this.value = value;
+      this.sequence = sequence;
+      this.visible = visible;
+    }
+  }
+
+  /** A node of a {@link Tree}. */
+  private static final class Node<T> {
+    final Entry<T> entry;
+    final int priority;
+    Node<T> left;
+    Node<T> right;
+
+    /** The number of entries in this subtree. */
+    int count;
+
+    /** The number of visible entries in this subtree. */
+    int visibleCount;
+
+    Node(Entry<T> entry, int priority) {
+      this.entry = entry;
+      this.priority = priority;
+      update();
+    }
+
+    Node<T> update() {
+      count = 1 + count(left) + count(right);
+      visibleCount = (entry.visible ? 1 : 0) + visibleCount(left) + visibleCount(right);
+      return this;
+    }
+  }
+
+  /**
+   * A treap of entries, ordered either by position or by a comparator, which finds entries by index
+   * and indexes of entries in O(log n).
+   */
+  private final class Tree {
+
+    /** The order of the entries, or null to order them by position. */
+    final Comparator<Entry<T>> comparator;
+
+    Node<T> root;
+
+    /** The results of the last split. */
+    private Node<T> splitLeft;
+
+    private Node<T> splitRight;
+
+    Tree(Comparator<Entry<T>> comparator) {
+      this.comparator = comparator;
+    }
+
+    int size() {
+      return count(root);
+    }
+
+    /** Insert an entry at the given position, ignoring the comparator. */
+    void insertAt(int index, Entry<T> entry) {
+      splitAt(root, index);
+      Node<T> right = splitRight;
+      root = merge(merge(splitLeft, new Node<T>(entry, nextPriority())), right);
+    }
+
+    /** Remove the entry at the given position. */
+    Entry<T> removeAt(int index) {
+      splitAt(root, index);
+      Node<T> left = splitLeft;
+      splitAt(splitRight, 1);
+      root = merge(left, splitRight);
+      return splitLeft.entry;
+    }
+
+    /** Insert an entry at its place according to the comparator. */
+    void insert(Entry<T> entry) {
+      splitBy(root, entry);
+      Node<T> right = splitRight;
+      root = merge(merge(splitLeft, new Node<T>(entry, nextPriority())), right);
+    }
+
+    /** Remove an entry that was inserted with {@link #insert(Entry)}. */
+    void remove(Entry<T> entry) {
+      splitBy(root, entry);
+      Node<T> left = splitLeft;
+      splitAt(splitRight, 1);
+      assert splitLeft != null && splitLeft.entry == entry : "entry not found";
+      root = merge(left, splitRight);
+    }
+
+    /** Get the entry at the given position. */
+    Entry<T> get(int index) {
+      Node<T> node = root;
+      while (true) {
+        int leftCount = count(node.left);
+        if (index < leftCount) {
+          node = node.left;
+        } else if (index == leftCount) {
+          return node.entry;
+        } else {
+          index -= leftCount + 1;
+          node = node.right;
+        }
+      }
+    }
+
+    /** Get the visible entry at the given index among the visible entries. */
+    Entry<T> getVisible(int index) {
+      Node<T> node = root;
+      while (true) {
+        int leftCount = visibleCount(node.left);
+        if (index < leftCount) {
+          node = node.left;
+        } else if (index == leftCount && node.entry.visible) {
+          return node.entry;
+        } else {
+          index -= leftCount + (node.entry.visible ? 1 : 0);
+          node = node.right;
+        }
+      }
+    }
+
+    /** Get the number of visible entries before the given position. */
+    int visibleBefore(int index) {
+      int toRet = 0;
+      Node<T> node = root;
+      while (node != null) {
+        int leftCount = count(node.left);
+        if (index <= leftCount) {
+          node = node.left;
+        } else {
+          toRet += visibleCount(node.left) + (node.entry.visible ? 1 : 0);
+          index -= leftCount + 1;
+          node = node.right;
+        }
+      }
+      return toRet;
+    }
+
+    /** Get the number of entries before an entry, according to the comparator. */
+    int rank(Entry<T> entry) {
+      int toRet = 0;
+      Node<T> node = root;
+      while (node != null) {
+        int compare = comparator.compare(entry, node.entry);
+        if (compare == 0) {
+          return toRet + count(node.left);
+        } else if (compare < 0) {
+          node = node.left;
+        } else {
+          toRet += count(node.left) + 1;
+          node = node.right;
+        }
+      }
+      throw new IllegalStateException("entry not found");
+    }
+
+    /** Split a subtree into its first {@code index} nodes and the others. */
+    private void splitAt(Node<T> node, int index) {
+      if (node == null) {
+        splitLeft = splitRight = null;
+      } else if (count(node.left) < index) {
+        splitAt(node.right, index - count(node.left) - 1);
+        node.right = splitLeft;
+        splitLeft = node.update();
+      } else {
+        splitAt(node.left, index);
+        node.left = splitRight;
+        splitRight = node.update();
+      }
+    }
+
+    /** Split a subtree into the nodes before the given entry and the others. */
+    private void splitBy(Node<T> node, Entry<T> entry) {
+      if (node == null) {
+        splitLeft = splitRight = null;
+      } else if (comparator.compare(node.entry, entry) < 0) {
+        splitBy(node.right, entry);
+        node.right = splitLeft;
+        splitLeft = node.update();
+      } else {
+        splitBy(node.left, entry);
+        node.left = splitRight;
+        splitRight = node.update();
+      }
+    }
+
+    private Node<T> merge(Node<T> left, Node<T> right) {
+      if (left == null) {
+        return right;
+      } else if (right == null) {
+        return left;
+      } else if (left.priority > right.priority) {
+        left.right = merge(left.right, right);
+        return left.update();
+      } else {
+        right.left = merge(left, right.left);
+        return right.update();
+      }
+    }
+  }
+
+  /** The visible values, in the order of the view. */
+  private class ViewList extends AbstractList<T> {
+    @Override
+    public T get(int index) {
+      if (index < 0 || index >= size()) {
+        throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size());
+      }
+      if (sortIndex == null) {
+        return entries.getVisible(index).value;
+      }
+      return sortIndex.get(sortAscending ? index : size() - 1 - index).value;
+    }
+
+    @Override
+    public int size() {
+      return visibleCount(entries.root);
+    }
+  }
+
+  private static <T> int count(Node<T> node) {
+    return node == null ? 0 : node.count;
+  }
+
+  private static <T> int visibleCount(Node<T> node) {
+    return node == null ? 0 : node.visibleCount;
+  }
+
+  private final ListDataProvider<T> source;
+
+  /** Forwards the modifications of the underlying list, until the view is detached. */
+  private final ListDataProvider.ListObserver<T> observer =
+      new ListDataProvider.ListObserver<T>() {
+        @Override
+        public void onInsert(int index, T value) {
+          insert(index, value);
+        }
+
+        @Override
+        public void onRemove(int index) {
+          remove(index);
+        }
+
+        @Override
+        public void onSet(int index, T value) {
+          set(index, value);
+        }
+
+        @Override
+        public void onReset(List<T> list) {
+          reset(list);
+        }
+      };
+
+  /** All entries, in the order of the underlying list. */
+  private final Tree entries = new Tree(null);
+
+  /** The visible entries, sorted by each sort order. */
+  private final Map<Object, Tree> sortIndexes = new HashMap<Object, Tree>();
+
+  /** The current sort order, or null for the order of the underlying list. */
+  private Tree sortIndex;
+
+  private boolean sortAscending = true;
+
+  private Predicate<? super T> filter;
+
+  private final List<T> viewList = new ViewList();
+
+  private long nextSequence;
+
+  /** The state of the pseudo-random priorities of the nodes. */
+  private int seed = 0x2545F491;
+
+  /** The row count last pushed to the displays. */
+  private int curSize;
+
+  /** If modified is true, the smallest modified index. */
+  private int minModified = Integer.MAX_VALUE;
+
+  /** If modified is true, one past the largest modified index. */
+  private int maxModified = Integer.MIN_VALUE;
+
+  /** True if the view has been modified. */
+  private boolean modified;
+
+  /** Set to true if a flush is pending. */
+  private boolean flushPending;
+
+  /** Set to true if the pending flush has been canceled. */
+  private boolean flushCancelled;
+
+  /** Flushes the changes at the end of the current event loop, like {@link ListDataProvider}. */
+  private final ScheduledCommand flushCommand =
+      new ScheduledCommand() {
+        @Override
+        public void execute() {
+          flushPending = false;
+          if (flushCancelled) {
+            flushCancelled = false;
+            return;
+          }
+          flush();
+        }
+      };
+
+  /**
+   * Creates a view of the list of a data provider, in the order of that list until a sort order is
+   * set.
+   *
+   * @param source the data provider that holds the list
+   */
+  public ListDataView(ListDataProvider<T> source) {
+    super(source.getKeyProvider());
+    this.source = source;
+    source.addObserver(observer);
+    rebuild(source.getList());
+    curSize = viewList.size();
+    updateRowCount(curSize, true);
+  }
+
+  /**
+   * Add a sort order, and keep an index of the values in that order.
+   *
+   * @param key the key of the sort order, typically the column that is sorted
+   * @param comparator the ascending order of the values
+   */
+  public void addSortIndex(Object key, final Comparator<? super T> comparator) {
+    Tree index =
+        new Tree(
+            new Comparator<Entry<T>>() {
+              @Override
+              public int compare(Entry<T> o1, Entry<T> o2) {
+                int toRet = comparator.compare(o1.value, o2.value);
+                return toRet != 0 ? toRet : Long.compare(o1.sequence, o2.sequence);
+              }
+            });
+    fillSortIndex(index);
+    Tree replaced = sortIndexes.put(key, index);
+    if (replaced != null && replaced == sortIndex) {
+      sortIndex = index;
+      markModified(0, viewList.size());
+    }
+  }
+
+  /**
+   * Remove a sort order. If the view was sorted in that order, it reverts to the order of the
+   * underlying list.
+   *
+   * @param key the key of the sort order
+   */
+  public void removeSortIndex(Object key) {
+    Tree removed = sortIndexes.remove(key);
+    if (removed != null && removed == sortIndex) {
+      clearSort();
+    }
+  }
+
+  /**
+   * Check whether a sort order has been added.
+   *
+   * @param key the key of the sort order
+   * @return true if the sort order exists
+   */
+  public boolean hasSortIndex(Object key) {
+    return sortIndexes.containsKey(key);
+  }
+
+  /**
+   * Sort the view by a sort order added with {@link #addSortIndex(Object, Comparator)}.
+   *
+   * @param key the key of the sort order
+   * @param ascending true to sort in ascending order, false for descending order
+   * @throws IllegalArgumentException if there is no sort order with this key
+   */
+  public void setSort(Object key, boolean ascending) {
+    Tree index = sortIndexes.get(key);
+    if (index == null) {
+      throw new IllegalArgumentException("No sort index for " + key);
+    }
+    if (index != sortIndex || ascending != sortAscending) {
+      sortIndex = index;
+      sortAscending = ascending;
+      markModified(0, viewList.size());
+    }
+  }
+
+  /** Show the values in the order of the underlying list. */
+  public void clearSort() {
+    if (sortIndex != null) {
+      sortIndex = null;
+      sortAscending = true;
+      markModified(0, viewList.size());
+    }
+  }
+
+  /**
+   * Set the filter of the view. Only the values it accepts are shown.
+   *
+   * @param filter the filter, or null to show all values
+   */
+  public void setFilter(Predicate<? super T> filter) {
+    this.filter = filter;
+    refresh();
+  }
+
+  /**
+   * Get the filter of the view.
+   *
+   * @return the filter, or null if all values are shown
+   */
+  public Predicate<? super T> getFilter() {
+    return filter;
+  }
+
+  /**
+   * Get the visible values, in the order of the view. The list cannot be modified; modify the list
+   * of the underlying {@link ListDataProvider} instead.
+   *
+   * @return the values of the view
+   */
+  public List<T> getList() {
+    return viewList;
+  }
+
+  /**
+   * Get the data provider that holds the underlying list.
+   *
+   * @return the {@link ListDataProvider}
+   */
+  public ListDataProvider<T> getSource() {
+    return source;
+  }
+
+  /**
+   * Stop following the modifications of the underlying list, so that the data provider no longer
+   * holds on to this view. The view keeps its current values, and calling this method again has no
+   * effect.
+   */
+  public void detach() {
+    source.removeObserver(observer);
+  }
+
+  /**
+   * Filter and sort all values again, and push all rows to the displays. Use this method after
+   * mutating the values contained within the list.
+   */
+  public void refresh() {
+    reset(source.getList());
+  }
+
+  /**
+   * Flush pending changes to the displays. By default, displays are informed of modifications at
+   * the end of the current event loop.
+   */
+  public void flush() {
+    // Cancel any pending flush command.
+    if (flushPending) {
+      flushCancelled = true;
+    }
+
+    int newSize = viewList.size();
+    if (curSize != newSize) {
+      curSize = newSize;
+      updateRowCount(curSize, true);
+    }
+
+    if (modified) {
+      int max = Math.min(maxModified, newSize);
+      int min = Math.min(minModified, max);
+      updateRowData(min, viewList.subList(min, max));
+      modified = false;
+    }
+    minModified = Integer.MAX_VALUE;
+    maxModified = Integer.MIN_VALUE;
+  }
+
+  @Override
+  protected void onRangeChanged(HasData<T> display) {
+    if (viewList.size() > 0) {
+      // Do not push data if the data set is empty.
+      updateRowData(display, 0, viewList);
+    }
+  }
+
+  /**
+   * Get the index of a visible entry in the view.
+   *
+   * @param entry the entry
+   * @param position the position of the entry in the underlying list
+   */
+  private int indexOf(Entry<T> entry, int position) {
+    if (sortIndex == null) {
+      return entries.visibleBefore(position);
+    }
+    int rank = sortIndex.rank(entry);
+    return sortAscending ? rank : sortIndex.size() - 1 - rank;
+  }
+
+  private void insert(int position, T value) {
+    Entry<T> entry = createEntry(value);
+    entries.insertAt(position, entry);
+    if (entry.visible) {
+      for (Tree index : sortIndexes.values()) {
+        index.insert(entry);
+      }
+      // The rows after the new one all shift by one.
+      markModified(indexOf(entry, position), viewList.size());
+    }
+  }
+
+  private void remove(int position) {
+    Entry<T> entry = entries.get(position);
+    if (entry.visible) {
+      int index = indexOf(entry, position);
+      for (Tree tree : sortIndexes.values()) {
+        tree.remove(entry);
+      }
+      entries.removeAt(position);
+      markModified(index, viewList.size());
+    } else {
+      entries.removeAt(position);
+    }
+  }
+
+  private void set(int position, T value) {
+    Entry<T> oldEntry = entries.get(position);
+    int oldIndex = oldEntry.visible ? indexOf(oldEntry, position) : -1;
+    if (oldEntry.visible) {
+      for (Tree index : sortIndexes.values()) {
+        index.remove(oldEntry);
+      }
+    }
+    entries.removeAt(position);
+
+    Entry<T> newEntry = createEntry(value);
+    entries.insertAt(position, newEntry);
+    int newIndex = -1;
+    if (newEntry.visible) {
+      for (Tree index : sortIndexes.values()) {
+        index.insert(newEntry);
+      }
+      newIndex = indexOf(newEntry, position);
+    }
+
+    if (oldIndex >= 0 && newIndex >= 0) {
+      // Only the rows between the old and the new index move.
+      markModified(Math.min(oldIndex, newIndex), Math.max(oldIndex, newIndex) + 1);
+    } else if (oldIndex >= 0 || newIndex >= 0) {
+      // The row appeared or disappeared, so the rows after it shift.
+      markModified(Math.max(oldIndex, newIndex), viewList.size());
+    }
+  }
+
+  private void reset(List<T> list) {
+    rebuild(list);
+    markModified(0, viewList.size());
+  }
+
+  /** Filter and index all values of the list. */
+  private void rebuild(List<T> list) {
+    entries.root = null;
+    for (T value : list) {
+      entries.insertAt(entries.size(), createEntry(value));
+    }
+    for (Tree index : sortIndexes.values()) {
+      fillSortIndex(index);
+    }
+  }
+
+  private Entry<T> createEntry(T value) {
+    return new Entry<T>(value, nextSequence++, filter == null || filter.test(value));
+  }
+
+  /** Fill a sort index with the visible entries. */
+  private void fillSortIndex(Tree index) {
+    index.root = null;
+    fillSortIndex(index, entries.root);
+  }
+
+  private void fillSortIndex(Tree index, Node<T> node) {
+    if (node != null) {
+      fillSortIndex(index, node.left);
+      if (node.entry.visible) {
+        index.insert(node.entry);
+      }
+      fillSortIndex(index, node.right);
+    }
+  }
+
+  private int nextPriority() {
+    // xorshift, which is good enough to balance the trees.
+    seed ^= seed << 13;
+    seed ^= seed >>> 17;
+    seed ^= seed << 5;
+    return seed;
+  }
+
+  private void markModified(int min, int max) {
+    minModified = Math.min(minModified, min);
+    maxModified = Math.max(maxModified, max);
+    modified = true;
+
+    flushCancelled = false;
+    if (!flushPending) {
+      flushPending = true;
+      Scheduler.get().scheduleFinally(flushCommand);
+    }
+  }
+}
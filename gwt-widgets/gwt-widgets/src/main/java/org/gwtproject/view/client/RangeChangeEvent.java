@@ -15,10 +15,11 @@
  */
 package org.gwtproject.view.client;
 
+import org.gwtproject.event.shared.CoalescableEvent;
 import org.gwtproject.event.shared.Event;
 
 /** Represents a range change event. */
-public class RangeChangeEvent extends Event<RangeChangeEvent.Handler> {
+public class RangeChangeEvent extends Event<RangeChangeEvent.Handler> implements CoalescableEvent {
 
   /** Handler type. */
   private static Type<Handler> TYPE;